@@ -0,0 +1,363 @@
+package com.hardcopy.vrdefense;
+
+import android.content.res.Resources;
+import android.test.InstrumentationTestCase;
+import android.util.Log;
+
+import org.rajawali3d.Geometry3D;
+import org.rajawali3d.Object3D;
+import org.rajawali3d.loader.AMeshLoader;
+import org.rajawali3d.loader.LoaderAWD;
+import org.rajawali3d.loader.LoaderBinaryMesh;
+import org.rajawali3d.loader.LoaderOBJ;
+import org.rajawali3d.util.MeshOptimizer;
+import org.rajawali3d.util.exporter.BinaryMeshExporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Load time of the game's models with their original loader and from a baked binary mesh, the
+ * vertices saved by welding OBJ models, the vertex cache miss ratio (ACMR) before and after
+ * MeshOptimizer, the load time and size of ZLIB compressed AWD models and the speedup of decoding
+ * AWD blocks in parallel.
+ * Run on a device with: ./gradlew :app:connectedAndroidTest, results are logged with tag
+ * ModelLoadBenchmark.
+ */
+public class ModelLoadBenchmark extends InstrumentationTestCase {
+    private static final String TAG = "ModelLoadBenchmark";
+    private static final int RUNS = 5;
+    private static final int AWD_HEADER_SIZE = 12;
+
+    private static final int[] OBJ_MODELS = {
+            R.raw.destroyer_obj, R.raw.spaceship1_obj, R.raw.spaceship2_obj, R.raw.spaceship3_obj,
+            R.raw.spaceship4_obj, R.raw.spaceship5_obj, R.raw.spaceship6_obj
+    };
+    private static final int[] AWD_MODELS = {
+            R.raw.capital, R.raw.dark_fighter, R.raw.space_cruiser
+    };
+
+    private Resources mResources;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mResources = getInstrumentation().getTargetContext().getResources();
+    }
+
+    public void testObjModels() throws Exception {
+        for(int model : OBJ_MODELS) {
+            compare(model, false);
+        }
+    }
+
+    public void testAwdModels() throws Exception {
+        for(int model : AWD_MODELS) {
+            compare(model, true);
+        }
+    }
+
+    public void testObjWelding() throws Exception {
+        for(int model : OBJ_MODELS) {
+            long expanded = Long.MAX_VALUE, welded = Long.MAX_VALUE;
+            int expandedVertices = 0, weldedVertices = 0;
+            for(int i = 0; i < RUNS; i++) {
+                AMeshLoader loader = new LoaderOBJ(mResources, null, model);
+                long start = System.nanoTime();
+                loader.parse();
+                expanded = Math.min(expanded, System.nanoTime() - start);
+                expandedVertices = countVertices(loader.getParsedObject());
+
+                loader = new LoaderOBJ(mResources, null, model).setWeldVertices(true);
+                start = System.nanoTime();
+                loader.parse();
+                welded = Math.min(welded, System.nanoTime() - start);
+                weldedVertices = countVertices(loader.getParsedObject());
+            }
+
+            Log.i(TAG, String.format("%s: %d vertices %.2f ms, welded %d vertices (-%.0f%%) %.2f ms",
+                    mResources.getResourceEntryName(model), expandedVertices, expanded / 1e6, weldedVertices,
+                    100f * (expandedVertices - weldedVertices) / expandedVertices, welded / 1e6));
+            assertTrue(weldedVertices <= expandedVertices);
+        }
+    }
+
+    public void testVertexCacheOptimization() throws Exception {
+        for(int model : OBJ_MODELS) {
+            reportACMR(model, false);
+        }
+        for(int model : AWD_MODELS) {
+            reportACMR(model, true);
+        }
+    }
+
+    /**
+     * LZMA can't be written on the device, ZLIB stands in for the compressed AWD path.
+     */
+    public void testAwdCompression() throws Exception {
+        for(int model : AWD_MODELS) {
+            File plain = new File(getInstrumentation().getTargetContext().getCacheDir(),
+                    mResources.getResourceEntryName(model) + ".awd");
+            File zlib = new File(plain.getPath() + ".zlib");
+            writeAwd(model, plain, false);
+            writeAwd(model, zlib, true);
+
+            long uncompressed = Long.MAX_VALUE, compressed = Long.MAX_VALUE;
+            int plainVertices = 0, zlibVertices = 0;
+            for(int i = 0; i < RUNS; i++) {
+                AMeshLoader loader = new LoaderAWD(plain);
+                long start = System.nanoTime();
+                loader.parse();
+                uncompressed = Math.min(uncompressed, System.nanoTime() - start);
+                plainVertices = countVertices(loader.getParsedObject());
+
+                loader = new LoaderAWD(zlib);
+                start = System.nanoTime();
+                loader.parse();
+                compressed = Math.min(compressed, System.nanoTime() - start);
+                zlibVertices = countVertices(loader.getParsedObject());
+            }
+
+            Log.i(TAG, String.format("%s: uncompressed %d bytes read %.2f ms, zlib %d bytes read %.2f ms",
+                    mResources.getResourceEntryName(model), plain.length(), uncompressed / 1e6,
+                    zlib.length(), compressed / 1e6));
+            assertEquals(plainVertices, zlibVertices);
+            plain.delete();
+            zlib.delete();
+        }
+    }
+
+    /**
+     * Copies an uncompressed AWD resource to a file, with its body ZLIB compressed if asked to.
+     */
+    private void writeAwd(int model, File file, boolean compress) throws Exception {
+        byte[] awd = readResource(model);
+        byte[] body = Arrays.copyOfRange(awd, AWD_HEADER_SIZE, awd.length);
+        if(compress) {
+            ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+            DeflaterOutputStream out = new DeflaterOutputStream(deflated, new Deflater(Deflater.BEST_COMPRESSION));
+            out.write(body);
+            out.close();
+            body = deflated.toByteArray();
+            // Compression byte and little endian body length
+            awd[7] = 1;
+            for(int i = 0; i < 4; i++) {
+                awd[8 + i] = (byte) (body.length >>> (8 * i));
+            }
+        }
+
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(awd, 0, AWD_HEADER_SIZE);
+            stream.write(body);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * The game's AWD models have one geometry block each, so the benchmark file holds a copy of every
+     * model's geometry and mesh instance blocks per repetition.
+     */
+    public void testParallelAwdDecoding() throws Exception {
+        final int repetitions = 4;
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ByteBuffer header = ByteBuffer.allocate(AWD_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        int id = 0;
+        for(int r = 0; r < repetitions; r++) {
+            for(int model : AWD_MODELS) {
+                ByteBuffer awd = ByteBuffer.wrap(readResource(model)).order(ByteOrder.LITTLE_ENDIAN);
+                if(r == 0 && model == AWD_MODELS[0]) {
+                    header.put(awd.array(), 0, AWD_HEADER_SIZE);
+                }
+                int geometryId = 0;
+                awd.position(AWD_HEADER_SIZE);
+                while(awd.remaining() > 0) {
+                    awd.getInt(); // Block id
+                    int namespace = awd.get();
+                    int type = awd.get();
+                    int flags = awd.get();
+                    byte[] data = new byte[awd.getInt()];
+                    awd.get(data);
+                    if(type != 1 && type != 23) continue;
+
+                    ByteBuffer block = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+                    if(type == 1) {
+                        geometryId = ++id;
+                    } else if(block.getInt(0) == 0) {
+                        // Parent id, transform, name, then the geometry id
+                        int nameOffset = 4 + 12 * ((flags & 1) != 0 ? 8 : 4);
+                        int geometryOffset = nameOffset + 2 + (block.getShort(nameOffset) & 0xFFFF);
+                        block.putInt(geometryOffset, geometryId);
+                        ++id;
+                    } else {
+                        continue;
+                    }
+                    ByteBuffer blockHeader = ByteBuffer.allocate(11).order(ByteOrder.LITTLE_ENDIAN);
+                    blockHeader.putInt(id).put((byte) namespace).put((byte) type).put((byte) flags).putInt(data.length);
+                    body.write(blockHeader.array());
+                    body.write(data);
+                }
+            }
+        }
+        header.putInt(8, body.size());
+        File file = new File(getInstrumentation().getTargetContext().getCacheDir(), "parallel.awd");
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(header.array());
+            body.writeTo(stream);
+        } finally {
+            stream.close();
+        }
+
+        long sequential = Long.MAX_VALUE, parallel = Long.MAX_VALUE;
+        Object3D sequentialObject = null, parallelObject = null;
+        for(int i = 0; i < RUNS; i++) {
+            LoaderAWD loader = new LoaderAWD(file);
+            long start = System.nanoTime();
+            loader.parse();
+            sequential = Math.min(sequential, System.nanoTime() - start);
+            sequentialObject = loader.getParsedObject();
+
+            loader = new LoaderAWD(file).setParallelDecoding(true);
+            start = System.nanoTime();
+            loader.parse();
+            parallel = Math.min(parallel, System.nanoTime() - start);
+            parallelObject = loader.getParsedObject();
+        }
+
+        Log.i(TAG, String.format("%d geometry blocks on %d cores: sequential %.2f ms, parallel %.2f ms (%.2fx)",
+                repetitions * AWD_MODELS.length, Runtime.getRuntime().availableProcessors(),
+                sequential / 1e6, parallel / 1e6, (double) sequential / parallel));
+        assertEquals(describe(sequentialObject), describe(parallelObject));
+        file.delete();
+    }
+
+    /**
+     * Names, transforms and geometry of an object tree.
+     */
+    private static String describe(Object3D object) {
+        StringBuilder sb = new StringBuilder(object.getName()).append(object.getPosition())
+                .append(object.getScale()).append(object.getOrientation());
+        if(!object.isContainer()) {
+            Geometry3D geometry = object.getGeometry();
+            sb.append(' ').append(geometry.getNumVertices()).append(' ').append(geometry.getNumIndices());
+            FloatBuffer vertices = geometry.getVertices();
+            int hash = 0;
+            for(int i = 0; i < vertices.capacity(); i++) {
+                hash = hash * 31 + Float.floatToIntBits(vertices.get(i));
+            }
+            sb.append(' ').append(hash);
+        }
+        sb.append('\n');
+        for(int i = 0; i < object.getNumChildren(); i++) {
+            sb.append(describe(object.getChildAt(i)));
+        }
+        return sb.toString();
+    }
+
+    private byte[] readResource(int resourceId) throws Exception {
+        ByteArrayOutputStream resource = new ByteArrayOutputStream();
+        InputStream in = mResources.openRawResource(resourceId);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = in.read(buffer)) >= 0) {
+                resource.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return resource.toByteArray();
+    }
+
+    private void reportACMR(int model, boolean awd) throws Exception {
+        AMeshLoader loader = awd ? new LoaderAWD(mResources, null, model)
+                : new LoaderOBJ(mResources, null, model).setWeldVertices(true);
+        Object3D original = loader.parse().getParsedObject();
+
+        loader = awd ? new LoaderAWD(mResources, null, model)
+                : new LoaderOBJ(mResources, null, model).setWeldVertices(true);
+        loader.setOptimizeVertexCache(true);
+        Object3D optimized = loader.parse().getParsedObject();
+
+        float[] before = getACMR(original);
+        float[] after = getACMR(optimized);
+        Log.i(TAG, String.format("%s: %d triangles, ACMR %.3f, optimized %.3f",
+                mResources.getResourceEntryName(model), (int) before[1], before[0] / before[1],
+                after[0] / after[1]));
+        assertTrue(after[0] <= before[0] * 1.01f);
+    }
+
+    /**
+     * @return ACMR times triangles and triangles of all meshes.
+     */
+    private static float[] getACMR(Object3D object) {
+        float[] result = new float[2];
+        if(!object.isContainer() && object.getGeometry().getIndices() != null) {
+            int triangles = object.getGeometry().getNumIndices() / 3;
+            result[0] = MeshOptimizer.getACMR(object.getGeometry()) * triangles;
+            result[1] = triangles;
+        }
+        for(int i = 0; i < object.getNumChildren(); i++) {
+            float[] child = getACMR(object.getChildAt(i));
+            result[0] += child[0];
+            result[1] += child[1];
+        }
+        return result;
+    }
+
+    private void compare(int model, boolean awd) throws Exception {
+        long original = Long.MAX_VALUE;
+        Object3D parsed = null;
+        for(int i = 0; i < RUNS; i++) {
+            AMeshLoader loader = awd ? new LoaderAWD(mResources, null, model)
+                    : new LoaderOBJ(mResources, null, model);
+            long start = System.nanoTime();
+            loader.parse();
+            original = Math.min(original, System.nanoTime() - start);
+            parsed = loader.getParsedObject();
+        }
+
+        File file = new File(getInstrumentation().getTargetContext().getCacheDir(),
+                mResources.getResourceEntryName(model) + ".rmesh");
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            BinaryMeshExporter.write(parsed, stream);
+        } finally {
+            stream.close();
+        }
+
+        long binary = Long.MAX_VALUE;
+        Object3D mapped = null;
+        for(int i = 0; i < RUNS; i++) {
+            LoaderBinaryMesh loader = new LoaderBinaryMesh(file);
+            long start = System.nanoTime();
+            loader.parse();
+            binary = Math.min(binary, System.nanoTime() - start);
+            mapped = loader.getParsedObject();
+        }
+
+        Log.i(TAG, String.format("%s: %s %.2f ms, binary %.2f ms (%d bytes)",
+                mResources.getResourceEntryName(model), awd ? "LoaderAWD" : "LoaderOBJ",
+                original / 1e6, binary / 1e6, file.length()));
+        assertEquals(countVertices(parsed), countVertices(mapped));
+        file.delete();
+    }
+
+    private static int countVertices(Object3D object) {
+        int count = object.isContainer() ? 0 : object.getGeometry().getNumVertices();
+        for(int i = 0; i < object.getNumChildren(); i++) {
+            count += countVertices(object.getChildAt(i));
+        }
+        return count;
+    }
+}
@@ -6,6 +6,7 @@ import android.util.Log;
 import android.view.MotionEvent;
 
 import com.google.vrtoolkit.cardboard.HeadTransform;
+import com.hardcopy.vrdefense.world.GameClock;
 import com.hardcopy.vrdefense.world.World;
 
 import org.rajawali3d.util.MeshExporter;
@@ -17,6 +18,9 @@ public class VRDefenseRenderer extends VRRenderer {
     private Handler mHandler;
     private Callback mCallback;
     private World mWorld;
+    private GameClock mClock = new GameClock();
+    // Set on the UI thread when the game or surface resumes, the clock is reset on the GL thread
+    private volatile boolean mResetClock = false;
     private float[] mHeadViewUpVec = new float[3];
     private float[] mHeadViewForwardVec = new float[3];
 
@@ -38,15 +42,6 @@ public class VRDefenseRenderer extends VRRenderer {
         }
     }
 
-    @Override
-    public void onRender(long elapsedTime, double deltaTime) {
-        super.onRender(elapsedTime, deltaTime);
-
-        mWorld.update(mHeadViewForwardVec, mHeadViewUpVec);
-        if(mWorld.getGameStatus() == World.GAME_STATUS_END)
-            pauseGame();
-    }
-
     @Override
     public void onOffsetsChanged(float xOffset, float yOffset, float xOffsetStep, float yOffsetStep, int xPixelOffset,
                                  int yPixelOffset) {
@@ -64,6 +59,26 @@ public class VRDefenseRenderer extends VRRenderer {
         super.onNewFrame(headTransform);
     }
 
+    @Override
+    protected void onUpdate(long elapsedTime, double deltaTime) {
+        // Called once per frame from onNewFrame(), before the scene animations.
+        // Run game simulation at fixed rate, once per frame at most a few ticks
+        if(mWorld != null) {
+            if(mResetClock) {
+                mResetClock = false;
+                mClock.reset();
+            }
+            int ticks = mClock.advance(System.nanoTime());
+            for(int i=0; i<ticks; i++) {
+                mWorld.update(mHeadViewForwardVec, mHeadViewUpVec);
+            }
+            mWorld.interpolate(mClock.getAlpha());
+            if(mWorld.getGameStatus() == World.GAME_STATUS_END)
+                pauseGame();
+        }
+        super.onUpdate(elapsedTime, deltaTime);
+    }
+
     public void setHandler(Handler h) {
         mHandler = h;
     }
@@ -77,10 +92,24 @@ public class VRDefenseRenderer extends VRRenderer {
         }
     }
 
+    @Override
+    public void onResume() {
+        // Time spent paused must not be caught up when rendering starts again
+        mResetClock = true;
+        super.onResume();
+    }
+
     public void pauseGame() {
         mWorld.pauseGame();
     }
 
+    public void resumeGame() {
+        if(mWorld != null) {
+            mResetClock = true;
+            mWorld.resumeGame();
+        }
+    }
+
     public void finish() throws Throwable {
         mWorld.pauseGame();
         mWorld.finish();
@@ -1,8 +1,5 @@
 package com.hardcopy.vrdefense.world;
 
-import org.rajawali3d.Object3D;
-import org.rajawali3d.math.vector.Vector3;
-
 /**
  * Created by hardcopyworld.com on 2016-06-07.
  */
@@ -12,7 +9,6 @@ public class Destroyer extends GameObject {
     private static final long ATTACK_INTERVAL = 500;
     private static final int CONTINUOUS_ATTACK_COUNT_MAX = 5;
 
-    public Vector3 loc;
     public int health = 1000000;
 
     private long attacked_time;
@@ -21,47 +17,47 @@ public class Destroyer extends GameObject {
 
 
     /**
-     * This class holds status parameters of enemy and controls the movement
-     * @param obj   3D object instance
+     * This class holds status parameters of destroyer
+     * @param x     x axis value of position
+     * @param y     y axis value of position
+     * @param z     z axis value of position
      */
-    public Destroyer(Object3D obj) {
-        super(obj);
-        loc = new Vector3(0, 0, 0);
-        object = obj;
-        initBoundingBox();
+    public Destroyer(double x, double y, double z) {
+        loc.setAll(x, y, z);
+        pre_loc.setAll(x, y, z);
     }
 
-    public int update() {
-        if(attacked_time + ATTACKED_ANIM_DURATION < System.currentTimeMillis()) {
+    public int update(long now) {
+        if(attacked_time + ATTACKED_ANIM_DURATION < now) {
             setShowBoundingVolume(false);
         }
         return mode;
     }
 
-    public boolean isAttackingTime() {
-        if(next_attack_time < System.currentTimeMillis()) {
+    public boolean isAttackingTime(long now) {
+        if(next_attack_time < now) {
             return true;
         }
         return false;
     }
 
-    public void setAttackTime() {
+    public void setAttackTime(long now) {
         attack_count++;
         if(attack_count < CONTINUOUS_ATTACK_COUNT_MAX) {
-            next_attack_time = System.currentTimeMillis() + ATTACK_INTERVAL;
+            next_attack_time = now + ATTACK_INTERVAL;
         } else {
-            next_attack_time = System.currentTimeMillis() + REATTACK_INTERVAL;
+            next_attack_time = now + REATTACK_INTERVAL;
             attack_count = 0;
         }
     }
 
-    public void attacked(int damage) {
+    public void attacked(int damage, long now) {
         health -= damage;
         if(health < 0) {
             mode = MODE_DESTROYED;
         }
         setShowBoundingVolume(true);
-        attacked_time = System.currentTimeMillis();
+        attacked_time = now;
     }
 
     private void moveObject() {
@@ -0,0 +1,415 @@
+package com.hardcopy.vrdefense.world;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Status and movement of all enemy spaceships.
+ * Like MissilePool, state is kept in primitive arrays (enemy i is index i), so nothing is
+ * allocated while the game is running. All enemies share one model, so one local bounding box.
+ *
+ * update() steers every enemy toward its target. When there are more enemies than
+ * getParallelThreshold(), the enemies are split into ranges which are steered on worker threads.
+ * Reviving a destroyed enemy takes random numbers, so it is done after the parallel step
+ * in index order. The result is the same with or without threads.
+ */
+public class EnemyFleet {
+    public static final int ENEMY_TYPE_DARKFIGHTER = 0;
+    public static final int ENEMY_TYPE_SPACESHIP1 = 1;
+    public static final int ENEMY_TYPE_SPACESHIP2 = 2;
+    public static final int ENEMY_TYPE_SPACESHIP3 = 3;
+    public static final int ENEMY_TYPE_SPACESHIP4 = 4;
+    public static final int ENEMY_TYPE_SPACESHIP5 = 5;
+    public static final int ENEMY_TYPE_SPACESHIP6 = 6;
+
+    public static final int PARALLEL_THRESHOLD = 512;
+
+    private static final double WAYPOINT_DISTANCE = 60;
+
+    // distance per tick. See GameClock.TICKS_PER_SECOND
+    private static final double MAX_SPEED = 0.36;
+    private static final double MIN_SPEED = 0.22;
+    private static final double TURN_THRESHOLD = 3;
+    private static final long ATTACKED_ANIM_DURATION = 300;
+    private static final double ACCEL_DEFAULT = 0.0128;
+    private static final long MISSILE_LAUNCH_INTERVAL = 3000;
+    private static final int MAX_HEALTH = 100;
+
+    // Result of steer()
+    private static final int STEP_WAIT = 0;
+    private static final int STEP_MOVE = 1;
+    private static final int STEP_REVIVE = 2;
+
+    private final int mCount;
+
+    // Enemy status
+    public final double[] x, y, z;          // current location
+    public final double[] preX, preY, preZ; // location of previous update
+    public final double[] veloX, veloY, veloZ;
+    public final double[] targetX, targetY, targetZ;
+    public final int[] mode;
+    public final int[] health;
+    public final boolean[] showBoundingVolume;
+    // Bounding box in world space
+    public final double[] minX, minY, minZ, maxX, maxY, maxZ;
+
+    private final double[] mForwardX, mForwardY, mForwardZ;
+    private final double[] mYOffset;
+    private final double[] mYOffsetInit;
+    private final double[] mMaxVelo;
+    private final long[] mStartTime;
+    private final long[] mAttackedTime;   // attacked time by others
+    private final long[] mAttackTime;     // last attack time
+    private final boolean[] mRevive;
+
+    // Bounding box of model in object space (scaled). minX, minY, minZ, maxX, maxY, maxZ
+    private final double[] mLocalBounds = new double[6];
+    // Six values per enemy written by GameObject.computeBounds(), copied to min/max arrays
+    private final double[] mBounds;
+
+    private final Random mRandom;
+
+    // Parallel step
+    private int mParallelThreshold = PARALLEL_THRESHOLD;
+    private ExecutorService mExecutor;
+    private StepTask[] mTasks;
+    private int mPendingTasks;
+    private RuntimeException mTaskError;
+    private long mNow;
+    private double mTargetX, mTargetY, mTargetZ;
+
+
+    /**
+     * Make enemies. Call set() for each enemy before the first update.
+     * @param count     number of enemies
+     * @param rand      random generator of the world
+     */
+    public EnemyFleet(int count, Random rand) {
+        mCount = count;
+        mRandom = rand;
+        x = new double[count]; y = new double[count]; z = new double[count];
+        preX = new double[count]; preY = new double[count]; preZ = new double[count];
+        veloX = new double[count]; veloY = new double[count]; veloZ = new double[count];
+        targetX = new double[count]; targetY = new double[count]; targetZ = new double[count];
+        mode = new int[count];
+        health = new int[count];
+        showBoundingVolume = new boolean[count];
+        minX = new double[count]; minY = new double[count]; minZ = new double[count];
+        maxX = new double[count]; maxY = new double[count]; maxZ = new double[count];
+        mBounds = new double[count * 6];
+        mForwardX = new double[count]; mForwardY = new double[count]; mForwardZ = new double[count];
+        mYOffset = new double[count];
+        mYOffsetInit = new double[count];
+        mMaxVelo = new double[count];
+        mStartTime = new long[count];
+        mAttackedTime = new long[count];
+        mAttackTime = new long[count];
+        mRevive = new boolean[count];
+    }
+
+    /**
+     * Initialize enemy i
+     * @param offset        minimum distance to target (height(y axis) value)
+     * @param maxVelocity   max velocity. 0 for default.
+     * @param startTime     game time to start moving (milli-second)
+     */
+    public void set(int i, double x, double y, double z, double offset, double maxVelocity,
+                    long startTime) {
+        this.x[i] = x; this.y[i] = y; this.z[i] = z;
+        preX[i] = x; preY[i] = y; preZ[i] = z;
+        veloX[i] = 0; veloY[i] = 0; veloZ[i] = 0;
+        mForwardX[i] = 0; mForwardY[i] = 0; mForwardZ[i] = 1;
+        mYOffset[i] = offset;
+        mYOffsetInit[i] = offset;
+        mMaxVelo[i] = maxVelocity > 0 ? maxVelocity : MAX_SPEED;
+        mStartTime[i] = startTime;
+        mode[i] = GameObject.MODE_ATTACK;
+        health[i] = MAX_HEALTH;
+        updateBounds(i);
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    public int getMode(int i) {
+        return mode[i];
+    }
+
+    /**
+     * Enemies are steered on worker threads when there are more enemies than this value.
+     * Set Integer.MAX_VALUE to always update on the calling thread.
+     */
+    public void setParallelThreshold(int threshold) {
+        mParallelThreshold = threshold;
+    }
+
+    public int getParallelThreshold() {
+        return mParallelThreshold;
+    }
+
+    /**
+     * Set size of enemies. Same as GameObject.setLocalBounds().
+     */
+    public void setLocalBounds(double minX, double minY, double minZ,
+                               double maxX, double maxY, double maxZ) {
+        mLocalBounds[0] = minX; mLocalBounds[1] = minY; mLocalBounds[2] = minZ;
+        mLocalBounds[3] = maxX; mLocalBounds[4] = maxY; mLocalBounds[5] = maxZ;
+        for(int i=0; i<mCount; i++) {
+            updateBounds(i);
+        }
+    }
+
+    public boolean isReadyToAttack(int i, long now) {
+        return mode[i] == GameObject.MODE_ATTACK && mAttackTime[i] + MISSILE_LAUNCH_INTERVAL < now;
+    }
+
+    public void setAttackTime(int i, long now) {
+        mAttackTime[i] = now;
+    }
+
+    public void attacked(int i, int damage, long now) {
+        health[i] -= damage;
+        if(health[i] < 0) {
+            mode[i] = GameObject.MODE_DYING;
+            mYOffset[i] = -100;
+        }
+        showBoundingVolume[i] = true;
+        mAttackedTime[i] = now;
+    }
+
+    /**
+     * Check collision with a sphere moving from start to end point.
+     * Same as GameObject.intersectsPath().
+     */
+    public boolean intersectsPath(int i, double startX, double startY, double startZ,
+                                  double endX, double endY, double endZ, double radius) {
+        return GameObject.intersectsPath(startX, startY, startZ, endX, endY, endZ, radius,
+                minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i]);
+    }
+
+    /**
+     * Run one tick of all enemies
+     * @param now   game time of this tick (milli-second)
+     * @param tx    x of target (mothership)
+     * @param ty    y of target. Each enemy adds its own height offset.
+     * @param tz    z of target
+     */
+    public void update(long now, double tx, double ty, double tz) {
+        mNow = now;
+        mTargetX = tx; mTargetY = ty; mTargetZ = tz;
+        if(mCount > mParallelThreshold) {
+            updateParallel();
+        } else {
+            updateRange(0, mCount);
+        }
+        // Revive in index order. Random numbers are taken in the same order as single thread.
+        for(int i=0; i<mCount; i++) {
+            if(mRevive[i]) {
+                mRevive[i] = false;
+                revive(i);
+                move(i);
+            }
+        }
+    }
+
+    /**
+     * Stop worker threads. update() starts them again if needed.
+     */
+    public void release() {
+        if(mExecutor != null) {
+            mExecutor.shutdown();
+            mExecutor = null;
+            mTasks = null;
+        }
+    }
+
+
+    private void updateRange(int from, int to) {
+        long now = mNow;
+        for(int i=from; i<to; i++) {
+            int step = steer(i, now);
+            if(step == STEP_MOVE) {
+                move(i);
+            } else if(step == STEP_REVIVE) {
+                mRevive[i] = true;
+            }
+        }
+    }
+
+    private void updateParallel() {
+        if(mExecutor == null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            mExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "EnemyFleet");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            // Calling thread runs the first range
+            int ranges = threads + 1;
+            mTasks = new StepTask[ranges];
+            for(int k=0; k<ranges; k++) {
+                mTasks[k] = new StepTask(mCount * k / ranges, mCount * (k + 1) / ranges);
+            }
+        }
+        synchronized (this) {
+            mPendingTasks = mTasks.length - 1;
+            mTaskError = null;
+        }
+        for(int k=1; k<mTasks.length; k++) {
+            mExecutor.execute(mTasks[k]);
+        }
+        updateRange(mTasks[0].mFrom, mTasks[0].mTo);
+        boolean interrupted = false;
+        synchronized (this) {
+            // Workers still write the arrays, so keep waiting and restore the interrupt afterwards
+            while(mPendingTasks > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if(mTaskError != null) {
+                throw mTaskError;
+            }
+        }
+    }
+
+    private synchronized void taskDone(RuntimeException error) {
+        if(error != null)
+            mTaskError = error;
+        if(--mPendingTasks == 0)
+            notifyAll();
+    }
+
+    private class StepTask implements Runnable {
+        private final int mFrom;
+        private final int mTo;
+
+        StepTask(int from, int to) {
+            mFrom = from;
+            mTo = to;
+        }
+
+        @Override
+        public void run() {
+            RuntimeException error = null;
+            try {
+                updateRange(mFrom, mTo);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+            taskDone(error);
+        }
+    }
+
+    /**
+     * Change mode and velocity of enemy i. Touches index i only.
+     */
+    private int steer(int i, long now) {
+        if(mStartTime[i] > now) {
+            return STEP_WAIT;         // do not move until object is ready.
+        }
+        // Hide bounding box after ATTACKED_ANIM_DURATION
+        if(mAttackedTime[i] + ATTACKED_ANIM_DURATION < now) {
+            showBoundingVolume[i] = false;
+        }
+        targetX[i] = mTargetX; targetY[i] = mTargetY + mYOffset[i]; targetZ[i] = mTargetZ;
+
+        // Direction to target
+        double dx = targetX[i] - x[i], dy = targetY[i] - y[i], dz = targetZ[i] - z[i];
+        double mag = Math.sqrt(dx*dx + dy*dy + dz*dz);
+        if(mag != 0 && mag != 1) {
+            double mod = 1 / mag;
+            dx *= mod; dy *= mod; dz *= mod;
+        }
+        int m = mode[i];
+        if(m == GameObject.MODE_ATTACK) {
+            if(mag < TURN_THRESHOLD) {
+                mode[i] = GameObject.MODE_TURN;
+            } else {
+                accelerate(i, dx, dy, dz);
+            }
+        } else if(m == GameObject.MODE_TURN) {
+            if(mag > WAYPOINT_DISTANCE) {
+                mode[i] = GameObject.MODE_ATTACK;
+                mYOffset[i] = mYOffset[i] * -1;
+            }
+        } else if(m == GameObject.MODE_DYING) {
+            if(mag < 2) {
+                mode[i] = GameObject.MODE_DESTROYED;
+            } else {
+                accelerate(i, dx, dy, dz);
+            }
+        } else {  // Destroyed!!
+            if(mag < 2) {   // revive!!
+                return STEP_REVIVE;
+            }
+        }
+        return STEP_MOVE;
+    }
+
+    private void accelerate(int i, double dx, double dy, double dz) {
+        veloX[i] += dx * ACCEL_DEFAULT;
+        veloY[i] += dy * ACCEL_DEFAULT;
+        veloZ[i] += dz * ACCEL_DEFAULT;
+    }
+
+    private void revive(int i) {
+        mode[i] = GameObject.MODE_ATTACK;
+        health[i] = MAX_HEALTH;
+        mYOffset[i] = mYOffsetInit[i];
+        double x_offset = mRandom.nextInt(100) + targetX[i]/2;
+        double y_offset = mRandom.nextInt(70) - 20;
+        double z_offset = mRandom.nextInt(100) + targetZ[i]/2;
+        x[i] = x_offset; y[i] = y_offset; z[i] = z_offset;
+    }
+
+    /**
+     * Limit speed, move and update bounds of enemy i
+     */
+    private void move(int i) {
+        // limit speed
+        double vx = veloX[i], vy = veloY[i], vz = veloZ[i];
+        double mag = Math.sqrt(vx*vx + vy*vy + vz*vz);
+        if(mag != 0 && mag != 1) {
+            double mod = 1 / mag;
+            vx *= mod; vy *= mod; vz *= mod;
+        }
+        if(mag > mMaxVelo[i]) mag = mMaxVelo[i];  // limit max speed
+        if(mag < MIN_SPEED) mag = MIN_SPEED;      // limit min speed
+        vx *= mag; vy *= mag; vz *= mag;
+        veloX[i] = vx; veloY[i] = vy; veloZ[i] = vz;
+
+        preX[i] = x[i]; preY[i] = y[i]; preZ[i] = z[i];
+        x[i] += vx; y[i] += vy; z[i] += vz;
+
+        // object looks at (loc - velo)
+        double len = Math.sqrt(vx*vx + vy*vy + vz*vz);
+        if(len > 1e-9) {
+            mForwardX[i] = -vx / len; mForwardY[i] = -vy / len; mForwardZ[i] = -vz / len;
+        }
+        updateBounds(i);
+    }
+
+    /**
+     * Same as GameObject.updateBounds() with the forward axis of enemy i
+     */
+    private void updateBounds(int i) {
+        final double[] b = mBounds;
+        final int o = i * 6;
+        GameObject.computeBounds(x[i], y[i], z[i], mForwardX[i], mForwardY[i], mForwardZ[i],
+                mLocalBounds, b, o);
+        minX[i] = b[o]; minY[i] = b[o + 1]; minZ[i] = b[o + 2];
+        maxX[i] = b[o + 3]; maxY[i] = b[o + 4]; maxZ[i] = b[o + 5];
+    }
+}
@@ -0,0 +1,57 @@
+package com.hardcopy.vrdefense.world;
+
+/**
+ * Fixed time step clock for game simulation.
+ * Renderer calls advance() once per displayed frame and runs World.update() as many times as
+ * it returns. Game speed doesn't depend on frame rate or the number of eyes rendered.
+ * Objects are drawn between last two ticks using getAlpha().
+ */
+public class GameClock {
+    public static final int TICKS_PER_SECOND = 60;
+    public static final long TICK_NANOS = 1000000000L / TICKS_PER_SECOND;
+
+    // Skip time rather than running too many ticks after a long stall (pause, loading, etc)
+    private static final int MAX_TICKS_PER_FRAME = 4;
+
+    private long mLastNanos = -1;
+    private long mAccumulated = 0;
+
+
+    /**
+     * Add elapsed real time
+     * @param nowNanos  current time in nano-seconds. (System.nanoTime())
+     * @return  number of ticks to run
+     */
+    public int advance(long nowNanos) {
+        if(mLastNanos < 0) {
+            mLastNanos = nowNanos;
+            return 0;
+        }
+        mAccumulated += nowNanos - mLastNanos;
+        mLastNanos = nowNanos;
+
+        int ticks = (int) (mAccumulated / TICK_NANOS);
+        if(ticks > MAX_TICKS_PER_FRAME) {
+            ticks = MAX_TICKS_PER_FRAME;
+            mAccumulated = TICK_NANOS * ticks;
+        }
+        mAccumulated -= TICK_NANOS * ticks;
+        return ticks;
+    }
+
+    /**
+     * @return  interpolation factor (0~1) between previous tick and latest tick
+     */
+    public double getAlpha() {
+        return (double) mAccumulated / TICK_NANOS;
+    }
+
+    /**
+     * Forget elapsed time. Call when simulation restarts after pause.
+     * VRDefenseRenderer does this on the GL thread after resumeGame() or onResume().
+     */
+    public void reset() {
+        mLastNanos = -1;
+        mAccumulated = 0;
+    }
+}
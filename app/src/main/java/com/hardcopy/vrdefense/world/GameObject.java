@@ -1,11 +1,13 @@
 package com.hardcopy.vrdefense.world;
 
-import org.rajawali3d.Object3D;
-import org.rajawali3d.bounds.IBoundingVolume;
 import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.util.Intersector;
 
 /**
  * Created by hardcopyworld.com on 2016-06-07.
+ *
+ * Game objects hold status parameters only. They don't know about 3D objects in scene,
+ * so the game can be simulated without renderer. World copies the status to scene objects.
  */
 public abstract class GameObject {
     public static final int MODE_ATTACK = 1;
@@ -14,33 +16,134 @@ public abstract class GameObject {
     public static final int MODE_DYING = 1001;
     public static final int MODE_DESTROYED = 1101;
 
-    public Object3D object;
+    public final Vector3 loc = new Vector3(0, 0, 0);
+    public final Vector3 pre_loc = new Vector3(0, 0, 0);
     protected int mode = MODE_MOVING;
-    protected IBoundingVolume mBBox;
+    protected boolean mShowBoundingVolume = false;
+
+    // Bounding box of model in object space (scaled). minX, minY, minZ, maxX, maxY, maxZ
+    private final double[] mLocalBounds = new double[6];
+    // Bounding box in world space. Updated by updateBounds()
+    public double minX, minY, minZ, maxX, maxY, maxZ;
+    private final double[] mBounds = new double[6];
+
+    // Forward axis of object orientation
+    private final Vector3 mForward = new Vector3(0, 0, 1);
+
+
+    /**
+     * Run one tick
+     * @param now   game time of this tick (milli-second). See WorldSimulation.getTime()
+     */
+    public abstract int update(long now);
+
+    /**
+     * Set size of the object.
+     * Values are bounding box of the model in object space, multiplied by the object scale.
+     */
+    public void setLocalBounds(double minX, double minY, double minZ,
+                               double maxX, double maxY, double maxZ) {
+        mLocalBounds[0] = minX; mLocalBounds[1] = minY; mLocalBounds[2] = minZ;
+        mLocalBounds[3] = maxX; mLocalBounds[4] = maxY; mLocalBounds[5] = maxZ;
+        updateBounds();
+    }
+
+    /**
+     * Orient object to look along the direction (same as Object3D.setLookAt(loc + dir))
+     * and update world space bounding box.
+     */
+    public void updateBounds(double dirX, double dirY, double dirZ) {
+        double len = Math.sqrt(dirX*dirX + dirY*dirY + dirZ*dirZ);
+        if(len > 1e-9) {
+            mForward.setAll(dirX / len, dirY / len, dirZ / len);
+        }
+        updateBounds();
+    }
 
     /**
-     * This class holds status parameters of object
-     * @param obj   3D object instance
+     * Update world space bounding box with current location and orientation
      */
-    public GameObject(Object3D obj) {
-        object = obj;
-        initBoundingBox();
+    public void updateBounds() {
+        computeBounds(loc.x, loc.y, loc.z, mForward.x, mForward.y, mForward.z,
+                mLocalBounds, mBounds, 0);
+        minX = mBounds[0]; minY = mBounds[1]; minZ = mBounds[2];
+        maxX = mBounds[3]; maxY = mBounds[4]; maxZ = mBounds[5];
     }
 
-    public abstract int update();
+    /**
+     * Check collision with a sphere moving from start to end point
+     * @return  true if the path touches world space bounding box
+     */
+    public boolean intersectsPath(double startX, double startY, double startZ,
+                                  double endX, double endY, double endZ, double radius) {
+        return intersectsPath(startX, startY, startZ, endX, endY, endZ, radius,
+                minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * World space bounding box of an object at (x, y, z) looking along unit vector (fx, fy, fz).
+     * Shared with EnemyFleet, which keeps the same state in arrays.
+     * @param local     bounding box in object space. minX, minY, minZ, maxX, maxY, maxZ
+     * @param out       receives world space bounding box in the same order, starting at offset
+     */
+    static void computeBounds(double x, double y, double z, double fx, double fy, double fz,
+                              double[] local, double[] out, int offset) {
+        // right = up x forward
+        double rx = fz;
+        double ry = 0;
+        double rz = -fx;
+        double rmag = Math.sqrt(rx*rx + rz*rz);
+        if(rmag < 1e-9) {
+            // looking straight up or down
+            rx = 1; rz = 0;
+        } else if(rmag != 1) {
+            double mod = 1 / rmag;
+            rx *= mod; rz *= mod;
+        }
+        // up = forward x right
+        double ux = fy * rz - fz * ry;
+        double uy = fz * rx - fx * rz;
+        double uz = fx * ry - fy * rx;
 
-    public void initBoundingBox() {
-        mBBox = object.getGeometry().getBoundingBox();
-        mBBox.transform(object.getModelMatrix());
+        double cx = (local[0] + local[3]) * 0.5;
+        double cy = (local[1] + local[4]) * 0.5;
+        double cz = (local[2] + local[5]) * 0.5;
+        double hx = (local[3] - local[0]) * 0.5;
+        double hy = (local[4] - local[1]) * 0.5;
+        double hz = (local[5] - local[2]) * 0.5;
+
+        // center of rotated box
+        double wx = x + rx * cx + ux * cy + fx * cz;
+        double wy = y + ry * cx + uy * cy + fy * cz;
+        double wz = z + rz * cx + uz * cy + fz * cz;
+        // extents of rotated box
+        double ex = Math.abs(rx) * hx + Math.abs(ux) * hy + Math.abs(fx) * hz;
+        double ey = Math.abs(ry) * hx + Math.abs(uy) * hy + Math.abs(fy) * hz;
+        double ez = Math.abs(rz) * hx + Math.abs(uz) * hy + Math.abs(fz) * hz;
+
+        out[offset] = wx - ex; out[offset + 1] = wy - ey; out[offset + 2] = wz - ez;
+        out[offset + 3] = wx + ex; out[offset + 4] = wy + ey; out[offset + 5] = wz + ez;
     }
 
-    public IBoundingVolume getBoundingBox() {
-        return mBBox;
+    /**
+     * Check collision between a sphere moving from start to end point and a world space box.
+     * Shared with EnemyFleet.
+     */
+    static boolean intersectsPath(double startX, double startY, double startZ,
+                                  double endX, double endY, double endZ, double radius,
+                                  double minX, double minY, double minZ,
+                                  double maxX, double maxY, double maxZ) {
+        return Intersector.intersectLineAABB(startX, startY, startZ,
+                endX - startX, endY - startY, endZ - startZ,
+                minX, minY, minZ, maxX, maxY, maxZ, radius, 1) >= 0;
     }
 
     public void setShowBoundingVolume(boolean isShow) {
-        if(object != null)
-            object.setShowBoundingVolume(isShow);
+        mShowBoundingVolume = isShow;
+    }
+
+    public boolean isShowBoundingVolume() {
+        return mShowBoundingVolume;
     }
 
     public int getMode() {
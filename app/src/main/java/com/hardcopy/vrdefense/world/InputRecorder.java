@@ -0,0 +1,100 @@
+package com.hardcopy.vrdefense.world;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes inputs of every tick of WorldSimulation in a compact binary format.
+ * InputReplay plays the recorded game again with the same result.
+ *
+ * Format (big endian):
+ *   header : int MAGIC, int VERSION, long seed, int enemy count, int missile capacity, long enemy delay
+ *   tick   : byte flags. FLAG_HEAD_VIEW is followed by 6 floats (forward xyz, up xyz)
+ *   end    : byte FLAG_END, long tick count, int score
+ * Head view is written only when it has changed since the last tick.
+ * FLAG_PAUSE and FLAG_RESUME are set on the first tick the game is paused or playing again.
+ * Version 1 has no pause flags.
+ */
+public class InputRecorder {
+    public static final int MAGIC = 0x56524452;   // "VRDR"
+    public static final int VERSION = 2;
+
+    public static final int FLAG_FIRE = 0x01;
+    public static final int FLAG_HEAD_VIEW = 0x02;
+    public static final int FLAG_PAUSE = 0x04;
+    public static final int FLAG_RESUME = 0x08;
+    public static final int FLAG_END = 0x80;
+
+    private DataOutputStream mOut;
+    private final float[] mLastForward = new float[3];
+    private final float[] mLastUp = new float[3];
+    private boolean mHasHeadView = false;
+    private boolean mPaused = false;
+
+
+    /**
+     * Write header. Call WorldSimulation.setRecorder() with this before the first tick.
+     * @param out   output stream. Buffer it for file output.
+     * @param sim   simulation to record
+     */
+    public InputRecorder(OutputStream out, WorldSimulation sim) throws IOException {
+        mOut = new DataOutputStream(out);
+        mOut.writeInt(MAGIC);
+        mOut.writeInt(VERSION);
+        mOut.writeLong(sim.getSeed());
+        mOut.writeInt(sim.getEnemyCount());
+        mOut.writeInt(sim.getMissiles().getCapacity());
+        mOut.writeLong(sim.getEnemyDelay());
+    }
+
+    /**
+     * Called by WorldSimulation at the start of each tick
+     * @param paused    true if the game is paused in this tick
+     */
+    public void recordTick(boolean fire, boolean paused, float[] forward, float[] up) {
+        if(mOut == null)
+            return;
+        int flags = fire ? FLAG_FIRE : 0;
+        if(paused != mPaused) {
+            flags |= paused ? FLAG_PAUSE : FLAG_RESUME;
+            mPaused = paused;
+        }
+        boolean headChanged = !mHasHeadView
+                || forward[0] != mLastForward[0] || forward[1] != mLastForward[1] || forward[2] != mLastForward[2]
+                || up[0] != mLastUp[0] || up[1] != mLastUp[1] || up[2] != mLastUp[2];
+        if(headChanged)
+            flags |= FLAG_HEAD_VIEW;
+        try {
+            mOut.writeByte(flags);
+            if(headChanged) {
+                for(int i=0; i<3; i++) {
+                    mOut.writeFloat(forward[i]);
+                    mLastForward[i] = forward[i];
+                }
+                for(int i=0; i<3; i++) {
+                    mOut.writeFloat(up[i]);
+                    mLastUp[i] = up[i];
+                }
+                mHasHeadView = true;
+            }
+        } catch(IOException e) {
+            e.printStackTrace();
+            mOut = null;
+        }
+    }
+
+    /**
+     * Write end marker with the result of the game and close the stream.
+     */
+    public void finish(WorldSimulation sim) throws IOException {
+        if(mOut == null)
+            return;
+        sim.setRecorder(null);
+        mOut.writeByte(FLAG_END);
+        mOut.writeLong(sim.getTick());
+        mOut.writeInt(sim.getScore());
+        mOut.close();
+        mOut = null;
+    }
+}
@@ -0,0 +1,96 @@
+package com.hardcopy.vrdefense.world;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Plays inputs written by InputRecorder.
+ *
+ * <pre>
+ * InputReplay replay = new InputReplay(in);
+ * WorldSimulation sim = replay.createSimulation();
+ * // set local bounds of objects as when recorded
+ * while(replay.next(sim)) { }
+ * assert sim.getScore() == replay.getRecordedScore();
+ * </pre>
+ */
+public class InputReplay {
+    private final DataInputStream mIn;
+    private final long mSeed;
+    private final int mEnemyCount;
+    private final int mMissileCapacity;
+    private final long mEnemyDelay;
+
+    private final float[] mForward = {0, 0, 1};
+    private final float[] mUp = {0, 1, 0};
+    private long mRecordedTicks = -1;
+    private int mRecordedScore;
+
+
+    /**
+     * Read header
+     * @param in    recorded input. Buffer it for file input.
+     */
+    public InputReplay(InputStream in) throws IOException {
+        mIn = new DataInputStream(in);
+        if(mIn.readInt() != InputRecorder.MAGIC)
+            throw new IOException("Not a recorded game");
+        int version = mIn.readInt();
+        if(version < 1 || version > InputRecorder.VERSION)
+            throw new IOException("Unsupported version: " + version);
+        mSeed = mIn.readLong();
+        mEnemyCount = mIn.readInt();
+        mMissileCapacity = mIn.readInt();
+        mEnemyDelay = mIn.readLong();
+    }
+
+    /**
+     * Make a simulation with the same parameters as the recorded one
+     */
+    public WorldSimulation createSimulation() {
+        return new WorldSimulation(mEnemyCount, mMissileCapacity, mEnemyDelay, mSeed);
+    }
+
+    /**
+     * Apply inputs of next tick and run the tick
+     * @return  false at the end of record. Tick is not run.
+     */
+    public boolean next(WorldSimulation sim) throws IOException {
+        int flags = mIn.readUnsignedByte();
+        if((flags & InputRecorder.FLAG_END) != 0) {
+            mRecordedTicks = mIn.readLong();
+            mRecordedScore = mIn.readInt();
+            return false;
+        }
+        if((flags & InputRecorder.FLAG_HEAD_VIEW) != 0) {
+            for(int i=0; i<3; i++)
+                mForward[i] = mIn.readFloat();
+            for(int i=0; i<3; i++)
+                mUp[i] = mIn.readFloat();
+        }
+        sim.setHeadView(mForward[0], mForward[1], mForward[2], mUp[0], mUp[1], mUp[2]);
+        if((flags & InputRecorder.FLAG_PAUSE) != 0)
+            sim.pause();
+        if((flags & InputRecorder.FLAG_RESUME) != 0)
+            sim.resume();
+        if((flags & InputRecorder.FLAG_FIRE) != 0)
+            sim.fire();
+        sim.update();
+        return true;
+    }
+
+    /**
+     * @return  number of ticks played when recorded. -1 until next() returns false.
+     */
+    public long getRecordedTicks() {
+        return mRecordedTicks;
+    }
+
+    /**
+     * @return  score when recorded. Valid after next() returns false.
+     */
+    public int getRecordedScore() {
+        return mRecordedScore;
+    }
+}
@@ -0,0 +1,152 @@
+package com.hardcopy.vrdefense.world;
+
+import org.rajawali3d.math.vector.Vector3;
+
+/**
+ * Fixed capacity missile container.
+ * All missile state is kept in primitive arrays, so nothing is allocated while the game is running.
+ * World draws missile i (0 ~ getCount()-1) with the i-th pre-made 3D object in scene.
+ *
+ * Active missiles are packed at the beginning of the arrays (index 0 ~ getCount()-1).
+ * Releasing a missile moves the last active missile into the released slot.
+ */
+public class MissilePool {
+    public static final int FROM_FRIENDLY = 1;
+    public static final int FROM_ENEMY = 2;
+    public static final int FROM_DESTROYER = 101;   // doesn't check collision
+    public static final int FROM_MOTHERSHIP = 111;  // doesn't check collision
+
+    // distance per tick. See GameClock.TICKS_PER_SECOND
+    public static final double SPEED_DEFAULT = 0.9;
+    public static final double SPEED_FAST = 1.5;
+    public static final double HALF_SIZE = 0.06;    // half of the missile cube size
+
+    private static final long TIME_TO_LIVE = 3000;
+    private static final double ARRIVE_DISTANCE = 1.5;
+
+    private final int mCapacity;
+    private int mCount = 0;
+
+    // Missile status
+    public final double[] x, y, z;          // current location
+    public final double[] preX, preY, preZ; // location of previous update
+    public final double[] veloX, veloY, veloZ;
+    public final double[] targetX, targetY, targetZ;
+    public final int[] from;
+    public final int[] color;
+    private final long[] mStartTime;
+
+
+    /**
+     * Make missile pool
+     * @param capacity      max number of missiles at once
+     */
+    public MissilePool(int capacity) {
+        mCapacity = capacity;
+        x = new double[capacity]; y = new double[capacity]; z = new double[capacity];
+        preX = new double[capacity]; preY = new double[capacity]; preZ = new double[capacity];
+        veloX = new double[capacity]; veloY = new double[capacity]; veloZ = new double[capacity];
+        targetX = new double[capacity]; targetY = new double[capacity]; targetZ = new double[capacity];
+        from = new int[capacity];
+        color = new int[capacity];
+        mStartTime = new long[capacity];
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Launch a missile from (sx, sy, sz) to (tx, ty, tz)
+     * @return  index of the missile or -1 if pool is full
+     */
+    public int fire(double sx, double sy, double sz, double tx, double ty, double tz,
+                    double speed, int firedFrom, int color, long now) {
+        if(mCount >= mCapacity)
+            return -1;
+        int i = mCount++;
+        x[i] = sx; y[i] = sy; z[i] = sz;
+        preX[i] = sx; preY[i] = sy; preZ[i] = sz;
+        targetX[i] = tx; targetY[i] = ty; targetZ[i] = tz;
+        double dx = tx - sx, dy = ty - sy, dz = tz - sz;
+        double mag = Math.sqrt(dx*dx + dy*dy + dz*dz);
+        if(mag > 0) {
+            mag = speed / mag;
+            veloX[i] = dx * mag; veloY[i] = dy * mag; veloZ[i] = dz * mag;
+        } else {
+            veloX[i] = 0; veloY[i] = 0; veloZ[i] = 0;
+        }
+        from[i] = firedFrom;
+        this.color[i] = color;
+        mStartTime[i] = now;
+        return i;
+    }
+
+    /**
+     * Move missile and check life time.
+     * @return  false if missile reached the target or expired. Caller should release it.
+     */
+    public boolean update(int i, long now) {
+        double dx = targetX[i] - x[i], dy = targetY[i] - y[i], dz = targetZ[i] - z[i];
+        if(dx*dx + dy*dy + dz*dz < ARRIVE_DISTANCE * ARRIVE_DISTANCE
+                || mStartTime[i] + TIME_TO_LIVE < now) {
+            return false;
+        }
+        preX[i] = x[i]; preY[i] = y[i]; preZ[i] = z[i];
+        x[i] += veloX[i]; y[i] += veloY[i]; z[i] += veloZ[i];
+        return true;
+    }
+
+    /**
+     * Give the slot back to pool.
+     * Last active missile is moved to index i, so iterate backward when releasing in a loop.
+     */
+    public void release(int i) {
+        int last = --mCount;
+        if(i != last) {
+            x[i] = x[last]; y[i] = y[last]; z[i] = z[last];
+            preX[i] = preX[last]; preY[i] = preY[last]; preZ[i] = preZ[last];
+            veloX[i] = veloX[last]; veloY[i] = veloY[last]; veloZ[i] = veloZ[last];
+            targetX[i] = targetX[last]; targetY[i] = targetY[last]; targetZ[i] = targetZ[last];
+            from[i] = from[last];
+            color[i] = color[last];
+            mStartTime[i] = mStartTime[last];
+        }
+    }
+
+    /**
+     * Check collision between missile and world space bounding box of other object.
+     * Whole path from previous location to current location is tested, so a fast missile
+     * which moves farther than the box size in one update doesn't pass through the object.
+     */
+    public boolean intersects(int i, GameObject obj) {
+        return obj.intersectsPath(preX[i], preY[i], preZ[i], x[i], y[i], z[i], HALF_SIZE);
+    }
+
+    /**
+     * Check collision between missile i and enemy e. Same as intersects(int, GameObject).
+     */
+    public boolean intersects(int i, EnemyFleet enemies, int e) {
+        return enemies.intersectsPath(e, preX[i], preY[i], preZ[i], x[i], y[i], z[i], HALF_SIZE);
+    }
+
+    /**
+     * Bounding box of the path of last update. Stored in min/max.
+     */
+    public void getPathBounds(int i, Vector3 min, Vector3 max) {
+        min.setAll(Math.min(preX[i], x[i]) - HALF_SIZE,
+                Math.min(preY[i], y[i]) - HALF_SIZE,
+                Math.min(preZ[i], z[i]) - HALF_SIZE);
+        max.setAll(Math.max(preX[i], x[i]) + HALF_SIZE,
+                Math.max(preY[i], y[i]) + HALF_SIZE,
+                Math.max(preZ[i], z[i]) + HALF_SIZE);
+    }
+
+    public void releaseAll() {
+        mCount = 0;
+    }
+}
@@ -1,6 +1,6 @@
 package com.hardcopy.vrdefense.world;
 
-import org.rajawali3d.Object3D;
+import org.rajawali3d.curves.ArcLengthCurve3D;
 import org.rajawali3d.math.vector.Vector3;
 
 /**
@@ -12,64 +12,79 @@ public class Mothership extends GameObject {
     private static final long REATTACK_INTERVAL = 7000;
     private static final long ATTACK_INTERVAL = 500;
     private static final int CONTINUOUS_ATTACK_COUNT_MAX = 3;
+    private static final double LOOK_AHEAD_TIME = 300;  // milli-second
 
-    public Vector3 loc;
-
-    private Vector3 pre_loc;
     public int health = 10000;
+    public final Vector3 look_at = new Vector3(0, 0, 0);
+
+    private final ArcLengthCurve3D mPath;
+    private final double mPathStep;
+    private final double mLookAheadDistance;
+    private double mPathTime = 0;
     private long attacked_time;
     private long next_attack_time;
     private int attack_count;
 
 
     /**
-     * This class holds status parameters of enemy and controls the movement
-     * @param obj   3D object instance
+     * This class holds status parameters of mothership and moves it along the path.
+     * @param path      closed path to follow at constant speed
+     * @param duration  time to go around the path once (milli-second)
      */
-    public Mothership(Object3D obj) {
-        super(obj);
-
-        loc = new Vector3(0, 0, 0);
-        pre_loc = new Vector3(0, 0, 0);
-        object = obj;
+    public Mothership(ArcLengthCurve3D path, long duration) {
+        mPath = path;
+        mPath.setCalculateTangents(true);
+        mPathStep = 1000.0 / GameClock.TICKS_PER_SECOND / duration;
+        mLookAheadDistance = path.getLength() * LOOK_AHEAD_TIME / duration;
+        moveObject();
+        pre_loc.setAll(loc);
     }
 
-    public int update() {
-        if(attacked_time + ATTACKED_ANIM_DURATION < System.currentTimeMillis()) {
+    public int update(long now) {
+        if(attacked_time + ATTACKED_ANIM_DURATION < now) {
             setShowBoundingVolume(false);
         }
+        mPathTime += mPathStep;
+        if(mPathTime >= 1)
+            mPathTime -= 1;
+        pre_loc.setAll(loc);
+        moveObject();
         return mode;
     }
 
-    public void attacked(int damage) {
+    public void attacked(int damage, long now) {
         health -= damage;
         if(health < 0) {
             mode = MODE_DESTROYED;
         }
         setShowBoundingVolume(true);
-        attacked_time = System.currentTimeMillis();
+        attacked_time = now;
     }
 
-    public boolean isAttackingTime() {
-        if(next_attack_time < System.currentTimeMillis()) {
+    public boolean isAttackingTime(long now) {
+        if(next_attack_time < now) {
             return true;
         }
         return false;
     }
 
-    public void setAttackTime() {
+    public void setAttackTime(long now) {
         attack_count++;
         if(attack_count < CONTINUOUS_ATTACK_COUNT_MAX) {
-            next_attack_time = System.currentTimeMillis() + ATTACK_INTERVAL;
+            next_attack_time = now + ATTACK_INTERVAL;
         } else {
-            next_attack_time = System.currentTimeMillis() + REATTACK_INTERVAL;
+            next_attack_time = now + REATTACK_INTERVAL;
             attack_count = 0;
         }
     }
 
     private void moveObject() {
-        // mothership moves along the predefined path.
-        // No need to set the position
+        // mothership moves along the predefined path and looks ahead along the tangent.
+        // Same as SplineTranslateAnimation3D with setOrientToPath(true). Tangent points backward.
+        mPath.calculatePoint(loc, mPathTime);
+        look_at.scaleAndSet(mPath.getCurrentTangent(), -mLookAheadDistance);
+        look_at.add(loc);
+        updateBounds(look_at.x - loc.x, look_at.y - loc.y, look_at.z - loc.z);
     }
 
 }
@@ -0,0 +1,156 @@
+package com.hardcopy.vrdefense.world;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid broad phase for collision check.
+ * Items (index of enemy, etc) are registered with their axis aligned bounding box and
+ * stored in every grid cell the box overlaps. Cells are hashed into a fixed size bucket
+ * table, so the world doesn't need to have a limited size.
+ *
+ * The grid is rebuilt every update: call clear() and insert() all moving items.
+ * Clearing is O(1) and no memory is allocated after the entry buffer grew big enough.
+ */
+public class SpatialHash {
+    private static final int ENTRY_CAPACITY_DEFAULT = 256;
+
+    private final double mInvCellSize;
+    private final int mBucketMask;
+
+    // bucket table. Bucket is valid only when its stamp equals current generation.
+    private final int[] mBucketHead;
+    private final int[] mBucketStamp;
+    private int mGeneration = 1;
+
+    // linked list of entries in bucket
+    private int[] mEntryItem;
+    private int[] mEntryNext;
+    private int mEntryCount = 0;
+
+    // prevents reporting same item twice in a query
+    private int[] mItemStamp = new int[0];
+    private int mQueryStamp = 0;
+
+
+    /**
+     * @param cellSize      edge length of grid cell. Should be about the size of typical item.
+     * @param bucketCount   number of hash buckets. Rounded up to power of 2.
+     */
+    public SpatialHash(double cellSize, int bucketCount) {
+        mInvCellSize = 1.0 / cellSize;
+        int size = 1;
+        while(size < bucketCount) size <<= 1;
+        mBucketMask = size - 1;
+        mBucketHead = new int[size];
+        mBucketStamp = new int[size];
+        mEntryItem = new int[ENTRY_CAPACITY_DEFAULT];
+        mEntryNext = new int[ENTRY_CAPACITY_DEFAULT];
+    }
+
+    /**
+     * Remove all items
+     */
+    public void clear() {
+        mEntryCount = 0;
+        mGeneration++;
+        if(mGeneration == 0) {
+            // stamp overflow. reset table.
+            Arrays.fill(mBucketStamp, 0);
+            mGeneration = 1;
+        }
+    }
+
+    /**
+     * Register item with its bounding box
+     * @param item  non-negative item id. Use small numbers like array index.
+     */
+    public void insert(int item, double minX, double minY, double minZ,
+                       double maxX, double maxY, double maxZ) {
+        if(item >= mItemStamp.length) {
+            int[] stamp = new int[Math.max(item + 1, mItemStamp.length * 2)];
+            System.arraycopy(mItemStamp, 0, stamp, 0, mItemStamp.length);
+            mItemStamp = stamp;
+        }
+        int x0 = cell(minX), y0 = cell(minY), z0 = cell(minZ);
+        int x1 = cell(maxX), y1 = cell(maxY), z1 = cell(maxZ);
+        for(int x=x0; x<=x1; x++) {
+            for(int y=y0; y<=y1; y++) {
+                for(int z=z0; z<=z1; z++) {
+                    addEntry(bucket(x, y, z), item);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find items whose cells overlap with the box.
+     * Results are candidates only. Check exact collision with bounding volumes.
+     * @param result    array to store item ids
+     * @return  number of items stored in result. Items are dropped if result is full.
+     */
+    public int query(double minX, double minY, double minZ,
+                     double maxX, double maxY, double maxZ, int[] result) {
+        int count = 0;
+        if(mEntryCount == 0)
+            return count;
+        mQueryStamp++;
+        if(mQueryStamp == 0) {
+            Arrays.fill(mItemStamp, 0);
+            mQueryStamp = 1;
+        }
+        int x0 = cell(minX), y0 = cell(minY), z0 = cell(minZ);
+        int x1 = cell(maxX), y1 = cell(maxY), z1 = cell(maxZ);
+        for(int x=x0; x<=x1; x++) {
+            for(int y=y0; y<=y1; y++) {
+                for(int z=z0; z<=z1; z++) {
+                    int b = bucket(x, y, z);
+                    if(mBucketStamp[b] != mGeneration)
+                        continue;
+                    for(int e=mBucketHead[b]; e>-1; e=mEntryNext[e]) {
+                        int item = mEntryItem[e];
+                        if(mItemStamp[item] == mQueryStamp)
+                            continue;
+                        mItemStamp[item] = mQueryStamp;
+                        if(count < result.length)
+                            result[count++] = item;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    public int getEntryCount() {
+        return mEntryCount;
+    }
+
+    private int cell(double v) {
+        return (int) Math.floor(v * mInvCellSize);
+    }
+
+    private int bucket(int x, int y, int z) {
+        int h = x * 73856093 ^ y * 19349663 ^ z * 83492791;
+        return h & mBucketMask;
+    }
+
+    private void addEntry(int b, int item) {
+        if(mEntryCount == mEntryItem.length) {
+            int size = mEntryItem.length * 2;
+            int[] items = new int[size];
+            int[] next = new int[size];
+            System.arraycopy(mEntryItem, 0, items, 0, mEntryCount);
+            System.arraycopy(mEntryNext, 0, next, 0, mEntryCount);
+            mEntryItem = items;
+            mEntryNext = next;
+        }
+        int e = mEntryCount++;
+        mEntryItem[e] = item;
+        if(mBucketStamp[b] != mGeneration) {
+            mBucketStamp[b] = mGeneration;
+            mEntryNext[e] = -1;
+        } else {
+            mEntryNext[e] = mBucketHead[b];
+        }
+        mBucketHead[b] = e;
+    }
+}
@@ -11,14 +11,13 @@ import com.google.vrtoolkit.cardboard.audio.CardboardAudioEngine;
 import com.hardcopy.vrdefense.RendererConst;
 import com.hardcopy.vrdefense.VRDefenseRenderer;
 
+import org.rajawali3d.InstancedObject3D;
 import org.rajawali3d.Object3D;
-import org.rajawali3d.animation.Animation;
-import org.rajawali3d.animation.SplineTranslateAnimation3D;
-import org.rajawali3d.bounds.IBoundingVolume;
-import org.rajawali3d.curves.CatmullRomCurve3D;
+import org.rajawali3d.bounds.BoundingBox;
 import org.rajawali3d.lights.DirectionalLight;
 import org.rajawali3d.loader.LoaderAWD;
 import org.rajawali3d.loader.LoaderOBJ;
+import org.rajawali3d.loader.async.ModelCache;
 import org.rajawali3d.materials.Material;
 import org.rajawali3d.materials.methods.DiffuseMethod;
 import org.rajawali3d.materials.textures.ATexture;
@@ -30,34 +29,31 @@ import org.rajawali3d.terrain.SquareTerrain;
 import org.rajawali3d.terrain.TerrainGenerator;
 import org.rajawali3d.vr.renderer.VRRenderer;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Random;
-import java.util.Vector;
+import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Created by hardcopyworld.com on 2016-06-05.
+ *
+ * Game logic runs in WorldSimulation. This class makes scene objects, audio
+ * and copies status of game objects to the scene objects.
  */
 public class World {
     private static final String TAG = "World";
 
-    private static final double CAM_OFFSET = 8;
-    private static final long ANIM_DURATION = 120000;
-    private static final int MISSILE_DAMAGE = 15;
-    private static final long MISSILE_INTERVAL = 400;
-    private static final int SCORE_ENEMY_ATTACK = 15;
-    private static final int SCORE_ENEMY_DESTROY = 100;
-    private static final int SCORE_FRIENDLY_DESTROY = -100;
-    private static final int SCORE_MOTHERSHIP_ATTACK = -1;
-    private static final int SCORE_DESTROYER_ATTACK = 1;
-    private static final int MAX_MOTHERSHIP_MISSILE = 6;
-    private static final int ENEMY_MISSILE_COLOR = 0x55000099;
-    private static final int FRIENDLY_MISSILE_COLOR = 0x55990000;
-
-    public static final int GAME_STATUS_PLAYING = 1;
-    public static final int GAME_STATUS_PAUSE = 11;
-    public static final int GAME_STATUS_END = 101;
+    private static final int MISSILE_POOL_SIZE = 128;
+    private static final long ENEMY_DELAY = 5000;
+
+    // Model file and scale of each enemy type. See EnemyFleet.ENEMY_TYPE_*
+    private static final int[] ENEMY_MODELS = {
+            R.raw.dark_fighter, R.raw.spaceship1_obj, R.raw.spaceship2_obj, R.raw.spaceship3_obj,
+            R.raw.spaceship4_obj, R.raw.spaceship5_obj, R.raw.spaceship6_obj
+    };
+    private static final double[] ENEMY_SCALES = {1, 1.2, 1.5, 1.5, 1.5, 1.5, 1.5};
+
+    public static final int GAME_STATUS_PLAYING = WorldSimulation.GAME_STATUS_PLAYING;
+    public static final int GAME_STATUS_PAUSE = WorldSimulation.GAME_STATUS_PAUSE;
+    public static final int GAME_STATUS_END = WorldSimulation.GAME_STATUS_END;
 
     // Android framework
     private Context mContext;
@@ -68,33 +64,20 @@ public class World {
 
     // World
     private SquareTerrain mTerrain;
-    private int mScore = 0;
-    private int mGameStatus = GAME_STATUS_PLAYING;
+    private WorldSimulation mSim;
+    private InputRecorder mRecorder;
 
-    // Friendly objects
-    private Mothership mMothership;
+    // Scene objects of game objects
     private Object3D mMothershipObj;
-    private SplineTranslateAnimation3D mMothershipAnim;
-
-    // Enemy objects
-    public Destroyer mDestroyer;
-    private List<EnemySpaceship> mEnemies;
-    private int mEnemyCountMax = 5;
-    private int mEnemyCount = 0;
-    private int mEnemyDestroyed = 0;
-
-    // Moving things
-    private volatile List<Missile> mMissiles;
-    private Object3D mMissileObj;
-    private long mLastFireTime;
-
-    // Camera
-    private Vector3 mPrevCameraPos = new Vector3(0,0,0);
-    private Vector3 mHeadViewForward = new Vector3(0,0,0);
-    private Vector3 mHeadViewUp = new Vector3(0,0,0);
-    private SplineTranslateAnimation3D mCameraAnim;
-    private Cube mCameraBox;    // In rajawali-VR, I cannot get position from animated camera.
-                                // Use camera chasing box instead.
+    private Object3D mDestroyerObj;
+    private InstancedObject3D mEnemyObjs;
+    private InstancedObject3D mMissileObjs;
+
+    // Models are parsed in background. See attachModels()
+    private ModelCache mModelCache;
+    private int mEnemyType = EnemyFleet.ENEMY_TYPE_DARKFIGHTER;
+    private boolean mModelsAttached = false;
+    private volatile boolean mReady = false;
 
     // Audio
     private CardboardAudioEngine cardboardAudioEngine;
@@ -106,13 +89,22 @@ public class World {
     public World(Context c, VRRenderer renderer) {
         mContext = c;
         mRenderer = renderer;
-        initialize();
     }
 
     /***************************************************
      * Initialization
      ***************************************************/
     public void initialize() {
+        // Game logic
+        mSim = new WorldSimulation(5, MISSILE_POOL_SIZE, ENEMY_DELAY, System.nanoTime());
+        mSim.setListener(new WorldSimulation.Listener() {
+            @Override
+            public void onMothershipDamaged() {
+                if(mCallback != null)
+                    mCallback.onEvent(RendererConst.RENDERER_CALLBACK_DAMAGED, 0, 0, null);
+            }
+        });
+
         // Lights
         setLights();
         // Camera settings
@@ -124,23 +116,21 @@ public class World {
         // Audio
         initAudio();
 
-        // Make objects
-        makeFixedObjects();
-        // Make mothership
-        makeMothership();
-
-        // Make enemy
-        mEnemies = Collections.synchronizedList(new ArrayList<EnemySpaceship>());
-        long delay = 10000;
-        for(int i=0; i<mEnemyCountMax; i++) {
-            EnemySpaceship ship = makeEnemy(EnemySpaceship.ENEMY_TYPE_DARKFIGHTER, 5, 0, delay);
-            if(ship != null && ship.object != null)
-                mEnemies.add(ship);
-            delay = delay + 5000;
-        }
-
-        // cache missile object
-        mMissiles = new Vector<Missile>();
+        // Parse models in background. Scene objects are made in attachModels()
+        // when each model is ready. All enemies share one model and are drawn in one batch.
+        mModelCache = new ModelCache(mRenderer);
+        mModelsAttached = false;
+        mReady = false;
+        // OBJ faces are welded into shared vertices, which saves a quarter to a third of the vertices.
+        // All meshes are reordered for the vertex cache.
+        preloadAwd(R.raw.capital);
+        if(mEnemyType == EnemyFleet.ENEMY_TYPE_DARKFIGHTER)
+            preloadAwd(ENEMY_MODELS[mEnemyType]);
+        else
+            preloadObj(ENEMY_MODELS[mEnemyType]);
+        preloadObj(R.raw.destroyer_obj);
+
+        // Make missiles. Drawn in one batch.
         prepareMissile();
     }
 
@@ -149,24 +139,23 @@ public class World {
      * Public methods
      ***************************************************/
     public void finish() {
+        stopRecording();
         pauseAudio();
         pauseGame();
         // Remove objects from scene
-        for(int i=mMissiles.size()-1; i>-1; i--) {
-            Missile missile = mMissiles.get(i);
-            mRenderer.getCurrentScene().removeChild(missile.object);
-            mMissiles.remove(missile);
-        }
-        for(int i=0; i<mEnemyCountMax; i++) {
-            EnemySpaceship enemy = mEnemies.get(i);
-            mRenderer.getCurrentScene().removeChild(enemy.object);
-        }
-        mRenderer.getCurrentScene().removeChild(mTerrain);
-        mRenderer.getCurrentScene().removeChild(mDestroyer.object);
-        mRenderer.getCurrentScene().removeChild(mMothershipObj);
-        mRenderer.getCurrentScene().removeChild(mCameraBox);
-
-        mGameStatus = GAME_STATUS_END;
+        if(mMissileObjs != null)
+            mRenderer.getCurrentScene().removeChild(mMissileObjs);
+        if(mEnemyObjs != null)
+            mRenderer.getCurrentScene().removeChild(mEnemyObjs);
+        if(mTerrain != null)
+            mRenderer.getCurrentScene().removeChild(mTerrain);
+        if(mDestroyerObj != null)
+            mRenderer.getCurrentScene().removeChild(mDestroyerObj);
+        if(mMothershipObj != null)
+            mRenderer.getCurrentScene().removeChild(mMothershipObj);
+
+        mSim.endGame();
+        mSim.release();
         mContext = null;
     }
 
@@ -174,159 +163,124 @@ public class World {
         mCallback = c;
     }
 
-    public void update(float[] headViewForward, float[] headViewUp) {
-        // Remember camera look-at vector
-        mHeadViewForward.setAll(headViewForward[0], headViewForward[1], headViewForward[2]);
-        mHeadViewUp.setAll(headViewUp[0], headViewUp[1], headViewUp[2]);
+    /**
+     * Game starts when models of mothership and enemies are ready. See getLoadingProgress()
+     */
+    public boolean isReady() {
+        return mReady;
+    }
+
+    /**
+     * @return  fraction of models loaded, 0 ~ 1
+     */
+    public float getLoadingProgress() {
+        return mModelCache.getProgress();
+    }
 
-        // Check game status
-        if(mGameStatus != GAME_STATUS_PLAYING) {
+    public void update(float[] headViewForward, float[] headViewUp) {
+        if(!mReady)
             return;
-        }
+        // Remember camera look-at vector
+        mSim.setHeadView(headViewForward[0], headViewForward[1], headViewForward[2],
+                headViewUp[0], headViewUp[1], headViewUp[2]);
+        mSim.update();
+    }
 
-        // Update mothership
-        mMothership.update();
-        mMothership.initBoundingBox();
-        if(mMothership.isAttackingTime()) {
-                attackDestroyer(mMothership.object.getX(),
-                        mMothership.object.getY(),
-                        mMothership.object.getZ());
-                mMothership.setAttackTime();
+    /**
+     * Move objects in scene between last two updates.
+     * Called once per displayed frame after update().
+     * @param alpha     0 = previous update, 1 = latest update
+     */
+    public void interpolate(double alpha) {
+        attachModels();
+
+        // Camera
+        Vector3 pre = mSim.getPrevCameraPosition();
+        Vector3 cur = mSim.getCameraPosition();
+        mRenderer.setCameraPosition(pre.x + (cur.x - pre.x) * alpha,
+                pre.y + (cur.y - pre.y) * alpha,
+                pre.z + (cur.z - pre.z) * alpha);
+
+        // Mothership moves along the path and looks ahead
+        Mothership mothership = mSim.getMothership();
+        if(mMothershipObj != null) {
+            syncObject(mothership, mMothershipObj, alpha);
+            mMothershipObj.setLookAt(mothership.look_at.x, mothership.look_at.y, mothership.look_at.z);
         }
-
-        // Update destroyer
-        mDestroyer.update();
-        if(mDestroyer.isAttackingTime()) {
-            attackMothership(mDestroyer.object.getX(),
-                    mDestroyer.object.getY() + 10,
-                    mDestroyer.object.getZ(),
-                    Missile.FROM_DESTROYER);
-            mDestroyer.setAttackTime();
+        if(mDestroyerObj != null) {
+            mDestroyerObj.setShowBoundingVolume(mSim.getDestroyer().isShowBoundingVolume());
         }
 
-        // Update enemy movement
-        for(int i=0; i<mEnemies.size(); i++) {
-            EnemySpaceship enemy = mEnemies.get(i);
-            enemy.setTarget(mMothershipObj.getX(), mMothershipObj.getY(), mMothershipObj.getZ());
-            enemy.update();
-            enemy.initBoundingBox();
-            // attack mothership
-            if(enemy.isReadyToAttack()) {
-                attackMothership(enemy.object.getX(), enemy.object.getY(), enemy.object.getZ(),
-                        Missile.FROM_ENEMY);
-                enemy.setAttackTime();
+        // Enemy i is instance i. Enemies look at (loc - velo)
+        if(mEnemyObjs != null) {
+            EnemyFleet enemies = mSim.getEnemies();
+            for(int i=0; i<enemies.getCount(); i++) {
+                mEnemyObjs.setInstancePosition(i,
+                        enemies.preX[i] + (enemies.x[i] - enemies.preX[i]) * alpha,
+                        enemies.preY[i] + (enemies.y[i] - enemies.preY[i]) * alpha,
+                        enemies.preZ[i] + (enemies.z[i] - enemies.preZ[i]) * alpha);
+                mEnemyObjs.setInstanceLookAt(i, enemies.x[i] - enemies.veloX[i],
+                        enemies.y[i] - enemies.veloY[i],
+                        enemies.z[i] - enemies.veloZ[i]);
+                mEnemyObjs.setInstanceShowBoundingVolume(i, enemies.showBoundingVolume[i]);
             }
         }
 
-        synchronized (mMissiles) {
-            // Update missile movement and check collision
-            boolean removeMissile = false;
-            for(int i=mMissiles.size()-1; i>-1; i--) {
-                Missile missile = mMissiles.get(i);
-                // update movement
-                if(missile.update() == Missile.MODE_DESTROYED) {
-                    // delete missile
-                    mRenderer.getCurrentScene().removeChild(missile.object);
-                    //mMissileObj.removeChild(missile.object);
-                    mMissiles.remove(missile);
-                    continue;
-                }
-                if(missile.from >= Missile.FROM_DESTROYER)
-                    continue;
-                // check collision
-                missile.initBoundingBox();
-                IBoundingVolume bbox = missile.getBoundingBox();
-                if(bbox.intersectsWith(mMothership.getBoundingBox())) {
-                    mMothership.attacked(MISSILE_DAMAGE);
-                    mScore += SCORE_MOTHERSHIP_ATTACK;
-                    if(mMothership.getMode() == Mothership.MODE_DESTROYED) {
-                        endGame();
-                        return;
-                    }
-                    if(mCallback != null)
-                        mCallback.onEvent(RendererConst.RENDERER_CALLBACK_DAMAGED, 0, 0, null);
-                }
-//                else if(missile.from == Missile.FROM_FRIENDLY
-//                        && bbox.intersectsWith(mDestroyer.getBoundingBox())) {
-//                    mDestroyer.attacked(MISSILE_DAMAGE);
-//                    mScore += SCORE_DESTROYER_ATTACK;
-//                    removeMissile = true;
-//                }
-                else {
-                    for(int j=0; j<mEnemies.size(); j++) {
-                        EnemySpaceship enemy = mEnemies.get(j);
-                        if(enemy.getMode() != EnemySpaceship.MODE_DYING
-                                && missile.from == Missile.FROM_FRIENDLY
-                                && bbox.intersectsWith(enemy.getBoundingBox())) {
-                            enemy.attacked(MISSILE_DAMAGE);
-                            enemy.setAttackVector(missile.object.getLookAt());
-                            mScore += SCORE_ENEMY_ATTACK;
-                            if(enemy.getMode() == EnemySpaceship.MODE_DYING) {
-                                mScore += SCORE_ENEMY_DESTROY;
-                            }
-                            removeMissile = true;
-                        }
-                    }
-                }
-                // remove missile
-                if(removeMissile) {
-                    mRenderer.getCurrentScene().removeChild(missile.object);
-                    //mMissileObj.removeChild(missile.object);
-                    mMissiles.remove(missile);
-                    System.gc();
+        // Missile i is instance i
+        if(mMissileObjs != null) {
+            MissilePool missiles = mSim.getMissiles();
+            synchronized (missiles) {
+                int count = missiles.getCount();
+                for(int i=0; i<count; i++) {
+                    mMissileObjs.setInstancePosition(i,
+                            missiles.preX[i] + (missiles.x[i] - missiles.preX[i]) * alpha,
+                            missiles.preY[i] + (missiles.y[i] - missiles.preY[i]) * alpha,
+                            missiles.preZ[i] + (missiles.z[i] - missiles.preZ[i]) * alpha);
+                    mMissileObjs.setInstanceColor(i, missiles.color[i]);
                 }
+                mMissileObjs.setInstanceCount(count);
             }
         }
     }
 
     public void fire() {
-        if(mLastFireTime + MISSILE_INTERVAL > System.currentTimeMillis()) {
-            return;
-        }
-        // clone object and add to scene
-        Object3D missileObj = mMissileObj.clone();
-        missileObj.setX(mCameraBox.getX());
-        missileObj.setY(mCameraBox.getY());
-        missileObj.setZ(mCameraBox.getZ());
-        missileObj.setColor(FRIENDLY_MISSILE_COLOR);
-        mRenderer.getCurrentScene().addChild(missileObj);
-        //mMissileObj.addChild(missileObj);
-        // make Missile instance and set location and target
-        Missile missile = new Missile(mCameraBox.getX(), mCameraBox.getY(), mCameraBox.getZ(),
-                Missile.FROM_FRIENDLY, missileObj);
-        Vector3 targetVec = new Vector3(mHeadViewForward);
-        targetVec.normalize();
-        targetVec.multiply(30);
-        missile.setTarget(mCameraBox.getX() + targetVec.x,
-                mCameraBox.getY() + targetVec.y,
-                mCameraBox.getZ() + targetVec.z);
-        synchronized (mMissiles) {
-            mMissiles.add(missile);
-        }
+        mSim.fire();
     }
 
     public int getScore() {
-        return mScore;
+        return mSim.getScore();
+    }
+
+    /**
+     * Record inputs from now on. Recording should start before the first update()
+     * to replay the same game with InputReplay.
+     */
+    public void startRecording(OutputStream out) throws IOException {
+        mRecorder = new InputRecorder(out, mSim);
+        mSim.setRecorder(mRecorder);
+    }
+
+    public void stopRecording() {
+        if(mRecorder == null)
+            return;
+        try {
+            mRecorder.finish(mSim);
+        } catch(IOException e) {
+            e.printStackTrace();
+        }
+        mRecorder = null;
     }
 
     public int getGameStatus() {
-        return mGameStatus;
+        return mSim.getGameStatus();
     }
 
     public void pauseGame() {
-        if(mGameStatus != GAME_STATUS_PAUSE) {
-            mCameraAnim.pause();
-            mMothershipAnim.pause();
-            mGameStatus = GAME_STATUS_PAUSE;
-        }
+        mSim.pause();
     }
 
     public void resumeGame() {
-        if(mGameStatus != GAME_STATUS_PAUSE) {
-            mCameraAnim.play();
-            mMothershipAnim.play();
-            mGameStatus = GAME_STATUS_PLAYING;
-        }
+        mSim.resume();
     }
 
     public void pauseAudio() {
@@ -410,221 +364,137 @@ public class World {
         }
     }
 
-    private void makeFixedObjects() {
-        try {
-            // Make fixed objects
-            Object3D obj = null;
-            LoaderOBJ loader = new LoaderOBJ(mContext.getResources(),
-                    mRenderer.getTextureManager(), R.raw.destroyer_obj);
-            loader.parse();
-            obj = loader.getParsedObject();
-            obj.enableLookAt();
-            obj.setScale(20f);
-
-            Material objMaterial = new Material();
-            objMaterial.setDiffuseMethod(new DiffuseMethod.Lambert());
-            //objMaterial.setColorInfluence(0);
-            objMaterial.enableLighting(true);
-            objMaterial.setColor(0xff444444);
-
-            obj.setMaterial(objMaterial);
-            mRenderer.getCurrentScene().addChild(obj);
-
-//            LoaderAWD loader = new LoaderAWD(mContext.getResources(), mRenderer.getTextureManager(),
-//                    R.raw.space_cruiser);
-//            loader.parse();
-//
-//            Material cruiserMaterial = new Material();
-//            cruiserMaterial.setDiffuseMethod(new DiffuseMethod.Lambert());
-//            cruiserMaterial.setColorInfluence(0);
-//            cruiserMaterial.enableLighting(true);
-//            cruiserMaterial.addTexture(new Texture("spaceCruiserTex", R.drawable.space_cruiser_4_color_1));
-//
-//            Object3D obj = loader.getParsedObject();
-//            obj.setMaterial(cruiserMaterial);
-//            obj.setScale(10);
-//            obj.setZ(-6);
-//            obj.setY(1);
-//            mRenderer.getCurrentScene().addChild(obj);
-
-            mDestroyer = new Destroyer(obj);
-            mDestroyer.initBoundingBox();
-        } catch(Exception e) {
-            e.printStackTrace();
+    /**
+     * Make scene objects of models which finished loading in background.
+     * Called on GL thread once per frame until every requested model is done.
+     */
+    private void attachModels() {
+        if(mModelsAttached)
+            return;
+        if(mMothershipObj == null && mModelCache.isLoaded(R.raw.capital)) {
+            makeMothership(mModelCache.get(R.raw.capital));
+        }
+        if(mDestroyerObj == null && mModelCache.isLoaded(R.raw.destroyer_obj)) {
+            makeDestroyer(mModelCache.get(R.raw.destroyer_obj));
+        }
+        int enemyModel = ENEMY_MODELS[mEnemyType];
+        if(mEnemyObjs == null && mModelCache.isLoaded(enemyModel)) {
+            makeEnemies(mEnemyType, mModelCache.getPrototype(enemyModel));
         }
+        // Game needs sizes of mothership and enemies
+        mReady = mModelCache.isDone(R.raw.capital) && mModelCache.isDone(enemyModel);
+        mModelsAttached = mModelCache.getProgress() >= 1;
     }
 
-    private void makeMothership() {
-        try {
-            CatmullRomCurve3D path;
+    private void makeDestroyer(Object3D obj) {
+        obj.enableLookAt();
+        obj.setScale(20f);
+
+        Material objMaterial = new Material();
+        objMaterial.setDiffuseMethod(new DiffuseMethod.Lambert());
+        //objMaterial.setColorInfluence(0);
+        objMaterial.enableLighting(true);
+        objMaterial.setColor(0xff444444);
+
+        obj.setMaterial(objMaterial);
+        obj.setFrustumTest(true);
+        mRenderer.getCurrentScene().addChild(obj);
 
-            LoaderAWD loader = new LoaderAWD(mContext.getResources(),
-                    mRenderer.getTextureManager(), R.raw.capital);
-            loader.parse();
+//        LoaderAWD loader = new LoaderAWD(mContext.getResources(), mRenderer.getTextureManager(),
+//                R.raw.space_cruiser);
+//        loader.parse();
+//
+//        Material cruiserMaterial = new Material();
+//        cruiserMaterial.setDiffuseMethod(new DiffuseMethod.Lambert());
+//        cruiserMaterial.setColorInfluence(0);
+//        cruiserMaterial.enableLighting(true);
+//        cruiserMaterial.addTexture(new Texture("spaceCruiserTex", R.drawable.space_cruiser_4_color_1));
+//
+//        Object3D obj = loader.getParsedObject();
+//        obj.setMaterial(cruiserMaterial);
+//        obj.setScale(10);
+//        obj.setZ(-6);
+//        obj.setY(1);
+//        mRenderer.getCurrentScene().addChild(obj);
+
+        mDestroyerObj = obj;
+        Destroyer destroyer = mSim.getDestroyer();
+        obj.setPosition(destroyer.loc);
+        setLocalBounds(destroyer, obj);
+    }
 
-            Material capitalMaterial = new Material();
-            capitalMaterial.setDiffuseMethod(new DiffuseMethod.Lambert());
-            capitalMaterial.setColorInfluence(0);
-            capitalMaterial.enableLighting(true);
+    private void makeMothership(Object3D obj) {
+        Material capitalMaterial = new Material();
+        capitalMaterial.setDiffuseMethod(new DiffuseMethod.Lambert());
+        capitalMaterial.setColorInfluence(0);
+        capitalMaterial.enableLighting(true);
+        try {
             capitalMaterial.addTexture(new Texture("capitalTex", R.drawable.hullw));
             capitalMaterial.addTexture(new NormalMapTexture("capitalNormTex", R.drawable.hulln));
-
-            mMothershipObj = loader.getParsedObject();
-            mMothershipObj.setMaterial(capitalMaterial);
-            mMothershipObj.setScale(5);
-            mMothershipObj.enableLookAt();
-            mRenderer.getCurrentScene().addChild(mMothershipObj);
-
-            path = new CatmullRomCurve3D();
-            path.addPoint(new Vector3(0, 15, 100));
-            path.addPoint(new Vector3(-100, 15, 0));
-            path.addPoint(new Vector3(0, 15, -100));
-            path.addPoint(new Vector3(100, 15, 0));
-            path.isClosedCurve(true);
-
-            mMothershipAnim = new SplineTranslateAnimation3D(path);
-            mMothershipAnim.setDurationMilliseconds(ANIM_DURATION);
-            mMothershipAnim.setRepeatMode(Animation.RepeatMode.INFINITE);
-            mMothershipAnim.setOrientToPath(true);
-            mMothershipAnim.setTransformable3D(mMothershipObj);
-            mRenderer.getCurrentScene().registerAnimation(mMothershipAnim);
-            mMothershipAnim.play();
-
-            mMothership = new Mothership(mMothershipObj);
-        } catch (Exception e) {
+        } catch (ATexture.TextureException e) {
             e.printStackTrace();
         }
+
+        obj.setMaterial(capitalMaterial);
+        obj.setScale(5);
+        obj.enableLookAt();
+        // Not drawn while the camera looks away from it
+        obj.setFrustumTest(true);
+        mRenderer.getCurrentScene().addChild(obj);
+
+        // Mothership moves along the path in WorldSimulation
+        Mothership mothership = mSim.getMothership();
+        obj.setPosition(mothership.loc);
+        setLocalBounds(mothership, obj);
+        mMothershipObj = obj;
     }  // End of makeMothership()
 
     private void makeFriendlyFighter() {
 
     }
 
-    private Object3D[] mObjectCache = new Object3D[7];
-    private EnemySpaceship makeEnemy(int type, double target_offset, double max_speed, long delay) {
-        EnemySpaceship enemy = null;
-        Random rand = new Random();
-        int x_offset = rand.nextInt(100) + 50;
-        int y_offset = rand.nextInt(70) - 20;
-        int z_offset = rand.nextInt(100) - 50;
-        // Clone object from cache if possible
-        if(type > -1 && type < mObjectCache.length
-                && mObjectCache[type] != null) {
-            Object3D obj = mObjectCache[type].clone();
-            mRenderer.getCurrentScene().addChild(obj);
-            enemy = new EnemySpaceship(x_offset, 15+y_offset, z_offset,
-                    target_offset, max_speed, delay, obj);
-            return enemy;
-        }
-
-        // Or load object model from file
-        try {
-            Object3D obj = null;
-
-            Material material;
-            material = new Material();
-            material.setDiffuseMethod(new DiffuseMethod.Lambert());
-            material.setColorInfluence(0);
-            material.enableLighting(true);
-
-            // Load enemy spaceship
-            if(type == EnemySpaceship.ENEMY_TYPE_SPACESHIP1) {
-                LoaderOBJ loader = new LoaderOBJ(mContext.getResources(),
-                        mRenderer.getTextureManager(), R.raw.spaceship1_obj);
-                loader.parse();
-                obj = loader.getParsedObject();
-                obj.setScale(1.2);
-            } else if(type == EnemySpaceship.ENEMY_TYPE_SPACESHIP2) {
-                LoaderOBJ loader = new LoaderOBJ(mContext.getResources(),
-                        mRenderer.getTextureManager(), R.raw.spaceship2_obj);
-                loader.parse();
-                obj = loader.getParsedObject();
-                obj.setScale(1.5);
-            } else if(type == EnemySpaceship.ENEMY_TYPE_SPACESHIP3) {
-                LoaderOBJ loader = new LoaderOBJ(mContext.getResources(),
-                        mRenderer.getTextureManager(), R.raw.spaceship3_obj);
-                loader.parse();
-                obj = loader.getParsedObject();
-                obj.setScale(1.5);
-            } else if(type == EnemySpaceship.ENEMY_TYPE_SPACESHIP4) {
-                LoaderOBJ loader = new LoaderOBJ(mContext.getResources(),
-                        mRenderer.getTextureManager(), R.raw.spaceship4_obj);
-                loader.parse();
-                obj = loader.getParsedObject();
-                obj.setScale(1.5);
-            } else if(type == EnemySpaceship.ENEMY_TYPE_SPACESHIP5) {
-                LoaderOBJ loader = new LoaderOBJ(mContext.getResources(),
-                        mRenderer.getTextureManager(), R.raw.spaceship5_obj);
-                loader.parse();
-                obj = loader.getParsedObject();
-                obj.setScale(1.5);
-            } else if(type == EnemySpaceship.ENEMY_TYPE_SPACESHIP6) {
-                LoaderOBJ loader = new LoaderOBJ(mContext.getResources(),
-                        mRenderer.getTextureManager(), R.raw.spaceship6_obj);
-                loader.parse();
-                obj = loader.getParsedObject();
-                obj.setScale(1.5);
-            } else {
-                LoaderAWD loader = new LoaderAWD(mContext.getResources(),
-                        mRenderer.getTextureManager(), R.raw.dark_fighter);
-                loader.parse();
-                obj = loader.getParsedObject();
+    /**
+     * Draw all enemies as instances of the model
+     */
+    private void makeEnemies(int type, Object3D model) {
+        Material material = new Material();
+        material.setDiffuseMethod(new DiffuseMethod.Lambert());
+        material.setColorInfluence(0);
+        material.enableLighting(true);
+        if(type == EnemyFleet.ENEMY_TYPE_DARKFIGHTER) {
+            try {
                 material.addTexture(new Texture("darkFighterTex", R.drawable.dark_fighter_6_color));
+            } catch (ATexture.TextureException e) {
+                e.printStackTrace();
             }
+        }
 
-            obj.setMaterial(material);
-            obj.enableLookAt();
-            mRenderer.getCurrentScene().addChild(obj);
-            enemy = new EnemySpaceship(0+x_offset, 15+y_offset, 0+z_offset,
-                    target_offset, max_speed, delay, obj);
-        } catch (Exception e) {
-            e.printStackTrace();
-            enemy = null;
+        EnemyFleet enemies = mSim.getEnemies();
+        InstancedObject3D obj = new InstancedObject3D(model, enemies.getCount());
+        obj.setMaterial(material);
+        obj.setScale(ENEMY_SCALES[type]);
+        obj.setInstanceCount(enemies.getCount());
+        for(int i=0; i<enemies.getCount(); i++) {
+            obj.setInstancePosition(i, enemies.x[i], enemies.y[i], enemies.z[i]);
         }
-        return enemy;
-    }  // End of makeEnemy()
+        // All enemies share the model
+        BoundingBox bbox = model.getGeometry().getBoundingBox();
+        Vector3 min = bbox.getMin();
+        Vector3 max = bbox.getMax();
+        double scale = ENEMY_SCALES[type];
+        enemies.setLocalBounds(min.x * scale, min.y * scale, min.z * scale,
+                max.x * scale, max.y * scale, max.z * scale);
+        mRenderer.getCurrentScene().addChild(obj);
+        mEnemyObjs = obj;
+    }
 
     private void makeCamera() {
         mRenderer.getCurrentCamera().setFarPlane(500);
         mRenderer.getCurrentScene().setBackgroundColor(0xdddddd);
 
-        // Make camera
-        CatmullRomCurve3D path = new CatmullRomCurve3D();
-        path.addPoint(new Vector3(0, 15+CAM_OFFSET, 100));
-        path.addPoint(new Vector3(-100+CAM_OFFSET, 15, 0));
-        path.addPoint(new Vector3(0, 15-CAM_OFFSET, -100));
-        path.addPoint(new Vector3(100+CAM_OFFSET, 15, 0));
-        path.isClosedCurve(true);
-
-        SplineTranslateAnimation3D camAnim = new SplineTranslateAnimation3D(path);
-        camAnim.setDurationMilliseconds(ANIM_DURATION);
-        camAnim.setRepeatMode(Animation.RepeatMode.INFINITE);
-        //mCamAnim.setOrientToPath(true);       // Do not use this. This prevents head tracking by accel/gyro
-        camAnim.setTransformable3D(mRenderer.getCurrentCamera());
-        mRenderer.getCurrentScene().registerAnimation(camAnim);
-        camAnim.play();
-
-        // Make camera chasing box
-        mCameraBox = new Cube(0.1f);
-        Material boxMaterial = new Material();
-        mCameraBox.setMaterial(boxMaterial);
-        mCameraBox.setColor(0xff000000);
-        mRenderer.getCurrentScene().addChild(mCameraBox);
-
-        path = new CatmullRomCurve3D();
-        path.addPoint(new Vector3(0, 15+CAM_OFFSET, 100));
-        path.addPoint(new Vector3(-100+CAM_OFFSET, 15, 0));
-        path.addPoint(new Vector3(0, 15-CAM_OFFSET, -100));
-        path.addPoint(new Vector3(100+CAM_OFFSET, 15, 0));
-        path.isClosedCurve(true);
-
-        mCameraAnim = new SplineTranslateAnimation3D(path);
-        mCameraAnim.setDurationMilliseconds(120000);
-        mCameraAnim.setRepeatMode(Animation.RepeatMode.INFINITE);
-        //mCameraAnim.setOrientToPath(true);       // Do not use this. This stops head tracking of accel/gyro
-        mCameraAnim.setTransformable3D(mCameraBox);
-        mRenderer.getCurrentScene().registerAnimation(mCameraAnim);
-        mCameraAnim.play();
+        // Camera moves along the path in WorldSimulation. See interpolate()
+        Vector3 pos = mSim.getCameraPosition();
+        mRenderer.setCameraPosition(pos.x, pos.y, pos.z);
     }  // End of makeCamera()
 
     private void setLights() {
@@ -644,19 +514,18 @@ public class World {
         new Thread(
             new Runnable() {
                 public void run() {
-                    if(mMothershipObj == null)
-                        return;
+                    Vector3 loc = mSim.getMothership().loc;
                     cardboardAudioEngine.preloadSoundFile("spaceship.wav");
                     spaceShipSoundId = cardboardAudioEngine.createSoundObject("spaceship.wav");
                     cardboardAudioEngine.setSoundObjectPosition(spaceShipSoundId,
-                            (float)mMothershipObj.getX(), (float)mMothershipObj.getY(), (float)mMothershipObj.getZ()
+                            (float)loc.x, (float)loc.y, (float)loc.z
                     );
                     cardboardAudioEngine.playSound(spaceShipSoundId, true);
 
                     cardboardAudioEngine.preloadSoundFile("sonar.wav");
                     sonarSoundId = cardboardAudioEngine.createSoundObject("sonar.wav");
                     cardboardAudioEngine.setSoundObjectPosition(sonarSoundId,
-                            (float)mMothershipObj.getX(), (float)mMothershipObj.getY(), (float)mMothershipObj.getZ()
+                            (float)loc.x, (float)loc.y, (float)loc.z
                     );
                     cardboardAudioEngine.playSound(sonarSoundId, true);
                 }
@@ -664,88 +533,55 @@ public class World {
             .start();
     }
 
+    private void preloadObj(int resourceId) {
+        mModelCache.preload(new LoaderOBJ(mContext.getResources(), mRenderer.getTextureManager(), resourceId)
+                .setWeldVertices(true).setOptimizeVertexCache(true).setInterleaveVertices(true), resourceId);
+    }
+
+    private void preloadAwd(int resourceId) {
+        mModelCache.preload(new LoaderAWD(mContext.getResources(), mRenderer.getTextureManager(), resourceId)
+                .setOptimizeVertexCache(true).setInterleaveVertices(true), resourceId);
+    }
+
     private void prepareMissile() {
         // Make object model of missile.
-        // When user fire missile, this object will be cloned
+        // Each slot of missile pool is drawn as one instance of it.
         try {
-            mMissileObj = new Cube(0.12f);
+            Object3D missileObj = new Cube(0.12f);
             Material boxMaterial = new Material();
             boxMaterial.setDiffuseMethod(new DiffuseMethod.Lambert());
             //material.setColorInfluence(0);
             boxMaterial.enableLighting(false);
-            //mMissileObj.setMaterial(new DiffuseMaterial());
-            mMissileObj.setMaterial(boxMaterial);
-            mMissileObj.setX(0); mMissileObj.setY(0); mMissileObj.setZ(0);
-            //mMissileObj.setRenderChildrenAsBatch(true);
-            mRenderer.getCurrentScene().addChild(mMissileObj);
+            //missileObj.setMaterial(new DiffuseMaterial());
+            missileObj.setMaterial(boxMaterial);
+            mMissileObjs = new InstancedObject3D(missileObj, mSim.getMissiles().getCapacity());
+            mRenderer.getCurrentScene().addChild(mMissileObjs);
         } catch (Exception e) {
             e.printStackTrace();
+            mMissileObjs = null;
         }
     }
 
-    private void attackMothership(double x, double y, double z, int from) {
-        // Make target vector
-        Vector3 targetVec = new Vector3(mMothershipObj.getX(), mMothershipObj.getY(), mMothershipObj.getZ());
-        double distance = targetVec.distanceTo(x, y, z);
-        targetVec.subtract(x, y, z);
-        targetVec.normalize();
-        if(distance > 50) {
-            targetVec.multiply(30);
-        } else {
-            targetVec.multiply(3);
-        }
-
-        // clone object and add to scene
-        Object3D missileObj = mMissileObj.clone();
-        missileObj.setX(x+targetVec.x);
-        missileObj.setY(y+targetVec.y);
-        missileObj.setZ(z+targetVec.z);
-        missileObj.setColor(ENEMY_MISSILE_COLOR);
-        mRenderer.getCurrentScene().addChild(missileObj);
-        //mMissileObj.addChild(missileObj);
-        // make Missile instance and set location and target
-        Missile missile = new Missile(x+targetVec.x, y+targetVec.y, z+targetVec.z,
-                from, missileObj);
-        targetVec.multiply((distance+10)/3);
-        missile.setTarget(mMothershipObj.getX(), mMothershipObj.getY(), mMothershipObj.getZ());
-        if(distance > 50) {
-            missile.setSpeed(0.75);
-        }
-        synchronized (mMissiles) {
-            mMissiles.add(missile);
-        }
-    }
-
-    private void attackDestroyer(double x, double y, double z) {
-        // Make target vector
-        Random rand = new Random();
-        Vector3 targetVec = new Vector3(mDestroyer.object.getX()+rand.nextInt(20),
-                mDestroyer.object.getY()+rand.nextInt(20),
-                mDestroyer.object.getZ()+rand.nextInt(20));
-        targetVec.subtract(x, y, z);
-        targetVec.normalize();
-        targetVec.multiply(3);
-        // clone object and add to scene
-        Object3D missileObj = mMissileObj.clone();
-        missileObj.setX(x+targetVec.x);
-        missileObj.setY(y+targetVec.y);
-        missileObj.setZ(z+targetVec.z);
-        missileObj.setColor(FRIENDLY_MISSILE_COLOR);
-        mRenderer.getCurrentScene().addChild(missileObj);
-        //mMissileObj.addChild(missileObj);
-        // make Missile instance and set location and target
-        Missile missile = new Missile(x+targetVec.x, y+targetVec.y, z+targetVec.z,
-                Missile.FROM_MOTHERSHIP, missileObj);
-        targetVec.multiply(20);
-        missile.setTarget(targetVec.x, targetVec.y, targetVec.z);
-        synchronized (mMissiles) {
-            mMissiles.add(missile);
-        }
+    /**
+     * Set size of game object from bounding box of the model and scale of scene object
+     */
+    private void setLocalBounds(GameObject gameObj, Object3D obj) {
+        BoundingBox bbox = obj.getGeometry().getBoundingBox();
+        Vector3 min = bbox.getMin();
+        Vector3 max = bbox.getMax();
+        Vector3 scale = obj.getScale();
+        gameObj.setLocalBounds(min.x * scale.x, min.y * scale.y, min.z * scale.z,
+                max.x * scale.x, max.y * scale.y, max.z * scale.z);
     }
 
-    private void endGame() {
-        // TODO: end game
-        mGameStatus = GAME_STATUS_END;
+    /**
+     * Place scene object between previous and current location of game object
+     */
+    private void syncObject(GameObject gameObj, Object3D obj, double alpha) {
+        obj.setPosition(gameObj.pre_loc.x + (gameObj.loc.x - gameObj.pre_loc.x) * alpha,
+                gameObj.pre_loc.y + (gameObj.loc.y - gameObj.pre_loc.y) * alpha,
+                gameObj.pre_loc.z + (gameObj.loc.z - gameObj.pre_loc.z) * alpha);
+        obj.setShowBoundingVolume(gameObj.isShowBoundingVolume());
     }
 
 }
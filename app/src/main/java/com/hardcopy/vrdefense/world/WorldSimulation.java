@@ -0,0 +1,483 @@
+package com.hardcopy.vrdefense.world;
+
+import org.rajawali3d.bounds.BVH;
+import org.rajawali3d.curves.ArcLengthCurve3D;
+import org.rajawali3d.curves.CatmullRomCurve3D;
+import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.util.Intersector;
+
+import java.util.Random;
+
+/**
+ * Game logic of the world without any Android, renderer or audio dependency.
+ * World owns an instance of this class and copies the status of game objects to 3D objects
+ * in scene once per frame. Without World, this class can run on a plain JVM (tests, benchmarks).
+ *
+ * update() is one fixed time step. See GameClock.
+ * Game time advances by ticks, not by the system clock, and all randomness comes from
+ * one seeded generator. So the same seed and the same inputs always play the same game.
+ * See InputRecorder and InputReplay.
+ */
+public class WorldSimulation {
+    public static final int GAME_STATUS_PLAYING = 1;
+    public static final int GAME_STATUS_PAUSE = 11;
+    public static final int GAME_STATUS_END = 101;
+
+    public static final long ANIM_DURATION = 120000;
+    public static final int ENEMY_MISSILE_COLOR = 0x55000099;
+    public static final int FRIENDLY_MISSILE_COLOR = 0x55990000;
+
+    private static final double CAM_OFFSET = 8;
+    private static final int MISSILE_DAMAGE = 15;
+    private static final long MISSILE_INTERVAL = 400;
+    private static final int SCORE_ENEMY_ATTACK = 15;
+    private static final int SCORE_ENEMY_DESTROY = 100;
+    private static final int SCORE_FRIENDLY_DESTROY = -100;
+    private static final int SCORE_MOTHERSHIP_ATTACK = -1;
+    private static final int SCORE_DESTROYER_ATTACK = 1;
+    private static final double ENEMY_GRID_CELL_SIZE = 8;
+    private static final int ENEMY_GRID_BUCKETS = 1024;
+    private static final double GAZE_DISTANCE = 300;
+    private static final long ENEMY_TREE_REBUILD_TICKS = GameClock.TICKS_PER_SECOND;
+
+    public interface Listener {
+        public void onMothershipDamaged();
+    }
+
+    private Listener mListener;
+    private InputRecorder mRecorder;
+    private final long mSeed;
+    private final long mEnemyDelay;
+    private long mTick = 0;
+    private long mTime = 0;     // game time of current tick (milli-second)
+    private int mScore = 0;
+    // Changed by pause() and resume() on the UI thread, read once at the start of each tick
+    private volatile int mGameStatus = GAME_STATUS_PLAYING;
+
+    // Game objects
+    private final Mothership mMothership;
+    private final Destroyer mDestroyer;
+    private final EnemyFleet mEnemies;
+    private final MissilePool mMissiles;
+    private final SpatialHash mEnemyGrid = new SpatialHash(ENEMY_GRID_CELL_SIZE, ENEMY_GRID_BUCKETS);
+    private final int[] mEnemyCandidates;
+    // Enemies along the gaze ray. Refit every tick, rebuilt once in a while as enemies move far.
+    private final BVH mEnemyTree = new BVH();
+    private final BVH.RayIntersector mLiveEnemyIntersector = new BVH.RayIntersector() {
+        @Override
+        public double intersect(int e, double px, double py, double pz, double dx, double dy, double dz,
+                                double tMax) {
+            if(mEnemies.mode[e] == GameObject.MODE_DYING)
+                return -1;
+            EnemyFleet enemies = mEnemies;
+            return Intersector.intersectLineAABB(px, py, pz, dx, dy, dz,
+                    enemies.minX[e], enemies.minY[e], enemies.minZ[e],
+                    enemies.maxX[e], enemies.maxY[e], enemies.maxZ[e], 0, tMax);
+        }
+    };
+    private int mGazeTarget = -1;
+
+    // Camera moves along the path of mothership
+    private final ArcLengthCurve3D mCameraPath;
+    private final double mCameraPathStep;
+    private double mCameraPathTime = 0;
+    private final Vector3 mCameraPos = new Vector3(0,0,0);
+    private final Vector3 mPrevCameraPos = new Vector3(0,0,0);
+
+    // Inputs. Applied at the start of next tick.
+    private final float[] mHeadViewForward = {0, 0, 1};
+    private final float[] mHeadViewUp = {0, 1, 0};
+    private volatile boolean mFireRequested = false;
+
+    // Scratch
+    private long mLastFireTime = -MISSILE_INTERVAL;
+    private final Vector3 mTargetVec = new Vector3(0,0,0);
+    private final Vector3 mPathMin = new Vector3(0,0,0);
+    private final Vector3 mPathMax = new Vector3(0,0,0);
+    private final Random mRandom;
+
+
+    /**
+     * Make game objects. Sizes of objects are zero until setLocalBounds() is called on each object.
+     * @param enemyCount        number of enemy spaceships
+     * @param missileCapacity   max number of missiles at once
+     * @param enemyDelay        enemy i starts moving after enemyDelay * (i + 2) milli-second
+     * @param seed              seed of random generator. Same seed and same inputs make same game.
+     */
+    public WorldSimulation(int enemyCount, int missileCapacity, long enemyDelay, long seed) {
+        mSeed = seed;
+        mEnemyDelay = enemyDelay;
+        mRandom = new Random(seed);
+
+        CatmullRomCurve3D path = new CatmullRomCurve3D();
+        path.addPoint(new Vector3(0, 15, 100));
+        path.addPoint(new Vector3(-100, 15, 0));
+        path.addPoint(new Vector3(0, 15, -100));
+        path.addPoint(new Vector3(100, 15, 0));
+        path.isClosedCurve(true);
+        mMothership = new Mothership(new ArcLengthCurve3D(path), ANIM_DURATION);
+
+        mDestroyer = new Destroyer(0, 0, 0);
+
+        mEnemies = new EnemyFleet(enemyCount, mRandom);
+        for(int i=0; i<enemyCount; i++) {
+            int x_offset = mRandom.nextInt(100) + 50;
+            int y_offset = mRandom.nextInt(70) - 20;
+            int z_offset = mRandom.nextInt(100) - 50;
+            mEnemies.set(i, x_offset, 15+y_offset, z_offset, 5, 0, enemyDelay * (i + 2));
+        }
+        mEnemyCandidates = new int[enemyCount];
+
+        mMissiles = new MissilePool(missileCapacity);
+
+        CatmullRomCurve3D cameraPath = new CatmullRomCurve3D();
+        cameraPath.addPoint(new Vector3(0, 15+CAM_OFFSET, 100));
+        cameraPath.addPoint(new Vector3(-100+CAM_OFFSET, 15, 0));
+        cameraPath.addPoint(new Vector3(0, 15-CAM_OFFSET, -100));
+        cameraPath.addPoint(new Vector3(100+CAM_OFFSET, 15, 0));
+        cameraPath.isClosedCurve(true);
+        // Both paths are sampled by distance, so camera and mothership move at constant speed
+        mCameraPath = new ArcLengthCurve3D(cameraPath);
+        mCameraPathStep = 1000.0 / GameClock.TICKS_PER_SECOND / ANIM_DURATION;
+        mCameraPath.calculatePoint(mCameraPos, 0);
+        mPrevCameraPos.setAll(mCameraPos);
+    }
+
+    public void setListener(Listener l) {
+        mListener = l;
+    }
+
+    /**
+     * Record inputs of every tick. Set null to stop recording.
+     */
+    public void setRecorder(InputRecorder recorder) {
+        mRecorder = recorder;
+    }
+
+    public long getSeed() {
+        return mSeed;
+    }
+
+    public long getEnemyDelay() {
+        return mEnemyDelay;
+    }
+
+    /**
+     * @return  number of ticks played
+     */
+    public long getTick() {
+        return mTick;
+    }
+
+    /**
+     * @return  game time (milli-second). Advances only while playing.
+     */
+    public long getTime() {
+        return mTime;
+    }
+
+    public Mothership getMothership() {
+        return mMothership;
+    }
+
+    public Destroyer getDestroyer() {
+        return mDestroyer;
+    }
+
+    public int getEnemyCount() {
+        return mEnemies.getCount();
+    }
+
+    /**
+     * Status of all enemies. Enemy i is index i of the arrays.
+     */
+    public EnemyFleet getEnemies() {
+        return mEnemies;
+    }
+
+    /**
+     * Missile pool. Synchronize on it while reading missiles from other thread.
+     */
+    public MissilePool getMissiles() {
+        return mMissiles;
+    }
+
+    public Vector3 getCameraPosition() {
+        return mCameraPos;
+    }
+
+    public Vector3 getPrevCameraPosition() {
+        return mPrevCameraPos;
+    }
+
+    /**
+     * Remember direction of head. Friendly missiles are fired to this direction.
+     */
+    public void setHeadView(float forwardX, float forwardY, float forwardZ,
+                            float upX, float upY, float upZ) {
+        mHeadViewForward[0] = forwardX; mHeadViewForward[1] = forwardY; mHeadViewForward[2] = forwardZ;
+        mHeadViewUp[0] = upX; mHeadViewUp[1] = upY; mHeadViewUp[2] = upZ;
+    }
+
+    /**
+     * Run one tick of game
+     */
+    public void update() {
+        // Take inputs of this tick
+        boolean fire = mFireRequested;
+        mFireRequested = false;
+        int status = mGameStatus;
+        if(mRecorder != null) {
+            mRecorder.recordTick(fire, status == GAME_STATUS_PAUSE, mHeadViewForward, mHeadViewUp);
+        }
+
+        // Check game status
+        if(status != GAME_STATUS_PLAYING) {
+            return;
+        }
+        mTick++;
+        mTime = mTick * 1000 / GameClock.TICKS_PER_SECOND;
+        long now = mTime;
+
+        if(fire && mLastFireTime + MISSILE_INTERVAL <= now) {
+            int missile;
+            if(mGazeTarget > -1) {
+                missile = fireAt(mEnemies.x[mGazeTarget], mEnemies.y[mGazeTarget], mEnemies.z[mGazeTarget]);
+            } else {
+                missile = fire(mHeadViewForward[0], mHeadViewForward[1], mHeadViewForward[2]);
+            }
+            if(missile > -1)
+                mLastFireTime = now;
+        }
+
+        // Move camera
+        mCameraPathTime += mCameraPathStep;
+        if(mCameraPathTime >= 1)
+            mCameraPathTime -= 1;
+        mPrevCameraPos.setAll(mCameraPos);
+        mCameraPath.calculatePoint(mCameraPos, mCameraPathTime);
+
+        // Update mothership
+        mMothership.update(now);
+        if(mMothership.isAttackingTime(now)) {
+            attackDestroyer(mMothership.loc.x, mMothership.loc.y, mMothership.loc.z);
+            mMothership.setAttackTime(now);
+        }
+
+        // Update destroyer
+        mDestroyer.update(now);
+        if(mDestroyer.isAttackingTime(now)) {
+            attackMothership(mDestroyer.loc.x, mDestroyer.loc.y + 10, mDestroyer.loc.z,
+                    MissilePool.FROM_DESTROYER);
+            mDestroyer.setAttackTime(now);
+        }
+
+        // Update enemy movement
+        Vector3 mothershipLoc = mMothership.loc;
+        EnemyFleet enemies = mEnemies;
+        enemies.update(now, mothershipLoc.x, mothershipLoc.y, mothershipLoc.z);
+        mEnemyGrid.clear();
+        for(int i=0; i<enemies.getCount(); i++) {
+            // register to broad phase grid. Dying enemy cannot be attacked.
+            if(enemies.mode[i] != GameObject.MODE_DYING) {
+                mEnemyGrid.insert(i, enemies.minX[i], enemies.minY[i], enemies.minZ[i],
+                        enemies.maxX[i], enemies.maxY[i], enemies.maxZ[i]);
+            }
+            // attack mothership
+            if(enemies.isReadyToAttack(i, now)) {
+                attackMothership(enemies.x[i], enemies.y[i], enemies.z[i], MissilePool.FROM_ENEMY);
+                enemies.setAttackTime(i, now);
+            }
+        }
+        updateGazeTarget();
+
+        synchronized (mMissiles) {
+            // Update missile movement and check collision
+            for(int i=mMissiles.getCount()-1; i>-1; i--) {
+                // update movement
+                if(!mMissiles.update(i, now)) {
+                    // delete missile
+                    mMissiles.release(i);
+                    continue;
+                }
+                int from = mMissiles.from[i];
+                if(from >= MissilePool.FROM_DESTROYER)
+                    continue;
+                // check collision
+                boolean removeMissile = false;
+                if(mMissiles.intersects(i, mMothership)) {
+                    mMothership.attacked(MISSILE_DAMAGE, now);
+                    mScore += SCORE_MOTHERSHIP_ATTACK;
+                    if(mMothership.getMode() == Mothership.MODE_DESTROYED) {
+                        endGame();
+                        return;
+                    }
+                    if(mListener != null)
+                        mListener.onMothershipDamaged();
+                }
+//                else if(from == MissilePool.FROM_FRIENDLY
+//                        && mMissiles.intersects(i, mDestroyer)) {
+//                    mDestroyer.attacked(MISSILE_DAMAGE, now);
+//                    mScore += SCORE_DESTROYER_ATTACK;
+//                    removeMissile = true;
+//                }
+                else if(from == MissilePool.FROM_FRIENDLY) {
+                    // only enemies in grid cells along the missile path need exact check
+                    mMissiles.getPathBounds(i, mPathMin, mPathMax);
+                    int count = mEnemyGrid.query(mPathMin.x, mPathMin.y, mPathMin.z,
+                            mPathMax.x, mPathMax.y, mPathMax.z, mEnemyCandidates);
+                    for(int k=0; k<count; k++) {
+                        int e = mEnemyCandidates[k];
+                        if(mEnemies.mode[e] != GameObject.MODE_DYING
+                                && mMissiles.intersects(i, mEnemies, e)) {
+                            mEnemies.attacked(e, MISSILE_DAMAGE, now);
+                            mScore += SCORE_ENEMY_ATTACK;
+                            if(mEnemies.mode[e] == GameObject.MODE_DYING) {
+                                mScore += SCORE_ENEMY_DESTROY;
+                            }
+                            removeMissile = true;
+                        }
+                    }
+                }
+                // remove missile
+                if(removeMissile) {
+                    mMissiles.release(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fire a friendly missile from camera position to head direction at next tick.
+     * Can be called from any thread.
+     */
+    public void fire() {
+        mFireRequested = true;
+    }
+
+    /**
+     * Fire a friendly missile from camera position to the direction now, without fire interval check
+     * @return  index of the missile or -1 if there are too many missiles
+     */
+    public int fire(double dirX, double dirY, double dirZ) {
+        // make target vector from head direction
+        mTargetVec.setAll(dirX, dirY, dirZ);
+        mTargetVec.normalize();
+        mTargetVec.multiply(30);
+        return fireAt(mCameraPos.x + mTargetVec.x, mCameraPos.y + mTargetVec.y, mCameraPos.z + mTargetVec.z);
+    }
+
+    /**
+     * Fire a friendly missile from camera position to the target now, without fire interval check
+     * @return  index of the missile or -1 if there are too many missiles
+     */
+    public int fireAt(double targetX, double targetY, double targetZ) {
+        // launch missile from camera position
+        synchronized (mMissiles) {
+            return mMissiles.fire(mCameraPos.x, mCameraPos.y, mCameraPos.z, targetX, targetY, targetZ,
+                    MissilePool.SPEED_DEFAULT, MissilePool.FROM_FRIENDLY, FRIENDLY_MISSILE_COLOR, mTime);
+        }
+    }
+
+    /**
+     * @return  index of the nearest live enemy on the line of sight, or -1. Missiles fired at next tick
+     *          fly to this enemy.
+     */
+    public int getGazeTarget() {
+        return mGazeTarget;
+    }
+
+    public int getScore() {
+        return mScore;
+    }
+
+    public int getGameStatus() {
+        return mGameStatus;
+    }
+
+    /**
+     * Pause the game from next tick. Pause and resume are recorded as inputs of that tick.
+     */
+    public synchronized void pause() {
+        if(mGameStatus == GAME_STATUS_PLAYING) {
+            mGameStatus = GAME_STATUS_PAUSE;
+        }
+    }
+
+    public synchronized void resume() {
+        if(mGameStatus == GAME_STATUS_PAUSE) {
+            mGameStatus = GAME_STATUS_PLAYING;
+        }
+    }
+
+    public synchronized void endGame() {
+        // TODO: end game
+        mGameStatus = GAME_STATUS_END;
+    }
+
+    /**
+     * Stop worker threads of enemy update
+     */
+    public void release() {
+        mEnemies.release();
+    }
+
+
+    private void updateGazeTarget() {
+        EnemyFleet enemies = mEnemies;
+        int count = enemies.getCount();
+        for(int i=0; i<count; i++) {
+            mEnemyTree.setItemBounds(i, enemies.minX[i], enemies.minY[i], enemies.minZ[i],
+                    enemies.maxX[i], enemies.maxY[i], enemies.maxZ[i]);
+        }
+        if(mEnemyTree.getItemCount() != count || mTick % ENEMY_TREE_REBUILD_TICKS == 1) {
+            mEnemyTree.build(count);
+        } else {
+            mEnemyTree.refit();
+        }
+        mGazeTarget = mEnemyTree.intersectRay(mCameraPos.x, mCameraPos.y, mCameraPos.z,
+                mHeadViewForward[0], mHeadViewForward[1], mHeadViewForward[2], GAZE_DISTANCE,
+                mLiveEnemyIntersector);
+    }
+
+    private void attackMothership(double x, double y, double z, int from) {
+        Vector3 mothershipLoc = mMothership.loc;
+        // Make target vector
+        Vector3 targetVec = mTargetVec;
+        targetVec.setAll(mothershipLoc);
+        double distance = targetVec.distanceTo(x, y, z);
+        targetVec.subtract(x, y, z);
+        targetVec.normalize();
+        if(distance > 50) {
+            targetVec.multiply(30);
+        } else {
+            targetVec.multiply(3);
+        }
+
+        // launch missile and set location and target
+        synchronized (mMissiles) {
+            mMissiles.fire(x+targetVec.x, y+targetVec.y, z+targetVec.z,
+                    mothershipLoc.x, mothershipLoc.y, mothershipLoc.z,
+                    distance > 50 ? MissilePool.SPEED_FAST : MissilePool.SPEED_DEFAULT,
+                    from, ENEMY_MISSILE_COLOR, mTime);
+        }
+    }
+
+    private void attackDestroyer(double x, double y, double z) {
+        // Make target vector
+        Vector3 targetVec = mTargetVec;
+        targetVec.setAll(mDestroyer.loc.x+mRandom.nextInt(20),
+                mDestroyer.loc.y+mRandom.nextInt(20),
+                mDestroyer.loc.z+mRandom.nextInt(20));
+        targetVec.subtract(x, y, z);
+        targetVec.normalize();
+        targetVec.multiply(3);
+        double sx = x+targetVec.x, sy = y+targetVec.y, sz = z+targetVec.z;
+        targetVec.multiply(20);
+        // launch missile and set location and target
+        synchronized (mMissiles) {
+            mMissiles.fire(sx, sy, sz, targetVec.x, targetVec.y, targetVec.z,
+                    MissilePool.SPEED_DEFAULT, MissilePool.FROM_MOTHERSHIP, FRIENDLY_MISSILE_COLOR, mTime);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.hardcopy.vrdefense.world;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EnemyFleetTest {
+    private static final int ENEMY_COUNT = 2000;
+    private static final int TICKS = 600;
+
+    @Test
+    public void update_parallelMatchesSingleThread() throws Exception {
+        EnemyFleet single = makeFleet(ENEMY_COUNT);
+        single.setParallelThreshold(Integer.MAX_VALUE);
+        EnemyFleet parallel = makeFleet(ENEMY_COUNT);
+        parallel.setParallelThreshold(0);
+        try {
+            run(single);
+            run(parallel);
+        } finally {
+            parallel.release();
+        }
+
+        assertArrayEquals(single.x, parallel.x, 0);
+        assertArrayEquals(single.y, parallel.y, 0);
+        assertArrayEquals(single.z, parallel.z, 0);
+        assertArrayEquals(single.mode, parallel.mode);
+        assertArrayEquals(single.health, parallel.health);
+        assertArrayEquals(single.maxX, parallel.maxX, 0);
+    }
+
+    @Test
+    public void update_allocatesNothing() throws Exception {
+        EnemyFleet fleet = makeFleet(ENEMY_COUNT);
+        fleet.setParallelThreshold(Integer.MAX_VALUE);
+        run(fleet);
+
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(threadId);
+        run(fleet);
+        long allocated = bean.getThreadAllocatedBytes(threadId) - before;
+        assertEquals(0, allocated / TICKS);
+    }
+
+    private EnemyFleet makeFleet(int count) {
+        Random random = new Random(3);
+        EnemyFleet fleet = new EnemyFleet(count, random);
+        for(int i=0; i<count; i++) {
+            fleet.set(i, random.nextInt(100) + 50, random.nextInt(70) - 5, random.nextInt(100) - 50,
+                    5, 0, 10 * i);
+        }
+        fleet.setLocalBounds(-1, -0.5, -1.5, 1, 0.5, 1.5);
+        return fleet;
+    }
+
+    /**
+     * Run ticks, killing some enemies on the way so they are revived with random numbers
+     */
+    private void run(EnemyFleet fleet) {
+        for(int tick=1; tick<=TICKS; tick++) {
+            long now = tick * 1000L / GameClock.TICKS_PER_SECOND;
+            fleet.update(now, 0, 15, 0);
+            if(tick % 50 == 0) {
+                for(int i=tick % 7; i<fleet.getCount(); i+=7) {
+                    fleet.attacked(i, 200, now);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.hardcopy.vrdefense.world;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GameClockTest {
+
+    @Test
+    public void advance_runsFixedTicksRegardlessOfFrameRate() throws Exception {
+        // 1 second rendered at 30, 60 and 90 fps must run the same number of ticks
+        int[] frameRates = {30, 60, 90};
+        for(int fps : frameRates) {
+            GameClock clock = new GameClock();
+            clock.advance(0);
+            int ticks = 0;
+            for(int frame=1; frame<=fps; frame++) {
+                ticks += clock.advance(frame * 1000000000L / fps);
+            }
+            assertEquals(GameClock.TICKS_PER_SECOND, ticks);
+        }
+    }
+
+    @Test
+    public void getAlpha_isRemainingFractionOfTick() throws Exception {
+        GameClock clock = new GameClock();
+        clock.advance(0);
+        assertEquals(1, clock.advance(GameClock.TICK_NANOS + GameClock.TICK_NANOS / 4));
+        assertEquals(0.25, clock.getAlpha(), 1e-6);
+    }
+
+    @Test
+    public void advance_limitsTicksAfterStall() throws Exception {
+        GameClock clock = new GameClock();
+        clock.advance(0);
+        int ticks = clock.advance(10 * 1000000000L);
+        assertTrue(ticks < 10);
+        assertEquals(0, clock.advance(10 * 1000000000L));
+    }
+}
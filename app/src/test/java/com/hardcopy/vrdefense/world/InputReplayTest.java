@@ -0,0 +1,62 @@
+package com.hardcopy.vrdefense.world;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class InputReplayTest {
+
+    @Test
+    public void replay_playsSameGame() throws Exception {
+        WorldSimulation sim = makeSimulation(new WorldSimulation(20, 128, 1000, 42));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputRecorder recorder = new InputRecorder(out, sim);
+        sim.setRecorder(recorder);
+
+        // aim around randomly and fire often, pause for a while in the middle
+        Random input = new Random(7);
+        float fx = 0, fy = 0, fz = -1;
+        for(int tick=0; tick<GameClock.TICKS_PER_SECOND * 30; tick++) {
+            if(tick % 10 == 0) {
+                fx = input.nextFloat() - 0.5f;
+                fy = input.nextFloat() - 0.5f;
+                fz = input.nextFloat() - 0.5f;
+            }
+            sim.setHeadView(fx, fy, fz, 0, 1, 0);
+            if(input.nextInt(5) == 0)
+                sim.fire();
+            if(tick == 600)
+                sim.pause();
+            if(tick == 900)
+                sim.resume();
+            sim.update();
+        }
+        recorder.finish(sim);
+
+        InputReplay replay = new InputReplay(new ByteArrayInputStream(out.toByteArray()));
+        WorldSimulation replayed = makeSimulation(replay.createSimulation());
+        while(replay.next(replayed)) {
+        }
+
+        assertEquals(GameClock.TICKS_PER_SECOND * 30 - 300, sim.getTick());
+        assertEquals(sim.getTick(), replay.getRecordedTicks());
+        assertEquals(sim.getTick(), replayed.getTick());
+        assertEquals(replay.getRecordedScore(), replayed.getScore());
+        assertEquals(sim.getMissiles().getCount(), replayed.getMissiles().getCount());
+        assertArrayEquals(sim.getEnemies().x, replayed.getEnemies().x, 0);
+        assertArrayEquals(sim.getEnemies().y, replayed.getEnemies().y, 0);
+        assertArrayEquals(sim.getEnemies().z, replayed.getEnemies().z, 0);
+        assertArrayEquals(sim.getEnemies().health, replayed.getEnemies().health);
+    }
+
+    private WorldSimulation makeSimulation(WorldSimulation sim) {
+        sim.getEnemies().setLocalBounds(-1, -0.5, -1.5, 1, 0.5, 1.5);
+        sim.getMothership().setLocalBounds(-10, -5, -30, 10, 5, 30);
+        sim.getMothership().health = Integer.MAX_VALUE;
+        return sim;
+    }
+}
@@ -0,0 +1,90 @@
+package com.hardcopy.vrdefense.world;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class MissilePoolTest {
+    private static final int MISSILE_COUNT = 1000;
+
+    @Test
+    public void fireAndRelease_reusesSlots() throws Exception {
+        MissilePool pool = new MissilePool(4);
+        for(int i=0; i<4; i++) {
+            assertEquals(i, pool.fire(0, 0, 0, 10, 0, 0, 1, MissilePool.FROM_FRIENDLY, 0, 0));
+        }
+        assertEquals(-1, pool.fire(0, 0, 0, 10, 0, 0, 1, MissilePool.FROM_FRIENDLY, 0, 0));
+
+        pool.from[3] = MissilePool.FROM_ENEMY;
+        pool.release(1);
+        assertEquals(3, pool.getCount());
+        assertEquals(MissilePool.FROM_ENEMY, pool.from[1]);
+        assertEquals(3, pool.fire(0, 0, 0, 10, 0, 0, 1, MissilePool.FROM_FRIENDLY, 0, 0));
+    }
+
+    @Test
+    public void update_expiresMissile() throws Exception {
+        MissilePool pool = new MissilePool(1);
+        pool.fire(0, 0, 0, 100, 0, 0, 0.5, MissilePool.FROM_FRIENDLY, 0, 0);
+        assertTrue(pool.update(0, 1000));
+        assertEquals(0.5, pool.x[0], 1e-9);
+        assertEquals(0, pool.preX[0], 1e-9);
+        assertFalse(pool.update(0, 5000));
+    }
+
+    @Test
+    public void intersects_hitsThinTargetWithLargeStep() throws Exception {
+        // 0.1 thick wall at x = 5. Missile moves 3 units per update.
+        Destroyer wall = new Destroyer(5, 0, 0);
+        wall.setLocalBounds(-0.05, -1, -1, 0.05, 1, 1);
+        MissilePool pool = new MissilePool(1);
+        pool.fire(0, 0, 0, 30, 0, 0, 3, MissilePool.FROM_FRIENDLY, 0, 0);
+
+        boolean hit = false;
+        while(!hit && pool.update(0, 0)) {
+            hit = pool.intersects(0, wall);
+            // end points of each step never touch the wall
+            assertTrue(Math.abs(pool.x[0] - 5) > 0.5);
+        }
+        assertTrue(hit);
+        assertEquals(6, pool.x[0], 1e-9);
+    }
+
+    @Test
+    public void fireThousandMissiles_allocatesNothing() throws Exception {
+        MissilePool pool = new MissilePool(16);
+        // warm up
+        runMissiles(pool, MISSILE_COUNT);
+
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(threadId);
+        int fired = runMissiles(pool, MISSILE_COUNT);
+        long allocated = bean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(MISSILE_COUNT, fired);
+        // Allow a few bytes of measuring overhead, but nothing per missile.
+        assertTrue(allocated + " bytes allocated for " + fired + " missiles", allocated < 1024);
+    }
+
+    private int runMissiles(MissilePool pool, int count) {
+        int fired = 0;
+        long now = 0;
+        while(fired < count) {
+            if(pool.fire(0, 0, 0, 30, 0, 0, MissilePool.SPEED_DEFAULT,
+                    MissilePool.FROM_FRIENDLY, 0, now) > -1) {
+                fired++;
+            }
+            for(int i=pool.getCount()-1; i>-1; i--) {
+                if(!pool.update(i, now))
+                    pool.release(i);
+            }
+            now += 16;
+        }
+        pool.releaseAll();
+        return fired;
+    }
+}
@@ -0,0 +1,145 @@
+package com.hardcopy.vrdefense.world;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.rajawali3d.Geometry3D;
+import org.rajawali3d.Object3D;
+import org.rajawali3d.bounds.TriangleBVH;
+import org.rajawali3d.loader.LoaderOBJ;
+import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.util.Intersector;
+import org.rajawali3d.util.MeshOptimizer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ModelPickingTest {
+    private static final String LARGEST_MODEL = "destroyer_obj";
+    private static final int RAY_COUNT = 50;
+
+    /**
+     * Loads the largest model of the game the way World loads it and checks that rays hit the
+     * same meshes through the triangle BVH as when testing every triangle. The timing of both is
+     * measured by ModelPickingBenchmark in the benchmarks module.
+     */
+    @Test
+    public void intersectRay_matchesTestingEveryTriangleOnLargestModel() throws Exception {
+        File file = findModel();
+        Assume.assumeTrue(file != null);
+        file = stripMaterials(file);
+        Object3D model = new LoaderOBJ(file).setWeldVertices(true).setOptimizeVertexCache(true)
+                .setInterleaveVertices(true).parse().getParsedObject();
+        model.onRecalculateModelMatrix(null);
+        List<Object3D> meshes = new ArrayList<Object3D>();
+        collectMeshes(model, meshes);
+
+        List<TriangleBVH> trees = new ArrayList<TriangleBVH>();
+        List<Vector3[]> corners = new ArrayList<Vector3[]>();
+        int triangleCount = 0;
+        for(Object3D mesh : meshes) {
+            Geometry3D geometry = mesh.getGeometry();
+            TriangleBVH tree = new TriangleBVH(geometry.getVertices(), geometry.getNumVertices(),
+                    geometry.getIndices(), geometry.getNumIndices());
+            tree.build();
+            trees.add(tree);
+            corners.add(getWorldTriangles(mesh));
+            triangleCount += tree.getTriangleCount();
+        }
+        assertTrue(triangleCount > 10000);
+
+        // Rays through the model from random points around it
+        Random rand = new Random(9);
+        Vector3 hitPoint = new Vector3();
+        int hits = 0;
+        for(int r=0; r<RAY_COUNT; r++) {
+            Object3D target = meshes.get(rand.nextInt(meshes.size()));
+            FloatBuffer vertices = target.getGeometry().getVertices();
+            int v = rand.nextInt(target.getGeometry().getNumVertices()) * 3;
+            Vector3 point = new Vector3(vertices.get(v), vertices.get(v+1), vertices.get(v+2))
+                    .multiply(target.getModelMatrix());
+            Vector3 dir = new Vector3(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+            dir.normalize();
+            Vector3 start = Vector3.addAndCreate(point, Vector3.scaleAndCreate(dir, 200));
+            Vector3 end = Vector3.subtractAndCreate(point, Vector3.scaleAndCreate(dir, 200));
+
+            for(int m=0; m<meshes.size(); m++) {
+                boolean expected = false;
+                Vector3[] c = corners.get(m);
+                for(int t=0; t<c.length && !expected; t+=3) {
+                    expected = Intersector.intersectRayTriangle(start, end, c[t], c[t+1], c[t+2], hitPoint);
+                }
+                boolean hit = trees.get(m).intersectRay(meshes.get(m).getModelMatrix(), start, end, hitPoint);
+                assertEquals(expected, hit);
+                if(hit)
+                    hits++;
+            }
+        }
+        // Every ray is aimed at a vertex of the model
+        assertTrue(hits >= RAY_COUNT);
+    }
+
+    private static File findModel() {
+        // Unit tests run in the module directory, or in the project directory
+        String[] dirs = {"src/main/res/raw", "app/src/main/res/raw"};
+        for(String dir : dirs) {
+            File file = new File(dir, LARGEST_MODEL);
+            if(file.exists())
+                return file;
+        }
+        return null;
+    }
+
+    /**
+     * Materials need a renderer, which isn't there in a unit test. Geometry is all that is tested.
+     */
+    private static File stripMaterials(File file) throws IOException {
+        File stripped = File.createTempFile(LARGEST_MODEL, null);
+        stripped.deleteOnExit();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        BufferedWriter writer = new BufferedWriter(new FileWriter(stripped));
+        try {
+            String line;
+            while((line = reader.readLine()) != null) {
+                if(line.startsWith("mtllib") || line.startsWith("usemtl"))
+                    continue;
+                writer.write(line);
+                writer.newLine();
+            }
+        } finally {
+            reader.close();
+            writer.close();
+        }
+        return stripped;
+    }
+
+    private static void collectMeshes(Object3D object, List<Object3D> meshes) {
+        if(!object.isContainer() && object.getGeometry().getNumVertices() > 0)
+            meshes.add(object);
+        for(int i=0; i<object.getNumChildren(); i++) {
+            collectMeshes(object.getChildAt(i), meshes);
+        }
+    }
+
+    private static Vector3[] getWorldTriangles(Object3D mesh) {
+        Geometry3D geometry = mesh.getGeometry();
+        FloatBuffer vertices = geometry.getVertices();
+        int[] indices = MeshOptimizer.getIndices(geometry.getIndices());
+        Vector3[] corners = new Vector3[geometry.getNumIndices()];
+        for(int i=0; i<corners.length; i++) {
+            int v = indices[i] * 3;
+            corners[i] = new Vector3(vertices.get(v), vertices.get(v+1), vertices.get(v+2))
+                    .multiply(mesh.getModelMatrix());
+        }
+        return corners;
+    }
+}
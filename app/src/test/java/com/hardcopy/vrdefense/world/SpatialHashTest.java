@@ -0,0 +1,99 @@
+package com.hardcopy.vrdefense.world;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SpatialHashTest {
+    private static final int[] ENEMY_COUNTS = {5, 50, 200, 500, 1000, 2000};
+    private static final int MISSILE_COUNT = 100;
+    private static final double ENEMY_HALF_SIZE = 1.5;
+    private static final double MISSILE_HALF_SIZE = 0.5;
+    private static final double WORLD_SIZE = 200;
+
+    @Test
+    public void query_findsSameItemsAsBruteForce() throws Exception {
+        Random rand = new Random(1);
+        for(int enemyCount : ENEMY_COUNTS) {
+            double[] enemies = randomPoints(rand, enemyCount);
+            double[] missiles = randomPoints(rand, MISSILE_COUNT);
+            SpatialHash grid = buildGrid(enemies);
+            int[] result = new int[enemyCount];
+            int[] expected = new int[enemyCount];
+
+            for(int i=0; i<MISSILE_COUNT; i++) {
+                int count = queryGrid(grid, missiles, i, enemies, result);
+                int expectedCount = bruteForce(missiles, i, enemies, expected);
+                int[] found = Arrays.copyOf(result, count);
+                Arrays.sort(found);
+                assertArrayEquals(Arrays.copyOf(expected, expectedCount), found);
+            }
+        }
+    }
+
+    @Test
+    public void query_returnsEachItemOnce() throws Exception {
+        SpatialHash grid = new SpatialHash(1, 64);
+        grid.insert(3, -5, -5, -5, 5, 5, 5);
+        int[] result = new int[8];
+        assertEquals(1, grid.query(-5, -5, -5, 5, 5, 5, result));
+        assertEquals(3, result[0]);
+
+        grid.clear();
+        assertEquals(0, grid.query(-5, -5, -5, 5, 5, 5, result));
+    }
+
+    private static double[] randomPoints(Random rand, int count) {
+        double[] points = new double[count * 3];
+        for(int i=0; i<points.length; i++) {
+            points[i] = (rand.nextDouble() - 0.5) * WORLD_SIZE;
+        }
+        return points;
+    }
+
+    private static SpatialHash buildGrid(double[] enemies) {
+        SpatialHash grid = new SpatialHash(8, 1024);
+        grid.clear();
+        for(int j=0; j<enemies.length/3; j++) {
+            insert(grid, enemies, j);
+        }
+        return grid;
+    }
+
+    private static void insert(SpatialHash grid, double[] enemies, int j) {
+        grid.insert(j, enemies[j*3] - ENEMY_HALF_SIZE, enemies[j*3+1] - ENEMY_HALF_SIZE, enemies[j*3+2] - ENEMY_HALF_SIZE,
+                enemies[j*3] + ENEMY_HALF_SIZE, enemies[j*3+1] + ENEMY_HALF_SIZE, enemies[j*3+2] + ENEMY_HALF_SIZE);
+    }
+
+    private static int queryGrid(SpatialHash grid, double[] missiles, int i, double[] enemies, int[] result) {
+        int count = grid.query(missiles[i*3] - MISSILE_HALF_SIZE, missiles[i*3+1] - MISSILE_HALF_SIZE,
+                missiles[i*3+2] - MISSILE_HALF_SIZE, missiles[i*3] + MISSILE_HALF_SIZE,
+                missiles[i*3+1] + MISSILE_HALF_SIZE, missiles[i*3+2] + MISSILE_HALF_SIZE, result);
+        // narrow phase
+        int hits = 0;
+        for(int k=0; k<count; k++) {
+            if(overlaps(missiles, i, enemies, result[k]))
+                result[hits++] = result[k];
+        }
+        return hits;
+    }
+
+    private static int bruteForce(double[] missiles, int i, double[] enemies, int[] result) {
+        int hits = 0;
+        for(int j=0; j<enemies.length/3; j++) {
+            if(overlaps(missiles, i, enemies, j))
+                result[hits++] = j;
+        }
+        return hits;
+    }
+
+    private static boolean overlaps(double[] missiles, int i, double[] enemies, int j) {
+        double d = ENEMY_HALF_SIZE + MISSILE_HALF_SIZE;
+        return Math.abs(missiles[i*3] - enemies[j*3]) < d
+                && Math.abs(missiles[i*3+1] - enemies[j*3+1]) < d
+                && Math.abs(missiles[i*3+2] - enemies[j*3+2]) < d;
+    }
+}
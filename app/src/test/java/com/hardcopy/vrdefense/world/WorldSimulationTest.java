@@ -0,0 +1,58 @@
+package com.hardcopy.vrdefense.world;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WorldSimulationTest {
+
+    @Test
+    public void update_runsWithoutRenderer() throws Exception {
+        WorldSimulation sim = new WorldSimulation(50, 256, 0, 1);
+        sim.getEnemies().setLocalBounds(-1, -0.5, -1.5, 1, 0.5, 1.5);
+        sim.getMothership().setLocalBounds(-10, -5, -30, 10, 5, 30);
+        sim.getMothership().health = Integer.MAX_VALUE;
+
+        double startX = sim.getEnemies().x[0];
+        double startZ = sim.getMothership().loc.z;
+        for(int tick=0; tick<GameClock.TICKS_PER_SECOND * 10; tick++) {
+            sim.update();
+        }
+        assertEquals(WorldSimulation.GAME_STATUS_PLAYING, sim.getGameStatus());
+        assertNotEquals(startX, sim.getEnemies().x[0], 1e-9);
+        assertNotEquals(startZ, sim.getMothership().loc.z, 1e-9);
+        assertTrue(sim.fire(0, 0, -1) > -1);
+    }
+
+    @Test
+    public void update_limitsFireRate() throws Exception {
+        WorldSimulation sim = new WorldSimulation(0, 256, 0, 1);
+        // fire at every tick for 300 ms, only the first one is fired in the 400 ms interval
+        for(int tick=0; tick<GameClock.TICKS_PER_SECOND * 3 / 10; tick++) {
+            sim.fire();
+            sim.update();
+        }
+        MissilePool missiles = sim.getMissiles();
+        int friendly = 0;
+        for(int i=0; i<missiles.getCount(); i++) {
+            if(missiles.from[i] == MissilePool.FROM_FRIENDLY)
+                friendly++;
+        }
+        assertEquals(1, friendly);
+    }
+
+    @Test
+    public void updateBounds_followsDirection() throws Exception {
+        // long along object z axis
+        Destroyer ship = new Destroyer(10, 0, 0);
+        ship.setLocalBounds(-1, -1, -5, 1, 1, 5);
+        assertEquals(5, ship.maxZ, 1e-9);
+        assertEquals(11, ship.maxX, 1e-9);
+
+        // looking along world x axis
+        ship.updateBounds(1, 0, 0);
+        assertEquals(15, ship.maxX, 1e-9);
+        assertEquals(5, ship.minX, 1e-9);
+        assertEquals(1, ship.maxZ, 1e-9);
+    }
+}
@@ -0,0 +1,76 @@
+package com.hardcopy.vrdefense.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.rajawali3d.curves.ArcLengthCurve3D;
+import org.rajawali3d.curves.CatmullRomCurve3D;
+import org.rajawali3d.math.vector.Vector3;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sampling a closed spline path with tangents, as an animation with setOrientToPath(true) does,
+ * by curve parameter and by distance through ArcLengthCurve3D, and building the distance table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ArcLengthBenchmark {
+
+    private CatmullRomCurve3D mCurve;
+    private ArcLengthCurve3D mArcLength;
+    private final Vector3 mPoint = new Vector3();
+    private double mT;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mCurve = createUnevenPath();
+        mCurve.setCalculateTangents(true);
+        mArcLength = new ArcLengthCurve3D(mCurve);
+        mArcLength.setCalculateTangents(true);
+    }
+
+    private double nextT() {
+        mT += 0.000137;
+        if(mT >= 1) mT -= 1;
+        return mT;
+    }
+
+    @Benchmark
+    public double sampleByT() {
+        mCurve.calculatePoint(mPoint, nextT());
+        return mPoint.x;
+    }
+
+    @Benchmark
+    public double sampleByDistance() {
+        mArcLength.calculatePoint(mPoint, nextT());
+        return mPoint.x;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double buildTable() {
+        return new ArcLengthCurve3D(mCurve).getLength();
+    }
+
+    /**
+     * Closed path with control points close together on one side and far apart on the other.
+     */
+    private static CatmullRomCurve3D createUnevenPath() {
+        CatmullRomCurve3D curve = new CatmullRomCurve3D();
+        curve.addPoint(new Vector3(0, 15, 100));
+        curve.addPoint(new Vector3(-20, 15, 80));
+        curve.addPoint(new Vector3(-100, 15, 0));
+        curve.addPoint(new Vector3(0, 30, -100));
+        curve.addPoint(new Vector3(100, 15, 0));
+        curve.isClosedCurve(true);
+        return curve;
+    }
+}
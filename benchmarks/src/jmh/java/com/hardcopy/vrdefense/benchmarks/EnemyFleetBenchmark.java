@@ -0,0 +1,65 @@
+package com.hardcopy.vrdefense.benchmarks;
+
+import com.hardcopy.vrdefense.world.EnemyFleet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of steering all enemies for one tick (EnemyFleet.update()), on the calling thread
+ * and split across worker threads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EnemyFleetBenchmark {
+    private static final long TICK_MILLIS = 16;
+
+    @Param({"100", "1000", "4000"})
+    public int enemies;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private EnemyFleet mFleet;
+    private long mNow;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(1);
+        mFleet = new EnemyFleet(enemies, random);
+        for(int i=0; i<enemies; i++) {
+            mFleet.set(i, random.nextInt(100) + 50, random.nextInt(70) - 5, random.nextInt(100) - 50,
+                    5, 0, 0);
+        }
+        mFleet.setLocalBounds(-1, -0.5, -1.5, 1, 0.5, 1.5);
+        mFleet.setParallelThreshold(parallel ? 0 : Integer.MAX_VALUE);
+        // let enemies spread out before measuring
+        for(int i=0; i<600; i++) {
+            tick();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mFleet.release();
+    }
+
+    @Benchmark
+    public double tick() {
+        mNow += TICK_MILLIS;
+        mFleet.update(mNow, 0, 15, 0);
+        return mFleet.x[0];
+    }
+}
@@ -0,0 +1,151 @@
+package com.hardcopy.vrdefense.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.rajawali3d.bounds.TriangleBVH;
+import org.rajawali3d.loader.ObjTokenizer;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.util.FloatArrayList;
+import org.rajawali3d.util.IntArrayList;
+import org.rajawali3d.util.Intersector;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picking on the largest model of the game, destroyer_obj in res/raw: building the triangle BVH
+ * of the model, and 200 rays aimed at its vertices from random directions, traced through the
+ * BVH and by testing every triangle. Set -Dmodel.file=path to use another OBJ file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ModelPickingBenchmark {
+    private static final String MODEL = "destroyer_obj";
+    private static final int RAY_COUNT = 200;
+
+    private FloatBuffer mVertices;
+    private IntBuffer mIndices;
+    private TriangleBVH mTree;
+    private Vector3[] mCorners;
+    private final Matrix4 mModelMatrix = new Matrix4();
+    private final Vector3[] mStarts = new Vector3[RAY_COUNT];
+    private final Vector3[] mEnds = new Vector3[RAY_COUNT];
+    private final Vector3 mHitPoint = new Vector3();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        FloatArrayList positions = new FloatArrayList(65536);
+        IntArrayList indices = new IntArrayList(65536);
+        InputStream in = new FileInputStream(findModel());
+        try {
+            ObjTokenizer parts = new ObjTokenizer(in);
+            int[] face = new int[3];
+            while(parts.nextLine()) {
+                if(parts.isToken(0, "v")) {
+                    positions.add(parts.getFloat(1));
+                    positions.add(parts.getFloat(2));
+                    positions.add(parts.getFloat(3));
+                } else if(parts.isToken(0, "f")) {
+                    // Fan of triangles, negative indices count back from the last vertex
+                    int vertexCount = positions.size() / 3;
+                    int first = -1, previous = -1;
+                    for(int i=1; i<parts.getTokenCount(); i++) {
+                        parts.getFaceIndices(i, face);
+                        int index = face[0] < 0 ? vertexCount + face[0] : face[0] - 1;
+                        if(i >= 3) {
+                            indices.add(first);
+                            indices.add(previous);
+                            indices.add(index);
+                        }
+                        if(i == 1)
+                            first = index;
+                        previous = index;
+                    }
+                }
+            }
+        } finally {
+            in.close();
+        }
+        mVertices = FloatBuffer.wrap(positions.toArray());
+        mIndices = IntBuffer.wrap(indices.toArray());
+        mTree = build();
+
+        mCorners = new Vector3[indices.size()];
+        for(int i=0; i<mCorners.length; i++) {
+            int v = indices.get(i) * 3;
+            mCorners[i] = new Vector3(positions.get(v), positions.get(v+1), positions.get(v+2));
+        }
+
+        // Rays through the model from random points around it
+        Random random = new Random(9);
+        int vertexCount = positions.size() / 3;
+        for(int r=0; r<RAY_COUNT; r++) {
+            int v = random.nextInt(vertexCount) * 3;
+            Vector3 target = new Vector3(positions.get(v), positions.get(v+1), positions.get(v+2));
+            Vector3 dir = new Vector3(random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+            dir.normalize();
+            mStarts[r] = Vector3.addAndCreate(target, Vector3.scaleAndCreate(dir, 200));
+            mEnds[r] = Vector3.subtractAndCreate(target, Vector3.scaleAndCreate(dir, 200));
+        }
+    }
+
+    @Benchmark
+    public TriangleBVH build() {
+        TriangleBVH tree = new TriangleBVH(mVertices, mVertices.capacity() / 3, mIndices, mIndices.capacity());
+        tree.build();
+        return tree;
+    }
+
+    @Benchmark
+    public int raysWithBVH() {
+        int hits = 0;
+        for(int r=0; r<RAY_COUNT; r++) {
+            if(mTree.intersectRay(mModelMatrix, mStarts[r], mEnds[r], mHitPoint))
+                hits++;
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int raysTestingEveryTriangle() {
+        int hits = 0;
+        Vector3[] c = mCorners;
+        for(int r=0; r<RAY_COUNT; r++) {
+            for(int t=0; t<c.length; t+=3) {
+                if(Intersector.intersectRayTriangle(mStarts[r], mEnds[r], c[t], c[t+1], c[t+2], mHitPoint)) {
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private static File findModel() throws IOException {
+        String path = System.getProperty("model.file");
+        if(path != null)
+            return new File(path);
+        // Benchmarks run in the module directory, or in the project directory
+        String[] dirs = {"../app/src/main/res/raw", "app/src/main/res/raw"};
+        for(String dir : dirs) {
+            File file = new File(dir, MODEL);
+            if(file.exists())
+                return file;
+        }
+        throw new IOException(MODEL + " not found, set -Dmodel.file");
+    }
+}
@@ -0,0 +1,133 @@
+package com.hardcopy.vrdefense.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.rajawali3d.loader.ObjTokenizer;
+import org.rajawali3d.util.FloatArrayList;
+import org.rajawali3d.util.IntArrayList;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the vertex, normal and face lines of an OBJ file, the part of LoaderOBJ.parse() which
+ * scales with model size. The input looks like the Blender exports in res/raw (v, vn and
+ * v//vn quads). readLineTokenizer is the BufferedReader/StringTokenizer/ArrayList code the
+ * loader used before ObjTokenizer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ObjParseBenchmark {
+
+    @Param({"10000", "50000"})
+    public int vertices;
+
+    private byte[] mObj;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(1);
+        StringBuilder sb = new StringBuilder();
+        sb.append("# Blender v2.77 (sub 0) OBJ File: ''\no ship\n");
+        for(int i=0; i<vertices; i++) {
+            sb.append(String.format(Locale.US, "v %f %f %f\n",
+                    random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f));
+        }
+        int normals = vertices / 2;
+        for(int i=0; i<normals; i++) {
+            sb.append(String.format(Locale.US, "vn %.4f %.4f %.4f\n",
+                    random.nextFloat() * 2 - 1, random.nextFloat() * 2 - 1, random.nextFloat() * 2 - 1));
+        }
+        for(int i=0; i<vertices; i++) {
+            sb.append('f');
+            for(int j=0; j<4; j++) {
+                sb.append(' ').append(random.nextInt(vertices) + 1).append("//").append(random.nextInt(normals) + 1);
+            }
+            sb.append('\n');
+        }
+        mObj = sb.toString().getBytes();
+    }
+
+    @Benchmark
+    public int readLineTokenizer() throws IOException {
+        BufferedReader buffer = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(mObj)));
+        ArrayList<Float> vertices = new ArrayList<Float>();
+        ArrayList<Float> normals = new ArrayList<Float>();
+        ArrayList<Integer> vertexIndices = new ArrayList<Integer>();
+        ArrayList<Integer> normalIndices = new ArrayList<Integer>();
+        String line;
+        while((line = buffer.readLine()) != null) {
+            if(line.length() == 0 || line.charAt(0) == '#')
+                continue;
+            StringTokenizer parts = new StringTokenizer(line, " ");
+            int numTokens = parts.countTokens();
+            if(numTokens == 0)
+                continue;
+            String type = parts.nextToken();
+            if(type.equals("v")) {
+                vertices.add(Float.parseFloat(parts.nextToken()));
+                vertices.add(Float.parseFloat(parts.nextToken()));
+                vertices.add(Float.parseFloat(parts.nextToken()));
+            } else if(type.equals("vn")) {
+                normals.add(Float.parseFloat(parts.nextToken()));
+                normals.add(Float.parseFloat(parts.nextToken()));
+                normals.add(Float.parseFloat(parts.nextToken()));
+            } else if(type.equals("f")) {
+                if(line.indexOf("//") > -1) line = line.replace("//", "/");
+                parts = new StringTokenizer(line);
+                parts.nextToken();
+                for(int i=1; i<numTokens; i++) {
+                    StringTokenizer subParts = new StringTokenizer(parts.nextToken(), "/");
+                    vertexIndices.add(Integer.parseInt(subParts.nextToken()) - 1);
+                    normalIndices.add(Integer.parseInt(subParts.nextToken()) - 1);
+                }
+            }
+        }
+        buffer.close();
+        return vertices.size() + normals.size() + vertexIndices.size() + normalIndices.size();
+    }
+
+    @Benchmark
+    public int objTokenizer() throws IOException {
+        ObjTokenizer parts = new ObjTokenizer(new ByteArrayInputStream(mObj));
+        FloatArrayList vertices = new FloatArrayList(8192);
+        FloatArrayList normals = new FloatArrayList(8192);
+        IntArrayList vertexIndices = new IntArrayList(4096);
+        IntArrayList normalIndices = new IntArrayList(4096);
+        int[] face = new int[3];
+        while(parts.nextLine()) {
+            if(parts.isToken(0, "v")) {
+                vertices.add(parts.getFloat(1));
+                vertices.add(parts.getFloat(2));
+                vertices.add(parts.getFloat(3));
+            } else if(parts.isToken(0, "vn")) {
+                normals.add(parts.getFloat(1));
+                normals.add(parts.getFloat(2));
+                normals.add(parts.getFloat(3));
+            } else if(parts.isToken(0, "f")) {
+                int numTokens = parts.getTokenCount();
+                for(int i=1; i<numTokens; i++) {
+                    parts.getFaceIndices(i, face);
+                    vertexIndices.add(face[0] - 1);
+                    normalIndices.add(face[2] - 1);
+                }
+            }
+        }
+        return vertices.size() + normals.size() + vertexIndices.size() + normalIndices.size();
+    }
+}
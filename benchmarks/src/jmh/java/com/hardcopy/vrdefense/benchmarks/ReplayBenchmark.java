@@ -0,0 +1,83 @@
+package com.hardcopy.vrdefense.benchmarks;
+
+import com.hardcopy.vrdefense.world.GameClock;
+import com.hardcopy.vrdefense.world.InputRecorder;
+import com.hardcopy.vrdefense.world.InputReplay;
+import com.hardcopy.vrdefense.world.WorldSimulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a whole recorded game. Every run plays exactly the same ticks, so results of
+ * different builds are comparable. Fails if the game ends differently than recorded.
+ *
+ * Set -Dreplay.file=path to replay a game recorded by World.startRecording(). Otherwise
+ * a game with random inputs is recorded in setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReplayBenchmark {
+
+    @Param({"60"})
+    public int seconds;
+
+    private byte[] mRecord;
+
+    @Setup
+    public void setUp() throws IOException {
+        String file = System.getProperty("replay.file");
+        if(file != null) {
+            mRecord = Files.readAllBytes(Paths.get(file));
+            return;
+        }
+        WorldSimulation sim = setBounds(new WorldSimulation(50, 128, 1000, 1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputRecorder recorder = new InputRecorder(out, sim);
+        sim.setRecorder(recorder);
+        Random input = new Random(1);
+        for(int tick=0; tick<GameClock.TICKS_PER_SECOND * seconds; tick++) {
+            sim.setHeadView(input.nextFloat() - 0.5f, input.nextFloat() - 0.5f,
+                    input.nextFloat() - 0.5f, 0, 1, 0);
+            if(input.nextInt(4) == 0)
+                sim.fire();
+            sim.update();
+        }
+        recorder.finish(sim);
+        mRecord = out.toByteArray();
+    }
+
+    @Benchmark
+    public int replay() throws IOException {
+        InputReplay replay = new InputReplay(new ByteArrayInputStream(mRecord));
+        WorldSimulation sim = setBounds(replay.createSimulation());
+        while(replay.next(sim)) {
+        }
+        if(sim.getScore() != replay.getRecordedScore() || sim.getTick() != replay.getRecordedTicks())
+            throw new IllegalStateException("Replay doesn't match the record");
+        return sim.getScore();
+    }
+
+    // Size of dark fighter and capital ship models in scene
+    private static WorldSimulation setBounds(WorldSimulation sim) {
+        sim.getEnemies().setLocalBounds(-1, -0.5, -1.5, 1, 0.5, 1.5);
+        sim.getMothership().setLocalBounds(-10, -5, -30, 10, 5, 30);
+        sim.getMothership().health = Integer.MAX_VALUE;
+        return sim;
+    }
+}
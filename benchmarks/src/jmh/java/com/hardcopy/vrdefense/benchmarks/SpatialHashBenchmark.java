@@ -0,0 +1,99 @@
+package com.hardcopy.vrdefense.benchmarks;
+
+import com.hardcopy.vrdefense.world.SpatialHash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Missile to enemy collision checks of one tick, as WorldSimulation.update() does them: the
+ * grid is rebuilt with all enemies and queried for each missile, then the narrow phase. The
+ * brute force loop tests every missile against every enemy, for how both grow with enemy count.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SpatialHashBenchmark {
+    private static final int MISSILE_COUNT = 100;
+    private static final double ENEMY_HALF_SIZE = 1.5;
+    private static final double MISSILE_HALF_SIZE = 0.5;
+    private static final double WORLD_SIZE = 200;
+
+    @Param({"5", "50", "200", "500", "1000", "2000"})
+    public int enemyCount;
+
+    private double[] mEnemies;
+    private double[] mMissiles;
+    private SpatialHash mGrid;
+    private int[] mResult;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random rand = new Random(2);
+        mEnemies = randomPoints(rand, enemyCount);
+        mMissiles = randomPoints(rand, MISSILE_COUNT);
+        mGrid = new SpatialHash(8, 1024);
+        mResult = new int[enemyCount];
+    }
+
+    @Benchmark
+    public int grid() {
+        double[] enemies = mEnemies, missiles = mMissiles;
+        SpatialHash grid = mGrid;
+        grid.clear();
+        for(int j=0; j<enemyCount; j++) {
+            grid.insert(j, enemies[j*3] - ENEMY_HALF_SIZE, enemies[j*3+1] - ENEMY_HALF_SIZE,
+                    enemies[j*3+2] - ENEMY_HALF_SIZE, enemies[j*3] + ENEMY_HALF_SIZE,
+                    enemies[j*3+1] + ENEMY_HALF_SIZE, enemies[j*3+2] + ENEMY_HALF_SIZE);
+        }
+        int hits = 0;
+        for(int i=0; i<MISSILE_COUNT; i++) {
+            int count = grid.query(missiles[i*3] - MISSILE_HALF_SIZE, missiles[i*3+1] - MISSILE_HALF_SIZE,
+                    missiles[i*3+2] - MISSILE_HALF_SIZE, missiles[i*3] + MISSILE_HALF_SIZE,
+                    missiles[i*3+1] + MISSILE_HALF_SIZE, missiles[i*3+2] + MISSILE_HALF_SIZE, mResult);
+            for(int k=0; k<count; k++) {
+                if(overlaps(i, mResult[k]))
+                    hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int bruteForce() {
+        int hits = 0;
+        for(int i=0; i<MISSILE_COUNT; i++) {
+            for(int j=0; j<enemyCount; j++) {
+                if(overlaps(i, j))
+                    hits++;
+            }
+        }
+        return hits;
+    }
+
+    private boolean overlaps(int i, int j) {
+        double[] enemies = mEnemies, missiles = mMissiles;
+        double d = ENEMY_HALF_SIZE + MISSILE_HALF_SIZE;
+        return Math.abs(missiles[i*3] - enemies[j*3]) < d
+                && Math.abs(missiles[i*3+1] - enemies[j*3+1]) < d
+                && Math.abs(missiles[i*3+2] - enemies[j*3+2]) < d;
+    }
+
+    private static double[] randomPoints(Random rand, int count) {
+        double[] points = new double[count * 3];
+        for(int i=0; i<points.length; i++) {
+            points[i] = (rand.nextDouble() - 0.5) * WORLD_SIZE;
+        }
+        return points;
+    }
+}
@@ -0,0 +1,65 @@
+package com.hardcopy.vrdefense.benchmarks;
+
+import com.hardcopy.vrdefense.world.MissilePool;
+import com.hardcopy.vrdefense.world.WorldSimulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one game tick (WorldSimulation.update()) with given number of enemies and missiles.
+ * Missiles are refilled before each tick so every tick moves and collides the same amount.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WorldTickBenchmark {
+
+    @Param({"5", "50", "500", "2000"})
+    public int enemies;
+
+    @Param({"16", "128", "1024"})
+    public int missiles;
+
+    private WorldSimulation mSim;
+    private Random mRandom;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Size of dark fighter and capital ship models in scene
+        mSim = new WorldSimulation(enemies, missiles, 0, 1);
+        mSim.getEnemies().setLocalBounds(-1, -0.5, -1.5, 1, 0.5, 1.5);
+        mSim.getMothership().setLocalBounds(-10, -5, -30, 10, 5, 30);
+        mSim.getMothership().health = Integer.MAX_VALUE;
+        mRandom = new Random(1);
+        // let enemies spread out before measuring
+        for(int i=0; i<600; i++) {
+            mSim.update();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void refillMissiles() {
+        MissilePool pool = mSim.getMissiles();
+        while(pool.getCount() < pool.getCapacity()) {
+            mSim.fire(mRandom.nextDouble() - 0.5, mRandom.nextDouble() - 0.5,
+                    mRandom.nextDouble() - 0.5);
+        }
+    }
+
+    @Benchmark
+    public int tick() {
+        mSim.update();
+        return mSim.getScore();
+    }
+}
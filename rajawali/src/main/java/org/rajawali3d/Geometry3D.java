@@ -24,7 +24,9 @@ import java.util.Arrays;
 import org.rajawali3d.animation.mesh.VertexAnimationObject3D;
 import org.rajawali3d.bounds.BoundingBox;
 import org.rajawali3d.bounds.BoundingSphere;
+import org.rajawali3d.bounds.TriangleBVH;
 import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.renderer.GLStateTracker;
 import org.rajawali3d.renderer.Renderer;
 import org.rajawali3d.util.RajLog;
 import android.graphics.Color;
@@ -150,6 +152,10 @@ public class Geometry3D {
 	 * The bounding sphere for this geometry. This is used for collision detection.
 	 */
 	protected BoundingSphere mBoundingSphere;
+	/**
+	 * The triangle hierarchy for exact ray hits. Created by the first call to {@link #getTriangleBVH()}.
+	 */
+	protected TriangleBVH mTriangleBVH;
 	/**
 	 * Indicates whether this geometry contains normals or not.
 	 */
@@ -158,6 +164,10 @@ public class Geometry3D {
 	 * Indicates whether this geometry contains texture coordinates or not.
 	 */
 	protected boolean mHasTextureCoordinates;
+	/**
+	 * Indicates whether the vertex attributes are packed into one VBO.
+	 */
+	protected boolean mInterleaved;
 
 	public enum BufferType {
 		FLOAT_BUFFER,
@@ -272,6 +282,7 @@ public class Geometry3D {
 		this.mOriginalGeometry = geom;
 		this.mHasNormals = geom.hasNormals();
 		this.mHasTextureCoordinates = geom.hasTextureCoordinates();
+		this.mInterleaved = geom.isInterleaved();
 	}
 
 	/**
@@ -477,30 +488,75 @@ public class Geometry3D {
         }
 	}
 
+	/**
+	 * Sets the data from existing buffers without copying them. The buffers must be direct and in
+	 * native byte order. They may be read only, such as buffers which are mapped from a file by
+	 * {@link org.rajawali3d.loader.LoaderBinaryMesh}. The buffers are uploaded with the usage
+	 * already set on the {@link BufferInfo} objects, GLES20.GL_STATIC_DRAW by default.
+	 *
+	 * @param vertices {@link FloatBuffer} Vertex positions, 3 floats per vertex.
+	 * @param normals {@link FloatBuffer} Normals, 3 floats per vertex. Can be null.
+	 * @param textureCoords {@link FloatBuffer} Texture coordinates, 2 floats per vertex. Can be null.
+	 * @param colors {@link FloatBuffer} Colors, 4 floats per vertex. Can be null.
+	 * @param indices {@link IntBuffer} or {@link ShortBuffer} Face indices. A {@link ShortBuffer} is
+	 *                used as is and the geometry is drawn with short indices.
+	 * @param createVBOs {@code boolean} If true, create the VBOs immediately.
+	 */
+	public void setData(FloatBuffer vertices, FloatBuffer normals, FloatBuffer textureCoords,
+			FloatBuffer colors, Buffer indices, boolean createVBOs) {
+		mVertices = vertices;
+		mNumVertices = vertices.capacity() / 3;
+		mTriangleBVH = null;
+		mNormals = normals;
+		mHasNormals = normals != null;
+		mTextureCoords = textureCoords;
+		mHasTextureCoordinates = textureCoords != null;
+		mColors = colors;
+		if(indices instanceof ShortBuffer) {
+			mIndicesShort = (ShortBuffer) indices;
+			mIndicesInt = null;
+			mOnlyShortBufferSupported = true;
+		} else {
+			mIndicesInt = (IntBuffer) indices;
+			mIndicesShort = null;
+		}
+		mNumIndices = indices.capacity();
+
+		mOriginalGeometry = null;
+
+		if (createVBOs) {
+			createBuffers();
+		}
+	}
+
 	/**
 	 * Creates the actual Buffer objects.
 	 */
 	public void createBuffers() {
 		boolean supportsUIntBuffers = Renderer.supportsUIntBuffers;
 
-		if(mVertices != null) {
-			mVertices.compact().position(0);
-			createBuffer(mVertexBufferInfo, BufferType.FLOAT_BUFFER, mVertices, GLES20.GL_ARRAY_BUFFER);
-		}
-		if(mNormals != null) {
-			mNormals.compact().position(0);
-			createBuffer(mNormalBufferInfo, BufferType.FLOAT_BUFFER, mNormals, GLES20.GL_ARRAY_BUFFER);
-		}
-		if(mTextureCoords != null) {
-			mTextureCoords.compact().position(0);
-			createBuffer(mTexCoordBufferInfo, BufferType.FLOAT_BUFFER, mTextureCoords, GLES20.GL_ARRAY_BUFFER);
-		}
-		if(mColors != null) {
-			mColors.compact().position(0);
-			createBuffer(mColorBufferInfo, BufferType.FLOAT_BUFFER, mColors, GLES20.GL_ARRAY_BUFFER);
+		if(mInterleaved && mVertices != null) {
+			createInterleavedBuffer();
+		} else {
+			if(mVertices != null) {
+				compact(mVertices);
+				createBuffer(mVertexBufferInfo, BufferType.FLOAT_BUFFER, mVertices, GLES20.GL_ARRAY_BUFFER);
+			}
+			if(mNormals != null) {
+				compact(mNormals);
+				createBuffer(mNormalBufferInfo, BufferType.FLOAT_BUFFER, mNormals, GLES20.GL_ARRAY_BUFFER);
+			}
+			if(mTextureCoords != null) {
+				compact(mTextureCoords);
+				createBuffer(mTexCoordBufferInfo, BufferType.FLOAT_BUFFER, mTextureCoords, GLES20.GL_ARRAY_BUFFER);
+			}
+			if(mColors != null) {
+				compact(mColors);
+				createBuffer(mColorBufferInfo, BufferType.FLOAT_BUFFER, mColors, GLES20.GL_ARRAY_BUFFER);
+			}
 		}
 		if(mIndicesInt != null && !mOnlyShortBufferSupported && supportsUIntBuffers) {
-			mIndicesInt.compact().position(0);
+			compact(mIndicesInt);
 			createBuffer(mIndexBufferInfo, BufferType.INT_BUFFER, mIndicesInt, GLES20.GL_ELEMENT_ARRAY_BUFFER);
 		}
 
@@ -527,17 +583,141 @@ public class Geometry3D {
 				mIndicesInt = null;
 			}
 			if(mIndicesShort != null) {
-				mIndicesShort.compact().position(0);
+				compact(mIndicesShort);
 				createBuffer(mIndexBufferInfo, BufferType.SHORT_BUFFER, mIndicesShort, GLES20.GL_ELEMENT_ARRAY_BUFFER);
 			}
 		}
 
-		GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+		GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 
         mHaveCreatedBuffers = true;
 	}
 
+	/**
+	 * Packs the vertex attributes into one VBO, which the vertex, normal, texture coordinate and
+	 * color {@link BufferInfo}s share with their own offset. The packed copy is released after the
+	 * upload and rebuilt from the separate buffers when the context is restored.
+	 */
+	private void createInterleavedBuffer() {
+		final FloatBuffer data = createInterleavedData();
+		final int stride = getInterleavedStride() * FLOAT_SIZE_BYTES;
+		createBuffer(mVertexBufferInfo, BufferType.FLOAT_BUFFER, data, GLES20.GL_ARRAY_BUFFER);
+		mVertexBufferInfo.buffer = null;
+		mVertexBufferInfo.stride = stride;
+		mVertexBufferInfo.offset = 0;
+
+		int offset = 3;
+		if(hasInterleaved(mNormals, 3)) {
+			shareInterleavedBuffer(mNormalBufferInfo, stride, offset);
+			offset += 3;
+		}
+		if(hasInterleaved(mTextureCoords, 2)) {
+			shareInterleavedBuffer(mTexCoordBufferInfo, stride, offset);
+			offset += 2;
+		}
+		if(hasInterleaved(mColors, 4)) {
+			shareInterleavedBuffer(mColorBufferInfo, stride, offset);
+		}
+	}
+
+	private void shareInterleavedBuffer(BufferInfo bufferInfo, int stride, int offset) {
+		bufferInfo.bufferHandle = mVertexBufferInfo.bufferHandle;
+		bufferInfo.bufferType = BufferType.FLOAT_BUFFER;
+		bufferInfo.target = GLES20.GL_ARRAY_BUFFER;
+		bufferInfo.byteSize = FLOAT_SIZE_BYTES;
+		bufferInfo.usage = mVertexBufferInfo.usage;
+		bufferInfo.buffer = null;
+		bufferInfo.stride = stride;
+		bufferInfo.offset = offset * FLOAT_SIZE_BYTES;
+	}
+
+	/**
+	 * Packs position, normal, texture coordinate and color of each vertex after each other.
+	 * Attributes which the geometry doesn't have for every vertex are left out.
+	 *
+	 * @return {@link FloatBuffer} The packed vertices.
+	 */
+	protected FloatBuffer createInterleavedData() {
+		final int numVertices = mVertices.capacity() / 3;
+		final int stride = getInterleavedStride();
+		final boolean normals = hasInterleaved(mNormals, 3);
+		final boolean textureCoords = hasInterleaved(mTextureCoords, 2);
+		final boolean colors = hasInterleaved(mColors, 4);
+		final FloatBuffer data = ByteBuffer.allocateDirect(numVertices * stride * FLOAT_SIZE_BYTES)
+				.order(ByteOrder.nativeOrder()).asFloatBuffer();
+		for(int i = 0; i < numVertices; ++i) {
+			data.put(mVertices.get(i * 3)).put(mVertices.get(i * 3 + 1)).put(mVertices.get(i * 3 + 2));
+			if(normals)
+				data.put(mNormals.get(i * 3)).put(mNormals.get(i * 3 + 1)).put(mNormals.get(i * 3 + 2));
+			if(textureCoords)
+				data.put(mTextureCoords.get(i * 2)).put(mTextureCoords.get(i * 2 + 1));
+			if(colors)
+				data.put(mColors.get(i * 4)).put(mColors.get(i * 4 + 1)).put(mColors.get(i * 4 + 2))
+						.put(mColors.get(i * 4 + 3));
+		}
+		data.position(0);
+		return data;
+	}
+
+	/**
+	 * @return {@code int} Number of floats per vertex in the interleaved layout.
+	 */
+	public int getInterleavedStride() {
+		int stride = 3;
+		if(hasInterleaved(mNormals, 3)) stride += 3;
+		if(hasInterleaved(mTextureCoords, 2)) stride += 2;
+		if(hasInterleaved(mColors, 4)) stride += 4;
+		return stride;
+	}
+
+	private boolean hasInterleaved(FloatBuffer buffer, int size) {
+		return buffer != null && mVertices != null && buffer.capacity() >= (mVertices.capacity() / 3) * size;
+	}
+
+	/**
+	 * Packs positions, normals, texture coordinates and colors into one VBO when the buffers are
+	 * created, instead of a VBO per attribute. A draw then binds one array buffer instead of up to
+	 * four. Only for geometry whose vertex data doesn't change afterwards: changeBufferData() on one
+	 * of the attribute {@link BufferInfo}s would overwrite the packed VBO. Call before the buffers
+	 * are created. A clone passes this on to the geometry whose buffers it shares.
+	 *
+	 * @param interleaved {@code boolean} Whether to use one VBO for all vertex attributes.
+	 */
+	public void setInterleaved(boolean interleaved) {
+		if(mOriginalGeometry != null)
+			mOriginalGeometry.setInterleaved(interleaved);
+		if(mInterleaved && !interleaved) {
+			mVertexBufferInfo.stride = mNormalBufferInfo.stride = mTexCoordBufferInfo.stride = mColorBufferInfo.stride = 0;
+			mVertexBufferInfo.offset = mNormalBufferInfo.offset = mTexCoordBufferInfo.offset = mColorBufferInfo.offset = 0;
+		}
+		mInterleaved = interleaved;
+	}
+
+	public boolean isInterleaved() {
+		return mInterleaved;
+	}
+
+	/**
+	 * Moves the remaining data of a buffer to its start and rewinds it. Read only buffers, such as
+	 * mapped files, are only rewound.
+	 *
+	 * @param buffer {@link Buffer} The buffer.
+	 */
+	private static void compact(Buffer buffer) {
+		if(buffer.isReadOnly()) {
+			buffer.clear();
+			return;
+		}
+		if(buffer instanceof FloatBuffer)
+			((FloatBuffer) buffer).compact();
+		else if(buffer instanceof IntBuffer)
+			((IntBuffer) buffer).compact();
+		else if(buffer instanceof ShortBuffer)
+			((ShortBuffer) buffer).compact();
+		buffer.position(0);
+	}
+
 	/**
 	 * Reload is typically called whenever the OpenGL context needs to be restored.
 	 * All buffer data is re-uploaded and a new handle is obtained.
@@ -576,8 +756,8 @@ public class Geometry3D {
 		createBuffer(mVertexBufferInfo, BufferType.FLOAT_BUFFER, mVertices, GLES20.GL_ARRAY_BUFFER);
 		createBuffer(mNormalBufferInfo, BufferType.FLOAT_BUFFER, mNormals, GLES20.GL_ARRAY_BUFFER);
 
-		GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+		GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 	}
 
 	/**
@@ -618,9 +798,9 @@ public class Geometry3D {
 
         if(buffer != null) {
             buffer.rewind();
-            GLES20.glBindBuffer(target, handle);
+            GLStateTracker.getInstance().glBindBuffer(target, handle);
             GLES20.glBufferData(target, buffer.capacity() * byteSize, buffer, usage);
-            GLES20.glBindBuffer(target, 0);
+            GLStateTracker.getInstance().glBindBuffer(target, 0);
         }
 
         bufferInfo.buffer = buffer;
@@ -642,12 +822,17 @@ public class Geometry3D {
 		if(mOriginalGeometry != null) {
             mOriginalGeometry.validateBuffers();
             return;
-        }
-		if(mVertexBufferInfo != null && mVertexBufferInfo.bufferHandle == 0) {
-            createBuffer(mVertexBufferInfo);
         }
 		if(mIndexBufferInfo != null && mIndexBufferInfo.bufferHandle == 0) {
             createBuffer(mIndexBufferInfo);
+        }
+		if(mInterleaved && mVertices != null) {
+			if(mVertexBufferInfo.bufferHandle == 0)
+				createInterleavedBuffer();
+			return;
+		}
+		if(mVertexBufferInfo != null && mVertexBufferInfo.bufferHandle == 0) {
+            createBuffer(mVertexBufferInfo);
         }
 		if(mTexCoordBufferInfo != null && mTexCoordBufferInfo.bufferHandle == 0) {
             createBuffer(mTexCoordBufferInfo);
@@ -697,7 +882,7 @@ public class Geometry3D {
 	 * @param usage
 	 */
 	public void changeBufferUsage(BufferInfo bufferInfo, final int usage) {
-		GLES20.glDeleteBuffers(1, new int[] { bufferInfo.bufferHandle }, 0);
+		GLStateTracker.getInstance().glDeleteBuffers(1, new int[] { bufferInfo.bufferHandle }, 0);
 		createBuffer(bufferInfo, bufferInfo.bufferType, bufferInfo.buffer, bufferInfo.target);
 	}
 
@@ -749,7 +934,7 @@ public class Geometry3D {
 	public void changeBufferData(BufferInfo bufferInfo, Buffer newData, int index, int size, boolean resizeBuffer) {
 		newData.rewind();
 
-        GLES20.glBindBuffer(bufferInfo.target, bufferInfo.bufferHandle);
+        GLStateTracker.getInstance().glBindBuffer(bufferInfo.target, bufferInfo.bufferHandle);
         if(resizeBuffer) {
             bufferInfo.buffer = newData;
             GLES20.glBufferData(bufferInfo.target, size * bufferInfo.byteSize, newData, bufferInfo.usage);
@@ -758,7 +943,7 @@ public class Geometry3D {
         {
             GLES20.glBufferSubData(bufferInfo.target, index * bufferInfo.byteSize, size * bufferInfo.byteSize, newData);
         }
-	    GLES20.glBindBuffer(bufferInfo.target, 0);
+	    GLStateTracker.getInstance().glBindBuffer(bufferInfo.target, 0);
 	}
 
 	public void setVertices(float[] vertices) {
@@ -780,6 +965,7 @@ public class Geometry3D {
 		} else {
 			mVertices.put(vertices);
 		}
+		mTriangleBVH = null;
 	}
 
 	public void setVertices(FloatBuffer vertices) {
@@ -936,10 +1122,10 @@ public class Geometry3D {
 		if(createNewBuffer == true) {
 			createBuffer(mColorBufferInfo, BufferType.FLOAT_BUFFER, mColors, GLES20.GL_ARRAY_BUFFER);
 		} else {
-			GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mColorBufferInfo.bufferHandle);
+			GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, mColorBufferInfo.bufferHandle);
 			GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mColors.limit() * FLOAT_SIZE_BYTES, mColors, GLES20.GL_STATIC_DRAW);
 		}
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+		GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 	}
 
 	public String toString() {
@@ -965,7 +1151,7 @@ public class Geometry3D {
 	    if(mNormalBufferInfo != null) buffers[2] = mNormalBufferInfo.bufferHandle;
 	    if(mTexCoordBufferInfo != null) buffers[3] = mTexCoordBufferInfo.bufferHandle;
 	    if(mColorBufferInfo != null) buffers[4] = mColorBufferInfo.bufferHandle;
-	    GLES20.glDeleteBuffers(buffers.length, buffers, 0);
+	    GLStateTracker.getInstance().glDeleteBuffers(buffers.length, buffers, 0);
 
 	    if(mVertices != null) mVertices.clear();
 	    if(mNormals != null) mNormals.clear();
@@ -1012,6 +1198,15 @@ public class Geometry3D {
 		return mBoundingBox;
 	}
 
+	/**
+	 * Sets a precomputed bounding box, so it doesn't need to be calculated from the vertices.
+	 *
+	 * @param boundingBox {@link BoundingBox} The bounding box.
+	 */
+	public void setBoundingBox(BoundingBox boundingBox) {
+		mBoundingBox = boundingBox;
+	}
+
 	public boolean hasBoundingSphere() {
 		return mBoundingSphere != null;
 	}
@@ -1027,6 +1222,24 @@ public class Geometry3D {
 		return mBoundingSphere;
 	}
 
+	/**
+	 * Gets the triangle hierarchy of this geometry for exact ray hits. Clones use the one of their
+	 * original geometry. The first call starts building it on a background thread, until it is
+	 * done this returns null and hits can only be tested against the bounding volumes.
+	 * @return The built {@link TriangleBVH}, or null while it is being built or if there are no vertices.
+	 */
+	public TriangleBVH getTriangleBVH() {
+		if(mOriginalGeometry != null)
+			return mOriginalGeometry.getTriangleBVH();
+		if(mTriangleBVH == null) {
+			if(mVertices == null)
+				return null;
+			mTriangleBVH = new TriangleBVH(mVertices, mNumVertices, getIndices(), mNumIndices);
+			mTriangleBVH.buildAsync();
+		}
+		return mTriangleBVH.isBuilt() ? mTriangleBVH : null;
+	}
+
 	public BufferInfo getVertexBufferInfo() {
 		return mVertexBufferInfo;
 	}
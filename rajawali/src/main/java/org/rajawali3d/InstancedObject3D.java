@@ -0,0 +1,392 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d;
+
+import android.opengl.GLES20;
+
+import org.rajawali3d.bounds.BoundingBox;
+import org.rajawali3d.cameras.Camera;
+import org.rajawali3d.materials.Material;
+import org.rajawali3d.materials.shaders.VertexShader;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.Quaternion;
+import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.renderer.GLStateTracker;
+import org.rajawali3d.renderer.IGLES;
+import org.rajawali3d.util.RajLog;
+
+/**
+ * Draws many copies of one mesh with a single {@link Material} setup. Each copy (instance) has its own
+ * position, orientation and color. The object's own scale applies to all instances.
+ * <p>
+ * A plain {@link Object3D} clone binds the program, textures and vertex attributes for every draw. This
+ * object does that once, then only uploads per-instance uniforms and calls {@code glDrawElements} for each
+ * instance. Once per frame, the matrices and colors of all instances are packed into one float array
+ * ({@link #getInstanceData()}) with a fixed layout of {@link #STRIDE} floats per instance. The draw loop then
+ * uploads uniforms directly from that array, so nothing is allocated per instance.
+ * <p>
+ * Instances {@code 0 .. getInstanceCount() - 1} are drawn. Children are not rendered.
+ *
+ * <pre>
+ * InstancedObject3D missiles = new InstancedObject3D(new Cube(0.12f), 128);
+ * getCurrentScene().addChild(missiles);
+ * // every frame
+ * missiles.setInstanceCount(count);
+ * missiles.setInstancePosition(i, x, y, z);
+ * missiles.setInstanceColor(i, 0xff990000);
+ * </pre>
+ */
+public class InstancedObject3D extends Object3D {
+	/** Offset of the model-view-projection matrix in the data of an instance */
+	public static final int OFFSET_MVP_MATRIX = 0;
+	/** Offset of the model matrix in the data of an instance */
+	public static final int OFFSET_MODEL_MATRIX = 16;
+	/** Offset of the model-view matrix in the data of an instance */
+	public static final int OFFSET_MODEL_VIEW_MATRIX = 32;
+	/** Offset of the 3x3 normal matrix in the data of an instance */
+	public static final int OFFSET_NORMAL_MATRIX = 48;
+	/** Offset of the RGBA color in the data of an instance */
+	public static final int OFFSET_COLOR = 57;
+	/** Number of floats per instance */
+	public static final int STRIDE = 61;
+
+	private final int mCapacity;
+	private int mInstanceCount;
+
+	// Instance state
+	private final double[] mInstancePositions;
+	private final double[] mInstanceOrientations;
+	private final float[] mInstanceColors;
+	private final boolean[] mInstanceShowBoundingVolume;
+
+	// Packed per frame
+	private final float[] mInstanceData;
+
+	private IGLES mGL = GLStateTracker.getInstance();
+
+	// Scratch
+	private final Vector3 mTmpPosition = new Vector3();
+	private final Vector3 mTmpDirection = new Vector3();
+	private final Quaternion mTmpOrientation = new Quaternion();
+	private final Matrix4 mTmpModelMatrix = new Matrix4();
+	private final Matrix4 mTmpMatrix = new Matrix4();
+
+	/**
+	 * Creates an instanced object sharing the geometry, material and scale of the prototype.
+	 *
+	 * @param prototype {@link Object3D} to draw copies of. Its children are ignored.
+	 * @param capacity {@code int} Maximum number of instances.
+	 */
+	public InstancedObject3D(Object3D prototype, int capacity) {
+		super();
+		prototype.cloneTo(this, true);
+		setScale(prototype.getScale());
+		mColor = prototype.mColor.clone();
+		mCapacity = capacity;
+		mInstancePositions = new double[capacity * 3];
+		mInstanceOrientations = new double[capacity * 4];
+		mInstanceColors = new float[capacity * 4];
+		mInstanceShowBoundingVolume = new boolean[capacity];
+		mInstanceData = new float[capacity * STRIDE];
+		for (int i = 0; i < capacity; i++) {
+			mInstanceOrientations[i * 4] = 1; // identity
+			System.arraycopy(mColor, 0, mInstanceColors, i * 4, 4);
+		}
+	}
+
+	/**
+	 * Replaces the GL implementation used by the draw loop. Used by tests.
+	 *
+	 * @param gl {@link IGLES} implementation.
+	 */
+	public void setGL(IGLES gl) {
+		mGL = gl;
+	}
+
+	public int getCapacity() {
+		return mCapacity;
+	}
+
+	public int getInstanceCount() {
+		return mInstanceCount;
+	}
+
+	/**
+	 * Sets the number of instances to draw. Instances {@code 0 .. count - 1} are drawn.
+	 *
+	 * @param count {@code int} Number of instances. Clamped to the capacity.
+	 */
+	public void setInstanceCount(int count) {
+		mInstanceCount = Math.max(0, Math.min(count, mCapacity));
+	}
+
+	public void setInstancePosition(int index, double x, double y, double z) {
+		final int i = index * 3;
+		mInstancePositions[i] = x;
+		mInstancePositions[i + 1] = y;
+		mInstancePositions[i + 2] = z;
+	}
+
+	public void setInstanceOrientation(int index, Quaternion orientation) {
+		final int i = index * 4;
+		mInstanceOrientations[i] = orientation.w;
+		mInstanceOrientations[i + 1] = orientation.x;
+		mInstanceOrientations[i + 2] = orientation.y;
+		mInstanceOrientations[i + 3] = orientation.z;
+	}
+
+	/**
+	 * Orients the instance to look at the specified point, the same way as
+	 * {@link ATransformable3D#setLookAt(double, double, double)}. Set the position first.
+	 *
+	 * @param index {@code int} Instance index.
+	 * @param x {@code double} The look at target x coordinate.
+	 * @param y {@code double} The look at target y coordinate.
+	 * @param z {@code double} The look at target z coordinate.
+	 */
+	public void setInstanceLookAt(int index, double x, double y, double z) {
+		final int i = index * 3;
+		mTmpDirection.setAll(x - mInstancePositions[i], y - mInstancePositions[i + 1],
+				z - mInstancePositions[i + 2]);
+		mTmpOrientation.lookAt(mTmpDirection, mUpAxis);
+		setInstanceOrientation(index, mTmpOrientation);
+	}
+
+	/**
+	 * Sets the color of the instance. The color overrides the material color like {@link #setColor(int)}.
+	 *
+	 * @param index {@code int} Instance index.
+	 * @param color {@code int} ARGB color.
+	 */
+	public void setInstanceColor(int index, int color) {
+		final int i = index * 4;
+		mInstanceColors[i] = ((color >> 16) & 0xff) / 255.f;
+		mInstanceColors[i + 1] = ((color >> 8) & 0xff) / 255.f;
+		mInstanceColors[i + 2] = (color & 0xff) / 255.f;
+		mInstanceColors[i + 3] = ((color >>> 24) & 0xff) / 255.f;
+		mOverrideMaterialColor = true;
+	}
+
+	public void setInstanceShowBoundingVolume(int index, boolean show) {
+		mInstanceShowBoundingVolume[index] = show;
+	}
+
+	/**
+	 * Returns the packed per-instance data of the last {@link #packInstances(Matrix4, Matrix4, Matrix4)} call.
+	 * Instance {@code i} starts at {@code i * STRIDE}. See the {@code OFFSET_} constants for the layout.
+	 *
+	 * @return The backing float array. Do not modify.
+	 */
+	public float[] getInstanceData() {
+		return mInstanceData;
+	}
+
+	/**
+	 * Calculates the model matrix of an instance.
+	 *
+	 * @param index {@code int} Instance index.
+	 * @param parentMatrix {@link Matrix4} The parent matrix. Can be null.
+	 * @param result {@link Matrix4} Receives the model matrix.
+	 */
+	public void getInstanceModelMatrix(int index, Matrix4 parentMatrix, Matrix4 result) {
+		final int p = index * 3;
+		final int o = index * 4;
+		mTmpPosition.setAll(mInstancePositions[p], mInstancePositions[p + 1], mInstancePositions[p + 2]);
+		mTmpOrientation.setAll(mInstanceOrientations[o], mInstanceOrientations[o + 1],
+				mInstanceOrientations[o + 2], mInstanceOrientations[o + 3]);
+		result.setAll(mTmpPosition, mScale, mTmpOrientation);
+		if (parentMatrix != null) {
+			result.leftMultiply(parentMatrix);
+		}
+	}
+
+	/**
+	 * Packs the matrices and colors of all drawn instances into {@link #getInstanceData()}.
+	 *
+	 * @param vpMatrix {@link Matrix4} The view-projection matrix.
+	 * @param vMatrix {@link Matrix4} The view matrix.
+	 * @param parentMatrix {@link Matrix4} The parent matrix. Can be null.
+	 *
+	 * @return {@code int} Number of packed instances.
+	 */
+	public int packInstances(Matrix4 vpMatrix, Matrix4 vMatrix, Matrix4 parentMatrix) {
+		final float[] data = mInstanceData;
+		for (int index = 0; index < mInstanceCount; index++) {
+			final int base = index * STRIDE;
+			getInstanceModelMatrix(index, parentMatrix, mTmpModelMatrix);
+			copyMatrix(mTmpModelMatrix, data, base + OFFSET_MODEL_MATRIX);
+
+			mTmpMatrix.setAll(vpMatrix).multiply(mTmpModelMatrix);
+			copyMatrix(mTmpMatrix, data, base + OFFSET_MVP_MATRIX);
+
+			mTmpMatrix.setAll(vMatrix).multiply(mTmpModelMatrix);
+			copyMatrix(mTmpMatrix, data, base + OFFSET_MODEL_VIEW_MATRIX);
+
+			// Same as Material.setModelMatrix()
+			mTmpMatrix.setAll(mTmpModelMatrix).setToNormalMatrix();
+			final double[] n = mTmpMatrix.getDoubleValues();
+			final int normal = base + OFFSET_NORMAL_MATRIX;
+			data[normal] = (float) n[0];
+			data[normal + 1] = (float) n[1];
+			data[normal + 2] = (float) n[2];
+			data[normal + 3] = (float) n[4];
+			data[normal + 4] = (float) n[5];
+			data[normal + 5] = (float) n[6];
+			data[normal + 6] = (float) n[8];
+			data[normal + 7] = (float) n[9];
+			data[normal + 8] = (float) n[10];
+
+			System.arraycopy(mInstanceColors, index * 4, data, base + OFFSET_COLOR, 4);
+		}
+		return mInstanceCount;
+	}
+
+	/**
+	 * Uploads the uniforms of each packed instance and draws it. The program, textures and vertex
+	 * attributes must be set up already.
+	 *
+	 * @param shader {@link VertexShader} The vertex shader of the current program.
+	 * @param uploadColor {@code boolean} Whether to upload the instance colors.
+	 */
+	public void drawInstances(VertexShader shader, boolean uploadColor) {
+		drawInstances(shader.getMVPMatrixHandle(), shader.getModelMatrixHandle(),
+				shader.getModelViewMatrixHandle(), shader.getNormalMatrixHandle(),
+				uploadColor ? shader.getColorHandle() : -1);
+	}
+
+	/**
+	 * Uploads the uniforms of each packed instance and draws it. The program, textures and vertex
+	 * attributes must be set up already.
+	 *
+	 * @param mvpHandle {@code int} Location of the model-view-projection matrix uniform.
+	 * @param modelHandle {@code int} Location of the model matrix uniform.
+	 * @param modelViewHandle {@code int} Location of the model-view matrix uniform.
+	 * @param normalHandle {@code int} Location of the normal matrix uniform.
+	 * @param colorHandle {@code int} Location of the color uniform. -1 to keep the material color.
+	 */
+	public void drawInstances(int mvpHandle, int modelHandle, int modelViewHandle, int normalHandle,
+							  int colorHandle) {
+		final IGLES gl = mGL;
+		final float[] data = mInstanceData;
+		final BufferInfo indices = mGeometry.getIndexBufferInfo();
+		final int bufferType = indices.bufferType == Geometry3D.BufferType.SHORT_BUFFER
+				? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT;
+		final int numIndices = mGeometry.getNumIndices();
+
+		gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, indices.bufferHandle);
+		for (int index = 0; index < mInstanceCount; index++) {
+			final int base = index * STRIDE;
+			gl.glUniformMatrix4fv(mvpHandle, 1, false, data, base + OFFSET_MVP_MATRIX);
+			gl.glUniformMatrix4fv(modelHandle, 1, false, data, base + OFFSET_MODEL_MATRIX);
+			gl.glUniformMatrix4fv(modelViewHandle, 1, false, data, base + OFFSET_MODEL_VIEW_MATRIX);
+			gl.glUniformMatrix3fv(normalHandle, 1, false, data, base + OFFSET_NORMAL_MATRIX);
+			if (colorHandle > -1) {
+				gl.glUniform4fv(colorHandle, 1, data, base + OFFSET_COLOR);
+			}
+			gl.glDrawElements(mDrawingMode, numIndices, bufferType, 0);
+		}
+	}
+
+	@Override
+	public void render(Camera camera, final Matrix4 vpMatrix, final Matrix4 projMatrix, final Matrix4 vMatrix,
+					   final Matrix4 parentMatrix, Material sceneMaterial) {
+		if (!mIsVisible || mInstanceCount == 0)
+			return;
+
+		Material material = sceneMaterial == null ? mMaterial : sceneMaterial;
+		if (material == null) {
+			RajLog.e("[" + this.getClass().getName()
+					+ "] This object can't render because there's no material attached to it.");
+			throw new RuntimeException(
+					"This object can't render because there's no material attached to it.");
+		}
+		preRender();
+		onRecalculateModelMatrix(parentMatrix);
+		packInstances(vpMatrix, vMatrix, parentMatrix);
+
+		final IGLES gl = mGL;
+		mPMatrix = projMatrix;
+		if (mDoubleSided) {
+			gl.glDisable(GLES20.GL_CULL_FACE);
+		} else {
+			gl.glEnable(GLES20.GL_CULL_FACE);
+			if (mBackSided) {
+				gl.glCullFace(GLES20.GL_FRONT);
+			} else {
+				gl.glCullFace(GLES20.GL_BACK);
+				gl.glFrontFace(GLES20.GL_CCW);
+			}
+		}
+		if (mEnableBlending) {
+			gl.glEnable(GLES20.GL_BLEND);
+			gl.glBlendFunc(mBlendFuncSFactor, mBlendFuncDFactor);
+		}
+		if (!mEnableDepthTest) gl.glDisable(GLES20.GL_DEPTH_TEST);
+		else {
+			gl.glEnable(GLES20.GL_DEPTH_TEST);
+			gl.glDepthFunc(GLES20.GL_LESS);
+		}
+		gl.glDepthMask(mEnableDepthMask);
+
+		// -- Set up the program, textures and vertex attributes once for all instances
+		material.useProgram();
+		setShaderParams(camera);
+		material.bindTextures();
+		material.setVertexAttributes(gl, mGeometry.getVertexBufferInfo(),
+				mGeometry.hasNormals() ? mGeometry.getNormalBufferInfo() : null,
+				mGeometry.hasTextureCoordinates() ? mGeometry.getTexCoordBufferInfo() : null,
+				mMaterial.usingVertexColors() ? mGeometry.getColorBufferInfo() : null);
+		material.setCurrentObject(this);
+		if (mOverrideMaterialColor) {
+			material.setColor(mColor);
+		}
+		material.applyParams();
+
+		drawInstances(material.getVertexShader(), mOverrideMaterialColor);
+
+		if (sceneMaterial == null) {
+			material.unbindTextures();
+		}
+		material.unsetCurrentObject(this);
+
+		if (mEnableBlending) {
+			gl.glDisable(GLES20.GL_BLEND);
+		}
+		if (mDoubleSided) {
+			gl.glEnable(GLES20.GL_CULL_FACE);
+		} else if (mBackSided) {
+			gl.glCullFace(GLES20.GL_BACK);
+		}
+		if (!mEnableDepthTest) {
+			gl.glEnable(GLES20.GL_DEPTH_TEST);
+			gl.glDepthFunc(GLES20.GL_LESS);
+		}
+
+		if (mGeometry.hasBoundingBox()) {
+			final BoundingBox bbox = mGeometry.getBoundingBox();
+			for (int index = 0; index < mInstanceCount; index++) {
+				if (!mInstanceShowBoundingVolume[index]) continue;
+				getInstanceModelMatrix(index, parentMatrix, mTmpModelMatrix);
+				bbox.transform(mTmpModelMatrix);
+				bbox.drawBoundingVolume(camera, vpMatrix, projMatrix, vMatrix, mTmpModelMatrix);
+			}
+		}
+	}
+
+	private static void copyMatrix(Matrix4 matrix, float[] dst, int offset) {
+		final double[] m = matrix.getDoubleValues();
+		for (int i = 0; i < 16; i++) {
+			dst[offset + i] = (float) m[i];
+		}
+	}
+}
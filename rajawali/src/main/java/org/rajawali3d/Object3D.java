@@ -16,9 +16,9 @@ import android.graphics.Color;
 import android.opengl.GLES20;
 
 import android.support.annotation.NonNull;
-import org.rajawali3d.bounds.BoundingBox;
 import org.rajawali3d.bounds.IBoundingVolume;
 import org.rajawali3d.cameras.Camera;
+import org.rajawali3d.cameras.Frustum;
 import org.rajawali3d.materials.Material;
 import org.rajawali3d.materials.MaterialManager;
 import org.rajawali3d.materials.textures.TextureAtlas;
@@ -26,11 +26,13 @@ import org.rajawali3d.materials.textures.TexturePacker.Tile;
 import org.rajawali3d.math.Matrix;
 import org.rajawali3d.math.Matrix4;
 import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.renderer.GLStateTracker;
 import org.rajawali3d.util.GLU;
 import org.rajawali3d.util.RajLog;
 import org.rajawali3d.visitors.INode;
 import org.rajawali3d.visitors.INodeVisitor;
 
+import java.nio.Buffer;
 import java.nio.FloatBuffer;
 import java.util.Collections;
 import java.util.List;
@@ -84,6 +86,7 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 
 	protected boolean mFrustumTest = false;
 	protected boolean mIsInFrustum;
+	protected int mFrustumPlane = Frustum.INSIDE; //The plane which culled this object in the last frame
 
 	protected boolean mRenderChildrenAsBatch = false;
 	protected boolean mIsPartOfBatch = false;
@@ -164,6 +167,31 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 				: GLES20.GL_UNSIGNED_INT;
 	}
 
+	/**
+	 * Passes existing buffers to the Geometry3D instance without copying them.
+	 *
+	 * @param vertices
+	 *            A direct float buffer containing vertex data
+	 * @param normals
+	 *            A direct float buffer containing normal data. Can be null.
+	 * @param textureCoords
+	 *            A direct float buffer containing texture coordinates. Can be null.
+	 * @param colors
+	 *            A direct float buffer containing color values (rgba). Can be null.
+	 * @param indices
+	 *            A direct int or short buffer containing face indices
+	 * @param createVBOs
+	 *            A boolean controlling if the VBOs are create immediately.
+	 * @see Geometry3D#setData(FloatBuffer, FloatBuffer, FloatBuffer, FloatBuffer, Buffer, boolean)
+	 */
+	public void setData(FloatBuffer vertices, FloatBuffer normals, FloatBuffer textureCoords, FloatBuffer colors,
+			Buffer indices, boolean createVBOs) {
+		mGeometry.setData(vertices, normals, textureCoords, colors, indices, createVBOs);
+		mIsContainerOnly = false;
+		mElementsBufferType = mGeometry.areOnlyShortBuffersSupported() ? GLES20.GL_UNSIGNED_SHORT
+				: GLES20.GL_UNSIGNED_INT;
+	}
+
 	/**
 	 * Executed before the rendering process starts
 	 */
@@ -185,6 +213,21 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 		render(camera, vpMatrix, projMatrix, vMatrix, null, sceneMaterial);
 	}
 
+	/**
+	 * Also marks the children dirty when the model matrix changed, so they follow this object
+	 * even when the matrix was recalculated ahead of {@link #render}.
+	 */
+	@Override
+	public boolean onRecalculateModelMatrix(Matrix4 parentMatrix) {
+		if (super.onRecalculateModelMatrix(parentMatrix)) {
+			for (int i = 0, j = mChildren.size(); i < j; i++) {
+				mChildren.get(i).markModelMatrixDirty();
+			}
+			return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Renders the object
 	 *
@@ -210,42 +253,41 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 		//Create MVP Matrix from View-Projection Matrix
 		mMVPMatrix.setAll(vpMatrix).multiply(mMMatrix);
 
-        // Transform the bounding volumes if they exist
+        // Transform the bounding volumes if they exist. The frustum test creates both.
+        if (mFrustumTest && !mIsContainerOnly) {
+            mGeometry.getBoundingBox();
+            mGeometry.getBoundingSphere();
+        }
         if (mGeometry.hasBoundingBox()) mGeometry.getBoundingBox().transform(getModelMatrix());
         if (mGeometry.hasBoundingSphere()) mGeometry.getBoundingSphere().transform(getModelMatrix());
 
-		mIsInFrustum = true; // only if mFrustrumTest == true it check frustum
-		if (mFrustumTest && mGeometry.hasBoundingBox()) {
-			BoundingBox bbox = mGeometry.getBoundingBox();
-			if (!camera.getFrustum().boundsInFrustum(bbox)) {
-				mIsInFrustum = false;
-			}
-		}
+		mIsInFrustum = testFrustum(camera);
 
 		if (!mIsContainerOnly && mIsInFrustum) {
 			mPMatrix = projMatrix;
+			final GLStateTracker gl = GLStateTracker.getInstance();
 			if (mDoubleSided) {
-				GLES20.glDisable(GLES20.GL_CULL_FACE);
+				gl.glDisable(GLES20.GL_CULL_FACE);
 			} else {
-				GLES20.glEnable(GLES20.GL_CULL_FACE);
+				gl.glEnable(GLES20.GL_CULL_FACE);
 			     if (mBackSided) {
-			          GLES20.glCullFace(GLES20.GL_FRONT);
+			          gl.glCullFace(GLES20.GL_FRONT);
 			     } else {
-			          GLES20.glCullFace(GLES20.GL_BACK);
-			          GLES20.glFrontFace(GLES20.GL_CCW);
+			          gl.glCullFace(GLES20.GL_BACK);
+			          gl.glFrontFace(GLES20.GL_CCW);
 			     }
 			}
 			if (mEnableBlending) {
-				GLES20.glEnable(GLES20.GL_BLEND);
-				GLES20.glBlendFunc(mBlendFuncSFactor, mBlendFuncDFactor);
+				gl.glEnable(GLES20.GL_BLEND);
+				gl.glBlendFunc(mBlendFuncSFactor, mBlendFuncDFactor);
 			}
-			if (!mEnableDepthTest) GLES20.glDisable(GLES20.GL_DEPTH_TEST);
+			if (!mEnableDepthTest) gl.glDisable(GLES20.GL_DEPTH_TEST);
 			else {
-				GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-				GLES20.glDepthFunc(GLES20.GL_LESS);
+				gl.glEnable(GLES20.GL_DEPTH_TEST);
+				gl.glDepthFunc(GLES20.GL_LESS);
 			}
 
-			GLES20.glDepthMask(mEnableDepthMask);
+			gl.glDepthMask(mEnableDepthMask);
 
 			if (!mIsPartOfBatch) {
 				if (material == null) {
@@ -258,14 +300,10 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 
 				setShaderParams(camera);
 				material.bindTextures();
-				if(mGeometry.hasTextureCoordinates())
-					material.setTextureCoords(mGeometry.getTexCoordBufferInfo());
-				if(mGeometry.hasNormals())
-					material.setNormals(mGeometry.getNormalBufferInfo());
-				if(mMaterial.usingVertexColors())
-					material.setVertexColors(mGeometry.getColorBufferInfo());
-
-				material.setVertices(mGeometry.getVertexBufferInfo());
+				material.setVertexAttributes(gl, mGeometry.getVertexBufferInfo(),
+						mGeometry.hasNormals() ? mGeometry.getNormalBufferInfo() : null,
+						mGeometry.hasTextureCoordinates() ? mGeometry.getTexCoordBufferInfo() : null,
+						mMaterial.usingVertexColors() ? mGeometry.getColorBufferInfo() : null);
 			}
 			material.setCurrentObject(this);
 			if(mOverrideMaterialColor) {
@@ -273,17 +311,14 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
             }
             material.applyParams();
 
-			GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
-
 			material.setMVPMatrix(mMVPMatrix);
 			material.setModelMatrix(mMMatrix);
 			material.setModelViewMatrix(mMVMatrix);
 
 			if(mIsVisible) {
                 int bufferType = mGeometry.getIndexBufferInfo().bufferType == Geometry3D.BufferType.SHORT_BUFFER ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT;
-				GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mGeometry.getIndexBufferInfo().bufferHandle);
+				gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mGeometry.getIndexBufferInfo().bufferHandle);
 				GLES20.glDrawElements(mDrawingMode, mGeometry.getNumIndices(), bufferType, 0);
-				GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
 			}
 			if (!mIsPartOfBatch && !mRenderChildrenAsBatch && sceneMaterial == null) {
 				material.unbindTextures();
@@ -292,17 +327,17 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 			material.unsetCurrentObject(this);
 
 			if (mEnableBlending) {
-				GLES20.glDisable(GLES20.GL_BLEND);
+				gl.glDisable(GLES20.GL_BLEND);
 			}
 
 			if (mDoubleSided) {
-				GLES20.glEnable(GLES20.GL_CULL_FACE);
+				gl.glEnable(GLES20.GL_CULL_FACE);
 			} else if (mBackSided) {
-				GLES20.glCullFace(GLES20.GL_BACK);
+				gl.glCullFace(GLES20.GL_BACK);
 			}
 			if (!mEnableDepthTest) {
-				GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-				GLES20.glDepthFunc(GLES20.GL_LESS);
+				gl.glEnable(GLES20.GL_DEPTH_TEST);
+				gl.glDepthFunc(GLES20.GL_LESS);
 			}
 		}
 
@@ -327,6 +362,20 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 		}
 	}
 
+	/**
+	 * Tests the transformed bounding volumes against the frustum of the camera, if the
+	 * frustum test is enabled.
+	 *
+	 * @return boolean False if the object is outside of the frustum.
+	 */
+	protected boolean testFrustum(Camera camera) {
+		if (!mFrustumTest || !mGeometry.hasBoundingBox() || !mGeometry.hasBoundingSphere())
+			return true;
+		mFrustumPlane = camera.getFrustum().boundsInFrustum(mGeometry.getBoundingSphere(),
+				mGeometry.getBoundingBox(), mFrustumPlane);
+		return mFrustumPlane == Frustum.INSIDE;
+	}
+
 	/**
 	 * Renders the object for color-picking
 	 *
@@ -343,26 +392,21 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 		//   All matrices already updated during prior frame
 		//   Bounding box already transformed
 
-		mIsInFrustum = true; // only if mFrustrumTest == true it check frustum
-		if (mFrustumTest && mGeometry.hasBoundingBox()) {
-			BoundingBox bbox = mGeometry.getBoundingBox();
-			if (!camera.getFrustum().boundsInFrustum(bbox)) {
-				mIsInFrustum = false;
-			}
-		}
+		mIsInFrustum = testFrustum(camera);
 
 		// Render this object only if it has visible geometry and didn't fail frustum test
 		if (!mIsContainerOnly && mIsInFrustum && mIsVisible) {
+			final GLStateTracker gl = GLStateTracker.getInstance();
 			// Render same faces as visible render
 			if (mDoubleSided) {
-				GLES20.glDisable(GLES20.GL_CULL_FACE);
+				gl.glDisable(GLES20.GL_CULL_FACE);
 			} else {
-				GLES20.glEnable(GLES20.GL_CULL_FACE);
+				gl.glEnable(GLES20.GL_CULL_FACE);
 				if (mBackSided) {
-					GLES20.glCullFace(GLES20.GL_FRONT);
+					gl.glCullFace(GLES20.GL_FRONT);
 				} else {
-					GLES20.glCullFace(GLES20.GL_BACK);
-					GLES20.glFrontFace(GLES20.GL_CCW);
+					gl.glCullFace(GLES20.GL_BACK);
+					gl.glFrontFace(GLES20.GL_CCW);
 				}
 			}
 
@@ -375,9 +419,6 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 			pickingMaterial.setColor(mPickingColor);
 			pickingMaterial.applyParams();
 
-			// Unbind the array buffer
-			GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
-
 			// Apply this object's matrices to the pickingMaterial
 			pickingMaterial.setMVPMatrix(mMVPMatrix);
 			pickingMaterial.setModelMatrix(mMMatrix);
@@ -385,15 +426,14 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 
 			// Draw the object using its picking color
 			int bufferType = mGeometry.getIndexBufferInfo().bufferType == Geometry3D.BufferType.SHORT_BUFFER ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT;
-			GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mGeometry.getIndexBufferInfo().bufferHandle);
+			gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mGeometry.getIndexBufferInfo().bufferHandle);
 			GLES20.glDrawElements(mDrawingMode, mGeometry.getNumIndices(), bufferType, 0);
-			GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
 
 			// Only need to undo face culling
 			if (mDoubleSided) {
-				GLES20.glEnable(GLES20.GL_CULL_FACE);
+				gl.glEnable(GLES20.GL_CULL_FACE);
 			} else if (mBackSided) {
-				GLES20.glCullFace(GLES20.GL_BACK);
+				gl.glCullFace(GLES20.GL_BACK);
 			}
 		}
 
@@ -732,10 +772,20 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 		this.mShowBoundingVolume = showBoundingVolume;
 	}
 
+	/**
+	 * Enables the frustum test of this object. In a {@link org.rajawali3d.scene.Scene} with a scene
+	 * graph, children which are tested and outside of the frustum are skipped with their own children.
+	 *
+	 * @param value boolean True to skip this object when it is outside of the frustum.
+	 */
 	public void setFrustumTest(boolean value) {
 		mFrustumTest = value;
 	}
 
+	public boolean getFrustumTest() {
+		return mFrustumTest;
+	}
+
 	public void accept(INodeVisitor visitor) {
 		visitor.apply(this);
 	}
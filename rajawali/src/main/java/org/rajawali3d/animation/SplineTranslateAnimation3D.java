@@ -1,5 +1,6 @@
 package org.rajawali3d.animation;
 
+import org.rajawali3d.curves.ArcLengthCurve3D;
 import org.rajawali3d.curves.ICurve3D;
 import org.rajawali3d.math.vector.Vector3;
 
@@ -29,8 +30,15 @@ public class SplineTranslateAnimation3D extends Animation3D {
 		mTransformable3D.setPosition(mTempPoint1);
 
 		if (mOrientToPath) {
-			// -- calculate tangent
-			mSplinePath.calculatePoint(mTempPoint2, mInterpolatedTime + mLookatDelta * (mIsReversing ? -1 : 1));
+			if (mSplinePath instanceof ArcLengthCurve3D) {
+				// -- the tangent comes from the arc length table, the curve is evaluated once
+				mTempPoint2.setAll(mSplinePath.getCurrentTangent());
+				mTempPoint2.multiply(mIsReversing ? 1 : -1);
+				mTempPoint2.add(mTempPoint1);
+			} else {
+				// -- calculate tangent
+				mSplinePath.calculatePoint(mTempPoint2, mInterpolatedTime + mLookatDelta * (mIsReversing ? -1 : 1));
+			}
 			mTransformable3D.setLookAt(mTempPoint2);
 		}
 	}
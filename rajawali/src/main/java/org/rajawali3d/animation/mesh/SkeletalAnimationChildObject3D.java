@@ -24,6 +24,7 @@ import org.rajawali3d.materials.plugins.SkeletalAnimationMaterialPlugin;
 import org.rajawali3d.math.Matrix4;
 import org.rajawali3d.math.vector.Vector2;
 import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.renderer.GLStateTracker;
 import org.rajawali3d.util.RajLog;
 
 import java.nio.ByteBuffer;
@@ -98,7 +99,7 @@ public class SkeletalAnimationChildObject3D extends AAnimationObject3D {
 			mMaterialPlugin.setBone2Indices(mboneIndexes2BufferInfo.bufferHandle);
 			mMaterialPlugin.setBone2Weights(mboneWeights2BufferInfo.bufferHandle);
 		}
-		mMaterialPlugin.setBoneMatrix(mSkeleton.uBoneMatrix);
+		mMaterialPlugin.setBoneMatrix(mSkeleton.getPoseMatrices());
 	}
 
 	public void setSkeleton(Object3D skeleton) {
@@ -232,7 +233,7 @@ public class SkeletalAnimationChildObject3D extends AAnimationObject3D {
 			buffers[0] = mboneIndexes2BufferInfo.bufferHandle;
 		if (mboneWeights2BufferInfo != null)
 			buffers[1] = mboneIndexes2BufferInfo.bufferHandle;
-		GLES20.glDeleteBuffers(buffers.length, buffers, 0);
+		GLStateTracker.getInstance().glDeleteBuffers(buffers.length, buffers, 0);
 
 		if (mboneIndexes1 != null)
 			mboneIndexes1.clear();
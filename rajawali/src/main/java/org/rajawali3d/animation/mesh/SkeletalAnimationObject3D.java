@@ -26,6 +26,7 @@ import android.view.animation.LinearInterpolator;
 import android.view.animation.OvershootInterpolator;
 
 import org.rajawali3d.BufferInfo;
+import org.rajawali3d.Geometry3D;
 import org.rajawali3d.cameras.Camera;
 import org.rajawali3d.Geometry3D.BufferType;
 import org.rajawali3d.Object3D;
@@ -34,17 +35,31 @@ import org.rajawali3d.materials.Material;
 import org.rajawali3d.math.Matrix;
 import org.rajawali3d.math.Matrix4;
 import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.renderer.GLStateTracker;
+import org.rajawali3d.renderer.Renderer;
+import org.rajawali3d.util.ArrayUtils;
 import org.rajawali3d.util.RajLog;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 public class SkeletalAnimationObject3D extends AAnimationObject3D {
+	/**
+	 * Joints evaluated per thread. Skeletons with fewer than twice this many are evaluated on the
+	 * render thread only, for them handing work to other threads costs more than it saves.
+	 */
+	private static final int JOINTS_PER_TASK = 32;
+
+	private static ExecutorService sPoseExecutor;
+
 	private SkeletonJoint[] mJoints;
-	private SkeletonJoint mTmpJoint1;
-	private SkeletonJoint mTmpJoint2;
 	private SkeletalAnimationSequence[] mSequences;
 	private SkeletalAnimationSequence mSequence;
 	private SkeletalAnimationSequence mNextSequence;
@@ -54,25 +69,27 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 	private int mCurrentTransitionFrameIndex;
 	public double[][] mInverseBindPoseMatrix;
 	public double[] uBoneMatrix;
-	
-	private double[] mBoneTranslation = new double[16];
-	private double[] mBoneRotation = new double[16];
-	private double[] mBoneMatrix = new double[16];
-	private double[] mResultMatrix = new double[16];
 
 	public BufferInfo mBoneMatricesBufferInfo = new BufferInfo();
-	
-	private static final int DOUBLE_SIZE_BYTES = 8;
 
 	/**
-	 * DoubleBuffer containing joint transformation matrices
+	 * FloatBuffer containing joint transformation matrices
 	 */
-	protected DoubleBuffer mBoneMatrices;
+	protected FloatBuffer mBoneMatrices;
 
-	public SkeletalAnimationObject3D() {
-		mTmpJoint1 = new SkeletonJoint();
-		mTmpJoint2 = new SkeletonJoint();
-	}
+	/**
+	 * Joint matrices of the current pose, 16 floats per joint
+	 */
+	private float[] mPose;
+	private long mPoseFrameTime;
+	private PoseTask[] mPoseTasks;
+	private Future<?>[] mPoseFutures;
+	// The frames the pose is interpolated between, read by the pose tasks
+	private SkeletalAnimationFrame mPoseFrame;
+	private SkeletalAnimationFrame mPoseNextFrame;
+	private SkeletalAnimationFrame mPoseTransitionFrame;
+	private SkeletalAnimationFrame mPoseNextTransitionFrame;
+	private double mPoseTransitionInterpolation;
 
 	/*
 	 * Sets bind pose matrices from argument and computes
@@ -147,15 +164,23 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 			return;
 
 		mJoints = joints;
+		mPose = ArrayUtils.convertDoublesToFloats(uBoneMatrix, new float[joints.length * 16]);
+		mPoseFrameTime = 0;
 
-		if (mBoneMatrices == null) {
+		int numTasks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), joints.length / JOINTS_PER_TASK));
+		mPoseTasks = new PoseTask[numTasks];
+		mPoseFutures = new Future<?>[numTasks];
+		for (int i = 0; i < numTasks; ++i)
+			mPoseTasks[i] = new PoseTask(joints.length * i / numTasks, joints.length * (i + 1) / numTasks);
+
+		if (mBoneMatrices == null || mBoneMatrices.capacity() < mPose.length) {
 			mBoneMatrices = ByteBuffer
-				.allocateDirect(joints.length * DOUBLE_SIZE_BYTES * 16)
-				.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+				.allocateDirect(mPose.length * Geometry3D.FLOAT_SIZE_BYTES)
+				.order(ByteOrder.nativeOrder()).asFloatBuffer();
 		} else
 			mBoneMatrices.clear();
 
-		mBoneMatrices.put(uBoneMatrix);
+		mBoneMatrices.put(mPose);
 		mBoneMatrices.position(0);
 
 		mGeometry.createBuffer(mBoneMatricesBufferInfo, BufferType.FLOAT_BUFFER, mBoneMatrices, GLES20.GL_ARRAY_BUFFER);
@@ -169,6 +194,17 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 		return mJoints;
 	}
 
+	/**
+	 * Returns the joint matrices of the current pose, 16 floats per joint, as they are passed to
+	 * the shader. The pose is evaluated at most once per frame and shared by all the
+	 * {@link SkeletalAnimationChildObject3D} meshes of this skeleton, in every pass.
+	 *
+	 * @return {@code float[]} The matrices of all joints, in joint order. Don't modify it.
+	 */
+	public float[] getPoseMatrices() {
+		return mPose;
+	}
+
 	public void setAnimationSequences(SkeletalAnimationSequence[] sequences)
 	{
 		mSequences = sequences;
@@ -327,67 +363,32 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 	public void setShaderParams(Camera camera) {
 		if (!mIsPlaying)
 			return;
-		mBoneMatrices.clear();
-		mBoneMatrices.position(0);
+
+		// The pose only changes once per frame, whether it's drawn once or once per eye or pass
+		long frameTime = Renderer.getFrameTime();
+		if (frameTime != 0 && frameTime == mPoseFrameTime)
+			return;
+		mPoseFrameTime = frameTime;
 
 		long currentTime = SystemClock.uptimeMillis();
 
-		SkeletalAnimationFrame currentFrame = (SkeletalAnimationFrame) mSequence.getFrame(mCurrentFrameIndex);
-		SkeletalAnimationFrame nextFrame = (SkeletalAnimationFrame) mSequence.getFrame((mCurrentFrameIndex + 1) % mSequence.getNumFrames());
+		mPoseFrame = mSequence.getFrame(mCurrentFrameIndex);
+		mPoseNextFrame = mSequence.getFrame((mCurrentFrameIndex + 1) % mSequence.getNumFrames());
 
 		mInterpolation += mFps * (currentTime - mStartTime) / 1000.0;
 		
 		boolean isTransitioning = mNextSequence != null;
-		double transitionInterpolation = 0;
+		mPoseTransitionInterpolation = 0;
 		if(isTransitioning)
-			transitionInterpolation = mTransitionInterpolator.getInterpolation((float) ((currentTime - mTransitionStartTime) / mTransitionDuration));
-		
-		for (int i = 0; i < mJoints.length; ++i) {
-			SkeletonJoint joint = getJoint(i);
-			SkeletonJoint fromJoint = currentFrame.getSkeleton().getJoint(i);
-			SkeletonJoint toJoint = nextFrame.getSkeleton().getJoint(i);
-			joint.setParentIndex(fromJoint.getParentIndex());
-			joint.getPosition().lerpAndSet(fromJoint.getPosition(), toJoint.getPosition(), mInterpolation);
-			joint.getOrientation().slerp(fromJoint.getOrientation(), toJoint.getOrientation(), mInterpolation);
-			
-			if(isTransitioning)
-			{
-				SkeletalAnimationFrame currentTransFrame = mNextSequence.getFrame(mCurrentTransitionFrameIndex % mNextSequence.getNumFrames());
-				SkeletalAnimationFrame nextTransFrame = mNextSequence.getFrame((mCurrentTransitionFrameIndex + 1) % mNextSequence.getNumFrames());
-				
-				fromJoint = currentTransFrame.getSkeleton().getJoint(i);
-				toJoint = nextTransFrame.getSkeleton().getJoint(i);
-				mTmpJoint1.getPosition().lerpAndSet(fromJoint.getPosition(), toJoint.getPosition(), mInterpolation);
-				mTmpJoint1.getOrientation().slerp(fromJoint.getOrientation(), toJoint.getOrientation(), mInterpolation);
-
-				// blend the two animations
-				mTmpJoint2.getPosition().lerpAndSet(joint.getPosition(), mTmpJoint1.getPosition(), transitionInterpolation);
-				mTmpJoint2.getOrientation().slerp(joint.getOrientation(), mTmpJoint1.getOrientation(), transitionInterpolation);
-				
-				joint.getPosition().setAll(mTmpJoint2.getPosition());
-				joint.getOrientation().setAll(mTmpJoint2.getOrientation());
-			}
-
-			Matrix.setIdentityM(mBoneTranslation, 0);
-			Matrix.setIdentityM(mBoneRotation, 0);
-			Matrix.setIdentityM(mBoneMatrix, 0);
-			Matrix.setIdentityM(mResultMatrix, 0);
-
-			Vector3 jointPos = joint.getPosition();
-			Matrix.translateM(mBoneTranslation, 0, jointPos.x, jointPos.y, jointPos.z);			
-			joint.getOrientation().toRotationMatrix(mBoneRotation);
-			Matrix.multiplyMM(mBoneMatrix, 0, mBoneTranslation, 0, mBoneRotation, 0);
-			Matrix.multiplyMM(mResultMatrix, 0, mBoneMatrix, 0, mInverseBindPoseMatrix[i], 0);
-			joint.setMatrix(mResultMatrix);
-
-			int index = 16 * i;
-			for (int j = 0; j < 16; j++) {
-				uBoneMatrix[index + j] = mResultMatrix[j];
-				mBoneMatrices.put(mResultMatrix[j]);
-			}
+		{
+			mPoseTransitionInterpolation = mTransitionInterpolator.getInterpolation((float) ((currentTime - mTransitionStartTime) / mTransitionDuration));
+			mPoseTransitionFrame = mNextSequence.getFrame(mCurrentTransitionFrameIndex % mNextSequence.getNumFrames());
+			mPoseNextTransitionFrame = mNextSequence.getFrame((mCurrentTransitionFrameIndex + 1) % mNextSequence.getNumFrames());
 		}
+
+		evaluateJoints();
 		
-		if(isTransitioning && transitionInterpolation >= .99f)
+		if(isTransitioning && mPoseTransitionInterpolation >= .99f)
 		{
 			isTransitioning = false;
 			mCurrentFrameIndex = mCurrentTransitionFrameIndex;
@@ -395,6 +396,9 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 			mNextSequence = null;
 		}
 
+		mBoneMatrices.clear();
+		mBoneMatrices.put(mPose);
+		mBoneMatrices.position(0);
 		mGeometry.changeBufferData(mBoneMatricesBufferInfo, mBoneMatrices, 0);
 
 		if (mInterpolation >= 1) {
@@ -415,6 +419,106 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 		mStartTime = currentTime;
 	}
 
+	/*
+	 * Runs the pose tasks. The first runs on this thread while the others run on the pose executor.
+	 */
+	private void evaluateJoints() {
+		if (mPoseTasks.length == 1) {
+			mPoseTasks[0].run();
+			return;
+		}
+
+		for (int i = 1; i < mPoseTasks.length; ++i)
+			mPoseFutures[i] = getPoseExecutor().submit(mPoseTasks[i]);
+		mPoseTasks[0].run();
+		try {
+			for (int i = 1; i < mPoseTasks.length; ++i)
+				mPoseFutures[i].get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private static synchronized ExecutorService getPoseExecutor() {
+		if (sPoseExecutor == null) {
+			int cores = Runtime.getRuntime().availableProcessors();
+			sPoseExecutor = Executors.newFixedThreadPool(cores == 1 ? 1 : cores - 1, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					final Thread thread = new Thread(r, "SkeletalAnimation");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return sPoseExecutor;
+	}
+
+	/**
+	 * Interpolates a range of joints and computes their matrices. Each task has its own temporary
+	 * joints and matrices, so the ranges can be evaluated at the same time.
+	 */
+	private class PoseTask implements Runnable {
+		private final int mStart;
+		private final int mEnd;
+		private final SkeletonJoint mTmpJoint1 = new SkeletonJoint();
+		private final SkeletonJoint mTmpJoint2 = new SkeletonJoint();
+		private final double[] mBoneMatrix = new double[16];
+		private final double[] mResultMatrix = new double[16];
+
+		PoseTask(int start, int end) {
+			mStart = start;
+			mEnd = end;
+		}
+
+		@Override
+		public void run() {
+			final boolean isTransitioning = mNextSequence != null;
+			final double transitionInterpolation = mPoseTransitionInterpolation;
+
+			for (int i = mStart; i < mEnd; ++i) {
+				SkeletonJoint joint = getJoint(i);
+				SkeletonJoint fromJoint = mPoseFrame.getSkeleton().getJoint(i);
+				SkeletonJoint toJoint = mPoseNextFrame.getSkeleton().getJoint(i);
+				joint.setParentIndex(fromJoint.getParentIndex());
+				joint.getPosition().lerpAndSet(fromJoint.getPosition(), toJoint.getPosition(), mInterpolation);
+				joint.getOrientation().slerp(fromJoint.getOrientation(), toJoint.getOrientation(), mInterpolation);
+
+				if(isTransitioning)
+				{
+					fromJoint = mPoseTransitionFrame.getSkeleton().getJoint(i);
+					toJoint = mPoseNextTransitionFrame.getSkeleton().getJoint(i);
+					mTmpJoint1.getPosition().lerpAndSet(fromJoint.getPosition(), toJoint.getPosition(), mInterpolation);
+					mTmpJoint1.getOrientation().slerp(fromJoint.getOrientation(), toJoint.getOrientation(), mInterpolation);
+
+					// blend the two animations
+					mTmpJoint2.getPosition().lerpAndSet(joint.getPosition(), mTmpJoint1.getPosition(), transitionInterpolation);
+					mTmpJoint2.getOrientation().slerp(joint.getOrientation(), mTmpJoint1.getOrientation(), transitionInterpolation);
+
+					joint.getPosition().setAll(mTmpJoint2.getPosition());
+					joint.getOrientation().setAll(mTmpJoint2.getOrientation());
+				}
+
+				// Translation times rotation is the rotation with the translation in its last column
+				joint.getOrientation().toRotationMatrix(mBoneMatrix);
+				Vector3 jointPos = joint.getPosition();
+				mBoneMatrix[Matrix4.M03] = jointPos.x;
+				mBoneMatrix[Matrix4.M13] = jointPos.y;
+				mBoneMatrix[Matrix4.M23] = jointPos.z;
+				Matrix.multiplyMM(mResultMatrix, 0, mBoneMatrix, 0, mInverseBindPoseMatrix[i], 0);
+				joint.setMatrix(mResultMatrix);
+
+				int index = 16 * i;
+				for (int j = 0; j < 16; j++) {
+					uBoneMatrix[index + j] = mResultMatrix[j];
+					mPose[index + j] = (float) mResultMatrix[j];
+				}
+			}
+		}
+	}
+
 	public void play() {
 		if (mSequence == null)
 		{
@@ -444,7 +548,7 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 	public void destroy() {
 	    int[] buffers  = new int[1];
 	    if(mBoneMatricesBufferInfo != null) buffers[0] = mBoneMatricesBufferInfo.bufferHandle;
-	    GLES20.glDeleteBuffers(buffers.length, buffers, 0);
+	    GLStateTracker.getInstance().glDeleteBuffers(buffers.length, buffers, 0);
 
 	    if(mBoneMatrices != null) mBoneMatrices.clear();
 	    
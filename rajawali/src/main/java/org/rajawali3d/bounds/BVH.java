@@ -0,0 +1,363 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.bounds;
+
+import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.util.Intersector;
+
+import java.util.Arrays;
+
+/**
+ * Bounding volume hierarchy over the axis aligned boxes of a number of items, such as the objects
+ * of a scene or the triangles of a mesh. Items are numbered from 0 and their boxes are set with
+ * {@link #setItemBounds}. {@link #build(int)} sorts them into a binary tree, splitting each node
+ * where the surface area heuristic, evaluated at a fixed number of bins per axis, is lowest.
+ * <p>
+ * When items move, set their new boxes and call {@link #refit()}. It keeps the tree and only
+ * updates the node boxes, which is much cheaper than a build but makes queries slower as the
+ * nodes start to overlap. Build again when the items have moved a lot or their number changed.
+ * <p>
+ * The tree is kept in flat arrays and queries do not allocate.
+ */
+public class BVH {
+
+	/**
+	 * Exact intersection test of an item, used for the items whose box is hit by a ray.
+	 */
+	public interface RayIntersector {
+		/**
+		 * @param item The item to test
+		 * @param px Start of the line
+		 * @param py Start of the line
+		 * @param pz Start of the line
+		 * @param dx Direction of the line
+		 * @param dy Direction of the line
+		 * @param dz Direction of the line
+		 * @param tMax Only hits up to this t are of interest
+		 * @return The t of the nearest hit with p + t * d, or -1 if the item is not hit.
+		 */
+		double intersect(int item, double px, double py, double pz, double dx, double dy, double dz, double tMax);
+	}
+
+	private static final int BIN_COUNT = 12;
+	private static final int MAX_LEAF_SIZE = 4;
+	/**
+	 * Cost of visiting a node relative to testing an item.
+	 */
+	private static final double TRAVERSAL_COST = 1;
+
+	private double[] mItemBounds = new double[0];
+	private double[] mCentroids = new double[0];
+	private int[] mItems = new int[0];
+	private int mItemCount;
+
+	// Per node: the box, then for leaves the first item in mItems and the item count, for inner
+	// nodes the left child, which the right child follows, and a count of 0.
+	private double[] mNodeBounds = new double[0];
+	private int[] mNodeFirst = new int[0];
+	private int[] mNodeItems = new int[0];
+	private int mNodeCount;
+	private int mDepth;
+
+	private int[] mStack = new int[0];
+	private double[] mStackT = new double[0];
+	private double mHitDistance = -1;
+
+	private final double[] mBinBounds = new double[BIN_COUNT * 6];
+	private final int[] mBinCounts = new int[BIN_COUNT];
+	private final double[] mRightAreas = new double[BIN_COUNT];
+	private final int[] mRightCounts = new int[BIN_COUNT];
+	private final double[] mSweepBounds = new double[6];
+
+	/**
+	 * Makes room for the given number of items, keeping the boxes already set.
+	 */
+	public void ensureCapacity(int itemCount) {
+		if (mItems.length >= itemCount) return;
+		mItemBounds = Arrays.copyOf(mItemBounds, itemCount * 6);
+		mCentroids = Arrays.copyOf(mCentroids, itemCount * 3);
+		mItems = Arrays.copyOf(mItems, itemCount);
+		int maxNodes = itemCount * 2 - 1;
+		mNodeBounds = Arrays.copyOf(mNodeBounds, maxNodes * 6);
+		mNodeFirst = Arrays.copyOf(mNodeFirst, maxNodes);
+		mNodeItems = Arrays.copyOf(mNodeItems, maxNodes);
+	}
+
+	/**
+	 * Sets the box of an item. Call {@link #build(int)} or {@link #refit()} afterwards.
+	 */
+	public void setItemBounds(int item, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		if (item >= mItems.length) ensureCapacity(Math.max(item + 1, mItems.length * 2));
+		int i = item * 6;
+		mItemBounds[i] = minX;
+		mItemBounds[i + 1] = minY;
+		mItemBounds[i + 2] = minZ;
+		mItemBounds[i + 3] = maxX;
+		mItemBounds[i + 4] = maxY;
+		mItemBounds[i + 5] = maxZ;
+	}
+
+	public void setItemBounds(int item, Vector3 min, Vector3 max) {
+		setItemBounds(item, min.x, min.y, min.z, max.x, max.y, max.z);
+	}
+
+	/**
+	 * Builds the tree over items 0 to itemCount - 1.
+	 */
+	public void build(int itemCount) {
+		ensureCapacity(itemCount);
+		mItemCount = itemCount;
+		mNodeCount = 0;
+		mDepth = 0;
+		if (itemCount == 0) return;
+		for (int i = 0; i < itemCount; i++) {
+			mItems[i] = i;
+			for (int a = 0; a < 3; a++) {
+				mCentroids[i * 3 + a] = (mItemBounds[i * 6 + a] + mItemBounds[i * 6 + a + 3]) * 0.5;
+			}
+		}
+		mNodeCount = 1;
+		subdivide(0, 0, itemCount, 1);
+		// Each inner node on the path pushes one child more than it pops
+		if (mStack.length < mDepth + 1) {
+			mStack = new int[mDepth + 1];
+			mStackT = new double[mDepth + 1];
+		}
+	}
+
+	/**
+	 * Updates the node boxes to the current item boxes without changing the tree.
+	 */
+	public void refit() {
+		// Children are always stored after their parent
+		for (int node = mNodeCount - 1; node >= 0; node--) {
+			int count = mNodeItems[node];
+			if (count > 0) {
+				setToItems(node, mNodeFirst[node], count);
+			} else {
+				int left = mNodeFirst[node];
+				int n = node * 6, l = left * 6, r = l + 6;
+				for (int a = 0; a < 3; a++) {
+					mNodeBounds[n + a] = Math.min(mNodeBounds[l + a], mNodeBounds[r + a]);
+					mNodeBounds[n + a + 3] = Math.max(mNodeBounds[l + a + 3], mNodeBounds[r + a + 3]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the nearest item hit by the line p + t * d with 0 <= t <= tMax.
+	 *
+	 * @param intersector Tests the items whose box is hit, or null to use the item boxes as they are.
+	 * @return The nearest item or -1. The t of the hit is returned by {@link #getHitDistance()}.
+	 */
+	public int intersectRay(double px, double py, double pz, double dx, double dy, double dz, double tMax,
+			RayIntersector intersector) {
+		mHitDistance = -1;
+		if (mNodeCount == 0) return -1;
+		double t = intersectNode(0, px, py, pz, dx, dy, dz, tMax);
+		if (t < 0) return -1;
+
+		int hit = -1;
+		double hitT = tMax;
+		int top = 0;
+		mStack[top] = 0;
+		mStackT[top++] = t;
+		while (top > 0) {
+			int node = mStack[--top];
+			if (mStackT[top] > hitT) continue;
+			int count = mNodeItems[node];
+			if (count > 0) {
+				int first = mNodeFirst[node];
+				for (int i = first; i < first + count; i++) {
+					int item = mItems[i];
+					double itemT = intersector == null
+							? intersectItem(item, px, py, pz, dx, dy, dz, hitT)
+							: intersector.intersect(item, px, py, pz, dx, dy, dz, hitT);
+					if (itemT >= 0 && itemT <= hitT) {
+						hitT = itemT;
+						hit = item;
+					}
+				}
+			} else {
+				int left = mNodeFirst[node];
+				double tLeft = intersectNode(left, px, py, pz, dx, dy, dz, hitT);
+				double tRight = intersectNode(left + 1, px, py, pz, dx, dy, dz, hitT);
+				// Push the farther child first so the nearer one is visited first
+				if (tLeft >= 0 && tRight >= 0) {
+					boolean leftFirst = tLeft <= tRight;
+					mStack[top] = leftFirst ? left + 1 : left;
+					mStackT[top++] = leftFirst ? tRight : tLeft;
+					mStack[top] = leftFirst ? left : left + 1;
+					mStackT[top++] = leftFirst ? tLeft : tRight;
+				} else if (tLeft >= 0) {
+					mStack[top] = left;
+					mStackT[top++] = tLeft;
+				} else if (tRight >= 0) {
+					mStack[top] = left + 1;
+					mStackT[top++] = tRight;
+				}
+			}
+		}
+		if (hit >= 0) mHitDistance = hitT;
+		return hit;
+	}
+
+	/**
+	 * @return The t of the hit found by the last {@link #intersectRay} call, or -1 if there was none.
+	 */
+	public double getHitDistance() {
+		return mHitDistance;
+	}
+
+	public int getItemCount() {
+		return mItemCount;
+	}
+
+	public int getNodeCount() {
+		return mNodeCount;
+	}
+
+	public int getDepth() {
+		return mDepth;
+	}
+
+	private double intersectNode(int node, double px, double py, double pz, double dx, double dy, double dz,
+			double tMax) {
+		int n = node * 6;
+		return Intersector.intersectLineAABB(px, py, pz, dx, dy, dz, mNodeBounds[n], mNodeBounds[n + 1],
+				mNodeBounds[n + 2], mNodeBounds[n + 3], mNodeBounds[n + 4], mNodeBounds[n + 5], 0, tMax);
+	}
+
+	private double intersectItem(int item, double px, double py, double pz, double dx, double dy, double dz,
+			double tMax) {
+		int i = item * 6;
+		return Intersector.intersectLineAABB(px, py, pz, dx, dy, dz, mItemBounds[i], mItemBounds[i + 1],
+				mItemBounds[i + 2], mItemBounds[i + 3], mItemBounds[i + 4], mItemBounds[i + 5], 0, tMax);
+	}
+
+	private void subdivide(int node, int first, int count, int depth) {
+		if (depth > mDepth) mDepth = depth;
+		setToItems(node, first, count);
+		mNodeFirst[node] = first;
+		mNodeItems[node] = count;
+		if (count <= MAX_LEAF_SIZE) return;
+
+		// Bin the centroids along each axis and find the cheapest split
+		double bestCost = Double.MAX_VALUE;
+		int bestAxis = -1, bestBin = 0;
+		double bestMin = 0, bestScale = 0;
+		for (int axis = 0; axis < 3; axis++) {
+			double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+			for (int i = first; i < first + count; i++) {
+				double c = mCentroids[mItems[i] * 3 + axis];
+				if (c < min) min = c;
+				if (c > max) max = c;
+			}
+			if (max <= min) continue;
+			double scale = BIN_COUNT / (max - min);
+			for (int b = 0; b < BIN_COUNT; b++) {
+				mBinCounts[b] = 0;
+				resetBounds(mBinBounds, b * 6);
+			}
+			for (int i = first; i < first + count; i++) {
+				int item = mItems[i];
+				int b = getBin(mCentroids[item * 3 + axis], min, scale);
+				mBinCounts[b]++;
+				growBounds(mBinBounds, b * 6, mItemBounds, item * 6);
+			}
+			// Sweep from the right for the areas right of each split, then from the left
+			double[] box = mSweepBounds;
+			resetBounds(box, 0);
+			int rightCount = 0;
+			for (int b = BIN_COUNT - 1; b > 0; b--) {
+				rightCount += mBinCounts[b];
+				if (mBinCounts[b] > 0) growBounds(box, 0, mBinBounds, b * 6);
+				mRightCounts[b] = rightCount;
+				mRightAreas[b] = getArea(box, 0);
+			}
+			resetBounds(box, 0);
+			int leftCount = 0;
+			for (int b = 0; b < BIN_COUNT - 1; b++) {
+				leftCount += mBinCounts[b];
+				if (mBinCounts[b] > 0) growBounds(box, 0, mBinBounds, b * 6);
+				int right = mRightCounts[b + 1];
+				if (leftCount == 0 || right == 0) continue;
+				double cost = getArea(box, 0) * leftCount + mRightAreas[b + 1] * right;
+				if (cost < bestCost) {
+					bestCost = cost;
+					bestAxis = axis;
+					bestBin = b;
+					bestMin = min;
+					bestScale = scale;
+				}
+			}
+		}
+		if (bestAxis < 0) return;
+		double area = getArea(mNodeBounds, node * 6);
+		if (area > 0 && TRAVERSAL_COST + bestCost / area >= count && count <= MAX_LEAF_SIZE * 4) return;
+
+		// Partition the items of the node around the split
+		int i = first, j = first + count - 1;
+		while (i <= j) {
+			if (getBin(mCentroids[mItems[i] * 3 + bestAxis], bestMin, bestScale) <= bestBin) {
+				i++;
+			} else {
+				int tmp = mItems[i];
+				mItems[i] = mItems[j];
+				mItems[j--] = tmp;
+			}
+		}
+		int leftCount = i - first;
+		int left = mNodeCount;
+		mNodeCount += 2;
+		mNodeFirst[node] = left;
+		mNodeItems[node] = 0;
+		subdivide(left, first, leftCount, depth + 1);
+		subdivide(left + 1, i, count - leftCount, depth + 1);
+	}
+
+	private void setToItems(int node, int first, int count) {
+		int n = node * 6;
+		resetBounds(mNodeBounds, n);
+		for (int i = first; i < first + count; i++) {
+			growBounds(mNodeBounds, n, mItemBounds, mItems[i] * 6);
+		}
+	}
+
+	private static int getBin(double centroid, double min, double scale) {
+		int bin = (int) ((centroid - min) * scale);
+		return bin < BIN_COUNT ? bin : BIN_COUNT - 1;
+	}
+
+	private static void resetBounds(double[] bounds, int offset) {
+		for (int a = 0; a < 3; a++) {
+			bounds[offset + a] = Double.MAX_VALUE;
+			bounds[offset + a + 3] = -Double.MAX_VALUE;
+		}
+	}
+
+	private static void growBounds(double[] bounds, int offset, double[] other, int otherOffset) {
+		for (int a = 0; a < 3; a++) {
+			if (other[otherOffset + a] < bounds[offset + a]) bounds[offset + a] = other[otherOffset + a];
+			if (other[otherOffset + a + 3] > bounds[offset + a + 3]) bounds[offset + a + 3] = other[otherOffset + a + 3];
+		}
+	}
+
+	private static double getArea(double[] bounds, int offset) {
+		double x = bounds[offset + 3] - bounds[offset];
+		double y = bounds[offset + 4] - bounds[offset + 1];
+		double z = bounds[offset + 5] - bounds[offset + 2];
+		return x * y + y * z + z * x;
+	}
+}
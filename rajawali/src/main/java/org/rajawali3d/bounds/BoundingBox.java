@@ -24,6 +24,7 @@ import org.rajawali3d.materials.Material;
 import org.rajawali3d.math.Matrix4;
 import org.rajawali3d.math.vector.Vector3;
 import org.rajawali3d.primitives.Cube;
+import org.rajawali3d.util.Intersector;
 
 public class BoundingBox implements IBoundingVolume {
 	protected Geometry3D mGeometry;
@@ -240,6 +241,46 @@ public class BoundingBox implements IBoundingVolume {
 				(min.z < otherMax.z) && (max.z > otherMin.z);
 	}
 	
+	/**
+	 * Intersects a line segment with the transformed box. The box is grown by radius on every side,
+	 * which makes this a (slightly conservative) swept sphere test for a sphere moving from start to end.
+	 * Fast moving objects can't tunnel through the box because the whole path is tested, not only the end point.
+	 *
+	 * @param startX Start point of the segment
+	 * @param startY Start point of the segment
+	 * @param startZ Start point of the segment
+	 * @param endX End point of the segment
+	 * @param endY End point of the segment
+	 * @param endZ End point of the segment
+	 * @param radius Radius of the moving sphere. Use 0 for a plain segment test.
+	 * @return Fraction of the segment (0 - 1) at the first contact, or -1 if there is no intersection.
+	 */
+	public double intersectSegment(double startX, double startY, double startZ,
+			double endX, double endY, double endZ, double radius) {
+		return Intersector.intersectLineAABB(startX, startY, startZ, endX - startX, endY - startY, endZ - startZ,
+				mTransformedMin.x, mTransformedMin.y, mTransformedMin.z,
+				mTransformedMax.x, mTransformedMax.y, mTransformedMax.z, radius, 1);
+	}
+
+	/**
+	 * Intersects a ray with the transformed box.
+	 * @param rayStart Start point of the ray
+	 * @param rayEnd A second point on the ray. The ray extends past this point.
+	 * @param hitPoint The first intersection point (optional)
+	 * @return True if there is an intersection, false otherwise.
+	 */
+	public boolean intersectsRay(Vector3 rayStart, Vector3 rayEnd, Vector3 hitPoint) {
+		double dx = rayEnd.x - rayStart.x;
+		double dy = rayEnd.y - rayStart.y;
+		double dz = rayEnd.z - rayStart.z;
+		double t = Intersector.intersectLineAABB(rayStart.x, rayStart.y, rayStart.z, dx, dy, dz,
+				mTransformedMin.x, mTransformedMin.y, mTransformedMin.z,
+				mTransformedMax.x, mTransformedMax.y, mTransformedMax.z, 0, Double.MAX_VALUE);
+		if (t < 0) return false;
+		if (hitPoint != null) hitPoint.setAll(rayStart.x + dx * t, rayStart.y + dy * t, rayStart.z + dz * t);
+		return true;
+	}
+
 	@Override
 	public String toString() {
 		return "BoundingBox min: " + mTransformedMin + " max: " + mTransformedMax;
@@ -0,0 +1,202 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.bounds;
+
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.vector.Vector3;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * {@link BVH} over the triangles of a mesh, for the exact point where a ray hits it. The positions
+ * and indices are copied when it is created, so it doesn't change with the geometry. Use
+ * {@link org.rajawali3d.Geometry3D#getTriangleBVH()}, which builds it in the background and shares
+ * it between clones. It only depends on the vertex buffers, so it can also be used without a
+ * geometry.
+ * <p>
+ * Queries are done in the local space of the mesh, so any object drawing it can be tested by
+ * passing its model matrix. They reuse scratch objects and must not run on several threads at once.
+ */
+public class TriangleBVH {
+	private static ExecutorService sBuildExecutor;
+
+	private final float[] mPositions;
+	private final int[] mIndices;
+	private final int mTriangleCount;
+	private final BVH mTree = new BVH();
+	private volatile boolean mBuilt;
+
+	private final Matrix4 mInverse = new Matrix4();
+	private final Vector3 mLocalStart = new Vector3();
+	private final Vector3 mLocalEnd = new Vector3();
+	private final BVH.RayIntersector mTriangleIntersector = new BVH.RayIntersector() {
+		@Override
+		public double intersect(int item, double px, double py, double pz, double dx, double dy, double dz,
+				double tMax) {
+			return intersectTriangle(item, px, py, pz, dx, dy, dz, tMax);
+		}
+	};
+
+	/**
+	 * @param vertices Positions, 3 floats per vertex.
+	 * @param numVertices Number of vertices.
+	 * @param indices {@link ShortBuffer} or {@link IntBuffer} of triangle indices, or null to take
+	 * every 3 vertices as a triangle.
+	 * @param numIndices Number of indices.
+	 */
+	public TriangleBVH(FloatBuffer vertices, int numVertices, Buffer indices, int numIndices) {
+		mPositions = new float[numVertices * 3];
+		for (int i = 0; i < mPositions.length; i++) {
+			mPositions[i] = vertices.get(i);
+		}
+		if (indices == null || numIndices == 0) {
+			mIndices = new int[numVertices];
+			for (int i = 0; i < mIndices.length; i++) {
+				mIndices[i] = i;
+			}
+		} else {
+			mIndices = new int[numIndices];
+			if (indices instanceof ShortBuffer) {
+				for (int i = 0; i < mIndices.length; i++) {
+					mIndices[i] = ((ShortBuffer) indices).get(i) & 0xFFFF;
+				}
+			} else {
+				for (int i = 0; i < mIndices.length; i++) {
+					mIndices[i] = ((IntBuffer) indices).get(i);
+				}
+			}
+		}
+		mTriangleCount = mIndices.length / 3;
+	}
+
+	/**
+	 * Builds the tree on the calling thread.
+	 */
+	public synchronized void build() {
+		if (mBuilt) return;
+		mTree.ensureCapacity(mTriangleCount);
+		for (int t = 0; t < mTriangleCount; t++) {
+			double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+			double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+			for (int c = 0; c < 3; c++) {
+				int v = mIndices[t * 3 + c] * 3;
+				minX = Math.min(minX, mPositions[v]);
+				minY = Math.min(minY, mPositions[v + 1]);
+				minZ = Math.min(minZ, mPositions[v + 2]);
+				maxX = Math.max(maxX, mPositions[v]);
+				maxY = Math.max(maxY, mPositions[v + 1]);
+				maxZ = Math.max(maxZ, mPositions[v + 2]);
+			}
+			mTree.setItemBounds(t, minX, minY, minZ, maxX, maxY, maxZ);
+		}
+		mTree.build(mTriangleCount);
+		mBuilt = true;
+	}
+
+	/**
+	 * Builds the tree on a background thread. {@link #isBuilt()} turns true when it is done.
+	 */
+	public void buildAsync() {
+		getBuildExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				build();
+			}
+		});
+	}
+
+	public boolean isBuilt() {
+		return mBuilt;
+	}
+
+	public int getTriangleCount() {
+		return mTriangleCount;
+	}
+
+	/**
+	 * Intersects the line p + t * d, 0 <= t <= tMax, given in world space, with the mesh drawn
+	 * with the given model matrix. The tree must be built.
+	 *
+	 * @return The t of the nearest hit or -1 if the mesh is not hit.
+	 */
+	public double intersectRay(Matrix4 modelMatrix, double px, double py, double pz, double dx, double dy,
+			double dz, double tMax) {
+		// An affine transform keeps t, so the line is moved to local space instead of the mesh to world space
+		mInverse.setAll(modelMatrix).inverse();
+		mLocalStart.setAll(px, py, pz).multiply(mInverse);
+		mLocalEnd.setAll(px + dx, py + dy, pz + dz).multiply(mInverse);
+		mLocalEnd.subtract(mLocalStart);
+		if (mTree.intersectRay(mLocalStart.x, mLocalStart.y, mLocalStart.z, mLocalEnd.x, mLocalEnd.y, mLocalEnd.z,
+				tMax, mTriangleIntersector) < 0) {
+			return -1;
+		}
+		return mTree.getHitDistance();
+	}
+
+	/**
+	 * Intersects the segment from rayStart to rayEnd with the mesh drawn with the given model matrix.
+	 *
+	 * @param hitPoint Set to the nearest hit in world space, if not null.
+	 * @return True if the mesh is hit.
+	 */
+	public boolean intersectRay(Matrix4 modelMatrix, Vector3 rayStart, Vector3 rayEnd, Vector3 hitPoint) {
+		double dx = rayEnd.x - rayStart.x, dy = rayEnd.y - rayStart.y, dz = rayEnd.z - rayStart.z;
+		double t = intersectRay(modelMatrix, rayStart.x, rayStart.y, rayStart.z, dx, dy, dz, 1);
+		if (t < 0) return false;
+		if (hitPoint != null) hitPoint.setAll(rayStart.x + dx * t, rayStart.y + dy * t, rayStart.z + dz * t);
+		return true;
+	}
+
+	/**
+	 * Moller-Trumbore test of both sides of a triangle.
+	 */
+	private double intersectTriangle(int triangle, double px, double py, double pz, double dx, double dy,
+			double dz, double tMax) {
+		float[] p = mPositions;
+		int a = mIndices[triangle * 3] * 3, b = mIndices[triangle * 3 + 1] * 3, c = mIndices[triangle * 3 + 2] * 3;
+		double e1x = p[b] - p[a], e1y = p[b + 1] - p[a + 1], e1z = p[b + 2] - p[a + 2];
+		double e2x = p[c] - p[a], e2y = p[c + 1] - p[a + 1], e2z = p[c + 2] - p[a + 2];
+		double hx = dy * e2z - dz * e2y, hy = dz * e2x - dx * e2z, hz = dx * e2y - dy * e2x;
+		double det = e1x * hx + e1y * hy + e1z * hz;
+		if (det > -1e-12 && det < 1e-12) return -1;
+		double inv = 1 / det;
+		double sx = px - p[a], sy = py - p[a + 1], sz = pz - p[a + 2];
+		double u = (sx * hx + sy * hy + sz * hz) * inv;
+		if (u < 0 || u > 1) return -1;
+		double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+		double v = (dx * qx + dy * qy + dz * qz) * inv;
+		if (v < 0 || u + v > 1) return -1;
+		double t = (e2x * qx + e2y * qy + e2z * qz) * inv;
+		return t >= 0 && t <= tMax ? t : -1;
+	}
+
+	private static synchronized ExecutorService getBuildExecutor() {
+		if (sBuildExecutor == null) {
+			sBuildExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					final Thread thread = new Thread(r, "TriangleBVH");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return sBuildExecutor;
+	}
+}
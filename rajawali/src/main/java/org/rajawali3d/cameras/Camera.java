@@ -182,9 +182,9 @@ public class Camera extends ATransformable3D {
         }
 	}
 
-	public void updateFrustum(Matrix4 invVPMatrix) {
+	public void updateFrustum(Matrix4 vpMatrix) {
 		synchronized (mFrustumLock) {
-			mFrustum.update(invVPMatrix);
+			mFrustum.update(vpMatrix);
 		}
 	}
 
@@ -13,25 +13,35 @@
 package org.rajawali3d.cameras;
 
 import org.rajawali3d.bounds.BoundingBox;
+import org.rajawali3d.bounds.BoundingSphere;
 import org.rajawali3d.math.Matrix4;
 import org.rajawali3d.math.Plane;
 import org.rajawali3d.math.vector.Vector3;
 
 public class Frustum {
+	/**
+	 * Returned by {@link #boundsInFrustum(BoundingSphere, BoundingBox, int)} for volumes which are not
+	 * outside of any plane.
+	 */
+	public static final int INSIDE = -1;
+
 	private final Plane[] mPlanes;
-	private Vector3 mPoint1;
-	private Vector3 mPoint2;
+	private int mTestedCount;
+	private int mCulledCount;
 
 	public Frustum() {
 		mPlanes = new Plane[6];
-		mPoint1 = new Vector3();
-		mPoint2 = new Vector3();
 		for (int i = 0; i < 6; i++)
 			mPlanes[i] = new Plane();
 	}
 
-	public void update(Matrix4 inverseProjectionView) {
-		float[] m = inverseProjectionView.getFloatValues();
+	/**
+	 * Extracts the planes from a view-projection matrix. The plane normals point into the frustum.
+	 *
+	 * @param viewProjection {@link Matrix4} The projection matrix multiplied by the view matrix.
+	 */
+	public void update(Matrix4 viewProjection) {
+		float[] m = viewProjection.getFloatValues();
 		
 		mPlanes[0].setComponents(m[Matrix4.M30] - m[Matrix4.M00], m[Matrix4.M31] - m[Matrix4.M01], m[Matrix4.M32] - m[Matrix4.M02], m[Matrix4.M33] - m[Matrix4.M03]);
 		mPlanes[1].setComponents(m[Matrix4.M30] + m[Matrix4.M00], m[Matrix4.M31] + m[Matrix4.M01], m[Matrix4.M32] + m[Matrix4.M02], m[Matrix4.M33] + m[Matrix4.M03]);
@@ -46,6 +56,9 @@ public class Frustum {
 		mPlanes[3].normalize();
 		mPlanes[4].normalize();
 		mPlanes[5].normalize();
+
+		mTestedCount = 0;
+		mCulledCount = 0;
 	}
 
 	public boolean sphereInFrustum(Vector3 center, double radius) {
@@ -58,26 +71,76 @@ public class Frustum {
 		return true;
 	}
 
+	/**
+	 * Tests the world space bounds of a box, which are set by {@link BoundingBox#transform(Matrix4)}.
+	 */
 	public boolean boundsInFrustum(BoundingBox bounds) {
-		for(int i=0; i<6; i++) {
-			Plane p = mPlanes[i];
-			mPoint1.x = p.getNormal().x > 0 ? bounds.getMin().x : bounds.getMax().x;
-			mPoint2.x = p.getNormal().x > 0 ? bounds.getMax().x : bounds.getMin().x;
-			mPoint1.y = p.getNormal().y > 0 ? bounds.getMin().y : bounds.getMax().y;
-			mPoint2.y = p.getNormal().y > 0 ? bounds.getMax().y : bounds.getMin().y;
-			mPoint1.z = p.getNormal().z > 0 ? bounds.getMin().z : bounds.getMax().z;
-			mPoint2.z = p.getNormal().z > 0 ? bounds.getMax().z : bounds.getMin().z;
+		return boundsInFrustum(bounds.getTransformedMin(), bounds.getTransformedMax());
+	}
 
-			double distance1 = p.getDistanceTo(mPoint1);
-			double distance2 = p.getDistanceTo(mPoint2);
+	/**
+	 * Tests transformed bounding volumes of an object. The sphere is tested against each
+	 * plane first, the box only against the planes the sphere intersects.
+	 *
+	 * @param sphere {@link BoundingSphere} The transformed bounding sphere.
+	 * @param box {@link BoundingBox} The transformed bounding box.
+	 * @param lastPlane int The result of the test for the same object in the previous frame.
+	 * An object which was outside of a plane usually still is, so that plane is tested first.
+	 * @return int {@link #INSIDE} or the index of a plane the object is outside of.
+	 */
+	public int boundsInFrustum(BoundingSphere sphere, BoundingBox box, int lastPlane) {
+		++mTestedCount;
+		final Vector3 center = sphere.getPosition();
+		final double radius = sphere.getScaledRadius();
+		final Vector3 min = box.getTransformedMin();
+		final Vector3 max = box.getTransformedMax();
+		final int first = lastPlane < 0 ? 0 : lastPlane;
+		for (int i = 0; i < 6; i++) {
+			final int index = (first + i) % 6;
+			final Plane p = mPlanes[index];
+			final double distance = p.getDistanceTo(center);
+			if (distance >= radius) continue; // The sphere is on the inner side
+			if (distance < -radius || !boxOnInnerSide(p, min, max)) {
+				++mCulledCount;
+				return index;
+			}
+		}
+		return INSIDE;
+	}
 
-			if ( distance1 < 0 && distance2 < 0 )
+	public boolean boundsInFrustum(Vector3 min, Vector3 max) {
+		for(int i=0; i<6; i++) {
+			if (!boxOnInnerSide(mPlanes[i], min, max))
 				return false;
 		}
 		
 		return true;
 	}
 
+	/**
+	 * @return int The number of objects tested with {@link #boundsInFrustum(BoundingSphere, BoundingBox, int)}
+	 * since the planes were last updated, which is once per frame.
+	 */
+	public int getTestedCount() {
+		return mTestedCount;
+	}
+
+	/**
+	 * @return int The number of objects found outside since the planes were last updated.
+	 */
+	public int getCulledCount() {
+		return mCulledCount;
+	}
+
+	/**
+	 * Checks if the corner of the box farthest along the plane normal is on the inner side.
+	 */
+	private static boolean boxOnInnerSide(Plane p, Vector3 min, Vector3 max) {
+		final Vector3 n = p.getNormal();
+		return p.getD() + n.x * (n.x > 0 ? max.x : min.x) + n.y * (n.y > 0 ? max.y : min.y)
+				+ n.z * (n.z > 0 ? max.z : min.z) >= 0;
+	}
+
 	public boolean pointInFrustum(Vector3 point) {
 		for(int i=0; i<6; i++) {
 			double distance = mPlanes[i].getDistanceTo(point);
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.curves;
+
+import org.rajawali3d.math.vector.Vector3;
+
+/**
+ * Samples another curve by the distance travelled along it instead of by its own parameter, so
+ * an object animated over t moves at a constant speed. The curve is sampled once into a table of
+ * points and lengths. Each point is then found with a binary search of the table and interpolated
+ * between two samples, as are the tangents, so the curve itself isn't evaluated again.
+ * <p>
+ * The table is built when this is created. Create a new one when the points of the curve change.
+ * Between samples the curve is followed in straight lines. With the default number of samples
+ * this is far below what can be seen on a curve the size of a scene.
+ * A curve whose end meets its start is treated as closed, and t outside of 0 to 1 wraps around it.
+ *
+ * <pre>
+ * <code>
+ * SplineTranslateAnimation3D anim = new SplineTranslateAnimation3D(new ArcLengthCurve3D(catmullRomCurve));
+ * </code>
+ * </pre>
+ */
+public class ArcLengthCurve3D implements ICurve3D {
+
+	public static final int DEFAULT_SAMPLES = 512;
+
+	protected final ICurve3D mCurve;
+	protected final int mSamples;
+	protected final double[] mLengths;
+	protected final double[] mPoints;
+	protected final double[] mTangents;
+	protected final double mLength;
+	protected final boolean mIsClosed;
+	protected final Vector3 mCurrentTangent = new Vector3();
+	protected boolean mCalculateTangents;
+
+	public ArcLengthCurve3D(ICurve3D curve) {
+		this(curve, DEFAULT_SAMPLES);
+	}
+
+	/**
+	 * @param curve The curve to sample
+	 * @param samples Number of segments the curve is divided into. The more segments the more
+	 *                constant the speed.
+	 */
+	public ArcLengthCurve3D(ICurve3D curve, int samples) {
+		mCurve = curve;
+		mSamples = samples;
+		mLengths = new double[samples + 1];
+		mPoints = new double[(samples + 1) * 3];
+		mTangents = new double[(samples + 1) * 3];
+
+		// The tangents of the curve are taken from the table, don't let the curve calculate them
+		curve.setCalculateTangents(false);
+		double[] points = mPoints;
+		Vector3 point = new Vector3();
+		for (int i = 0; i <= samples; i++) {
+			curve.calculatePoint(point, (double) i / samples);
+			points[i * 3] = point.x;
+			points[i * 3 + 1] = point.y;
+			points[i * 3 + 2] = point.z;
+			if (i > 0) {
+				double dx = point.x - points[i * 3 - 3], dy = point.y - points[i * 3 - 2], dz = point.z - points[i * 3 - 1];
+				mLengths[i] = mLengths[i - 1] + Math.sqrt(dx * dx + dy * dy + dz * dz);
+			}
+		}
+		mLength = mLengths[samples];
+		double dx = points[samples * 3] - points[0], dy = points[samples * 3 + 1] - points[1],
+				dz = points[samples * 3 + 2] - points[2];
+		mIsClosed = Math.sqrt(dx * dx + dy * dy + dz * dz) < mLength * 1e-6;
+
+		// Central differences of the samples. Like the other curves, the tangent points from the
+		// next point back to the previous one.
+		for (int i = 0; i <= samples; i++) {
+			int prev = i - 1, next = i + 1;
+			if (prev < 0) prev = mIsClosed ? samples - 1 : 0;
+			if (next > samples) next = mIsClosed ? 1 : samples;
+			double tx = points[prev * 3] - points[next * 3];
+			double ty = points[prev * 3 + 1] - points[next * 3 + 1];
+			double tz = points[prev * 3 + 2] - points[next * 3 + 2];
+			double length = Math.sqrt(tx * tx + ty * ty + tz * tz);
+			if (length > 0) {
+				tx /= length;
+				ty /= length;
+				tz /= length;
+			}
+			mTangents[i * 3] = tx;
+			mTangents[i * 3 + 1] = ty;
+			mTangents[i * 3 + 2] = tz;
+		}
+	}
+
+	/**
+	 * @param t The fraction of the length of the curve travelled from its start.
+	 */
+	public void calculatePoint(Vector3 result, double t) {
+		calculatePointAtDistance(result, t * mLength);
+	}
+
+	/**
+	 * Calculates the point at the given distance along the curve from its start.
+	 */
+	public void calculatePointAtDistance(Vector3 result, double distance) {
+		if (mIsClosed) {
+			distance %= mLength;
+			if (distance < 0) distance += mLength;
+		} else {
+			distance = Math.max(0, Math.min(mLength, distance));
+		}
+
+		// Last sample at or before the distance
+		int low = 0, high = mSamples;
+		while (high - low > 1) {
+			int middle = (low + high) >>> 1;
+			if (mLengths[middle] <= distance) {
+				low = middle;
+			} else {
+				high = middle;
+			}
+		}
+		double segment = mLengths[high] - mLengths[low];
+		double f = segment > 0 ? (distance - mLengths[low]) / segment : 0;
+		int a = low * 3, b = high * 3;
+		result.setAll(mPoints[a] + (mPoints[b] - mPoints[a]) * f,
+				mPoints[a + 1] + (mPoints[b + 1] - mPoints[a + 1]) * f,
+				mPoints[a + 2] + (mPoints[b + 2] - mPoints[a + 2]) * f);
+
+		if (mCalculateTangents) {
+			mCurrentTangent.setAll(mTangents[a] + (mTangents[b] - mTangents[a]) * f,
+					mTangents[a + 1] + (mTangents[b + 1] - mTangents[a + 1]) * f,
+					mTangents[a + 2] + (mTangents[b + 2] - mTangents[a + 2]) * f);
+			mCurrentTangent.normalize();
+		}
+	}
+
+	/**
+	 * @return The length of the curve, as the sum of the lengths of its segments.
+	 */
+	public double getLength() {
+		return mLength;
+	}
+
+	public boolean isClosedCurve() {
+		return mIsClosed;
+	}
+
+	public ICurve3D getCurve() {
+		return mCurve;
+	}
+
+	public Vector3 getCurrentTangent() {
+		return mCurrentTangent;
+	}
+
+	public void setCalculateTangents(boolean calculateTangents) {
+		mCalculateTangents = calculateTangents;
+	}
+}
@@ -13,12 +13,24 @@
 package org.rajawali3d.loader;
 
 import java.io.File;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
+import org.rajawali3d.Geometry3D;
 import org.rajawali3d.Object3D;
 import org.rajawali3d.materials.textures.TextureManager;
 import org.rajawali3d.renderer.Renderer;
+import org.rajawali3d.util.MeshOptimizer;
+import org.rajawali3d.util.RajLog;
 
 import android.content.res.Resources;
+import android.opengl.GLES20;
 
 public abstract class AMeshLoader extends ALoader implements IMeshLoader {
 
@@ -26,6 +38,10 @@ public abstract class AMeshLoader extends ALoader implements IMeshLoader {
 
 	protected Object3D mRootObject;
 
+	protected boolean mWeldVertices;
+	protected boolean mOptimizeVertexCache;
+	protected boolean mInterleaveVertices;
+
 	public AMeshLoader(File file) {
 		super(file);
 		mRootObject = new Object3D();
@@ -61,6 +77,122 @@ public abstract class AMeshLoader extends ALoader implements IMeshLoader {
 		return mRootObject;
 	}
 
+	/**
+	 * Merges the vertices of a face list which have the same attributes, so shared vertices are
+	 * stored once and drawn through a real index buffer. Meshes with up to 65536 vertices get
+	 * short indices. Off by default, the vertices are then in face order. Supported by
+	 * {@link LoaderOBJ}.
+	 *
+	 * @param weld {@code boolean} Whether to merge vertices.
+	 * @return {@link AMeshLoader} This loader.
+	 */
+	public AMeshLoader setWeldVertices(boolean weld) {
+		mWeldVertices = weld;
+		return this;
+	}
+
+	public boolean getWeldVertices() {
+		return mWeldVertices;
+	}
+
+	/**
+	 * Reorders the triangles and vertices of the parsed meshes for the GPU's vertex cache with
+	 * {@link MeshOptimizer}. Only helps meshes which share vertices between triangles, so combine
+	 * it with {@link #setWeldVertices(boolean)} for OBJ files. Supported by {@link LoaderOBJ} and
+	 * {@link LoaderAWD}.
+	 *
+	 * @param optimize {@code boolean} Whether to optimize the meshes.
+	 * @return {@link AMeshLoader} This loader.
+	 */
+	public AMeshLoader setOptimizeVertexCache(boolean optimize) {
+		mOptimizeVertexCache = optimize;
+		return this;
+	}
+
+	public boolean getOptimizeVertexCache() {
+		return mOptimizeVertexCache;
+	}
+
+	/**
+	 * Packs the vertex attributes of the parsed meshes into one VBO per mesh, see
+	 * {@link Geometry3D#setInterleaved(boolean)}. Supported by {@link LoaderOBJ} and {@link LoaderAWD}.
+	 *
+	 * @param interleave {@code boolean} Whether to interleave the vertex attributes.
+	 * @return {@link AMeshLoader} This loader.
+	 */
+	public AMeshLoader setInterleaveVertices(boolean interleave) {
+		mInterleaveVertices = interleave;
+		return this;
+	}
+
+	public boolean getInterleaveVertices() {
+		return mInterleaveVertices;
+	}
+
+	/**
+	 * Applies {@link #setOptimizeVertexCache(boolean)} and {@link #setInterleaveVertices(boolean)}
+	 * to the parsed meshes. Loaders call this at the end of parse().
+	 *
+	 * @param objects {@link Object3D} The parsed objects, children are processed too.
+	 */
+	protected void prepareMeshes(Object3D... objects) {
+		if (!mOptimizeVertexCache && !mInterleaveVertices)
+			return;
+		final Set<Buffer> prepared = Collections.newSetFromMap(new IdentityHashMap<Buffer, Boolean>());
+		for (Object3D object : objects) {
+			prepareMeshes(object, prepared);
+		}
+	}
+
+	private void prepareMeshes(Object3D object, Set<Buffer> prepared) {
+		// Subclasses such as skinned meshes keep more data per vertex, which would need reordering too.
+		// Clones share their geometry's buffers, which must only be reordered once.
+		if (!object.isContainer() && object.getClass() == Object3D.class
+				&& object.getDrawingMode() == GLES20.GL_TRIANGLES
+				&& object.getGeometry().getIndices() != null
+				&& prepared.add(object.getGeometry().getIndices())) {
+			final Geometry3D geometry = object.getGeometry();
+			if (mOptimizeVertexCache) {
+				final float before = RajLog.isDebugEnabled() ? MeshOptimizer.getACMR(geometry) : 0;
+				if (MeshOptimizer.optimize(geometry) && RajLog.isDebugEnabled()) {
+					RajLog.d("Vertex cache ACMR of " + object.getName() + ": " + before + " -> "
+							+ MeshOptimizer.getACMR(geometry));
+				}
+			}
+			if (mInterleaveVertices)
+				geometry.setInterleaved(true);
+		}
+		for (int i = 0; i < object.getNumChildren(); ++i) {
+			prepareMeshes(object.getChildAt(i), prepared);
+		}
+	}
+
+	protected static FloatBuffer createFloatBuffer(float[] values) {
+		FloatBuffer buffer = ByteBuffer.allocateDirect(values.length * 4).order(ByteOrder.nativeOrder())
+				.asFloatBuffer();
+		buffer.put(values).position(0);
+		return buffer;
+	}
+
+	/**
+	 * @param indices {@code int[]} Face indices.
+	 * @param numVertices {@code int} Number of vertices the indices refer to.
+	 * @return {@link Buffer} A ShortBuffer if all vertices can be indexed with unsigned shorts,
+	 *         otherwise an IntBuffer.
+	 */
+	protected static Buffer createIndexBuffer(int[] indices, int numVertices) {
+		if (numVertices > 65536) {
+			return ByteBuffer.allocateDirect(indices.length * 4).order(ByteOrder.nativeOrder())
+					.asIntBuffer().put(indices).position(0);
+		}
+		ShortBuffer buffer = ByteBuffer.allocateDirect(indices.length * 2).order(ByteOrder.nativeOrder())
+				.asShortBuffer();
+		for (int i = 0; i < indices.length; ++i) {
+			buffer.put(i, (short) indices[i]);
+		}
+		return buffer;
+	}
+
 	protected class MaterialDef {
 
 		public String name;
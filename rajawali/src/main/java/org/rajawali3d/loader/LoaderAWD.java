@@ -41,23 +41,34 @@ import org.rajawali3d.math.vector.Vector3;
 import org.rajawali3d.renderer.Renderer;
 import org.rajawali3d.scene.Scene;
 import org.rajawali3d.util.LittleEndianDataInputStream;
+import org.rajawali3d.util.LzmaInputStream;
 import org.rajawali3d.util.RajLog;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * AWD File parser written using the AWD File Format specification. All future additions to the
  * format should adhere to all specification requirements for maximum forward and backward
  * compatibility.
  * <p/>
- * Currently compression is not supported, files will need to be formatted with compression off.
- * This is an option in MAX and should be an option using other exporters.
+ * ZLIB and LZMA compressed files are decompressed while the blocks are read, without holding the
+ * whole body in memory.
  * <p/>
  * <p/>
  * <b>Example AWD parsing</b>
@@ -111,6 +122,14 @@ public class LoaderAWD extends AMeshLoader {
     protected boolean awdHeaderAccuracyGeo;
     protected boolean awdHeaderAccuracyProps;
     protected boolean mAlwaysUseContainer;
+    protected boolean mParallelDecoding;
+
+    private static ExecutorService sBlockExecutor;
+
+    public LoaderAWD(File file) {
+        super(file);
+        init();
+    }
 
     public LoaderAWD(Renderer renderer, File file) {
         super(renderer, file);
@@ -219,91 +238,39 @@ public class LoaderAWD extends AMeshLoader {
                 throw new ParsingException(
                         "AWD Body length not provided which indicates model is streaming or corrupt.");
 
-            // Compression is not supported as this is unnecessary overhead given the limited resources on mobile
-            if (getCompression() != Compression.NONE)
-                throw new ParsingException("Compression is not currently supported. Document compressed as: "
-                        + getCompression());
+            // A compressed body is read from a stream which decompresses the rest of the file, its blocks are
+            // read until the end of that stream as the body length is the compressed length.
+            final boolean compressed = getCompression() != Compression.NONE;
+            final AWDLittleEndianDataInputStream body = compressed ? dis.decompress(getCompression()) : dis;
 
             // Read file blocks
             try {
-                do {
-                    // Read header data
-                    final BlockHeader blockHeader = new BlockHeader();
-                    blockHeader.blockHeaders = blockDataList;
-                    blockHeader.awdVersion = awdHeaderVersion;
-                    blockHeader.awdRevision = awdHeaderRevision;
-                    blockHeader.id = dis.readInt();
-                    blockHeader.namespace = dis.read();
-                    blockHeader.type = dis.read();
-                    blockHeader.flags = dis.read();
-                    blockHeader.dataLength = dis.readUnsignedInt();
-                    blockHeader.globalPrecisionGeo = (blockHeader.flags & BlockHeader.FLAG_ACCURACY_GEO) == BlockHeader.FLAG_ACCURACY_GEO;
-                    blockHeader.globalPrecisionMatrix = (blockHeader.flags & BlockHeader.FLAG_ACCURACY_MATRIX) == BlockHeader.FLAG_ACCURACY_MATRIX;
-                    blockHeader.globalPrecisionProps = (blockHeader.flags & BlockHeader.FLAG_ACCURACY_PROPS) == BlockHeader.FLAG_ACCURACY_PROPS;
-                    blockHeader.blockEnd = dis.getPosition() + blockHeader.dataLength;
-
-                    // Flag the input stream with the correct property precision flag
-                    dis.setPropertyPrecision(blockHeader.globalPrecisionProps);
-
-                    // Add the block to the list of blocks for reference. Id of 0 indicates no references will be made
-                    // to the block.
-                    if (blockHeader.id != 0)
-                        blockDataList.put(blockHeader.id, blockHeader);
-
-                    // Debug
-                    if (RajLog.isDebugEnabled())
-                        RajLog.d(blockHeader.toString());
-
-                    // Look for the Block Parser class.
-                    final Class<? extends ABlockParser> blockClass = (Class<? extends ABlockParser>) blockParserClassesMap
-                            .get(getClassID(
-                                    blockHeader.namespace, blockHeader.type));
-
-                    // Skip unknown blocks
-                    if (blockClass == null) {
-                        if (RajLog.isDebugEnabled())
-                            RajLog.d(" Skipping unknown block " + blockHeader.namespace + " " + blockHeader.type);
-                        dis.skip(blockHeader.dataLength);
-                        continue;
-                    }
-
-                    // Instantiate the block parser
-                    final ABlockParser parser = (ABlockParser) Class.forName(blockClass.getName()).getConstructor()
-                            .newInstance();
-
-                    if (blockHeader.id != 0)
-                        blockHeader.parser = parser;
-
-                    // Add the parser to the list of block parsers
-                    blockParsers.add(parser);
-
-                    if (RajLog.isDebugEnabled()) {
-                        RajLog.d(" Parsing block with: " + parser.getClass().getSimpleName());
-                        RajLog.d(" Starting at position: " + dis.getPosition());
-                    }
-
-                    // Begin parsing
-                    try {
-                        parser.parseBlock(dis, blockHeader);
-                    } catch (NotImplementedParsingException e) {
-                        if (RajLog.isDebugEnabled())
-                            RajLog.d(" Skipping block as not implemented.");
-                        dis.skip(blockHeader.blockEnd - dis.getPosition());
-                    }
-
-                    // Validate block end
-                    if (blockHeader.blockEnd != dis.getPosition())
-                        throw new ParsingException("Block did not end in the correct location. Expected : "
-                                + blockHeader.blockEnd
-                                + " Ended : " + dis.getPosition());
-
-                } while (dis.getPosition() < endOfFile);
+                if (mParallelDecoding) {
+                    parseBlocksInParallel(body, compressed, endOfFile);
+                } else {
+                    do {
+                        final BlockHeader blockHeader = readBlockHeader(body);
+                        final Class<? extends ABlockParser> blockClass = getBlockClass(blockHeader);
+
+                        // Skip unknown blocks
+                        if (blockClass == null) {
+                            body.skip(blockHeader.dataLength);
+                            continue;
+                        }
+
+                        final ABlockParser parser = createBlockParser(blockHeader, blockClass);
+                        parseBlock(body, blockHeader, parser);
+                    } while (compressed ? body.hasRemaining() : body.getPosition() < endOfFile);
+                }
 
                 // End of blocks reached
                 if (RajLog.isDebugEnabled())
                     RajLog.d("End of blocks reached.");
             } catch (IOException e) {
                 throw new ParsingException("Buffer overrun; unexpected end of file.", e);
+            } finally {
+                if (compressed)
+                    body.end();
             }
 
         } catch (Exception e) {
@@ -312,12 +279,226 @@ public class LoaderAWD extends AMeshLoader {
         }
 
         onBlockParsingFinished(blockParsers);
+        prepareMeshes(baseObjects.toArray(new Object3D[baseObjects.size()]));
 
         RajLog.d("Finished Parsing in " + (SystemClock.elapsedRealtime() - startTime));
 
         return this;
     }
 
+    /**
+     * Decodes the geometry and texture blocks of the file on a thread pool. They don't reference other
+     * blocks and take most of the parse time. The block data is read into memory first, then the
+     * blocks are registered and the remaining blocks parsed in file order, waiting for a pooled block
+     * when it is reached. References therefore resolve exactly as when parsing in sequence.
+     */
+    private void parseBlocksInParallel(AWDLittleEndianDataInputStream body, boolean compressed, long endOfFile)
+            throws Exception {
+        // Scan the block headers and read the block data
+        final List<BlockHeader> headers = new ArrayList<BlockHeader>();
+        final List<byte[]> data = new ArrayList<byte[]>();
+        do {
+            final BlockHeader blockHeader = new BlockHeader();
+            readBlockHeaderData(body, blockHeader);
+            final byte[] blockData = new byte[(int) blockHeader.dataLength];
+            body.readFully(blockData);
+            headers.add(blockHeader);
+            data.add(blockData);
+        } while (compressed ? body.hasRemaining() : body.getPosition() < endOfFile);
+
+        // Start the independent blocks
+        final int count = headers.size();
+        final ABlockParser[] parsers = new ABlockParser[count];
+        final Future<?>[] decoded = new Future<?>[count];
+        for (int i = 0; i < count; ++i) {
+            final BlockHeader blockHeader = headers.get(i);
+            final Class<? extends ABlockParser> blockClass = (Class<? extends ABlockParser>) blockParserClassesMap
+                    .get(getClassID(blockHeader.namespace, blockHeader.type));
+            if (blockClass == null || !isIndependentBlock(blockClass))
+                continue;
+            final ABlockParser parser = (ABlockParser) Class.forName(blockClass.getName()).getConstructor()
+                    .newInstance();
+            final AWDLittleEndianDataInputStream dis = createBlockInputStream(blockHeader, data.get(i));
+            data.set(i, null);
+            parsers[i] = parser;
+            decoded[i] = getBlockExecutor().submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    parseBlock(dis, blockHeader, parser);
+                    return null;
+                }
+            });
+        }
+
+        // Register and parse in file order
+        try {
+            for (int i = 0; i < count; ++i) {
+                final BlockHeader blockHeader = headers.get(i);
+                registerBlockHeader(blockHeader);
+                final Class<? extends ABlockParser> blockClass = getBlockClass(blockHeader);
+                if (blockClass == null)
+                    continue;
+
+                if (decoded[i] != null) {
+                    registerBlockParser(blockHeader, parsers[i]);
+                    try {
+                        decoded[i].get();
+                    } catch (ExecutionException e) {
+                        throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    }
+                } else {
+                    final ABlockParser parser = createBlockParser(blockHeader, blockClass);
+                    parseBlock(createBlockInputStream(blockHeader, data.get(i)), blockHeader, parser);
+                    data.set(i, null);
+                }
+            }
+        } finally {
+            for (Future<?> future : decoded) {
+                if (future != null)
+                    future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Whether blocks of the given class can be decoded on another thread while the blocks before them
+     * are parsed, see {@link #setParallelDecoding(boolean)}. Such blocks must not reference other blocks.
+     *
+     * @param blockClass
+     * @return
+     */
+    protected boolean isIndependentBlock(Class<? extends ABlockParser> blockClass) {
+        return blockClass == BlockTriangleGeometry.class || blockClass == BlockBitmapTexture.class;
+    }
+
+    /**
+     * Decode the geometry and texture blocks on a thread pool, see {@link #parseBlocksInParallel}.
+     * The parsed objects are the same as with sequential parsing. Needs memory for the whole body
+     * while parsing.
+     *
+     * @param parallel
+     * @return
+     */
+    public LoaderAWD setParallelDecoding(boolean parallel) {
+        mParallelDecoding = parallel;
+        return this;
+    }
+
+    public boolean getParallelDecoding() {
+        return mParallelDecoding;
+    }
+
+    private static synchronized ExecutorService getBlockExecutor() {
+        if (sBlockExecutor == null) {
+            sBlockExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            final Thread thread = new Thread(r, "LoaderAWD");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        return sBlockExecutor;
+    }
+
+    private AWDLittleEndianDataInputStream createBlockInputStream(BlockHeader blockHeader, byte[] data) {
+        return new AWDLittleEndianDataInputStream(new ByteArrayInputStream(data),
+                blockHeader.blockEnd - blockHeader.dataLength);
+    }
+
+    /**
+     * Reads the header of the next block and adds it to the list of blocks.
+     */
+    private BlockHeader readBlockHeader(AWDLittleEndianDataInputStream dis) throws IOException {
+        final BlockHeader blockHeader = new BlockHeader();
+        readBlockHeaderData(dis, blockHeader);
+        registerBlockHeader(blockHeader);
+        return blockHeader;
+    }
+
+    private void readBlockHeaderData(AWDLittleEndianDataInputStream dis, BlockHeader blockHeader) throws IOException {
+        blockHeader.blockHeaders = blockDataList;
+        blockHeader.awdVersion = awdHeaderVersion;
+        blockHeader.awdRevision = awdHeaderRevision;
+        blockHeader.id = dis.readInt();
+        blockHeader.namespace = dis.read();
+        blockHeader.type = dis.read();
+        blockHeader.flags = dis.read();
+        blockHeader.dataLength = dis.readUnsignedInt();
+        blockHeader.globalPrecisionGeo = (blockHeader.flags & BlockHeader.FLAG_ACCURACY_GEO) == BlockHeader.FLAG_ACCURACY_GEO;
+        blockHeader.globalPrecisionMatrix = (blockHeader.flags & BlockHeader.FLAG_ACCURACY_MATRIX) == BlockHeader.FLAG_ACCURACY_MATRIX;
+        blockHeader.globalPrecisionProps = (blockHeader.flags & BlockHeader.FLAG_ACCURACY_PROPS) == BlockHeader.FLAG_ACCURACY_PROPS;
+        blockHeader.blockEnd = dis.getPosition() + blockHeader.dataLength;
+    }
+
+    private void registerBlockHeader(BlockHeader blockHeader) {
+        // Add the block to the list of blocks for reference. Id of 0 indicates no references will be made
+        // to the block.
+        if (blockHeader.id != 0)
+            blockDataList.put(blockHeader.id, blockHeader);
+
+        // Debug
+        if (RajLog.isDebugEnabled())
+            RajLog.d(blockHeader.toString());
+    }
+
+    /**
+     * Look for the Block Parser class, null for unknown blocks.
+     */
+    private Class<? extends ABlockParser> getBlockClass(BlockHeader blockHeader) {
+        final Class<? extends ABlockParser> blockClass = (Class<? extends ABlockParser>) blockParserClassesMap
+                .get(getClassID(blockHeader.namespace, blockHeader.type));
+        if (blockClass == null && RajLog.isDebugEnabled())
+            RajLog.d(" Skipping unknown block " + blockHeader.namespace + " " + blockHeader.type);
+        return blockClass;
+    }
+
+    private ABlockParser createBlockParser(BlockHeader blockHeader, Class<? extends ABlockParser> blockClass)
+            throws Exception {
+        // Instantiate the block parser
+        final ABlockParser parser = (ABlockParser) Class.forName(blockClass.getName()).getConstructor()
+                .newInstance();
+        registerBlockParser(blockHeader, parser);
+        return parser;
+    }
+
+    private void registerBlockParser(BlockHeader blockHeader, ABlockParser parser) {
+        if (blockHeader.id != 0)
+            blockHeader.parser = parser;
+
+        // Add the parser to the list of block parsers
+        blockParsers.add(parser);
+
+        if (RajLog.isDebugEnabled())
+            RajLog.d(" Parsing block with: " + parser.getClass().getSimpleName());
+    }
+
+    private static void parseBlock(AWDLittleEndianDataInputStream dis, BlockHeader blockHeader, ABlockParser parser)
+            throws Exception {
+        if (RajLog.isDebugEnabled())
+            RajLog.d(" Starting at position: " + dis.getPosition());
+
+        // Flag the input stream with the correct property precision flag
+        dis.setPropertyPrecision(blockHeader.globalPrecisionProps);
+
+        // Begin parsing
+        try {
+            parser.parseBlock(dis, blockHeader);
+        } catch (NotImplementedParsingException e) {
+            if (RajLog.isDebugEnabled())
+                RajLog.d(" Skipping block as not implemented.");
+            dis.skip(blockHeader.blockEnd - dis.getPosition());
+        }
+
+        // Validate block end
+        if (blockHeader.blockEnd != dis.getPosition())
+            throw new ParsingException("Block did not end in the correct location. Expected : "
+                    + blockHeader.blockEnd
+                    + " Ended : " + dis.getPosition());
+    }
+
     /**
      * Get the parsed object or objects. This is returns each model independent of a scene
      * regardless of if a scene exists or not.
@@ -518,6 +699,7 @@ public class LoaderAWD extends AMeshLoader {
         public static final short TYPE_MTX4x4 = 47;
 
         private boolean mPropPrecision;
+        private Inflater mInflater;
 
         private final Vector3 mTempVector3;
         private final Quaternion mTempQuaternion;
@@ -528,10 +710,75 @@ public class LoaderAWD extends AMeshLoader {
             mTempQuaternion = new Quaternion();
         }
 
+        /**
+         * @param in       Stream of a part of the file.
+         * @param position Position of that part in the file, which {@link #getPosition()} starts at.
+         */
+        public AWDLittleEndianDataInputStream(InputStream in, long position) {
+            this(in);
+            mPosition = position;
+        }
+
         public void setPropertyPrecision(boolean flag) {
             mPropPrecision = flag;
         }
 
+        /**
+         * Creates a stream which decompresses the remainder of this stream while it is read. Nothing must
+         * be read from this stream afterwards.
+         *
+         * @param compression {@link Compression} Compression of the remainder.
+         * @return {@link AWDLittleEndianDataInputStream} Stream of the decompressed data, starting at position 0.
+         * @throws IOException
+         */
+        public AWDLittleEndianDataInputStream decompress(Compression compression) throws IOException {
+            final InputStream decompressed;
+            Inflater inflater = null;
+            switch (compression) {
+                case ZLIB:
+                    inflater = new Inflater();
+                    decompressed = new InflaterInputStream(in, inflater, 8192);
+                    break;
+                case LZMA:
+                    decompressed = new LzmaInputStream(in);
+                    break;
+                default:
+                    decompressed = in;
+            }
+            final AWDLittleEndianDataInputStream stream = new AWDLittleEndianDataInputStream(
+                    new PushbackInputStream(decompressed, 1));
+            stream.mInflater = inflater;
+            return stream;
+        }
+
+        /**
+         * Releases the native memory of the decompressor of a stream returned by
+         * {@link #decompress(Compression)}. Nothing must be read from this stream afterwards.
+         */
+        public void end() {
+            if (mInflater != null) {
+                mInflater.end();
+                mInflater = null;
+            }
+        }
+
+        /**
+         * Whether there is data left, for streams without a known length such as the ones returned by
+         * {@link #decompress(Compression)}.
+         *
+         * @return {@code boolean} False at the end of the stream.
+         * @throws IOException
+         */
+        public boolean hasRemaining() throws IOException {
+            if (!(in instanceof PushbackInputStream))
+                return available() > 0;
+            final int next = in.read();
+            if (next < 0)
+                return false;
+            ((PushbackInputStream) in).unread(next);
+            return true;
+        }
+
         /**
          * Read in a 2D matrix. Passed array must be of size 6.
          *
@@ -0,0 +1,328 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.loader;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+import android.graphics.BitmapFactory;
+
+import org.rajawali3d.Object3D;
+import org.rajawali3d.bounds.BoundingBox;
+import org.rajawali3d.materials.Material;
+import org.rajawali3d.materials.methods.DiffuseMethod;
+import org.rajawali3d.materials.textures.ATexture.TextureException;
+import org.rajawali3d.materials.textures.Texture;
+import org.rajawali3d.materials.textures.TextureManager;
+import org.rajawali3d.math.Quaternion;
+import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.renderer.Renderer;
+import org.rajawali3d.util.RajLog;
+import org.rajawali3d.util.exporter.BinaryMeshExporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loader for pre-baked binary meshes written by {@link BinaryMeshExporter}. The file is mapped
+ * with {@link FileChannel#map(FileChannel.MapMode, long, long)} and the vertex and index blocks are
+ * handed to {@link org.rajawali3d.Geometry3D} as views of the mapping. Nothing is tokenized or
+ * copied on the Java heap; the data is read from the page cache when the buffers are uploaded.
+ * <p>
+ * Raw resources can only be mapped when they are stored uncompressed in the APK:
+ * <pre>
+ * android {
+ *     aaptOptions {
+ *         noCompress 'rmesh'
+ *     }
+ * }
+ * </pre>
+ * Compressed resources are read into a direct buffer instead.
+ * <p>
+ * <b>File format</b>, little endian. Strings are an int byte length followed by UTF-8 bytes. Every
+ * string and block is padded to 4 bytes.
+ * <pre>
+ * int     magic 'RMSH', version, object count
+ * per object, parents before children:
+ *   int     parent index, -1 for the root
+ *   string  name
+ *   int     flags, FLAG_*
+ *   float   position x, y, z; orientation w, x, y, z; scale x, y, z
+ *   int     vertex count, index count
+ *   float   bounds min x, y, z; max x, y, z
+ *   int     material color (argb)
+ *   string  diffuse texture name, empty for none
+ *   float   positions (3 per vertex)
+ *   float   normals (3 per vertex)            if FLAG_NORMALS
+ *   float   texture coordinates (2 per vertex) if FLAG_TEXTURE_COORDS
+ *   float   colors (4 per vertex)             if FLAG_COLORS
+ *   int     indices                           if FLAG_INT_INDICES
+ *   short   indices                           otherwise
+ * </pre>
+ * Vertex attributes are stored as separate blocks, one per {@link org.rajawali3d.BufferInfo}, so
+ * each block maps directly onto one vertex buffer.
+ *
+ * <pre>
+ * LoaderBinaryMesh loader = new LoaderBinaryMesh(getContext().getResources(), getTextureManager(), R.raw.ship);
+ * loader.parse();
+ * Object3D ship = loader.getParsedObject();
+ * </pre>
+ */
+public class LoaderBinaryMesh extends AMeshLoader {
+
+	public static final int MAGIC = 0x48534D52; // 'RMSH'
+	public static final int VERSION = 1;
+
+	public static final int FLAG_CONTAINER = 1;
+	public static final int FLAG_NORMALS = 2;
+	public static final int FLAG_TEXTURE_COORDS = 4;
+	public static final int FLAG_COLORS = 8;
+	public static final int FLAG_INT_INDICES = 16;
+	public static final int FLAG_MATERIAL = 32;
+	public static final int FLAG_LIGHTING = 64;
+	public static final int FLAG_TRANSPARENT = 128;
+	public static final int FLAG_DOUBLE_SIDED = 256;
+
+	public static final Charset UTF8 = Charset.forName("UTF-8");
+
+	public LoaderBinaryMesh(File file) {
+		super(file);
+	}
+
+	public LoaderBinaryMesh(Renderer renderer, File file) {
+		super(renderer, file);
+	}
+
+	public LoaderBinaryMesh(Renderer renderer, String fileOnSDCard) {
+		super(renderer, fileOnSDCard);
+	}
+
+	public LoaderBinaryMesh(Renderer renderer, int resourceId) {
+		this(renderer.getContext().getResources(), renderer.getTextureManager(), resourceId);
+	}
+
+	public LoaderBinaryMesh(Resources resources, TextureManager textureManager, int resourceId) {
+		super(resources, textureManager, resourceId);
+	}
+
+	@Override
+	public LoaderBinaryMesh parse() throws ParsingException {
+		super.parse();
+
+		final ByteBuffer data;
+		try {
+			data = map();
+		} catch (IOException e) {
+			throw new ParsingException(e);
+		}
+		data.order(ByteOrder.LITTLE_ENDIAN);
+
+		if (data.remaining() < 12 || data.getInt() != MAGIC)
+			throw new ParsingException("Not a binary mesh file.");
+		final int version = data.getInt();
+		if (version != VERSION)
+			throw new ParsingException("Unsupported binary mesh version " + version);
+
+		final int numObjects = data.getInt();
+		final List<Object3D> objects = new ArrayList<Object3D>(numObjects);
+		try {
+			for (int i = 0; i < numObjects; ++i) {
+				final int parent = data.getInt();
+				final Object3D object = readObject(data);
+				if (parent < 0) {
+					mRootObject = object;
+				} else if (parent < i) {
+					objects.get(parent).addChild(object);
+				} else {
+					throw new ParsingException("Object " + i + " is stored before its parent.");
+				}
+				objects.add(object);
+			}
+		} catch (RuntimeException e) {
+			// Truncated file or bad block sizes
+			throw new ParsingException(e);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Reads one object record and creates views of its data blocks.
+	 */
+	private Object3D readObject(ByteBuffer data) throws ParsingException {
+		final Object3D object = new Object3D(readString(data));
+		final int flags = data.getInt();
+
+		object.setPosition(data.getFloat(), data.getFloat(), data.getFloat());
+		object.setOrientation(new Quaternion(data.getFloat(), data.getFloat(), data.getFloat(), data.getFloat()));
+		object.setScale(data.getFloat(), data.getFloat(), data.getFloat());
+
+		final int numVertices = data.getInt();
+		final int numIndices = data.getInt();
+		final Vector3 min = new Vector3(data.getFloat(), data.getFloat(), data.getFloat());
+		final Vector3 max = new Vector3(data.getFloat(), data.getFloat(), data.getFloat());
+		final int color = data.getInt();
+		final String diffuseTexture = readString(data);
+
+		if ((flags & FLAG_CONTAINER) != 0)
+			return object;
+
+		final FloatBuffer vertices = floats(data, numVertices * 3);
+		final FloatBuffer normals = (flags & FLAG_NORMALS) != 0 ? floats(data, numVertices * 3) : null;
+		final FloatBuffer textureCoords = (flags & FLAG_TEXTURE_COORDS) != 0 ? floats(data, numVertices * 2) : null;
+		final FloatBuffer colors = (flags & FLAG_COLORS) != 0 ? floats(data, numVertices * 4) : null;
+		final Buffer indices;
+		if ((flags & FLAG_INT_INDICES) != 0) {
+			indices = slice(data, numIndices * 4).asIntBuffer();
+		} else {
+			indices = slice(data, numIndices * 2).asShortBuffer();
+		}
+		object.setData(vertices, normals, textureCoords, colors, indices, false);
+
+		final BoundingBox boundingBox = new BoundingBox();
+		boundingBox.setMin(min);
+		boundingBox.setMax(max);
+		boundingBox.calculatePoints();
+		object.getGeometry().setBoundingBox(boundingBox);
+
+		if ((flags & FLAG_MATERIAL) != 0) {
+			object.setMaterial(createMaterial(object, flags, color, diffuseTexture));
+		}
+		object.setTransparent((flags & FLAG_TRANSPARENT) != 0);
+		object.setDoubleSided((flags & FLAG_DOUBLE_SIDED) != 0);
+		return object;
+	}
+
+	private Material createMaterial(Object3D object, int flags, int color, String diffuseTexture)
+			throws ParsingException {
+		final Material material = new Material();
+		if ((flags & FLAG_LIGHTING) != 0) {
+			material.enableLighting(true);
+			material.setDiffuseMethod(new DiffuseMethod.Lambert());
+		}
+		material.setColor(color);
+		if (diffuseTexture.length() == 0)
+			return material;
+
+		try {
+			if (mFile == null) {
+				final String resourcePackage = mResources.getResourcePackageName(mResourceId);
+				final int id = mResources.getIdentifier(diffuseTexture, "drawable", resourcePackage);
+				if (id != 0) {
+					material.addTexture(new Texture(object.getName() + diffuseTexture, id));
+					material.setColorInfluence(0);
+				} else {
+					RajLog.w("[" + getClass().getName() + "] Texture " + diffuseTexture + " not found.");
+				}
+			} else {
+				final File file = new File(mFile.getParent(), diffuseTexture);
+				if (file.exists()) {
+					material.addTexture(new Texture(diffuseTexture, BitmapFactory.decodeFile(file.getAbsolutePath())));
+					material.setColorInfluence(0);
+				} else {
+					RajLog.w("[" + getClass().getName() + "] Texture " + file + " not found.");
+				}
+			}
+		} catch (TextureException e) {
+			throw new ParsingException(e);
+		}
+		return material;
+	}
+
+	/**
+	 * Maps the whole file or raw resource. Mappings stay valid after their channel is closed.
+	 */
+	private ByteBuffer map() throws IOException {
+		if (mFile != null) {
+			final RandomAccessFile file = new RandomAccessFile(mFile, "r");
+			try {
+				final FileChannel channel = file.getChannel();
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			} finally {
+				file.close();
+			}
+		}
+
+		AssetFileDescriptor descriptor = null;
+		try {
+			descriptor = mResources.openRawResourceFd(mResourceId);
+		} catch (Resources.NotFoundException e) {
+			// Compressed in the APK
+		}
+		if (descriptor != null) {
+			final FileInputStream stream = descriptor.createInputStream();
+			try {
+				return stream.getChannel().map(FileChannel.MapMode.READ_ONLY, descriptor.getStartOffset(),
+						descriptor.getLength());
+			} finally {
+				stream.close();
+			}
+		}
+
+		RajLog.w("[" + getClass().getName() + "] Resource is compressed and can't be mapped. Add 'rmesh' to aaptOptions.noCompress.");
+		final InputStream stream = mResources.openRawResource(mResourceId);
+		try {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream(stream.available());
+			final byte[] chunk = new byte[8192];
+			int read;
+			while ((read = stream.read(chunk)) != -1) {
+				bytes.write(chunk, 0, read);
+			}
+			final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.size());
+			buffer.put(bytes.toByteArray()).position(0);
+			return buffer;
+		} finally {
+			stream.close();
+		}
+	}
+
+	private static String readString(ByteBuffer data) {
+		final int length = data.getInt();
+		final byte[] bytes = new byte[length];
+		data.get(bytes);
+		skipPadding(data, length);
+		return new String(bytes, UTF8);
+	}
+
+	private static FloatBuffer floats(ByteBuffer data, int count) {
+		return slice(data, count * 4).asFloatBuffer();
+	}
+
+	/**
+	 * Returns a view of the next block and moves past it. Android devices are little endian, so
+	 * the views are in native order as OpenGL requires.
+	 */
+	private static ByteBuffer slice(ByteBuffer data, int size) {
+		final ByteBuffer block = data.slice();
+		block.limit(size);
+		block.order(ByteOrder.LITTLE_ENDIAN);
+		data.position(data.position() + size);
+		skipPadding(data, size);
+		return block;
+	}
+
+	private static void skipPadding(ByteBuffer data, int size) {
+		data.position(data.position() + ((4 - (size & 3)) & 3));
+	}
+}
@@ -27,6 +27,8 @@ import org.rajawali3d.materials.textures.SpecularMapTexture;
 import org.rajawali3d.materials.textures.Texture;
 import org.rajawali3d.materials.textures.TextureManager;
 import org.rajawali3d.renderer.Renderer;
+import org.rajawali3d.util.FloatArrayList;
+import org.rajawali3d.util.IntArrayList;
 import org.rajawali3d.util.RajLog;
 
 import java.io.BufferedReader;
@@ -94,6 +96,8 @@ public class LoaderOBJ extends AMeshLoader {
     protected final String DIFFUSE_COLOR = "Kd";
     protected final String DIFFUSE_TEX_MAP = "map_Kd";
 
+    private static final int[] QUAD_INDICES = { 0, 1, 2, 0, 2, 3 };
+
     private boolean mNeedToRenameMtl = true;
 
     public LoaderOBJ(Renderer renderer, String fileOnSDCard) {
@@ -114,28 +118,31 @@ public class LoaderOBJ extends AMeshLoader {
 		super(renderer, file);
 	}
 
+	public LoaderOBJ(File file) {
+		super(file);
+	}
+
 	@Override
 	public LoaderOBJ parse() throws ParsingException {
 		super.parse();
-		BufferedReader buffer = null;
+		InputStream stream;
 		if(mFile == null) {
-			InputStream fileIn = mResources.openRawResource(mResourceId);
-			buffer = new BufferedReader(new InputStreamReader(fileIn));
+			stream = mResources.openRawResource(mResourceId);
 		} else {
 			try {
-				buffer = new BufferedReader(new FileReader(mFile));
+				stream = new FileInputStream(mFile);
 			} catch (FileNotFoundException e) {
 				RajLog.e("["+getClass().getCanonicalName()+"] Could not find file.");
-				e.printStackTrace();
+				throw new ParsingException(e);
 			}
 		}
-		String line;
+		ObjTokenizer parts = new ObjTokenizer(stream);
 		ObjIndexData currObjIndexData = new ObjIndexData(new Object3D(generateObjectName()));
 		ArrayList<ObjIndexData> objIndices = new ArrayList<ObjIndexData>();
 
-		ArrayList<Float> vertices = new ArrayList<Float>();
-		ArrayList<Float> texCoords = new ArrayList<Float>();
-		ArrayList<Float> normals = new ArrayList<Float>();
+		FloatArrayList vertices = new FloatArrayList(8192);
+		FloatArrayList texCoords = new FloatArrayList(8192);
+		FloatArrayList normals = new FloatArrayList(8192);
 		MaterialLib matLib = new MaterialLib();
 
 		String currentMaterialName=null;
@@ -144,97 +151,81 @@ public class LoaderOBJ extends AMeshLoader {
 		mRootObject.setName("default");
 		Map<String, Object3D> groups = new HashMap<String, Object3D>();
 
+		int[] faceIndices = new int[3];
+		int[] quadvids = new int[4];
+		int[] quadtids = new int[4];
+		int[] quadnids = new int[4];
+
 		try {
-			while((line = buffer.readLine()) != null) {
-				// Skip comments and empty lines.
-				if(line.length() == 0 || line.charAt(0) == '#')
-					continue;
-				StringTokenizer parts = new StringTokenizer(line, " ");
-				int numTokens = parts.countTokens();
-
-				if(numTokens == 0)
-					continue;
-				String type = parts.nextToken();
-
-				if(type.equals(VERTEX)) {
-					vertices.add(Float.parseFloat(parts.nextToken()));
-					vertices.add(Float.parseFloat(parts.nextToken()));
-					vertices.add(Float.parseFloat(parts.nextToken()));
-				} else if(type.equals(FACE)) {
+			while(parts.nextLine()) {
+				int numTokens = parts.getTokenCount();
+
+				if(parts.isToken(0, VERTEX)) {
+					vertices.add(parts.getFloat(1));
+					vertices.add(parts.getFloat(2));
+					vertices.add(parts.getFloat(3));
+				} else if(parts.isToken(0, FACE)) {
 					currentObjHasFaces=true;
 					boolean isQuad = numTokens == 5;
-					int[] quadvids = new int[4];
-					int[] quadtids = new int[4];
-					int[] quadnids = new int[4];
-
-                    boolean emptyVt = line.indexOf("//") > -1;
-                    if(emptyVt) line = line.replace("//", "/");
-
-                    parts = new StringTokenizer(line);
-
-                    parts.nextToken();
-                    StringTokenizer subParts = new StringTokenizer(parts.nextToken(), "/");
-                    int partLength = subParts.countTokens();
-
-                    boolean hasuv = partLength >= 2 && !emptyVt;
-                    boolean hasn = partLength == 3 || (partLength == 2 && emptyVt);
-                    int idx;
-
-                    for (int i = 1; i < numTokens; i++) {
-                    	if(i > 1)
-                    		subParts = new StringTokenizer(parts.nextToken(), "/");
-                    	idx = Integer.parseInt(subParts.nextToken());
-
-                    	if(idx < 0) idx = (vertices.size() / 3) + idx;
-                    	else idx -= 1;
-                        if(!isQuad)
-                        	currObjIndexData.vertexIndices.add(idx);
-                        else
-                        	quadvids[i-1] = idx;
-                        if (hasuv)
-                        {
-                        	idx = Integer.parseInt(subParts.nextToken());
-                        	if(idx < 0) idx = (texCoords.size() / 2) + idx;
-                        	else idx -= 1;
-                        	if(!isQuad)
-                        		currObjIndexData.texCoordIndices.add(idx);
-                        	else
-                            	quadtids[i-1] = idx;
-                        }
-                        if (hasn)
-                        {
-                        	idx = Integer.parseInt(subParts.nextToken());
-                        	if(idx < 0) idx = (normals.size() / 3) + idx;
-                        	else idx -= 1;
-                        	if(!isQuad)
-                        		currObjIndexData.normalIndices.add(idx);
-                        	else
-                            	quadnids[i-1] = idx;
-                        }
-                    }
-
-                    if(isQuad) {
-                    	int[] indices = new int[] { 0, 1, 2, 0, 2, 3 };
-
-                    	for(int i=0; i<6; ++i) {
-                    		int index = indices[i];
-                        	currObjIndexData.vertexIndices.add(quadvids[index]);
-                        	currObjIndexData.texCoordIndices.add(quadtids[index]);
-                        	currObjIndexData.normalIndices.add(quadnids[index]);
-                    	}
-                    }
-				} else if(type.equals(TEXCOORD)) {
-					texCoords.add(Float.parseFloat(parts.nextToken()));
-                    texCoords.add(1f - Float.parseFloat(parts.nextToken()));
-				} else if(type.equals(NORMAL)) {
-					normals.add(Float.parseFloat(parts.nextToken()));
-                    normals.add(Float.parseFloat(parts.nextToken()));
-                    normals.add(Float.parseFloat(parts.nextToken()));
-				} else if(type.equals(GROUP)) {
-					int numGroups = parts.countTokens();
+
+					// The first vertex decides which indices the face has
+					parts.getFaceIndices(1, faceIndices);
+					boolean hasuv = faceIndices[1] != 0;
+					boolean hasn = faceIndices[2] != 0;
+					int idx;
+
+					for (int i = 1; i < numTokens; i++) {
+						if(i > 1)
+							parts.getFaceIndices(i, faceIndices);
+						idx = faceIndices[0];
+
+						if(idx < 0) idx = (vertices.size() / 3) + idx;
+						else idx -= 1;
+						if(!isQuad)
+							currObjIndexData.vertexIndices.add(idx);
+						else
+							quadvids[i-1] = idx;
+						if (hasuv)
+						{
+							idx = faceIndices[1];
+							if(idx < 0) idx = (texCoords.size() / 2) + idx;
+							else idx -= 1;
+							if(!isQuad)
+								currObjIndexData.texCoordIndices.add(idx);
+							else
+								quadtids[i-1] = idx;
+						}
+						if (hasn)
+						{
+							idx = faceIndices[2];
+							if(idx < 0) idx = (normals.size() / 3) + idx;
+							else idx -= 1;
+							if(!isQuad)
+								currObjIndexData.normalIndices.add(idx);
+							else
+								quadnids[i-1] = idx;
+						}
+					}
+
+					if(isQuad) {
+						for(int i=0; i<6; ++i) {
+							int index = QUAD_INDICES[i];
+							currObjIndexData.vertexIndices.add(quadvids[index]);
+							currObjIndexData.texCoordIndices.add(hasuv ? quadtids[index] : 0);
+							currObjIndexData.normalIndices.add(hasn ? quadnids[index] : 0);
+						}
+					}
+				} else if(parts.isToken(0, TEXCOORD)) {
+					texCoords.add(parts.getFloat(1));
+					texCoords.add(1f - parts.getFloat(2));
+				} else if(parts.isToken(0, NORMAL)) {
+					normals.add(parts.getFloat(1));
+					normals.add(parts.getFloat(2));
+					normals.add(parts.getFloat(3));
+				} else if(parts.isToken(0, GROUP)) {
 					Object3D previousGroup = null;
-					for(int i=0; i<numGroups; i++) {
-						String groupName = parts.nextToken();
+					for(int i=1; i<numTokens; i++) {
+						String groupName = parts.getToken(i);
 						if(!groups.containsKey(groupName)) {
 							groups.put(groupName, new Object3D(groupName));
 						}
@@ -255,8 +246,8 @@ public class LoaderOBJ extends AMeshLoader {
 						currentObjHasFaces = false;
 					}
 					addChildSetParent(currentGroup, currObjIndexData.targetObj);
-				} else if(type.equals(OBJECT)) {
-					String objName = parts.hasMoreTokens() ? parts.nextToken() : generateObjectName();
+				} else if(parts.isToken(0, OBJECT)) {
+					String objName = numTokens > 1 ? parts.getToken(1) : generateObjectName();
 
 					if (currentObjHasFaces) {
 						objIndices.add(currObjIndexData);
@@ -267,17 +258,17 @@ public class LoaderOBJ extends AMeshLoader {
 						currentObjHasFaces = false;
 					}
 					currObjIndexData.targetObj.setName(objName);
-				} else if(type.equals(MATERIAL_LIB)) {
-					if(!parts.hasMoreTokens()) continue;
-                    String materialLibPath = mNeedToRenameMtl ? parts.nextToken().replace(".", "_") : parts.nextToken();
+				} else if(parts.isToken(0, MATERIAL_LIB)) {
+					if(numTokens < 2) continue;
+					String materialLibPath = mNeedToRenameMtl ? parts.getToken(1).replace(".", "_") : parts.getToken(1);
 
 					RajLog.d("Found Material Lib: " + materialLibPath);
 					if(mFile != null)
 						matLib.parse(materialLibPath, null, null);
 					else
 						matLib.parse(materialLibPath, mResources.getResourceTypeName(mResourceId), mResources.getResourcePackageName(mResourceId));
-				} else if(type.equals(USE_MATERIAL)) {
-					currentMaterialName = parts.nextToken();
+				} else if(parts.isToken(0, USE_MATERIAL)) {
+					currentMaterialName = parts.getToken(1);
 					if(currentObjHasFaces) {
 						objIndices.add(currObjIndexData);
 						currObjIndexData = new ObjIndexData(new Object3D(generateObjectName()));
@@ -288,14 +279,13 @@ public class LoaderOBJ extends AMeshLoader {
 					currObjIndexData.materialName = currentMaterialName;
 				}
 			}
-			buffer.close();
+			stream.close();
 
 			if(currentObjHasFaces) {
 				RajLog.i("Parsing object: " + currObjIndexData.targetObj.getName());
 				objIndices.add(currObjIndexData);
 			}
 
-
 		} catch (IOException e) {
 			throw new ParsingException(e);
 		}
@@ -305,6 +295,18 @@ public class LoaderOBJ extends AMeshLoader {
 		for(int j=0; j<numObjects; ++j) {
 			ObjIndexData oid = objIndices.get(j);
 
+			if(mWeldVertices) {
+				setWeldedData(oid, vertices, texCoords, normals);
+				try {
+					matLib.setMaterial(oid.targetObj, oid.materialName);
+				} catch(TextureException tme) {
+					throw new ParsingException(tme);
+				}
+				if(oid.targetObj.getParent() == null)
+					addChildSetParent(mRootObject, oid.targetObj);
+				continue;
+			}
+
 			int i;
 			float[] aVertices 	= new float[oid.vertexIndices.size() * 3];
 			float[] aTexCoords 	= new float[oid.texCoordIndices.size() * 2];
@@ -372,10 +374,63 @@ public class LoaderOBJ extends AMeshLoader {
 		for(int i=0; i<mRootObject.getNumChildren(); i++)
 			mergeGroupsAsObjects(mRootObject.getChildAt(i));
 
+		prepareMeshes(mRootObject);
+
 		return this;
 	}
 
 
+	/**
+	 * Gives each distinct (position, texture coordinate, normal) index triple of the faces one
+	 * vertex and indexes the faces into them.
+	 */
+	private void setWeldedData(ObjIndexData oid, FloatArrayList vertices, FloatArrayList texCoords,
+			FloatArrayList normals) throws ParsingException {
+		final int numCorners = oid.vertexIndices.size();
+		final int numTexCoordIndices = texCoords.size() > 0 ? oid.texCoordIndices.size() : 0;
+		final int numNormalIndices = oid.normalIndices.size();
+		if(numNormalIndices > 0 && normals.size() == 0) {
+			RajLog.e("["+getClass().getName()+"] There are no normals specified for this model. Please re-export with normals.");
+			throw new ParsingException("["+getClass().getName()+"] There are no normals specified for this model. Please re-export with normals.");
+		}
+
+		VertexWelder welder = new VertexWelder(3, numCorners / 2);
+		int[] key = new int[3];
+		int[] aIndices = new int[numCorners];
+		for(int i=0; i<numCorners; ++i) {
+			key[0] = oid.vertexIndices.get(i);
+			key[1] = i < numTexCoordIndices ? oid.texCoordIndices.get(i) : -1;
+			key[2] = i < numNormalIndices ? oid.normalIndices.get(i) : -1;
+			aIndices[i] = welder.weld(key);
+		}
+
+		final int numVertices = welder.getVertexCount();
+		float[] aVertices = new float[numVertices * 3];
+		float[] aTexCoords = new float[numVertices * 2];
+		float[] aNormals = numNormalIndices > 0 ? new float[numVertices * 3] : null;
+		for(int i=0; i<numVertices; ++i) {
+			int index = welder.getKey(i, 0) * 3;
+			aVertices[i * 3] = vertices.get(index);
+			aVertices[i * 3 + 1] = vertices.get(index + 1);
+			aVertices[i * 3 + 2] = vertices.get(index + 2);
+			index = welder.getKey(i, 1) * 2;
+			if(index >= 0) {
+				aTexCoords[i * 2] = texCoords.get(index);
+				aTexCoords[i * 2 + 1] = texCoords.get(index + 1);
+			}
+			index = welder.getKey(i, 2) * 3;
+			if(aNormals != null && index >= 0) {
+				aNormals[i * 3] = normals.get(index);
+				aNormals[i * 3 + 1] = normals.get(index + 1);
+				aNormals[i * 3 + 2] = normals.get(index + 2);
+			}
+		}
+
+		RajLog.i("Welded " + numCorners + " vertices of " + oid.targetObj.getName() + " into " + numVertices);
+		oid.targetObj.setData(createFloatBuffer(aVertices), aNormals != null ? createFloatBuffer(aNormals) : null,
+				createFloatBuffer(aTexCoords), null, createIndexBuffer(aIndices, numVertices), false);
+	}
+
 	/**
 	 * Collapse single-object groups. (Some obj exporters use g token for objects)
 	 * @param object
@@ -450,19 +505,19 @@ public class LoaderOBJ extends AMeshLoader {
 	protected class ObjIndexData {
 		public Object3D targetObj;
 
-		public ArrayList<Integer> vertexIndices;
-		public ArrayList<Integer> texCoordIndices;
-		public ArrayList<Integer> colorIndices;
-		public ArrayList<Integer> normalIndices;
+		public IntArrayList vertexIndices;
+		public IntArrayList texCoordIndices;
+		public IntArrayList colorIndices;
+		public IntArrayList normalIndices;
 
 		public String materialName;
 
 		public ObjIndexData(Object3D targetObj) {
 			this.targetObj = targetObj;
-			vertexIndices = new ArrayList<Integer>();
-			texCoordIndices = new ArrayList<Integer>();
-			colorIndices = new ArrayList<Integer>();
-			normalIndices = new ArrayList<Integer>();
+			vertexIndices = new IntArrayList(4096);
+			texCoordIndices = new IntArrayList(4096);
+			colorIndices = new IntArrayList();
+			normalIndices = new IntArrayList(4096);
 		}
 	}
 
@@ -0,0 +1,294 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Streaming tokenizer for OBJ files. Bytes are read straight from the stream into a reused line
+ * buffer and split into tokens at spaces and tabs. Numbers are parsed from the bytes, so only
+ * {@link #getToken(int)} creates objects.
+ * <p>
+ * Empty lines and comments are skipped.
+ *
+ * <pre>
+ * while (tokenizer.nextLine()) {
+ *     if (tokenizer.isToken(0, "v")) {
+ *         vertices.add(tokenizer.getFloat(1));
+ *         ...
+ * </pre>
+ */
+public class ObjTokenizer {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Powers of ten which are exact floats.
+	 */
+	private static final float[] POWERS_OF_TEN = {
+			1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+	};
+
+	/**
+	 * Mantissas below this are exact in a float. Multiplying or dividing one by an exact power of
+	 * ten rounds once, so the result is the float nearest to the decimal number.
+	 */
+	private static final long MAX_EXACT_MANTISSA = 1 << 24;
+
+	private final InputStream mStream;
+	private final byte[] mBuffer;
+	private int mBufferPosition;
+	private int mBufferLength;
+
+	private byte[] mLine = new byte[256];
+	private int mLineLength;
+	private int[] mTokenStart = new int[16];
+	private int[] mTokenEnd = new int[16];
+	private int mTokenCount;
+
+	public ObjTokenizer(InputStream stream) {
+		this(stream, 65536);
+	}
+
+	public ObjTokenizer(InputStream stream, int bufferSize) {
+		mStream = stream;
+		mBuffer = new byte[bufferSize];
+	}
+
+	/**
+	 * Reads the next line which has tokens and isn't a comment.
+	 *
+	 * @return {@code boolean} False at the end of the stream.
+	 * @throws IOException
+	 */
+	public boolean nextLine() throws IOException {
+		while (readLine()) {
+			if (mLineLength > 0 && mLine[0] == '#')
+				continue;
+			split();
+			if (mTokenCount > 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return {@code int} Number of tokens on the current line.
+	 */
+	public int getTokenCount() {
+		return mTokenCount;
+	}
+
+	/**
+	 * Compares a token with an ASCII string without creating a String.
+	 */
+	public boolean isToken(int index, String value) {
+		final int start = mTokenStart[index];
+		final int length = mTokenEnd[index] - start;
+		if (length != value.length())
+			return false;
+		for (int i = 0; i < length; ++i) {
+			if (mLine[start + i] != value.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	public String getToken(int index) {
+		checkIndex(index);
+		return new String(mLine, mTokenStart[index], mTokenEnd[index] - mTokenStart[index], UTF8);
+	}
+
+	/**
+	 * Parses a token as a float. Decimal numbers whose digits make an integer below 2^24 and
+	 * whose exponent is at most 10 either way, such as the 6 decimals OBJ exporters write, are
+	 * parsed from the bytes. Other numbers are passed to {@link Float#parseFloat(String)}.
+	 *
+	 * @throws NumberFormatException if the token isn't a number.
+	 */
+	public float getFloat(int index) {
+		checkIndex(index);
+		final byte[] line = mLine;
+		final int end = mTokenEnd[index];
+		int i = mTokenStart[index];
+
+		boolean negative = false;
+		if (line[i] == '-' || line[i] == '+') {
+			negative = line[i] == '-';
+			++i;
+		}
+
+		long mantissa = 0;
+		int exponent = 0;
+		boolean anyDigits = false;
+		for (; i < end && line[i] >= '0' && line[i] <= '9'; ++i) {
+			anyDigits = true;
+			if (mantissa == 0 && line[i] == '0')
+				continue;
+			mantissa = mantissa * 10 + (line[i] - '0');
+			if (mantissa >= MAX_EXACT_MANTISSA)
+				return Float.parseFloat(getToken(index));
+		}
+		if (i < end && line[i] == '.') {
+			for (++i; i < end && line[i] >= '0' && line[i] <= '9'; ++i) {
+				anyDigits = true;
+				--exponent;
+				if (mantissa == 0 && line[i] == '0')
+					continue;
+				mantissa = mantissa * 10 + (line[i] - '0');
+				if (mantissa >= MAX_EXACT_MANTISSA)
+					return Float.parseFloat(getToken(index));
+			}
+		}
+		if (!anyDigits)
+			return Float.parseFloat(getToken(index));
+		if (i < end && (line[i] == 'e' || line[i] == 'E')) {
+			++i;
+			boolean negativeExponent = false;
+			if (i < end && (line[i] == '-' || line[i] == '+')) {
+				negativeExponent = line[i] == '-';
+				++i;
+			}
+			if (i == end)
+				return Float.parseFloat(getToken(index));
+			int value = 0;
+			for (; i < end && line[i] >= '0' && line[i] <= '9'; ++i) {
+				if (value > 1000)
+					return Float.parseFloat(getToken(index));
+				value = value * 10 + (line[i] - '0');
+			}
+			exponent += negativeExponent ? -value : value;
+		}
+		if (i != end)
+			return Float.parseFloat(getToken(index));
+
+		final float result;
+		if (mantissa == 0) {
+			result = 0;
+		} else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+			result = mantissa * POWERS_OF_TEN[exponent];
+		} else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+			result = mantissa / POWERS_OF_TEN[-exponent];
+		} else {
+			return Float.parseFloat(getToken(index));
+		}
+		return negative ? -result : result;
+	}
+
+	/**
+	 * @throws NumberFormatException if the token isn't an integer.
+	 */
+	public int getInt(int index) {
+		checkIndex(index);
+		return parseInt(mTokenStart[index], mTokenEnd[index]);
+	}
+
+	/**
+	 * Parses a face vertex such as {@code 1/2/3}, {@code 1//3}, {@code 1/2} or {@code 1}. Missing
+	 * indices are returned as 0, which isn't a valid OBJ index.
+	 *
+	 * @param index {@code int} Index of the token.
+	 * @param indices {@code int[]} Receives the vertex, texture coordinate and normal indices.
+	 * @return {@code int} The number of fields in the token, including empty ones.
+	 * @throws NumberFormatException if an index isn't an integer.
+	 */
+	public int getFaceIndices(int index, int[] indices) {
+		checkIndex(index);
+		final int end = mTokenEnd[index];
+		int start = mTokenStart[index];
+		int field = 0;
+		indices[0] = indices[1] = indices[2] = 0;
+		for (int i = start; i <= end; ++i) {
+			if (i == end || mLine[i] == '/') {
+				if (field < 3 && i > start)
+					indices[field] = parseInt(start, i);
+				++field;
+				start = i + 1;
+			}
+		}
+		return field;
+	}
+
+	private int parseInt(int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (mLine[i] == '-' || mLine[i] == '+')) {
+			negative = mLine[i] == '-';
+			++i;
+		}
+		if (i == end || end - i > 9)
+			return Integer.parseInt(new String(mLine, start, end - start, UTF8));
+		int value = 0;
+		for (; i < end; ++i) {
+			final int digit = mLine[i] - '0';
+			if (digit < 0 || digit > 9)
+				throw new NumberFormatException("For input string: \"" + new String(mLine, start, end - start, UTF8) + "\"");
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	private void checkIndex(int index) {
+		if (index >= mTokenCount)
+			throw new IndexOutOfBoundsException("Token " + index + " of " + mTokenCount);
+	}
+
+	/**
+	 * Copies the next line into the line buffer, without the line break.
+	 */
+	private boolean readLine() throws IOException {
+		mLineLength = 0;
+		boolean read = false;
+		while (true) {
+			if (mBufferPosition == mBufferLength) {
+				mBufferLength = mStream.read(mBuffer, 0, mBuffer.length);
+				mBufferPosition = 0;
+				if (mBufferLength <= 0) {
+					mBufferLength = 0;
+					return read;
+				}
+			}
+			read = true;
+			final byte b = mBuffer[mBufferPosition++];
+			if (b == '\n' || b == '\r')
+				return true;
+			if (mLineLength == mLine.length)
+				mLine = Arrays.copyOf(mLine, mLineLength << 1);
+			mLine[mLineLength++] = b;
+		}
+	}
+
+	private void split() {
+		mTokenCount = 0;
+		int i = 0;
+		while (i < mLineLength) {
+			while (i < mLineLength && isSeparator(mLine[i])) ++i;
+			if (i == mLineLength)
+				break;
+			if (mTokenCount == mTokenStart.length) {
+				mTokenStart = Arrays.copyOf(mTokenStart, mTokenCount << 1);
+				mTokenEnd = Arrays.copyOf(mTokenEnd, mTokenCount << 1);
+			}
+			mTokenStart[mTokenCount] = i;
+			while (i < mLineLength && !isSeparator(mLine[i])) ++i;
+			mTokenEnd[mTokenCount++] = i;
+		}
+	}
+
+	private static boolean isSeparator(byte b) {
+		return b == ' ' || b == '\t';
+	}
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.loader;
+
+import java.util.Arrays;
+
+/**
+ * Hash set of vertex keys which gives each distinct key a vertex index. A key is a fixed number of
+ * ints, such as the position, texture coordinate and normal indices of an OBJ face vertex, or the
+ * bits of the attribute values ({@link Float#floatToIntBits(float)}).
+ *
+ * <pre>
+ * int[] key = new int[3];
+ * for (int i = 0; i &lt; numCorners; i++) {
+ *     key[0] = positionIndex; key[1] = texCoordIndex; key[2] = normalIndex;
+ *     indices[i] = welder.weld(key);
+ * }
+ * </pre>
+ */
+public class VertexWelder {
+
+	private final int mKeySize;
+	private int[] mKeys;
+	private int mVertexCount;
+	/**
+	 * Open addressing table of vertex index + 1, 0 is an empty slot.
+	 */
+	private int[] mTable;
+	private int mMask;
+
+	/**
+	 * @param keySize {@code int} Number of ints in a key.
+	 * @param expectedVertices {@code int} Expected number of distinct vertices.
+	 */
+	public VertexWelder(int keySize, int expectedVertices) {
+		mKeySize = keySize;
+		mKeys = new int[Math.max(expectedVertices, 16) * keySize];
+		int tableSize = Integer.highestOneBit(Math.max(expectedVertices, 16) * 2 - 1) << 1;
+		mTable = new int[tableSize];
+		mMask = tableSize - 1;
+	}
+
+	/**
+	 * Returns the vertex index of a key, adding it if it wasn't seen before.
+	 *
+	 * @param key {@code int[]} The key, which is copied.
+	 * @return {@code int} Vertex index, in the order keys were first added.
+	 */
+	public int weld(int[] key) {
+		int slot = hash(key, 0) & mMask;
+		while (mTable[slot] != 0) {
+			final int vertex = mTable[slot] - 1;
+			if (equals(key, vertex))
+				return vertex;
+			slot = (slot + 1) & mMask;
+		}
+
+		final int vertex = mVertexCount++;
+		if (mVertexCount * mKeySize > mKeys.length)
+			mKeys = Arrays.copyOf(mKeys, mKeys.length << 1);
+		System.arraycopy(key, 0, mKeys, vertex * mKeySize, mKeySize);
+		mTable[slot] = vertex + 1;
+		if (mVertexCount * 2 > mTable.length)
+			rehash();
+		return vertex;
+	}
+
+	/**
+	 * @return {@code int} Number of distinct keys.
+	 */
+	public int getVertexCount() {
+		return mVertexCount;
+	}
+
+	/**
+	 * @param vertex {@code int} Vertex index returned by {@link #weld(int[])}.
+	 * @param component {@code int} Index in the key.
+	 */
+	public int getKey(int vertex, int component) {
+		return mKeys[vertex * mKeySize + component];
+	}
+
+	private boolean equals(int[] key, int vertex) {
+		final int offset = vertex * mKeySize;
+		for (int i = 0; i < mKeySize; ++i) {
+			if (mKeys[offset + i] != key[i])
+				return false;
+		}
+		return true;
+	}
+
+	private int hash(int[] keys, int offset) {
+		int h = 0;
+		for (int i = 0; i < mKeySize; ++i) {
+			h = h * 31 + keys[offset + i];
+		}
+		// Spread the bits, the low ones select the slot
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+
+	private void rehash() {
+		mTable = new int[mTable.length << 1];
+		mMask = mTable.length - 1;
+		for (int vertex = 0; vertex < mVertexCount; ++vertex) {
+			int slot = hash(mKeys, vertex * mKeySize) & mMask;
+			while (mTable[slot] != 0) {
+				slot = (slot + 1) & mMask;
+			}
+			mTable[slot] = vertex + 1;
+		}
+	}
+}
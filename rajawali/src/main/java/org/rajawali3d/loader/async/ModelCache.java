@@ -0,0 +1,213 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.loader.async;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import org.rajawali3d.Object3D;
+import org.rajawali3d.loader.ALoader;
+import org.rajawali3d.loader.IMeshLoader;
+import org.rajawali3d.renderer.Renderer;
+import org.rajawali3d.util.RajLog;
+
+/**
+ * Cache of parsed models keyed by resource ID. Models are parsed in the background with
+ * {@link Renderer#loadModel(Class, IAsyncLoaderCallback, int)}, so the GL thread doesn't stall while
+ * a model file is read. Each resource is parsed once, however many times it is requested.
+ * <p>
+ * {@link #get(int)} returns a new clone of the parsed model. Clones share the geometry buffers of
+ * the parsed model, so any number of them can be created cheaply. Poll {@link #isLoaded(int)} or
+ * {@link #getProgress()} from the render loop, or set an {@link OnModelCacheListener}. The listener
+ * is called on the main thread.
+ *
+ * <pre>
+ * mModelCache = new ModelCache(this);
+ * mModelCache.preload(LoaderAWD.class, R.raw.dark_fighter);
+ * // later, in onRender()
+ * if (mModelCache.isLoaded(R.raw.dark_fighter)) {
+ *     getCurrentScene().addChild(mModelCache.get(R.raw.dark_fighter));
+ * }
+ * </pre>
+ */
+public class ModelCache implements IAsyncLoaderCallback {
+
+	public static final int STATE_NONE = 0;
+	public static final int STATE_LOADING = 1;
+	public static final int STATE_LOADED = 2;
+	public static final int STATE_FAILED = 3;
+
+	/**
+	 * Listener of loading progress.
+	 */
+	public interface OnModelCacheListener {
+		/**
+		 * Called on the main thread when a requested model finished loading or failed.
+		 *
+		 * @param cache {@link ModelCache} The cache.
+		 * @param resourceId {@code int} Resource ID of the model.
+		 * @param success {@code boolean} Whether the model was parsed.
+		 */
+		void onModelCacheProgress(ModelCache cache, int resourceId, boolean success);
+	}
+
+	private final Renderer mRenderer;
+	private final SparseIntArray mStates = new SparseIntArray();
+	private final SparseArray<Object3D> mModels = new SparseArray<>();
+	private OnModelCacheListener mListener;
+	private int mRequestedCount;
+	private int mLoadedCount;
+	private int mFailedCount;
+
+	public ModelCache(Renderer renderer) {
+		mRenderer = renderer;
+	}
+
+	public synchronized void setOnModelCacheListener(OnModelCacheListener listener) {
+		mListener = listener;
+	}
+
+	/**
+	 * Queues parsing of a model. Does nothing if the model was requested before.
+	 *
+	 * @param loaderClass {@link ALoader} class with a (Resources, TextureManager, int) constructor which
+	 *                    implements {@link IMeshLoader}, such as LoaderOBJ or LoaderAWD.
+	 * @param resourceId {@code int} Resource ID of the model file.
+	 */
+	public void preload(Class<? extends ALoader> loaderClass, int resourceId) {
+		synchronized (this) {
+			if (mStates.get(resourceId, STATE_NONE) != STATE_NONE) return;
+			mStates.put(resourceId, STATE_LOADING);
+			mRequestedCount++;
+		}
+		if (mRenderer.loadModel(loaderClass, this, resourceId, resourceId) == null) {
+			// The loader couldn't be created
+			finish(resourceId, null);
+		}
+	}
+
+	/**
+	 * Queues parsing of a model with a loader which was set up by the caller, for example with
+	 * {@link org.rajawali3d.loader.AMeshLoader#setWeldVertices(boolean)}. Does nothing if the model
+	 * was requested before.
+	 *
+	 * @param loader {@link ALoader} Loader for the resource which implements {@link IMeshLoader}.
+	 * @param resourceId {@code int} Resource ID of the model file.
+	 */
+	public void preload(ALoader loader, int resourceId) {
+		synchronized (this) {
+			if (mStates.get(resourceId, STATE_NONE) != STATE_NONE) return;
+			mStates.put(resourceId, STATE_LOADING);
+			mRequestedCount++;
+		}
+		mRenderer.loadModel(loader, this, resourceId);
+	}
+
+	/**
+	 * @param resourceId {@code int} Resource ID of the model file.
+	 * @return {@code int} One of the {@code STATE_} constants.
+	 */
+	public synchronized int getState(int resourceId) {
+		return mStates.get(resourceId, STATE_NONE);
+	}
+
+	public synchronized boolean isLoaded(int resourceId) {
+		return mStates.get(resourceId, STATE_NONE) == STATE_LOADED;
+	}
+
+	/**
+	 * @param resourceId {@code int} Resource ID of the model file.
+	 * @return {@code true} if the model is loaded or failed to load.
+	 */
+	public synchronized boolean isDone(int resourceId) {
+		final int state = mStates.get(resourceId, STATE_NONE);
+		return state == STATE_LOADED || state == STATE_FAILED;
+	}
+
+	/**
+	 * Returns the parsed model which clones are made from. Changes to it show up in clones made
+	 * afterwards, so set up shared state such as materials here.
+	 *
+	 * @param resourceId {@code int} Resource ID of the model file.
+	 * @return {@link Object3D} The parsed model or null if it isn't loaded.
+	 */
+	public synchronized Object3D getPrototype(int resourceId) {
+		return mModels.get(resourceId);
+	}
+
+	/**
+	 * Returns a clone of the parsed model, including children and material. The clone shares the
+	 * geometry buffers of the parsed model.
+	 *
+	 * @param resourceId {@code int} Resource ID of the model file.
+	 * @return {@link Object3D} A new clone or null if the model isn't loaded.
+	 */
+	public Object3D get(int resourceId) {
+		final Object3D prototype = getPrototype(resourceId);
+		return prototype == null ? null : prototype.clone(true, true);
+	}
+
+	public synchronized int getRequestedCount() {
+		return mRequestedCount;
+	}
+
+	public synchronized int getLoadedCount() {
+		return mLoadedCount;
+	}
+
+	public synchronized int getFailedCount() {
+		return mFailedCount;
+	}
+
+	/**
+	 * @return {@code float} Fraction of requested models which finished loading or failed, 0 to 1.
+	 * 1 if nothing was requested.
+	 */
+	public synchronized float getProgress() {
+		if (mRequestedCount == 0) return 1;
+		return (mLoadedCount + mFailedCount) / (float) mRequestedCount;
+	}
+
+	@Override
+	public void onModelLoadComplete(ALoader loader) {
+		finish(loader.getTag(), ((IMeshLoader) loader).getParsedObject());
+	}
+
+	@Override
+	public void onModelLoadFailed(ALoader loader) {
+		// A null loader is handled in preload()
+		if (loader != null) {
+			finish(loader.getTag(), null);
+		}
+	}
+
+	private void finish(int resourceId, Object3D model) {
+		final OnModelCacheListener listener;
+		synchronized (this) {
+			if (mStates.get(resourceId, STATE_NONE) != STATE_LOADING) return;
+			if (model != null) {
+				mModels.put(resourceId, model);
+				mStates.put(resourceId, STATE_LOADED);
+				mLoadedCount++;
+			} else {
+				mStates.put(resourceId, STATE_FAILED);
+				mFailedCount++;
+			}
+			listener = mListener;
+		}
+		if (model == null) {
+			RajLog.e("[" + getClass().getName() + "] Failed to load model " + resourceId);
+		}
+		if (listener != null) listener.onModelCacheProgress(this, resourceId, model != null);
+	}
+}
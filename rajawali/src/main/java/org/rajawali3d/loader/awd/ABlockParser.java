@@ -27,19 +27,26 @@ public abstract class ABlockParser implements IBlockParser {
 
 	private static Bitmap defaultTextureBitmap;
 
-	static {
-		defaultTextureBitmap = Bitmap.createBitmap(BITMAP_SIZE, BITMAP_SIZE, Config.RGB_565);
-
-		// Draw a checker board pattern
-		for (int i = 0; i < BITMAP_SIZE; ++i) {
-			for (int j = 0; j < BITMAP_SIZE; ++j)
-				defaultTextureBitmap.setPixel(i, j, ((j & 1) ^ (i & 1)) == 1 ? 0xFFFFFF : 0);
+	/**
+	 * The checker board bitmap of the default textures, created when a block first needs it.
+	 */
+	private static synchronized Bitmap getDefaultTextureBitmap() {
+		if (defaultTextureBitmap == null) {
+			defaultTextureBitmap = Bitmap.createBitmap(BITMAP_SIZE, BITMAP_SIZE, Config.RGB_565);
+
+			// Draw a checker board pattern
+			for (int i = 0; i < BITMAP_SIZE; ++i) {
+				for (int j = 0; j < BITMAP_SIZE; ++j)
+					defaultTextureBitmap.setPixel(i, j, ((j & 1) ^ (i & 1)) == 1 ? 0xFFFFFF : 0);
+			}
 		}
+		return defaultTextureBitmap;
 	}
 
 	protected static ATexture getDefaultCubeMapTexture() {
-		return new CubeMapTexture("DefaultCubeMapTexture", new Bitmap[] { defaultTextureBitmap, defaultTextureBitmap,
-				defaultTextureBitmap, defaultTextureBitmap, defaultTextureBitmap, defaultTextureBitmap });
+		final Bitmap bitmap = getDefaultTextureBitmap();
+		return new CubeMapTexture("DefaultCubeMapTexture", new Bitmap[] { bitmap, bitmap, bitmap, bitmap, bitmap,
+				bitmap });
 	}
 
 	protected static Material getDefaultMaterial() {
@@ -47,6 +54,6 @@ public abstract class ABlockParser implements IBlockParser {
 	}
 
 	protected static ATexture getDefaultTexture() {
-		return new Texture("AWD_DefaultTexture", defaultTextureBitmap);
+		return new Texture("AWD_DefaultTexture", getDefaultTextureBitmap());
 	}
 }
@@ -39,6 +39,8 @@ import org.rajawali3d.materials.textures.CubeMapTexture;
 import org.rajawali3d.materials.textures.SphereMapTexture;
 import org.rajawali3d.materials.textures.TextureManager;
 import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.renderer.GLStateTracker;
+import org.rajawali3d.renderer.IGLES;
 import org.rajawali3d.renderer.Renderer;
 import org.rajawali3d.scene.Scene;
 import org.rajawali3d.util.Capabilities;
@@ -478,7 +480,7 @@ public class Material {
         if (Renderer.hasGLContext()) {
             GLES20.glDeleteShader(mVShaderHandle);
             GLES20.glDeleteShader(mFShaderHandle);
-            GLES20.glDeleteProgram(mProgramHandle);
+            GLStateTracker.getInstance().glDeleteProgram(mProgramHandle);
         }
     }
 
@@ -780,7 +782,7 @@ public class Material {
             if (linkStatus[0] != GLES20.GL_TRUE) {
                 RajLog.e("Could not link program in " + getClass().getCanonicalName() + ": ");
                 RajLog.e(GLES20.glGetProgramInfoLog(program));
-                GLES20.glDeleteProgram(program);
+                GLStateTracker.getInstance().glDeleteProgram(program);
                 program = 0;
             }
         }
@@ -794,7 +796,7 @@ public class Material {
         if (mIsDirty) {
             createShaders();
         }
-        GLES20.glUseProgram(mProgramHandle);
+        GLStateTracker.getInstance().glUseProgram(mProgramHandle);
     }
 
     /**
@@ -868,8 +870,8 @@ public class Material {
         if (!mTextureHandles.containsKey(texture.getTextureName())) {
             setTextureParameters(texture);
         }
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0 + index);
-        GLES20.glBindTexture(texture.getGLTextureType(), texture.getTextureId());
+        GLStateTracker.getInstance().glActiveTexture(GLES20.GL_TEXTURE0 + index);
+        GLStateTracker.getInstance().glBindTexture(texture.getGLTextureType(), texture.getTextureId());
         GLES20.glUniform1i(mTextureHandles.get(texture.getTextureName()), index);
     }
 
@@ -877,8 +879,8 @@ public class Material {
         if (!mTextureHandles.containsKey(texture.getTextureName())) {
             setTextureHandleForName(name);
         }
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0 + index);
-        GLES20.glBindTexture(texture.getGLTextureType(), texture.getTextureId());
+        GLStateTracker.getInstance().glActiveTexture(GLES20.GL_TEXTURE0 + index);
+        GLStateTracker.getInstance().glBindTexture(texture.getGLTextureType(), texture.getTextureId());
         GLES20.glUniform1i(mTextureHandles.get(name), index);
     }
 
@@ -894,10 +896,10 @@ public class Material {
 
         for (int i = 0; i < num; i++) {
             ATexture texture = mTextureList.get(i);
-            GLES20.glBindTexture(texture.getGLTextureType(), 0);
+            GLStateTracker.getInstance().glBindTexture(texture.getGLTextureType(), 0);
         }
 
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
     }
 
     /**
@@ -1025,6 +1027,21 @@ public class Material {
         mVertexShader.setVertexColors(bufferInfo.bufferHandle, bufferInfo.type, bufferInfo.stride, bufferInfo.offset);
     }
 
+    /**
+     * Sets up all vertex attributes of a geometry. This is passed to
+     * {@link VertexShader#setVertexAttributes(IGLES, BufferInfo, BufferInfo, BufferInfo, BufferInfo)}
+     *
+     * @param gl {@link IGLES} The GL calls.
+     * @param vertices {@link BufferInfo} Positions.
+     * @param normals {@link BufferInfo} Normals or null.
+     * @param textureCoords {@link BufferInfo} Texture coordinates or null.
+     * @param vertexColors {@link BufferInfo} Vertex colors or null.
+     */
+    public void setVertexAttributes(IGLES gl, BufferInfo vertices, BufferInfo normals, BufferInfo textureCoords,
+                                    BufferInfo vertexColors) {
+        mVertexShader.setVertexAttributes(gl, vertices, normals, textureCoords, vertexColors);
+    }
+
     /**
      * Returns the model view matrix. The model view matrix is used to transform vertices to eye coordinates.
      *
@@ -1034,6 +1051,16 @@ public class Material {
         return mModelMatrix;
     }
 
+    /**
+     * Returns the vertex shader of this material. Only valid after the shaders have been created
+     * by {@link #useProgram()}.
+     *
+     * @return
+     */
+    public VertexShader getVertexShader() {
+        return mVertexShader;
+    }
+
     /**
      * Sets the model view projection matrix. The model view projection matrix is used to transform vertices
      * to screen coordinates.
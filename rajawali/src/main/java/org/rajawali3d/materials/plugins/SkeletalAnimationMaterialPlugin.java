@@ -46,7 +46,7 @@ import org.rajawali3d.materials.shaders.fragments.animation.SkeletalAnimationVer
  * 			mMaterialPlugin.setBone2Indices(mboneIndexes2BufferInfo.bufferHandle);
  * 			mMaterialPlugin.setBone2Weights(mboneWeights2BufferInfo.bufferHandle);
  * 		}
- * 		mMaterialPlugin.setBoneMatrix(mSkeleton.uBoneMatrix);
+ * 		mMaterialPlugin.setBoneMatrix(mSkeleton.getPoseMatrices());
  * 	}
  * </code></pre>
  * 
@@ -117,6 +117,10 @@ public class SkeletalAnimationMaterialPlugin implements IMaterialPlugin {
 	public void setBoneMatrix(double[] boneMatrix) {
 		mVertexShader.setBoneMatrix(boneMatrix);
 	}
+
+	public void setBoneMatrix(float[] boneMatrix) {
+		mVertexShader.setBoneMatrix(boneMatrix);
+	}
 	
 	@Override
 	public void bindTextures(int nextIndex) {}
@@ -12,12 +12,13 @@
  */
 package org.rajawali3d.materials.shaders;
 
-import android.opengl.GLES20;
-
+import org.rajawali3d.renderer.GLStateTracker;
+import org.rajawali3d.renderer.IGLES;
 import org.rajawali3d.util.RajLog;
 import org.rajawali3d.util.RawShaderLoader;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
@@ -167,6 +168,17 @@ public abstract class AShader extends AShaderBase {
 	protected int mProgramHandle;
 	protected boolean mNeedsBuild = true;
 
+	/**
+	 * Number of uniform and attribute location queries made by all shaders since the last reset
+	 */
+	private static int sLocationQueryCount;
+
+	private IGLES mGL = GLStateTracker.getInstance();
+	// Locations in the program they were queried for, reset when the program is linked
+	private final HashMap<String, Integer> mUniformLocations = new HashMap<>();
+	private final HashMap<String, Integer> mAttribLocations = new HashMap<>();
+	private int mLocationsProgramHandle;
+
 	public AShader() {}
 
 	public AShader(ShaderType shaderType) {
@@ -286,28 +298,48 @@ public abstract class AShader extends AShaderBase {
 		return v;
 	}
 
+	/**
+	 * Sets a uniform by name. The location is looked up once per program and then cached, use
+	 * {@link #getUniformLocation(String)} and the setters which take a handle to skip the lookup.
+	 */
 	public void setUniform1f(String name, float value)
 	{
-		int handle = getUniformLocation(mProgramHandle, name);
-		GLES20.glUniform1f(handle, value);
+		setUniform1f(getUniformLocation(name), value);
 	}
 
 	public void setUniform2fv(String name, float[] value)
 	{
-		int handle = getUniformLocation(mProgramHandle, name);
-		GLES20.glUniform2fv(handle, 1, value, 0);
+		setUniform2fv(getUniformLocation(name), value);
 	}
 
 	public void setUniform3fv(String name, float[] value)
 	{
-		int handle = getUniformLocation(mProgramHandle, name);
-		GLES20.glUniform3fv(handle, 1, value, 0);
+		setUniform3fv(getUniformLocation(name), value);
 	}
 
 	public void setUniform1i(String name, int value)
 	{
-		int handle = getUniformLocation(mProgramHandle, name);
-		GLES20.glUniform1i(handle, value);
+		setUniform1i(getUniformLocation(name), value);
+	}
+
+	public void setUniform1f(int handle, float value)
+	{
+		mGL.glUniform1f(handle, value);
+	}
+
+	public void setUniform2fv(int handle, float[] value)
+	{
+		mGL.glUniform2fv(handle, 1, value, 0);
+	}
+
+	public void setUniform3fv(int handle, float[] value)
+	{
+		mGL.glUniform3fv(handle, 1, value, 0);
+	}
+
+	public void setUniform1i(int handle, int value)
+	{
+		mGL.glUniform1i(handle, value);
 	}
 
 	/**
@@ -554,12 +586,70 @@ public abstract class AShader extends AShaderBase {
 		return mConstants;
 	}
 
+	/**
+	 * Called when the program is linked. Looks up the locations of the uniforms and attributes
+	 * added to this shader, so setting them by name doesn't query the program while rendering.
+	 */
 	public void setLocations(final int programHandle)
 	{
 		mProgramHandle = programHandle;
+		clearLocations();
+		if(mUniforms != null)
+			for(String name : mUniforms.keySet())
+				getUniformLocation(programHandle, name);
+		if(mAttributes != null)
+			for(String name : mAttributes.keySet())
+				getAttribLocation(programHandle, name);
+
 		if(mShaderFragments != null)
 			for(int i=0; i<mShaderFragments.size(); i++)
-				mShaderFragments.get(i).setLocations(programHandle);
+			{
+				IShaderFragment fragment = mShaderFragments.get(i);
+				// The program may have been linked again with the same handle
+				if(fragment instanceof AShader)
+					((AShader) fragment).clearLocations();
+				fragment.setLocations(programHandle);
+			}
+	}
+
+	private void clearLocations() {
+		mUniformLocations.clear();
+		mAttribLocations.clear();
+		mLocationsProgramHandle = 0;
+	}
+
+	/**
+	 * Replaces the GL implementation used for locations and uniforms. Used by tests.
+	 *
+	 * @param gl {@link IGLES} implementation.
+	 */
+	public void setGL(IGLES gl) {
+		mGL = gl;
+	}
+
+	/**
+	 * Returns the number of uniform and attribute location queries all shaders made since the
+	 * last {@link #resetLocationQueryCount()}. Once every program is linked this stays at 0.
+	 *
+	 * @return int The number of glGetUniformLocation and glGetAttribLocation calls.
+	 */
+	public static int getLocationQueryCount() {
+		return sLocationQueryCount;
+	}
+
+	public static void resetLocationQueryCount() {
+		sLocationQueryCount = 0;
+	}
+
+	/**
+	 * Returns the location of a uniform in the program of this shader, from the cache if it was
+	 * looked up before.
+	 *
+	 * @param name The name of the uniform.
+	 * @return int The location of the uniform, or -1 if the program has no active uniform by that name.
+	 */
+	public int getUniformLocation(String name) {
+		return getUniformLocation(mProgramHandle, name);
 	}
 
 	protected int getUniformLocation(int programHandle, IGlobalShaderVar var) {
@@ -575,9 +665,18 @@ public abstract class AShader extends AShaderBase {
 	}
 
 	protected int getUniformLocation(int programHandle, String name) {
-		int result = GLES20.glGetUniformLocation(programHandle, name);
-        if (result < 0 && RajLog.isDebugEnabled()) RajLog.e("Getting location of uniform: " + name + " returned -1!");
-		return result;
+		if(programHandle != mLocationsProgramHandle) {
+			clearLocations();
+			mLocationsProgramHandle = programHandle;
+		}
+		Integer location = mUniformLocations.get(name);
+		if(location == null) {
+			++sLocationQueryCount;
+			location = mGL.glGetUniformLocation(programHandle, name);
+			if (location < 0 && RajLog.isDebugEnabled()) RajLog.e("Getting location of uniform: " + name + " returned -1!");
+			mUniformLocations.put(name, location);
+		}
+		return location;
 	}
 
 	protected int getAttribLocation(int programHandle, IGlobalShaderVar var) {
@@ -589,8 +688,17 @@ public abstract class AShader extends AShaderBase {
 	}
 
 	protected int getAttribLocation(int programHandle, String name) {
-		int result = GLES20.glGetAttribLocation(programHandle, name);
-		return result;
+		if(programHandle != mLocationsProgramHandle) {
+			clearLocations();
+			mLocationsProgramHandle = programHandle;
+		}
+		Integer location = mAttribLocations.get(name);
+		if(location == null) {
+			++sLocationQueryCount;
+			location = mGL.glGetAttribLocation(programHandle, name);
+			mAttribLocations.put(name, location);
+		}
+		return location;
 	}
 
 	public void addShaderFragment(IShaderFragment fragment)
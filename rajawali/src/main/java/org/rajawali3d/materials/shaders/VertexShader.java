@@ -15,11 +15,14 @@ package org.rajawali3d.materials.shaders;
 import android.graphics.Color;
 import android.opengl.GLES20;
 
+import org.rajawali3d.BufferInfo;
 import org.rajawali3d.lights.ALight;
 import org.rajawali3d.materials.Material.PluginInsertLocation;
 import org.rajawali3d.materials.plugins.SkeletalAnimationMaterialPlugin.SkeletalAnimationShaderVar;
 import org.rajawali3d.materials.shaders.fragments.animation.SkeletalAnimationVertexShaderFragment;
 import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.renderer.GLStateTracker;
+import org.rajawali3d.renderer.IGLES;
 import org.rajawali3d.util.RajLog;
 
 import java.util.List;
@@ -214,7 +217,7 @@ public class VertexShader extends AShader {
     }
 
 	public void setVertices(final int vertexBufferHandle, final int type, final int stride, final int offset) {
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vertexBufferHandle);
+		GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, vertexBufferHandle);
 		GLES20.glEnableVertexAttribArray(maPositionHandle);
 		GLES20.glVertexAttribPointer(maPositionHandle, 3, type, false, stride, offset);
 	}
@@ -225,7 +228,7 @@ public class VertexShader extends AShader {
 
 	public void setTextureCoords(final int textureCoordBufferHandle, final int type, final int stride, final int offset) {
 		if(maTextureCoordHandle < 0) return;
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, textureCoordBufferHandle);
+		GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, textureCoordBufferHandle);
 		GLES20.glEnableVertexAttribArray(maTextureCoordHandle);
 		GLES20.glVertexAttribPointer(maTextureCoordHandle, 2, type, false, stride, offset);
 	}
@@ -236,7 +239,7 @@ public class VertexShader extends AShader {
 
 	public void setNormals(final int normalBufferHandle, final int type, final int stride, final int offset) {
 		if(maNormalHandle < 0) return;
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, normalBufferHandle);
+		GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, normalBufferHandle);
 		GLES20.glEnableVertexAttribArray(maNormalHandle);
 		GLES20.glVertexAttribPointer(maNormalHandle, 3, type, false, stride, offset);
 	}
@@ -247,11 +250,63 @@ public class VertexShader extends AShader {
 
 	public void setVertexColors(final int vertexColorBufferHandle, final int type, final int stride, final int offset) {
 		if(maVertexColorBufferHandle < 0) return;
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vertexColorBufferHandle);
+		GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, vertexColorBufferHandle);
 		GLES20.glEnableVertexAttribArray(maVertexColorBufferHandle);
 		GLES20.glVertexAttribPointer(maVertexColorBufferHandle, 4, type, false, stride, offset);
 	}
 
+	/**
+	 * Sets up the position, normal, texture coordinate and vertex color attributes in one go. The
+	 * array buffer is only bound when it changes, so attributes which share a buffer, such as those
+	 * of an interleaved {@link org.rajawali3d.Geometry3D}, bind it once.
+	 *
+	 * @param gl {@link IGLES} The GL calls.
+	 * @param vertices {@link BufferInfo} Positions.
+	 * @param normals {@link BufferInfo} Normals or null.
+	 * @param textureCoords {@link BufferInfo} Texture coordinates or null.
+	 * @param vertexColors {@link BufferInfo} Vertex colors or null.
+	 */
+	public void setVertexAttributes(final IGLES gl, final BufferInfo vertices, final BufferInfo normals,
+									final BufferInfo textureCoords, final BufferInfo vertexColors) {
+		int boundBuffer = setAttribute(gl, -1, maPositionHandle, 3, vertices);
+		if(normals != null)
+			boundBuffer = setAttribute(gl, boundBuffer, maNormalHandle, 3, normals);
+		if(textureCoords != null)
+			boundBuffer = setAttribute(gl, boundBuffer, maTextureCoordHandle, 2, textureCoords);
+		if(vertexColors != null)
+			setAttribute(gl, boundBuffer, maVertexColorBufferHandle, 4, vertexColors);
+	}
+
+	private static int setAttribute(final IGLES gl, final int boundBuffer, final int handle, final int size,
+									final BufferInfo info) {
+		if(handle < 0) return boundBuffer;
+		if(info.bufferHandle != boundBuffer)
+			gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, info.bufferHandle);
+		gl.glEnableVertexAttribArray(handle);
+		gl.glVertexAttribPointer(handle, size, info.type, false, info.stride, info.offset);
+		return info.bufferHandle;
+	}
+
+	public int getMVPMatrixHandle() {
+		return muMVPMatrixHandle;
+	}
+
+	public int getModelMatrixHandle() {
+		return muModelMatrixHandle;
+	}
+
+	public int getModelViewMatrixHandle() {
+		return muModelViewMatrixHandle;
+	}
+
+	public int getNormalMatrixHandle() {
+		return muNormalMatrixHandle;
+	}
+
+	public int getColorHandle() {
+		return muColorHandle;
+	}
+
 	public void setMVPMatrix(float[] mvpMatrix) {
 		GLES20.glUniformMatrix4fv(muMVPMatrixHandle, 1, false, mvpMatrix, 0);
 	}
@@ -16,6 +16,7 @@ import org.rajawali3d.materials.Material.PluginInsertLocation;
 import org.rajawali3d.materials.plugins.VertexAnimationMaterialPlugin.VertexAnimationShaderVar;
 import org.rajawali3d.materials.shaders.AShader;
 import org.rajawali3d.materials.shaders.IShaderFragment;
+import org.rajawali3d.renderer.GLStateTracker;
 import android.opengl.GLES20;
 
 public class VertexAnimationVertexShaderFragment extends AShader implements IShaderFragment {
@@ -77,7 +78,7 @@ public class VertexAnimationVertexShaderFragment extends AShader implements ISha
 
 	public void setNextFrameVertices(final int vertexBufferHandle)
 	{
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vertexBufferHandle);
+		GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, vertexBufferHandle);
 		GLES20.glEnableVertexAttribArray(maNextFramePositionHandle);
 		GLES20.glVertexAttribPointer(maNextFramePositionHandle, 3, GLES20.GL_FLOAT,
 				false, 0, 0);
@@ -85,7 +86,7 @@ public class VertexAnimationVertexShaderFragment extends AShader implements ISha
 
 	public void setNextFrameNormals(final int normalBufferHandle)
 	{
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, normalBufferHandle);
+		GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, normalBufferHandle);
 		GLES20.glEnableVertexAttribArray(maNextFrameNormalHandle);
 		GLES20.glVertexAttribPointer(maNextFrameNormalHandle, 3, GLES20.GL_FLOAT,
 				false, 0, 0);
@@ -16,6 +16,7 @@ import java.nio.ByteBuffer;
 
 import android.opengl.GLES20;
 
+import org.rajawali3d.renderer.GLStateTracker;
 import org.rajawali3d.util.RajLog;
 
 public abstract class ACompressedTexture extends ATexture {
@@ -139,7 +140,7 @@ public abstract class ACompressedTexture extends ATexture {
 		int textureId = textures[0];
 		if (textureId > 0)
 		{
-			GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
+			GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
 
 			if (mFilterType == FilterType.LINEAR)
 				GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
@@ -180,12 +181,12 @@ public abstract class ACompressedTexture extends ATexture {
 			}
 		}
 
-		GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+		GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, 0);
 	}
 
 	void remove() throws TextureException
 	{
-		GLES20.glDeleteTextures(1, new int[] { mTextureId }, 0);
+		GLStateTracker.getInstance().glDeleteTextures(1, new int[] { mTextureId }, 0);
 	}
 
 	void replace() throws TextureException
@@ -197,7 +198,7 @@ public abstract class ACompressedTexture extends ATexture {
 			throw new TextureException(
 					"Could not update ByteBuffer texture. One or more of the following properties haven't been set: width or height");
 
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextureId);
+        GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, mTextureId);
 		int w = mWidth, h = mHeight;
 		for (int i = 0; i < mByteBuffers.length; i++) {
 			GLES20.glCompressedTexSubImage2D(GLES20.GL_TEXTURE_2D, i, 0, 0, w, h, mCompressionFormat,
@@ -205,7 +206,7 @@ public abstract class ACompressedTexture extends ATexture {
 			w = w > 1 ? w / 2 : 1;
 			h = h > 1 ? h / 2 : 1;
 		}
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, 0);
 	}
 
 	void reset() throws TextureException
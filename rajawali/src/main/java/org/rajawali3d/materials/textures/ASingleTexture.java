@@ -19,6 +19,8 @@ import android.graphics.BitmapFactory;
 import android.opengl.GLES20;
 import android.opengl.GLUtils;
 
+import org.rajawali3d.renderer.GLStateTracker;
+
 import java.nio.ByteBuffer;
 
 /**
@@ -144,7 +146,7 @@ public abstract class ASingleTexture extends ATexture
 
 		if (textureId > 0)
 		{
-			GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
+			GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
 
 			if (isMipmap())
 			{
@@ -205,7 +207,7 @@ public abstract class ASingleTexture extends ATexture
 			}
 		}
 
-		GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+		GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, 0);
 	}
 
 	void remove() throws TextureException
@@ -213,7 +215,7 @@ public abstract class ASingleTexture extends ATexture
 		if(mCompressedTexture != null)
 			mCompressedTexture.remove();
 		else
-			GLES20.glDeleteTextures(1, new int[] { mTextureId }, 0);
+			GLStateTracker.getInstance().glDeleteTextures(1, new int[] { mTextureId }, 0);
 	}
 
 	void replace() throws TextureException
@@ -230,7 +232,7 @@ public abstract class ASingleTexture extends ATexture
 		if (mBitmap == null && (mByteBuffer == null || mByteBuffer.limit() == 0))
 			throw new TextureException("Texture could not be replaced because there is no Bitmap or ByteBuffer set.");
 
-		GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextureId);
+		GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, mTextureId);
 
 		if (mBitmap != null)
 		{
@@ -251,7 +253,7 @@ public abstract class ASingleTexture extends ATexture
 		if (mMipmap)
 			GLES20.glGenerateMipmap(GLES20.GL_TEXTURE_2D);
 
-		GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+		GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, 0);
 	}
 
 	void reset() throws TextureException
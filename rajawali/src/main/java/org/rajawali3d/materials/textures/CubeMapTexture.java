@@ -17,6 +17,8 @@ import android.graphics.Bitmap.Config;
 import android.opengl.GLES20;
 import android.opengl.GLUtils;
 
+import org.rajawali3d.renderer.GLStateTracker;
+
 import java.nio.ByteBuffer;
 
 
@@ -148,7 +150,7 @@ public class CubeMapTexture extends AMultiTexture {
             mByteBuffers = null;
         }
 
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_CUBE_MAP, 0);
+        GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_CUBE_MAP, 0);
     }
 
     @Override
@@ -164,7 +166,7 @@ public class CubeMapTexture extends AMultiTexture {
         int textureId = genTextureNames[0];
 
         if (textureId > 0) {
-            GLES20.glBindTexture(GLES20.GL_TEXTURE_CUBE_MAP, textureId);
+            GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_CUBE_MAP, textureId);
             setTextureData();
             setTextureId(textureId);
         } else {
@@ -179,7 +181,7 @@ public class CubeMapTexture extends AMultiTexture {
                 mCompressedTextures[i].remove();
             }
         }
-        GLES20.glDeleteTextures(1, new int[]{mTextureId}, 0);
+        GLStateTracker.getInstance().glDeleteTextures(1, new int[]{mTextureId}, 0);
     }
 
     @Override
@@ -187,7 +189,7 @@ public class CubeMapTexture extends AMultiTexture {
         checkBitmapConfiguration();
 
         if (mTextureId > 0) {
-            GLES20.glBindTexture(GLES20.GL_TEXTURE_CUBE_MAP, mTextureId);
+            GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_CUBE_MAP, mTextureId);
             if(mHasCompressedTextures) {
                 for (int i = 0; i < 6; i++) {
                     ACompressedTexture tex = mCompressedTextures[i];
@@ -200,7 +202,7 @@ public class CubeMapTexture extends AMultiTexture {
                         h = h > 1 ? h / 2 : 1;
                     }
                 }
-                GLES20.glBindTexture(GLES20.GL_TEXTURE_CUBE_MAP, 0);
+                GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_CUBE_MAP, 0);
             } else {
                 setTextureData();
             }
@@ -19,6 +19,8 @@ import android.opengl.GLES11Ext;
 import android.opengl.GLES20;
 import android.view.Surface;
 
+import org.rajawali3d.renderer.GLStateTracker;
+
 import java.io.IOException;
 
 public class StreamingTexture extends ATexture {
@@ -67,7 +69,7 @@ public class StreamingTexture extends ATexture {
         int[] textures = new int[1];
         GLES20.glGenTextures(1, textures, 0);
         int textureId = textures[0];
-        GLES20.glBindTexture(GL_TEXTURE_EXTERNAL_OES, textureId);
+        GLStateTracker.getInstance().glBindTexture(GL_TEXTURE_EXTERNAL_OES, textureId);
         GLES20.glTexParameterf(GL_TEXTURE_EXTERNAL_OES,
             GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
         GLES20.glTexParameterf(GL_TEXTURE_EXTERNAL_OES,
@@ -94,7 +96,7 @@ public class StreamingTexture extends ATexture {
     }
 
     void remove() throws TextureException {
-        GLES20.glDeleteTextures(1, new int[]{mTextureId}, 0);
+        GLStateTracker.getInstance().glDeleteTextures(1, new int[]{mTextureId}, 0);
         mSurfaceTexture.release();
     }
 
@@ -111,8 +113,11 @@ public class StreamingTexture extends ATexture {
     }
 
     public void update() {
-        if (mSurfaceTexture != null)
+        if (mSurfaceTexture != null) {
             mSurfaceTexture.updateTexImage();
+            // updateTexImage() binds the texture to the active unit, let the state tracker know
+            GLStateTracker.getInstance().glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, mTextureId);
+        }
     }
 
     public void updateMediaPlayer(MediaPlayer mediaPlayer) {
@@ -18,6 +18,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.rajawali3d.materials.AResourceManager;
 import org.rajawali3d.materials.textures.ATexture.TextureException;
+import org.rajawali3d.renderer.GLStateTracker;
 import org.rajawali3d.renderer.Renderer;
 
 import android.opengl.GLES20;
@@ -240,7 +241,7 @@ public final class TextureManager extends AResourceManager {
 			}
 
 			if(Renderer.hasGLContext())
-				GLES20.glDeleteTextures(count, textures, 0);
+				GLStateTracker.getInstance().glDeleteTextures(count, textures, 0);
 
 			if (mRenderers.size() > 0) {
 				mRenderer = mRenderers.get(mRenderers.size() - 1);
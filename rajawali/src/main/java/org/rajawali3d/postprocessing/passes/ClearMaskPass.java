@@ -16,6 +16,7 @@ import android.opengl.GLES20;
 
 import org.rajawali3d.postprocessing.APass;
 import org.rajawali3d.primitives.ScreenQuad;
+import org.rajawali3d.renderer.GLStateTracker;
 import org.rajawali3d.renderer.Renderer;
 import org.rajawali3d.renderer.RenderTarget;
 import org.rajawali3d.scene.Scene;
@@ -33,6 +34,6 @@ public class ClearMaskPass extends APass {
 	@Override
 	public void render(Scene scene, Renderer renderer, ScreenQuad screenQuad, RenderTarget writeBuffer, RenderTarget readBuffer, long ellapsedTime, double deltaTime) {
 		// Disable stencil test so next rendering pass won't be masked.
-		GLES20.glDisable(GLES20.GL_STENCIL_TEST);
+		GLStateTracker.getInstance().glDisable(GLES20.GL_STENCIL_TEST);
 	}
 }
@@ -19,6 +19,7 @@ import android.opengl.GLES20;
 
 import org.rajawali3d.postprocessing.APass;
 import org.rajawali3d.primitives.ScreenQuad;
+import org.rajawali3d.renderer.GLStateTracker;
 import org.rajawali3d.renderer.Renderer;
 import org.rajawali3d.renderer.RenderTarget;
 import org.rajawali3d.scene.Scene;
@@ -60,7 +61,7 @@ public class MaskPass extends APass {
 	public void render(Scene scene, Renderer render, ScreenQuad screenQuad, RenderTarget writeBuffer, RenderTarget readBuffer, long ellapsedTime, double deltaTime) {
 		// Do not update color or depth.
 		GLES20.glColorMask(false, false, false, false);
-		GLES20.glDepthMask(false);
+		GLStateTracker.getInstance().glDepthMask(false);
 
 		// Set up stencil.
 		int writeValue, clearValue;
@@ -73,7 +74,7 @@ public class MaskPass extends APass {
 			clearValue = 0;
 		}
 
-		GLES20.glEnable(GLES20.GL_STENCIL_TEST);
+		GLStateTracker.getInstance().glEnable(GLES20.GL_STENCIL_TEST);
 		GLES20.glStencilOp(GLES20.GL_REPLACE, GLES20.GL_REPLACE, GLES20.GL_REPLACE);
 		GLES20.glStencilFunc(GLES20.GL_ALWAYS, writeValue, 0xffffffff);
 		GLES20.glClearStencil(clearValue);
@@ -84,7 +85,7 @@ public class MaskPass extends APass {
 
 		// Re-enable color and depth.
 		GLES20.glColorMask(true, true, true, true);
-		GLES20.glDepthMask(true);
+		GLStateTracker.getInstance().glDepthMask(true);
 
 		// Only render where stencil is set to 1.
 		GLES20.glStencilFunc(GLES20.GL_EQUAL, 1, 0xffffffff);
@@ -0,0 +1,366 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.renderer;
+
+import android.opengl.GLES20;
+
+/**
+ * {@link IGLES} which keeps a copy of the GL state it changed and drops calls that would set it to
+ * what it already is. It shadows the capabilities turned on and off with glEnable and glDisable,
+ * the cull face, front face, blend function, depth function and depth mask, the program in use,
+ * the bound array and element array buffers and the textures bound to each texture unit.
+ * <p>
+ * The copy is only right as long as every change goes through the tracker. Engine code uses
+ * {@link #getInstance()} instead of {@link GLES20} for these calls. Anything else, such as another
+ * library sharing the context, can change the state behind its back, so the {@link Renderer} calls
+ * {@link #invalidate()} before each time it renders the scene. After that the first call of each
+ * kind is always issued. All calls must be made on the GL thread.
+ */
+public final class GLStateTracker implements IGLES {
+
+	/**
+	 * Texture units with shadowed bindings. Bindings on higher units are always issued.
+	 */
+	public static final int MAX_TEXTURE_UNITS = 32;
+
+	private static final int UNKNOWN = -1;
+	private static final int GL_TEXTURE_EXTERNAL_OES = 0x8D65;
+	private static final int[] CAPS = { GLES20.GL_BLEND, GLES20.GL_CULL_FACE, GLES20.GL_DEPTH_TEST,
+			GLES20.GL_DITHER, GLES20.GL_POLYGON_OFFSET_FILL, GLES20.GL_SAMPLE_ALPHA_TO_COVERAGE,
+			GLES20.GL_SAMPLE_COVERAGE, GLES20.GL_SCISSOR_TEST, GLES20.GL_STENCIL_TEST };
+	private static final int[] TEXTURE_TARGETS = { GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_CUBE_MAP,
+			GL_TEXTURE_EXTERNAL_OES };
+
+	private static final GLStateTracker sInstance = new GLStateTracker(AndroidGLES.getInstance());
+
+	private final IGLES mGL;
+	private final int[] mCapStates = new int[CAPS.length];
+	private int mCullFace;
+	private int mFrontFace;
+	private int mBlendSFactor;
+	private int mBlendDFactor;
+	private int mDepthFunc;
+	private int mDepthMask;
+	private int mProgram;
+	private int mArrayBuffer;
+	private int mElementArrayBuffer;
+	private int mActiveTexture;
+	private final int[] mTextures = new int[MAX_TEXTURE_UNITS * TEXTURE_TARGETS.length];
+	private int mIssuedCount;
+	private int mElidedCount;
+
+	/**
+	 * @param gl {@link IGLES} the calls that change something are passed on to.
+	 */
+	public GLStateTracker(IGLES gl) {
+		mGL = gl;
+		invalidate();
+	}
+
+	/**
+	 * Returns the tracker used by the engine, which passes calls on to {@link AndroidGLES}.
+	 *
+	 * @return {@link GLStateTracker} The engine wide tracker.
+	 */
+	public static GLStateTracker getInstance() {
+		return sInstance;
+	}
+
+	/**
+	 * Forgets the shadowed state, so the next call of each kind is issued. Call this when the GL
+	 * state may have been changed without the tracker, or when the context was recreated.
+	 */
+	public void invalidate() {
+		for (int i = 0; i < mCapStates.length; ++i)
+			mCapStates[i] = UNKNOWN;
+		mCullFace = UNKNOWN;
+		mFrontFace = UNKNOWN;
+		mBlendSFactor = UNKNOWN;
+		mBlendDFactor = UNKNOWN;
+		mDepthFunc = UNKNOWN;
+		mDepthMask = UNKNOWN;
+		mProgram = UNKNOWN;
+		mArrayBuffer = UNKNOWN;
+		mElementArrayBuffer = UNKNOWN;
+		mActiveTexture = UNKNOWN;
+		for (int i = 0; i < mTextures.length; ++i)
+			mTextures[i] = UNKNOWN;
+	}
+
+	/**
+	 * @return The number of state changing calls passed on to GL since the last {@link #resetCounts()}.
+	 */
+	public int getIssuedCount() {
+		return mIssuedCount;
+	}
+
+	/**
+	 * @return The number of state changing calls dropped since the last {@link #resetCounts()}.
+	 */
+	public int getElidedCount() {
+		return mElidedCount;
+	}
+
+	public void resetCounts() {
+		mIssuedCount = 0;
+		mElidedCount = 0;
+	}
+
+	/**
+	 * Counts a call and returns whether it has to be issued.
+	 */
+	private boolean changes(int current, int value) {
+		if (current == value) {
+			++mElidedCount;
+			return false;
+		}
+		++mIssuedCount;
+		return true;
+	}
+
+	private static int indexOfCap(int cap) {
+		for (int i = 0; i < CAPS.length; ++i)
+			if (CAPS[i] == cap)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Index of the binding of the active texture unit for a target, or -1 if it isn't shadowed.
+	 */
+	private int indexOfTexture(int target) {
+		int unit = mActiveTexture - GLES20.GL_TEXTURE0;
+		if (mActiveTexture == UNKNOWN || unit < 0 || unit >= MAX_TEXTURE_UNITS)
+			return -1;
+		for (int i = 0; i < TEXTURE_TARGETS.length; ++i)
+			if (TEXTURE_TARGETS[i] == target)
+				return unit * TEXTURE_TARGETS.length + i;
+		return -1;
+	}
+
+	@Override
+	public void glEnable(int cap) {
+		int index = indexOfCap(cap);
+		if (index < 0) {
+			++mIssuedCount;
+			mGL.glEnable(cap);
+		} else if (changes(mCapStates[index], 1)) {
+			mCapStates[index] = 1;
+			mGL.glEnable(cap);
+		}
+	}
+
+	@Override
+	public void glDisable(int cap) {
+		int index = indexOfCap(cap);
+		if (index < 0) {
+			++mIssuedCount;
+			mGL.glDisable(cap);
+		} else if (changes(mCapStates[index], 0)) {
+			mCapStates[index] = 0;
+			mGL.glDisable(cap);
+		}
+	}
+
+	@Override
+	public void glCullFace(int mode) {
+		if (changes(mCullFace, mode)) {
+			mCullFace = mode;
+			mGL.glCullFace(mode);
+		}
+	}
+
+	@Override
+	public void glFrontFace(int mode) {
+		if (changes(mFrontFace, mode)) {
+			mFrontFace = mode;
+			mGL.glFrontFace(mode);
+		}
+	}
+
+	@Override
+	public void glBlendFunc(int sfactor, int dfactor) {
+		if (mBlendSFactor == sfactor && mBlendDFactor == dfactor) {
+			++mElidedCount;
+			return;
+		}
+		++mIssuedCount;
+		mBlendSFactor = sfactor;
+		mBlendDFactor = dfactor;
+		mGL.glBlendFunc(sfactor, dfactor);
+	}
+
+	@Override
+	public void glDepthFunc(int func) {
+		if (changes(mDepthFunc, func)) {
+			mDepthFunc = func;
+			mGL.glDepthFunc(func);
+		}
+	}
+
+	@Override
+	public void glDepthMask(boolean flag) {
+		if (changes(mDepthMask, flag ? 1 : 0)) {
+			mDepthMask = flag ? 1 : 0;
+			mGL.glDepthMask(flag);
+		}
+	}
+
+	@Override
+	public void glUseProgram(int program) {
+		if (changes(mProgram, program)) {
+			mProgram = program;
+			mGL.glUseProgram(program);
+		}
+	}
+
+	@Override
+	public void glBindBuffer(int target, int buffer) {
+		if (target == GLES20.GL_ARRAY_BUFFER) {
+			if (changes(mArrayBuffer, buffer)) {
+				mArrayBuffer = buffer;
+				mGL.glBindBuffer(target, buffer);
+			}
+		} else if (target == GLES20.GL_ELEMENT_ARRAY_BUFFER) {
+			if (changes(mElementArrayBuffer, buffer)) {
+				mElementArrayBuffer = buffer;
+				mGL.glBindBuffer(target, buffer);
+			}
+		} else {
+			++mIssuedCount;
+			mGL.glBindBuffer(target, buffer);
+		}
+	}
+
+	@Override
+	public void glActiveTexture(int texture) {
+		if (changes(mActiveTexture, texture)) {
+			mActiveTexture = texture;
+			mGL.glActiveTexture(texture);
+		}
+	}
+
+	@Override
+	public void glBindTexture(int target, int texture) {
+		int index = indexOfTexture(target);
+		if (index < 0) {
+			++mIssuedCount;
+			mGL.glBindTexture(target, texture);
+		} else if (changes(mTextures[index], texture)) {
+			mTextures[index] = texture;
+			mGL.glBindTexture(target, texture);
+		}
+	}
+
+	/**
+	 * Deleting a bound buffer binds 0 in its place, so the shadowed bindings are updated.
+	 */
+	@Override
+	public void glDeleteBuffers(int n, int[] buffers, int offset) {
+		for (int i = offset; i < offset + n; ++i) {
+			if (buffers[i] == 0)
+				continue;
+			if (mArrayBuffer == buffers[i])
+				mArrayBuffer = 0;
+			if (mElementArrayBuffer == buffers[i])
+				mElementArrayBuffer = 0;
+		}
+		mGL.glDeleteBuffers(n, buffers, offset);
+	}
+
+	/**
+	 * Deleting a bound texture binds 0 in its place, on every texture unit.
+	 */
+	@Override
+	public void glDeleteTextures(int n, int[] textures, int offset) {
+		for (int i = offset; i < offset + n; ++i) {
+			if (textures[i] == 0)
+				continue;
+			for (int j = 0; j < mTextures.length; ++j)
+				if (mTextures[j] == textures[i])
+					mTextures[j] = 0;
+		}
+		mGL.glDeleteTextures(n, textures, offset);
+	}
+
+	/**
+	 * A program in use stays in use when it's deleted, but once it's replaced its name can be used
+	 * for a new program. Forget it so that one isn't taken for being in use.
+	 */
+	@Override
+	public void glDeleteProgram(int program) {
+		if (mProgram == program)
+			mProgram = UNKNOWN;
+		mGL.glDeleteProgram(program);
+	}
+
+	@Override
+	public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset) {
+		mGL.glVertexAttribPointer(index, size, type, normalized, stride, offset);
+	}
+
+	@Override
+	public void glEnableVertexAttribArray(int index) {
+		mGL.glEnableVertexAttribArray(index);
+	}
+
+	@Override
+	public int glGetUniformLocation(int program, String name) {
+		return mGL.glGetUniformLocation(program, name);
+	}
+
+	@Override
+	public int glGetAttribLocation(int program, String name) {
+		return mGL.glGetAttribLocation(program, name);
+	}
+
+	@Override
+	public void glUniform1i(int location, int x) {
+		mGL.glUniform1i(location, x);
+	}
+
+	@Override
+	public void glUniform1f(int location, float x) {
+		mGL.glUniform1f(location, x);
+	}
+
+	@Override
+	public void glUniform2fv(int location, int count, float[] v, int offset) {
+		mGL.glUniform2fv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform3fv(int location, int count, float[] v, int offset) {
+		mGL.glUniform3fv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform4fv(int location, int count, float[] v, int offset) {
+		mGL.glUniform4fv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniformMatrix3fv(int location, int count, boolean transpose, float[] value, int offset) {
+		mGL.glUniformMatrix3fv(location, count, transpose, value, offset);
+	}
+
+	@Override
+	public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+		mGL.glUniformMatrix4fv(location, count, transpose, value, offset);
+	}
+
+	@Override
+	public void glDrawElements(int mode, int count, int type, int offset) {
+		mGL.glDrawElements(mode, count, type, offset);
+	}
+}
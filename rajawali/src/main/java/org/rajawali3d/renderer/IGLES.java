@@ -0,0 +1,76 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.renderer;
+
+/**
+ * The subset of OpenGL ES 2.0 calls issued by per-frame draw loops such as
+ * {@link org.rajawali3d.InstancedObject3D}, vertex attribute setup, shader uniforms and the GL state
+ * shadowed by {@link GLStateTracker}. Routing these calls through an interface lets the CPU
+ * side of a draw loop run in unit tests with a fake implementation that records the calls.
+ *
+ * {@link AndroidGLES} forwards every call to {@link android.opengl.GLES20}.
+ */
+public interface IGLES {
+
+	void glEnable(int cap);
+
+	void glDisable(int cap);
+
+	void glCullFace(int mode);
+
+	void glFrontFace(int mode);
+
+	void glBlendFunc(int sfactor, int dfactor);
+
+	void glDepthFunc(int func);
+
+	void glDepthMask(boolean flag);
+
+	void glUseProgram(int program);
+
+	void glBindBuffer(int target, int buffer);
+
+	void glActiveTexture(int texture);
+
+	void glBindTexture(int target, int texture);
+
+	void glDeleteBuffers(int n, int[] buffers, int offset);
+
+	void glDeleteTextures(int n, int[] textures, int offset);
+
+	void glDeleteProgram(int program);
+
+	void glEnableVertexAttribArray(int index);
+
+	void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset);
+
+	int glGetUniformLocation(int program, String name);
+
+	int glGetAttribLocation(int program, String name);
+
+	void glUniform1i(int location, int x);
+
+	void glUniform1f(int location, float x);
+
+	void glUniform2fv(int location, int count, float[] v, int offset);
+
+	void glUniform3fv(int location, int count, float[] v, int offset);
+
+	void glUniform4fv(int location, int count, float[] v, int offset);
+
+	void glUniformMatrix3fv(int location, int count, boolean transpose, float[] value, int offset);
+
+	void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset);
+
+	void glDrawElements(int mode, int count, int type, int offset);
+}
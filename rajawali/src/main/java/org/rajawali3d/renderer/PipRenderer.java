@@ -127,6 +127,14 @@ public class PipRenderer extends Renderer {
         mMiniRenderer.initScene();
     }
 
+    @Override
+    protected void onUpdate(final long ellapsedTime, final double deltaTime) {
+        // Both scenes are drawn every frame but only the composite scene is current
+        mMiniRenderer.getCurrentScene().update(ellapsedTime, deltaTime);
+        mMainRenderer.getCurrentScene().update(ellapsedTime, deltaTime);
+        super.onUpdate(ellapsedTime, deltaTime);
+    }
+
     @Override
     protected void onRender(final long ellapsedTime, final double deltaTime) {
         try {
@@ -29,6 +29,7 @@ import org.rajawali3d.loader.ALoader;
 import org.rajawali3d.loader.async.IAsyncLoaderCallback;
 import org.rajawali3d.materials.Material;
 import org.rajawali3d.materials.MaterialManager;
+import org.rajawali3d.materials.shaders.AShader;
 import org.rajawali3d.materials.textures.ATexture;
 import org.rajawali3d.materials.textures.RenderTargetTexture;
 import org.rajawali3d.materials.textures.TextureManager;
@@ -70,6 +71,7 @@ public abstract class Renderer implements ISurfaceRenderer {
     protected static boolean mFogEnabled; // Is camera fog enabled?
     protected static int sMaxLights = 1; // How many lights max?
     public static boolean supportsUIntBuffers = false;
+    private static volatile long sFrameTime; // System.nanoTime() at the start of the current frame
 
     protected Context mContext; // Context the renderer is running in
 
@@ -89,6 +91,11 @@ public abstract class Renderer implements ISurfaceRenderer {
     protected OnFPSUpdateListener mFPSUpdateListener; // Listener to notify of new FPS values.
     private long mStartTime = System.nanoTime(); // Used for determining FPS
     private long mLastRender; // Time of last rendering. Used for animation delta time
+    private long mFrameElapsedTime; // Elapsed render time of the frame set by the last updateFrame()
+    private double mFrameDeltaTime; // Delta time of the frame set by the last updateFrame()
+    private int mLastFrameLocationQueries; // Shader location queries made in the last frame
+    private int mLastFrameIssuedStateCalls; // GL state calls issued in the last frame
+    private int mLastFrameElidedStateCalls; // GL state calls dropped by the state tracker in the last frame
 
     //In case we cannot parse the version number, assume OpenGL ES 2.0
     protected int mGLES_Major_Version = 2; // The GL ES major version of the surface
@@ -111,6 +118,7 @@ public abstract class Renderer implements ISurfaceRenderer {
     private final Queue<AFrameTask>                 mFrameTaskQueue;
     private final SparseArray<ModelRunnable>        mLoaderThreads;
     private final SparseArray<IAsyncLoaderCallback> mLoaderCallbacks;
+    private int mNextLoaderId; // Guarded by mLoaderThreads
 
     /**
      * The scene currently being displayed.
@@ -134,6 +142,17 @@ public abstract class Renderer implements ISurfaceRenderer {
         Renderer.sMaxLights = maxLights;
     }
 
+    /**
+     * Time stamp of the frame being updated and rendered, taken from {@link System#nanoTime()} in
+     * {@link #updateFrame()}. It stays the same for every pass over the scene in the frame, so
+     * objects can use it to do expensive per frame work once, or 0 if no frame was updated yet.
+     *
+     * @return {@code long} The frame time stamp in nanoseconds.
+     */
+    public static long getFrameTime() {
+        return sFrameTime;
+    }
+
     /**
      * Indicates whether the OpenGL context is still alive or not.
      *
@@ -201,6 +220,35 @@ public abstract class Renderer implements ISurfaceRenderer {
         return mTextureManager;
     }
 
+    /**
+     * Returns the number of uniform and attribute location queries made by shaders in the last
+     * frame. They are made when programs are linked and then cached, so in a steady state this is 0.
+     *
+     * @return {@code int} The number of location queries.
+     */
+    public int getLastFrameLocationQueries() {
+        return mLastFrameLocationQueries;
+    }
+
+    /**
+     * Returns the number of GL state calls the {@link GLStateTracker} passed on to GL in the last frame.
+     *
+     * @return {@code int} The number of calls issued.
+     */
+    public int getLastFrameIssuedStateCalls() {
+        return mLastFrameIssuedStateCalls;
+    }
+
+    /**
+     * Returns the number of GL state calls the {@link GLStateTracker} dropped in the last frame,
+     * because they wouldn't have changed anything.
+     *
+     * @return {@code int} The number of calls elided.
+     */
+    public int getLastFrameElidedStateCalls() {
+        return mLastFrameElidedStateCalls;
+    }
+
     @Override
     public double getFrameRate() {
         return mFrameRate;
@@ -296,6 +344,7 @@ public abstract class Renderer implements ISurfaceRenderer {
     @Override
     public void onRenderSurfaceCreated(EGLConfig config, GL10 gl, int width, int height) {
         Capabilities.getInstance();
+        GLStateTracker.getInstance().invalidate(); // The context may be new
 
         String[] versionString = (GLES20.glGetString(GLES20.GL_VERSION)).split(" ");
         RajLog.d("Open GL ES Version String: " + GLES20.glGetString(GLES20.GL_VERSION));
@@ -371,6 +420,26 @@ public abstract class Renderer implements ISurfaceRenderer {
 
     @Override
     public void onRenderFrame(GL10 gl) {
+        updateFrame();
+        renderFrame();
+    }
+
+    /**
+     * Update phase of a frame. Runs the pending frame tasks, switches the scene if requested and
+     * advances the time, then calls {@link #onUpdate(long, double)}. {@link #onRenderFrame(GL10)}
+     * calls this before {@link #renderFrame()}. A renderer which draws each frame several times,
+     * such as once per eye, calls it once per frame and then {@link #renderFrame()} for each pass,
+     * so animations and other per frame work advance once.
+     */
+    public void updateFrame() {
+        mLastFrameLocationQueries = AShader.getLocationQueryCount();
+        AShader.resetLocationQueryCount();
+        final GLStateTracker stateTracker = GLStateTracker.getInstance();
+        mLastFrameIssuedStateCalls = stateTracker.getIssuedCount();
+        mLastFrameElidedStateCalls = stateTracker.getElidedCount();
+        stateTracker.resetCounts();
+        // Frame tasks upload textures and buffers, and the GL state may have changed since the last frame
+        stateTracker.invalidate();
         performFrameTasks(); //Execute any pending frame tasks
         synchronized (mNextSceneLock) {
             //Check if we need to switch the scene, and if so, do it.
@@ -381,11 +450,12 @@ public abstract class Renderer implements ISurfaceRenderer {
         }
 
         final long currentTime = System.nanoTime();
-        final long elapsedRenderTime = currentTime - mRenderStartTime;
-        final double deltaTime = (currentTime - mLastRender) / 1e9;
+        sFrameTime = currentTime;
+        mFrameElapsedTime = currentTime - mRenderStartTime;
+        mFrameDeltaTime = (currentTime - mLastRender) / 1e9;
         mLastRender = currentTime;
 
-        onRender(elapsedRenderTime, deltaTime);
+        onUpdate(mFrameElapsedTime, mFrameDeltaTime);
 
         ++mFrameCount;
         if (mFrameCount % 50 == 0) {
@@ -403,7 +473,28 @@ public abstract class Renderer implements ISurfaceRenderer {
     }
 
     /**
-     * Called by {@link #onRenderFrame(GL10)} to render the next frame. This is
+     * Render phase of a frame. Draws the current scene as it was left by the last
+     * {@link #updateFrame()}, which may be done any number of times per frame.
+     */
+    public void renderFrame() {
+        // Anything between two passes, such as a VR distortion pass, may have changed the GL state
+        GLStateTracker.getInstance().invalidate();
+        onRender(mFrameElapsedTime, mFrameDeltaTime);
+    }
+
+    /**
+     * Called by {@link #updateFrame()} once per frame, before the frame is rendered. Override it to
+     * hook per frame work into the update phase, and call through to update the current scene.
+     *
+     * @param ellapsedRealtime {@code long} The total ellapsed rendering time in nanoseconds.
+     * @param deltaTime        {@code double} The time passed since the last frame, in seconds.
+     */
+    protected void onUpdate(final long ellapsedRealtime, final double deltaTime) {
+        mCurrentScene.update(ellapsedRealtime, deltaTime);
+    }
+
+    /**
+     * Called by {@link #renderFrame()} to render the next frame. This is
      * called prior to the current scene's {@link Scene#render(long, double, RenderTarget)} method.
      *
      * @param ellapsedRealtime {@code long} The total ellapsed rendering time in milliseconds.
@@ -552,11 +643,14 @@ public abstract class Renderer implements ISurfaceRenderer {
         loader.setTag(tag);
 
         try {
-            final int id = mLoaderThreads.size();
-            final ModelRunnable runnable = new ModelRunnable(loader, id);
-
-            mLoaderThreads.put(id, runnable);
-            mLoaderCallbacks.put(id, callback);
+            final ModelRunnable runnable;
+            // Loads can be queued from any thread while the main thread removes finished ones
+            synchronized (mLoaderThreads) {
+                final int id = mNextLoaderId++;
+                runnable = new ModelRunnable(loader, id);
+                mLoaderThreads.put(id, runnable);
+                mLoaderCallbacks.put(id, callback);
+            }
             mLoaderExecutor.execute(runnable);
         } catch (Exception e) {
             callback.onModelLoadFailed(loader);
@@ -1045,11 +1139,15 @@ public abstract class Renderer implements ISurfaceRenderer {
         public void handleMessage(Message msg) {
 
             final int id = msg.arg2;
-            final ALoader loader = mLoaderThreads.get(id).mLoader;
-            final IAsyncLoaderCallback callback = mLoaderCallbacks.get(id);
-
-            mLoaderThreads.remove(id);
-            mLoaderCallbacks.remove(id);
+            final ALoader loader;
+            final IAsyncLoaderCallback callback;
+            synchronized (mLoaderThreads) {
+                loader = mLoaderThreads.get(id).mLoader;
+                callback = mLoaderCallbacks.get(id);
+
+                mLoaderThreads.remove(id);
+                mLoaderCallbacks.remove(id);
+            }
 
             switch (msg.arg1) {
                 case 0:
@@ -23,6 +23,7 @@ import org.rajawali3d.materials.textures.ASingleTexture;
 import org.rajawali3d.math.Matrix4;
 import org.rajawali3d.math.vector.Vector2;
 import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.renderer.GLStateTracker;
 import org.rajawali3d.renderer.Renderer;
 
 
@@ -314,25 +315,25 @@ public final class LensFlarePlugin extends Plugin {
 		useProgram(mProgram);
 
 		// Push the VBOs to the GPU.
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mGeometry.getVertexBufferInfo().bufferHandle);
+		GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, mGeometry.getVertexBufferInfo().bufferHandle);
 		GLES20.glEnableVertexAttribArray(maPositionHandle);
 		GLES20.glVertexAttribPointer(maPositionHandle, 2, GLES20.GL_FLOAT, false, 0, 0);
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+		GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 
 		// Push texture coordinates to the GPU.
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mGeometry.getTexCoordBufferInfo().bufferHandle);
+		GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, mGeometry.getTexCoordBufferInfo().bufferHandle);
 		GLES20.glEnableVertexAttribArray(maTextureCoordHandle);
 		GLES20.glVertexAttribPointer(maTextureCoordHandle, 2, GLES20.GL_FLOAT, false, 0, 0);
 
 		// Push vertex element indices to the GPU.
-		GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mGeometry.getIndexBufferInfo().bufferHandle);
+		GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mGeometry.getIndexBufferInfo().bufferHandle);
 
 		// Set up texture locations.
 		GLES20.glUniform1i(muOcclusionMapTextureHandle, 0);
 		GLES20.glUniform1i(muMapTextureHandle, 1);
 
-		GLES20.glDisable(GLES20.GL_CULL_FACE);
-		GLES20.glDepthMask(false);
+		GLStateTracker.getInstance().glDisable(GLES20.GL_CULL_FACE);
+		GLStateTracker.getInstance().glDepthMask(false);
 
 		// Calculate camera direction vector.
 		Vector3 cameraPosition = camera.getPosition().clone();
@@ -368,8 +369,8 @@ public final class LensFlarePlugin extends Plugin {
 						screenPositionPixels_x > -64 && screenPositionPixels_x < viewportWidth + 64 &&
 						screenPositionPixels_y > -64 && screenPositionPixels_y < viewportHeight + 64)) {
 					// Bind current framebuffer to texture.
-					GLES20.glActiveTexture(GLES20.GL_TEXTURE1);
-					GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mMapTexture.getTextureId());
+					GLStateTracker.getInstance().glActiveTexture(GLES20.GL_TEXTURE1);
+					GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, mMapTexture.getTextureId());
 					GLES20.glCopyTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGB,
 							(int)screenPositionPixels_x - 8, (int)screenPositionPixels_y - 8, 16, 16, 0);
 
@@ -378,25 +379,25 @@ public final class LensFlarePlugin extends Plugin {
 					GLES20.glUniform2fv(muScaleHandle, 1, new float[] { (float) scale.getX(), (float) scale.getY() }, 0);
 					GLES20.glUniform3fv(muScreenPositionHandle, 1, new float[] { (float) screenPosition.x, (float) screenPosition.y, (float) screenPosition.z }, 0);
 
-					GLES20.glDisable(GLES20.GL_BLEND);
-					GLES20.glEnable(GLES20.GL_DEPTH_TEST);
+					GLStateTracker.getInstance().glDisable(GLES20.GL_BLEND);
+					GLStateTracker.getInstance().glEnable(GLES20.GL_DEPTH_TEST);
 
 					GLES20.glDrawElements(GLES20.GL_TRIANGLES, 6,
 							mGeometry.areOnlyShortBuffersSupported() ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT,
 							0);
 
 					// Copy result to occlusion map.
-					GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-					GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mOcclusionMapTexture.getTextureId());
+					GLStateTracker.getInstance().glActiveTexture(GLES20.GL_TEXTURE0);
+					GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, mOcclusionMapTexture.getTextureId());
 					GLES20.glCopyTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA,
 							(int)screenPositionPixels_x - 8, (int)screenPositionPixels_y - 8, 16, 16, 0);
 
 					// Second render pass.
 					GLES20.glUniform1i(muRenderTypeHandle, 2);
-					GLES20.glDisable(GLES20.GL_DEPTH_TEST);
+					GLStateTracker.getInstance().glDisable(GLES20.GL_DEPTH_TEST);
 
-					GLES20.glActiveTexture(GLES20.GL_TEXTURE1);
-					GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mMapTexture.getTextureId());
+					GLStateTracker.getInstance().glActiveTexture(GLES20.GL_TEXTURE1);
+					GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, mMapTexture.getTextureId());
 					GLES20.glDrawElements(GLES20.GL_TRIANGLES, 6,
 							mGeometry.areOnlyShortBuffersSupported() ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT,
 							0);
@@ -407,7 +408,7 @@ public final class LensFlarePlugin extends Plugin {
 
 					// Third render pass.
 					GLES20.glUniform1i(muRenderTypeHandle, 3);
-					GLES20.glEnable(GLES20.GL_BLEND);
+					GLStateTracker.getInstance().glEnable(GLES20.GL_BLEND);
 
 					// DEBUG - Shows the current uMap and uOcclusionMap textures on screen.
 					// NOTE: UNCOMMENT IF THE LENS FLARE DOES NOT GET OCCLUDED.
@@ -420,18 +421,18 @@ public final class LensFlarePlugin extends Plugin {
 					GLES20.glUniform1i(muDebugModeHandle, 1);
 					GLES20.glUniform1f(muOpacityHandle, 1);
 					GLES20.glUniform3fv(muColorHandle, 1, new float[] { 1, 1, 1 }, 0);
-					GLES20.glActiveTexture(GLES20.GL_TEXTURE1);
-					GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mMapTexture.getTextureId());
+					GLStateTracker.getInstance().glActiveTexture(GLES20.GL_TEXTURE1);
+					GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, mMapTexture.getTextureId());
 					fix.android.opengl.GLES20.glDrawElements(GLES20.GL_TRIANGLES, 6, mGeometry.areOnlyShortBuffersSupported() ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT, 0);
-					GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
-					GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+					GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+					GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 					GLES20.glUniform3fv(muScreenPositionHandle, 1, new float[] { -0.3f, -0.35f, 0 }, 0);
-					GLES20.glActiveTexture(GLES20.GL_TEXTURE1);
-					GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mOcclusionMapTexture.getTextureId());
+					GLStateTracker.getInstance().glActiveTexture(GLES20.GL_TEXTURE1);
+					GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, mOcclusionMapTexture.getTextureId());
 					fix.android.opengl.GLES20.glDrawElements(GLES20.GL_TRIANGLES, 6, mGeometry.areOnlyShortBuffersSupported() ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT, 0);
 					GLES20.glUniform1i(muDebugModeHandle, 0);
-					GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
-					GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+					GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+					GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 					*/
 					// END DEBUG
 
@@ -454,29 +455,29 @@ public final class LensFlarePlugin extends Plugin {
 							GLES20.glUniform1f(muOpacityHandle, (float) sprite.getOpacity());
 							GLES20.glUniform3fv(muColorHandle, 1, new float[] { (float) sprite.getColor().x, (float) sprite.getColor().y, (float) sprite.getColor().z }, 0);
 
-							GLES20.glActiveTexture(GLES20.GL_TEXTURE1);
-							GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, sprite.getTexture().getTextureId());
+							GLStateTracker.getInstance().glActiveTexture(GLES20.GL_TEXTURE1);
+							GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, sprite.getTexture().getTextureId());
 
 							//GLES20.glBlendEquation(GLES20.GL_FUNC_ADD);
-							GLES20.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE);
+							GLStateTracker.getInstance().glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE);
 
 							// Draw the elements.
 							GLES20.glDrawElements(GLES20.GL_TRIANGLES, mGeometry.getNumIndices(),
 									mGeometry.areOnlyShortBuffersSupported() ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT, 0);
 
 							// Unbind texture.
-							GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
-							GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+							GLStateTracker.getInstance().glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+							GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 						}
 					}
 				}
 			}
 		}
 		// Unbind element array.
-		GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
-		GLES20.glEnable(GLES20.GL_CULL_FACE);
-		GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-		GLES20.glDepthMask(true);
+		GLStateTracker.getInstance().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+		GLStateTracker.getInstance().glEnable(GLES20.GL_CULL_FACE);
+		GLStateTracker.getInstance().glEnable(GLES20.GL_DEPTH_TEST);
+		GLStateTracker.getInstance().glDepthMask(true);
 	}
 
 	@Override
@@ -15,6 +15,7 @@ package org.rajawali3d.renderer.plugins;
 import android.opengl.GLES20;
 
 import org.rajawali3d.Geometry3D;
+import org.rajawali3d.renderer.GLStateTracker;
 import org.rajawali3d.renderer.Renderer;
 import org.rajawali3d.util.RajLog;
 
@@ -82,7 +83,7 @@ public abstract class Plugin implements IRendererPlugin {
 				RajLog.d(mVertexShader);
 				RajLog.d("-=-=-= FRAGMENT SHADER =-=-=-");
 				RajLog.d(mFragmentShader);
-				GLES20.glDeleteProgram(program);
+				GLStateTracker.getInstance().glDeleteProgram(program);
 				program = 0;
 			}
 		}
@@ -161,7 +162,7 @@ public abstract class Plugin implements IRendererPlugin {
 	public void unload() {
 		GLES20.glDeleteShader(mVShaderHandle);
 		GLES20.glDeleteShader(mFShaderHandle);
-		GLES20.glDeleteProgram(mProgram);
+		GLStateTracker.getInstance().glDeleteProgram(mProgram);
 	}
 
 	protected void useProgram(int programHandle) {
@@ -169,6 +170,6 @@ public abstract class Plugin implements IRendererPlugin {
 			reload();
 		}
 		// Signal that we'll be using the shader program.
-		GLES20.glUseProgram(programHandle);
+		GLStateTracker.getInstance().glUseProgram(programHandle);
 	}
 }
@@ -17,7 +17,8 @@ package org.rajawali3d.scene;
 public abstract class ASceneFrameCallback {
 
     /**
-     * Pre frame handling callback. This will be called prior to any camera or animation updates in the scene.
+     * Pre frame handling callback. This will be called once per frame in the update phase of the scene,
+     * prior to any camera or animation updates, even when the scene is rendered several times per frame.
      *
      * @param sceneTime {@code long} Rendering elapsed time in nanoseconds.
      * @param deltaTime {@code double} Time passed since last frame in seconds.
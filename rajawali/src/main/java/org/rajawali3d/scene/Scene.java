@@ -34,12 +34,14 @@ import org.rajawali3d.math.vector.Vector3;
 import org.rajawali3d.postprocessing.materials.ShadowMapMaterial;
 import org.rajawali3d.primitives.Cube;
 import org.rajawali3d.renderer.AFrameTask;
+import org.rajawali3d.renderer.GLStateTracker;
 import org.rajawali3d.renderer.Renderer;
 import org.rajawali3d.renderer.RenderTarget;
 import org.rajawali3d.renderer.plugins.IRendererPlugin;
 import org.rajawali3d.renderer.plugins.Plugin;
 import org.rajawali3d.scenegraph.IGraphNode;
 import org.rajawali3d.scenegraph.IGraphNode.GRAPH_TYPE;
+import org.rajawali3d.scenegraph.IGraphNodeMember;
 import org.rajawali3d.scenegraph.Octree;
 import org.rajawali3d.view.ISurface;
 import org.rajawali3d.util.ObjectColorPicker;
@@ -49,8 +51,10 @@ import org.rajawali3d.util.RajLog;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
@@ -135,6 +139,8 @@ public class Scene {
 
 	protected boolean mDisplaySceneGraph = false;
 	protected IGraphNode mSceneGraph; //The scenegraph for this scene
+	private final Set<IGraphNodeMember> mVisibleMembers = Collections.newSetFromMap(
+			new IdentityHashMap<IGraphNodeMember, Boolean>()); //Children in the frustum, guarded by mChildren
 	protected GRAPH_TYPE mSceneGraphType = GRAPH_TYPE.NONE; //The type of graph type for this scene.
 
 	public Scene(Renderer renderer) {
@@ -428,10 +434,8 @@ public class Scene {
             @Override
             protected void doTask() {
                 final Object3D old = mChildren.set(location, child);
-                if (mSceneGraph != null) {
-                    //mSceneGraph.removeObject(old);
-                    //mSceneGraph.addObject(child); //TODO: Uncomment
-                }
+                removeFromSceneGraph(old);
+                addToSceneGraph(child);
             }
         };
         return internalOfferTask(task);
@@ -449,10 +453,8 @@ public class Scene {
             @Override
             protected void doTask() {
                 mChildren.set(mChildren.indexOf(oldChild), newChild);
-                if (mSceneGraph != null) {
-                    //mSceneGraph.removeObject(oldChild);
-                    //mSceneGraph.addObject(newChild); //TODO: Uncomment
-                }
+                removeFromSceneGraph(oldChild);
+                addToSceneGraph(newChild);
             }
         };
         return internalOfferTask(task);
@@ -470,9 +472,7 @@ public class Scene {
             @Override
             protected void doTask() {
                 mChildren.add(child);
-                if (mSceneGraph != null) {
-                    //mSceneGraph.addObject(child); //TODO: Uncomment
-                }
+                addToSceneGraph(child);
                 addShadowMapMaterialPlugin(child, mShadowMapMaterial == null ? null : mShadowMapMaterial.getMaterialPlugin());
             }
         };
@@ -492,9 +492,7 @@ public class Scene {
             @Override
             protected void doTask() {
                 mChildren.add(index, child);
-                if (mSceneGraph != null) {
-                    //mSceneGraph.addObject(child); //TODO: Uncomment
-                }
+                addToSceneGraph(child);
             }
         };
         return internalOfferTask(task);
@@ -511,8 +509,8 @@ public class Scene {
             @Override
             protected void doTask() {
                 mChildren.addAll(children);
-                if (mSceneGraph != null) {
-                    //mSceneGraph.addObject(child); //TODO: Uncomment
+                for (Object3D child : children) {
+                    addToSceneGraph(child);
                 }
             }
         };
@@ -530,9 +528,7 @@ public class Scene {
             @Override
             protected void doTask() {
                 mChildren.remove(child);
-                if (mSceneGraph != null) {
-                    //mSceneGraph.removeObject(child); //TODO: Uncomment
-                }
+                removeFromSceneGraph(child);
             }
         };
         return internalOfferTask(task);
@@ -547,9 +543,9 @@ public class Scene {
         final AFrameTask task = new AFrameTask() {
             @Override
             protected void doTask() {
-                /*if (mSceneGraph != null) {
-                    mSceneGraph.removeObjects(new ArrayList<IGraphNodeMember>(mChildren));
-                }*/ //TODO: Uncomment
+                for (int i = 0, j = mChildren.size(); i < j; ++i) {
+                    removeFromSceneGraph(mChildren.get(i));
+                }
                 mChildren.clear();
             }
         };
@@ -961,13 +957,49 @@ public class Scene {
 	 * to change this default behavior can override this method.
 	 */
 	public void resetGLState() {
-		GLES20.glEnable(GLES20.GL_CULL_FACE);
-		GLES20.glCullFace(GLES20.GL_BACK);
-		GLES20.glFrontFace(GLES20.GL_CCW);
-		GLES20.glDisable(GLES20.GL_BLEND);
-		GLES20.glEnable(GLES20.GL_DEPTH_TEST);
+		GLStateTracker.getInstance().glEnable(GLES20.GL_CULL_FACE);
+		GLStateTracker.getInstance().glCullFace(GLES20.GL_BACK);
+		GLStateTracker.getInstance().glFrontFace(GLES20.GL_CCW);
+		GLStateTracker.getInstance().glDisable(GLES20.GL_BLEND);
+		GLStateTracker.getInstance().glEnable(GLES20.GL_DEPTH_TEST);
+	}
+
+	/**
+	 * Update phase of a frame. Calls the pre-frame callbacks and advances all playing animations.
+	 * The renderer calls this once per frame before the scene is rendered, however many times it
+	 * is rendered, so the scene moves the same whether it is drawn once or once per eye.
+	 *
+	 * @param ellapsedTime {@code long} Rendering elapsed time in nanoseconds.
+	 * @param deltaTime {@code double} Time passed since last frame in seconds.
+	 */
+	public void update(long ellapsedTime, double deltaTime) {
+		performFrameTasks(); //Handle the task queue, so newly registered animations start this frame
+
+        // Execute onPreFrame callbacks
+        // We explicitly break out the steps here to help the compiler optimize
+        final int preCount = mPreCallbacks.size();
+        if (preCount > 0) {
+            synchronized (mPreCallbacks) {
+                for (int i = 0; i < preCount; ++i) {
+                    mPreCallbacks.get(i).onPreFrame(ellapsedTime, deltaTime);
+                }
+            }
+        }
+
+        // Update all registered animations
+        synchronized (mAnimations) {
+            for (int i = 0, j = mAnimations.size(); i < j; ++i) {
+                Animation anim = mAnimations.get(i);
+                if (anim.isPlaying())
+                    anim.update(deltaTime);
+            }
+        }
 	}
 
+	/**
+	 * Render phase of a frame. Draws the scene as left by the last {@link #update(long, double)}
+	 * and may be called several times per frame, for example once per eye or render pass.
+	 */
 	public void render(long ellapsedTime, double deltaTime, RenderTarget renderTarget) {
 		render(ellapsedTime, deltaTime, renderTarget, null);
 	}
@@ -1018,9 +1050,9 @@ public class Scene {
 
 		if (mEnableDepthBuffer) {
 			clearMask |= GLES20.GL_DEPTH_BUFFER_BIT;
-			GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-			GLES20.glDepthFunc(GLES20.GL_LESS);
-			GLES20.glDepthMask(true);
+			GLStateTracker.getInstance().glEnable(GLES20.GL_DEPTH_TEST);
+			GLStateTracker.getInstance().glDepthFunc(GLES20.GL_LESS);
+			GLStateTracker.getInstance().glDepthMask(true);
 			GLES20.glClearDepthf(1.0f);
 		}
 		if (mAntiAliasingConfig.equals(ISurface.ANTI_ALIASING_CONFIG.COVERAGE)) {
@@ -1029,26 +1061,6 @@ public class Scene {
 
 		GLES20.glClear(clearMask);
 
-        // Execute onPreFrame callbacks
-        // We explicitly break out the steps here to help the compiler optimize
-        final int preCount = mPreCallbacks.size();
-        if (preCount > 0) {
-            synchronized (mPreCallbacks) {
-                for (int i = 0; i < preCount; ++i) {
-                    mPreCallbacks.get(i).onPreFrame(ellapsedTime, deltaTime);
-                }
-            }
-        }
-
-        // Update all registered animations
-        synchronized (mAnimations) {
-            for (int i = 0, j = mAnimations.size(); i < j; ++i) {
-                Animation anim = mAnimations.get(i);
-                if (anim.isPlaying())
-                    anim.update(deltaTime);
-            }
-        }
-
         // We are beginning the render process so we need to update the camera matrix before fetching its values
         mCamera.onRecalculateModelMatrix(null);
 
@@ -1058,7 +1070,7 @@ public class Scene {
 		// Pre-multiply View and Projection matrices once for speed
 		mVPMatrix.setAll(mPMatrix).multiply(mVMatrix);
 		mInvVPMatrix.setAll(mVPMatrix).inverse();
-        mCamera.updateFrustum(mInvVPMatrix); // Update frustum plane
+        mCamera.updateFrustum(mVPMatrix); // Update frustum plane
 
         // Update the model matrices of all the lights
         synchronized (mLights) {
@@ -1080,8 +1092,8 @@ public class Scene {
         }
 
 		if (mSkybox != null) {
-			GLES20.glDisable(GLES20.GL_DEPTH_TEST);
-			GLES20.glDepthMask(false);
+			GLStateTracker.getInstance().glDisable(GLES20.GL_DEPTH_TEST);
+			GLStateTracker.getInstance().glDepthMask(false);
 
 			mSkybox.setPosition(mCamera.getX(), mCamera.getY(), mCamera.getZ());
             // Model matrix updates are deferred to the render method due to parent matrix needs
@@ -1089,8 +1101,8 @@ public class Scene {
 			mSkybox.render(mCamera, mVPMatrix, mPMatrix, mVMatrix, null);
 
 			if (mEnableDepthBuffer) {
-				GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-				GLES20.glDepthMask(true);
+				GLStateTracker.getInstance().glEnable(GLES20.GL_DEPTH_TEST);
+				GLStateTracker.getInstance().glDepthMask(true);
 			}
 		}
 
@@ -1100,9 +1112,22 @@ public class Scene {
 		}
 
         synchronized (mChildren) {
+            if (mSceneGraph != null) {
+                // Move the children to their current nodes before the graph culls them
+                for (int i = 0, j = mChildren.size(); i < j; ++i) {
+                    mChildren.get(i).onRecalculateModelMatrix(null);
+                }
+                mVisibleMembers.clear();
+                mSceneGraph.cullFromFrustum(mCamera.getFrustum(), mVisibleMembers);
+            }
 			for (int i = 0, j = mChildren.size(); i < j; ++i) {
+                final Object3D child = mChildren.get(i);
+                if (mSceneGraph != null && child.getFrustumTest() && child.getGraphNode() != null
+                        && !mVisibleMembers.contains(child)) {
+                    continue;
+                }
                 // Model matrix updates are deferred to the render method due to parent matrix needs
-				mChildren.get(i).render(mCamera, mVPMatrix, mPMatrix, mVMatrix, sceneMaterial);
+				child.render(mCamera, mVPMatrix, mPMatrix, mVMatrix, sceneMaterial);
 			}
 		}
 
@@ -1143,9 +1168,9 @@ public class Scene {
 		GLES20.glClearColor(1.0f, 1.0f, 1.0f, 1.0f);
 
 		// Configure depth testing
-		GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-		GLES20.glDepthFunc(GLES20.GL_LESS);
-		GLES20.glDepthMask(true);
+		GLStateTracker.getInstance().glEnable(GLES20.GL_DEPTH_TEST);
+		GLStateTracker.getInstance().glDepthFunc(GLES20.GL_LESS);
+		GLStateTracker.getInstance().glDepthMask(true);
 		GLES20.glClearDepthf(1.0f);
 
 		// Clear buffers used for color-picking
@@ -1155,15 +1180,15 @@ public class Scene {
 		Material pickingMaterial = picker.getMaterial();
 
 		// Can't blend picking colors
-		GLES20.glDisable(GLES20.GL_BLEND);
+		GLStateTracker.getInstance().glDisable(GLES20.GL_BLEND);
 
 		// Render the Skybox first (no need for depth testing)
 		if (mSkybox != null && mSkybox.isPickingEnabled()) {
-			GLES20.glDisable(GLES20.GL_DEPTH_TEST);
-			GLES20.glDepthMask(false);
+			GLStateTracker.getInstance().glDisable(GLES20.GL_DEPTH_TEST);
+			GLStateTracker.getInstance().glDepthMask(false);
 			mSkybox.renderColorPicking(mCamera, pickingMaterial);
-			GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-			GLES20.glDepthMask(true);
+			GLStateTracker.getInstance().glEnable(GLES20.GL_DEPTH_TEST);
+			GLStateTracker.getInstance().glDepthMask(true);
 		}
 
 		// Render all children using their picking colors
@@ -1325,6 +1350,17 @@ public class Scene {
 		return mChildren.size();
 	}
 
+	/**
+	 * Retrieve a child without copying the child list. Children are added and removed by frame
+	 * tasks, so this is only consistent with {@link #getNumChildren()} on the GL thread.
+	 *
+	 * @param index {@code int} Index of the child, less than {@link #getNumChildren()}.
+	 * @return {@link Object3D} The child.
+	 */
+	public Object3D getChildAt(int index) {
+		return mChildren.get(index);
+	}
+
 	/**
 	 * Creates a shallow copy of the internal plugin list.
 	 *
@@ -1472,6 +1508,58 @@ public class Scene {
 			addShadowMapMaterialPlugin(o.getChildAt(i), materialPlugin);
 	}
 
+	/**
+	 * Adds a child to the scene graph, if there is one. Containers are left out because
+	 * their bounds don't cover what they draw.
+	 *
+	 * @param child {@link Object3D} child which was added to the scene.
+	 */
+	private void addToSceneGraph(Object3D child) {
+		if (mSceneGraph != null && !child.isContainer()) {
+			mSceneGraph.addObject(child);
+		}
+	}
+
+	/**
+	 * Removes a child from the scene graph, if it is in one.
+	 *
+	 * @param child {@link Object3D} child which was removed from the scene.
+	 */
+	private void removeFromSceneGraph(Object3D child) {
+		if (mSceneGraph != null && child != null && child.getGraphNode() != null) {
+			mSceneGraph.removeObject(child);
+		}
+	}
+
+	/**
+	 * Collects the children whose bounds are within a distance of a point, such as the
+	 * targets around a player. Requires a scene graph, see {@link #Scene(Renderer, GRAPH_TYPE)}.
+	 * Like the other child operations this should only be called from the GL thread.
+	 *
+	 * @param center {@link Vector3} The point to measure from.
+	 * @param radius double The maximum distance.
+	 * @param result {@link Collection} the children in range are added to.
+	 */
+	public void getObjectsInRange(Vector3 center, double radius, Collection<IGraphNodeMember> result) {
+		if (mSceneGraph != null) {
+			mSceneGraph.getObjectsInRange(center, radius, result);
+		}
+	}
+
+	/**
+	 * Finds the child whose bounds are nearest to a point. Requires a scene graph,
+	 * see {@link #Scene(Renderer, GRAPH_TYPE)}. Like the other child operations this
+	 * should only be called from the GL thread.
+	 *
+	 * @param point {@link Vector3} The point to measure from.
+	 * @param maxDistance double Children farther away than this are ignored.
+	 * @return {@link Object3D} The nearest child or null if there is none in range.
+	 */
+	public Object3D getNearestObject(Vector3 point, double maxDistance) {
+		if (mSceneGraph == null) return null;
+		return (Object3D) mSceneGraph.getNearestObject(point, maxDistance);
+	}
+
 	/**
 	 * Set if the scene graph should be displayed. How it is
 	 * displayed is left to the implementation of the graph.
@@ -18,6 +18,7 @@ import java.util.List;
 
 import org.rajawali3d.ATransformable3D;
 import org.rajawali3d.cameras.Camera;
+import org.rajawali3d.cameras.Frustum;
 import org.rajawali3d.bounds.BoundingBox;
 import org.rajawali3d.bounds.BoundingSphere;
 import org.rajawali3d.bounds.IBoundingVolume;
@@ -288,7 +289,8 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 	 * @param object IGraphNodeMember to be added.
 	 */
 	protected void addToMembers(IGraphNodeMember object) {
-		RajLog.d("[" + this.getClass().getName() + "] Adding object: " + object + " to members list in: " + this); 
+		if (RajLog.isDebugEnabled())
+			RajLog.d("[" + this.getClass().getName() + "] Adding object: " + object + " to members list in: " + this);
 		object.getTransformedBoundingVolume().setBoundingColor(mBoundingColor.get());
 		object.setGraphNode(this, true);
 		mMembers.add(object);
@@ -301,7 +303,8 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 	 * @param object IGraphNodeMember to be removed.
 	 */
 	protected void removeFromMembers(IGraphNodeMember object) {
-		RajLog.d("[" + this.getClass().getName() + "] Removing object: " + object + " from members list in: " + this);
+		if (RajLog.isDebugEnabled())
+			RajLog.d("[" + this.getClass().getName() + "] Removing object: " + object + " from members list in: " + this);
 		object.getTransformedBoundingVolume().setBoundingColor(IBoundingVolume.DEFAULT_COLOR);
 		object.setGraphNode(null, false);
 		mMembers.remove(object);
@@ -328,6 +331,11 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 	 */
 	protected ArrayList<IGraphNodeMember> getAllMembersRecursively(boolean shouldClear) {
 		ArrayList<IGraphNodeMember> members = new ArrayList<IGraphNodeMember>();
+		addAllMembersRecursively(members, shouldClear);
+		return members;
+	}
+
+	private void addAllMembersRecursively(List<IGraphNodeMember> members, boolean shouldClear) {
 		members.addAll(mMembers);
 		if (mParent == null) {
 			members.addAll(mOutside);
@@ -335,11 +343,9 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 		if (shouldClear) clear();
 		if (mSplit) {
 			for (int i = 0; i < CHILD_COUNT; ++i) {
-				members.addAll(mChildren[i].mMembers);
-				if (shouldClear) mChildren[i].clear();
+				mChildren[i].addAllMembersRecursively(members, shouldClear);
 			}
 		}
-		return members;
 	}
 
 	/**
@@ -629,8 +635,9 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 	 * @see rajawali.scenegraph.IGraphNode#addObjects(java.util.Collection)
 	 */
 	public void addObjects(Collection<IGraphNodeMember> objects) {
-		// TODO Auto-generated method stub
-		
+		for (IGraphNodeMember object : objects) {
+			addObject(object);
+		}
 	}
 
 	/*
@@ -643,9 +650,13 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 		//Retrieve the container object
 		IGraphNode container = object.getGraphNode();
 		if (container == null) {
-			mOutside.remove(object);
+			if (mParent == null) mOutside.remove(object);
 		} else {
-			if (container == this) {
+			if (container == this && !object.isInGraph()) {
+				//Objects outside of the root are held by the root
+				mOutside.remove(object);
+				object.setGraphNode(null, false);
+			} else if (container == this) {
 				//If this is the container, process the removal
 				//Remove the object from the members
 				removeFromMembers(object);
@@ -666,8 +677,9 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 	 * @see rajawali.scenegraph.IGraphNode#removeObjects(java.util.Collection)
 	 */
 	public void removeObjects(Collection<IGraphNodeMember> objects) {
-		// TODO Auto-generated method stub
-		
+		for (IGraphNodeMember object : objects) {
+			removeObject(object);
+		}
 	}
 
 	/*
@@ -675,79 +687,89 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 	 * @see rajawali.scenegraph.IGraphNode#updateObject(rajawali.ATransformable3D)
 	 */
 	public synchronized void updateObject(IGraphNodeMember object) {
-		/*RajLog.d("[" + this.getClass().getName() + "] Updating object: " + object + 
-				"[" + object.getClass().getName() + "] in octree.");*/
-		if (mParent == null && getObjectCount() == 1) { //If there is only one object, we should just follow it
-			setBounds(object);			
+		final A_nAABBTree container = (A_nAABBTree) object.getGraphNode(); //Get the container node
+		if (container == null) return;
+		final A_nAABBTree root = container.getRoot();
+		if (!root.mSplit && root.getObjectCount() == 1) { //If there is only one object, we should just follow it
+			root.setBounds(object);
+			if (!object.isInGraph()) {
+				root.mOutside.remove(object);
+				root.addToMembers(object);
+			}
 			return;
 		}
-		IGraphNode container = object.getGraphNode(); //Get the container node
-		handleRecursiveUpdate((A_nAABBTree) container, object);
-		RajLog.e("Node: " + this + " Object Container: " + container);
+		handleRecursiveUpdate(container, object);
 	}
 
 	/**
 	 * Handles the potentially recursive process of the update. Will determine which node
-	 * the object is now within.
+	 * the object is now within. The search moves up from the prior container to the first
+	 * node which contains the object and then down to the deepest child which does.
 	 * 
 	 * @param container A_nAABBTree instance which is the prior container.
 	 * @param object IGraphNodeMember which is being updated.
 	 */
 	protected void handleRecursiveUpdate(final A_nAABBTree container, IGraphNodeMember object) {
-		//RajLog.i("Rajawali", "Handling recursive update potential.");
+		final IBoundingVolume volume = object.getTransformedBoundingVolume();
 		A_nAABBTree local_container = container;
-		boolean updated = false;
-		while (!updated) {
-			if (local_container.contains(object.getTransformedBoundingVolume())) {
-				int fits_in_child = -1;
-				if (mSplit) {
-					for (int j = 0; j < CHILD_COUNT; ++j) {
-						if (mChildren[j].contains(object.getTransformedBoundingVolume())) {
-							//If the member fits in this child, mark that child
-							if (fits_in_child < 0) {
-								fits_in_child = j;
-							} else {
-								//It fits in multiple children, leave it in parent
-								fits_in_child = -1;
-								break;
-							}
-						}
-					}
-					if (fits_in_child >= 0) { //If a single child was marked
-						RajLog.i("Fits in a single child.");
-						local_container.removeFromMembers(object);
-						mChildren[fits_in_child].internalAddObject(object);
-						updated = true;
-					} else { //TODO: WORKS
-						RajLog.i("Fits in multiple children, leaving in place.");
-						updated = true;
-					}
-				} else {
-					RajLog.i("No children so we are leaving in same node.");
-					if (!object.isInGraph()) {
-						RajLog.i("Removing from outside graph and moving to inside root.");
-						local_container.mOutside.remove(object);
-						local_container.internalAddObject(object);
-					}
-					updated = true;
-				}
-			} else {
-				//RajLog.v("Rajawali", "OUTSIDE");
-				if (local_container.mParent == null) { //TODO: WORKS
-					//RajLog.v("Rajawali", "OUTSIDE");
-					//RajLog.i("Rajawali", "Container is root node. Adding to outside.");
-					if (object.isInGraph()) {
-						local_container.removeFromMembers(object);
-						local_container.addToOutside(object);
-					}
-					//RajLog.e("Rajawali", "Node after addToOutside: " + object.getGraphNode());
-					updated = true;
-				} else {
-					RajLog.i("Container is not root (" + local_container + "). Moving search up a level.");
-					local_container = local_container.mParent;
+		while (!local_container.contains(volume) && local_container.mParent != null) {
+			local_container = local_container.mParent;
+		}
+		if (!local_container.contains(volume)) {
+			//The object left the root, move it to the outside list
+			if (object.isInGraph()) {
+				container.removeFromMembers(object);
+				local_container.addToOutside(object);
+				if (local_container.mOutside.size() >= mGrowThreshold) {
+					local_container.grow();
 				}
 			}
+			return;
+		}
+		while (local_container.mSplit) {
+			final A_nAABBTree child = local_container.getContainingChild(volume);
+			if (child == null) break;
+			local_container = child;
+		}
+		if (local_container == container && object.isInGraph()) {
+			return; //Still in the same node
 		}
+		if (object.isInGraph()) {
+			container.removeFromMembers(object);
+		} else {
+			container.mOutside.remove(object);
+		}
+		local_container.internalAddObject(object);
+	}
+
+	/**
+	 * Finds the single child which contains the volume.
+	 * 
+	 * @param volume IBoundingVolume to check containment of.
+	 * @return A_nAABBTree The child or null if no or more than one child contains the volume.
+	 */
+	protected A_nAABBTree getContainingChild(IBoundingVolume volume) {
+		A_nAABBTree fits_in_child = null;
+		for (int i = 0; i < CHILD_COUNT; ++i) {
+			if (mChildren[i].contains(volume)) {
+				if (fits_in_child != null) return null; //It fits in multiple children
+				fits_in_child = mChildren[i];
+			}
+		}
+		return fits_in_child;
+	}
+
+	/**
+	 * Retrieve the root node of the tree this node is in.
+	 * 
+	 * @return A_nAABBTree The root node.
+	 */
+	protected A_nAABBTree getRoot() {
+		A_nAABBTree node = this;
+		while (node.mParent != null) {
+			node = node.mParent;
+		}
+		return node;
 	}
 
 	/*
@@ -783,6 +805,157 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see rajawali.scenegraph.IGraphNode#cullFromFrustum(rajawali.cameras.Frustum, java.util.Collection)
+	 */
+	public void cullFromFrustum(Frustum frustum, Collection<IGraphNodeMember> visible) {
+		if (mParent == null) {
+			for (int i = 0, j = mOutside.size(); i < j; ++i) {
+				final IGraphNodeMember member = mOutside.get(i);
+				if (isInFrustum(frustum, member)) visible.add(member);
+			}
+		}
+		if (mMembers.isEmpty() && !mSplit) return;
+		//Skip the whole branch when this node is outside of the frustum
+		if (!frustum.boundsInFrustum(mTransformedMin, mTransformedMax)) return;
+		for (int i = 0, j = mMembers.size(); i < j; ++i) {
+			final IGraphNodeMember member = mMembers.get(i);
+			if (isInFrustum(frustum, member)) visible.add(member);
+		}
+		if (mSplit) {
+			for (int i = 0; i < CHILD_COUNT; ++i) {
+				mChildren[i].cullFromFrustum(frustum, visible);
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see rajawali.scenegraph.IGraphNode#getObjectsInRange(rajawali.math.vector.Vector3, double, java.util.Collection)
+	 */
+	public void getObjectsInRange(Vector3 center, double radius, Collection<IGraphNodeMember> result) {
+		final double radiusSquared = radius * radius;
+		if (mParent == null) {
+			for (int i = 0, j = mOutside.size(); i < j; ++i) {
+				final IGraphNodeMember member = mOutside.get(i);
+				if (getDistanceSquared(center, member) <= radiusSquared) result.add(member);
+			}
+		}
+		if (mMembers.isEmpty() && !mSplit) return;
+		if (getDistanceSquared(center, mTransformedMin, mTransformedMax) > radiusSquared) return;
+		for (int i = 0, j = mMembers.size(); i < j; ++i) {
+			final IGraphNodeMember member = mMembers.get(i);
+			if (getDistanceSquared(center, member) <= radiusSquared) result.add(member);
+		}
+		if (mSplit) {
+			for (int i = 0; i < CHILD_COUNT; ++i) {
+				mChildren[i].getObjectsInRange(center, radius, result);
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see rajawali.scenegraph.IGraphNode#getNearestObject(rajawali.math.vector.Vector3, double)
+	 */
+	public IGraphNodeMember getNearestObject(Vector3 point, double maxDistance) {
+		final double[] bestDistanceSquared = new double[] { maxDistance * maxDistance };
+		IGraphNodeMember nearest = null;
+		if (mParent == null) {
+			for (int i = 0, j = mOutside.size(); i < j; ++i) {
+				final IGraphNodeMember member = mOutside.get(i);
+				final double distance = getDistanceSquared(point, member);
+				if (distance <= bestDistanceSquared[0]) {
+					bestDistanceSquared[0] = distance;
+					nearest = member;
+				}
+			}
+		}
+		final IGraphNodeMember inside = findNearestObject(point, bestDistanceSquared);
+		return inside == null ? nearest : inside;
+	}
+
+	/**
+	 * Searches this node and its children for a member closer than the best distance found so far.
+	 * Nodes farther away than that distance are skipped.
+	 * 
+	 * @param point Vector3 to measure the distance from.
+	 * @param bestDistanceSquared double[] holding the squared distance of the nearest member so far.
+	 * It is updated when a nearer member is found.
+	 * @return IGraphNodeMember The nearer member or null if there is none in this branch.
+	 */
+	protected IGraphNodeMember findNearestObject(Vector3 point, double[] bestDistanceSquared) {
+		if (mMembers.isEmpty() && !mSplit) return null;
+		if (getDistanceSquared(point, mTransformedMin, mTransformedMax) > bestDistanceSquared[0]) return null;
+		IGraphNodeMember nearest = null;
+		for (int i = 0, j = mMembers.size(); i < j; ++i) {
+			final IGraphNodeMember member = mMembers.get(i);
+			final double distance = getDistanceSquared(point, member);
+			if (distance <= bestDistanceSquared[0]) {
+				bestDistanceSquared[0] = distance;
+				nearest = member;
+			}
+		}
+		if (mSplit) {
+			for (int i = 0; i < CHILD_COUNT; ++i) {
+				final IGraphNodeMember child_nearest = mChildren[i].findNearestObject(point, bestDistanceSquared);
+				if (child_nearest != null) nearest = child_nearest;
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * Tests the bounding volume of a member against the frustum. Members without
+	 * a bounding volume are tested by their position.
+	 */
+	protected static boolean isInFrustum(Frustum frustum, IGraphNodeMember member) {
+		final IBoundingVolume volume = member.getTransformedBoundingVolume();
+		if (volume instanceof BoundingBox) {
+			final BoundingBox box = (BoundingBox) volume;
+			return frustum.boundsInFrustum(box.getTransformedMin(), box.getTransformedMax());
+		} else if (volume instanceof BoundingSphere) {
+			final BoundingSphere sphere = (BoundingSphere) volume;
+			return frustum.sphereInFrustum(sphere.getPosition(), sphere.getScaledRadius());
+		}
+		return frustum.pointInFrustum(member.getScenePosition());
+	}
+
+	/**
+	 * Calculates the squared distance from a point to the bounding volume of a member,
+	 * which is 0 when the point is inside of it. Members without a bounding volume are
+	 * measured by their position.
+	 */
+	protected static double getDistanceSquared(Vector3 point, IGraphNodeMember member) {
+		final IBoundingVolume volume = member.getTransformedBoundingVolume();
+		if (volume instanceof BoundingBox) {
+			final BoundingBox box = (BoundingBox) volume;
+			return getDistanceSquared(point, box.getTransformedMin(), box.getTransformedMax());
+		} else if (volume instanceof BoundingSphere) {
+			final BoundingSphere sphere = (BoundingSphere) volume;
+			final double distance = Math.max(0, point.distanceTo(sphere.getPosition()) - sphere.getScaledRadius());
+			return distance * distance;
+		}
+		return point.distanceTo2(member.getScenePosition());
+	}
+
+	/**
+	 * Calculates the squared distance from a point to an axis aligned box, which is
+	 * 0 when the point is inside of it.
+	 */
+	protected static double getDistanceSquared(Vector3 point, Vector3 min, Vector3 max) {
+		double distance = 0;
+		double d;
+		if (point.x < min.x) { d = min.x - point.x; distance += d * d; }
+		else if (point.x > max.x) { d = point.x - max.x; distance += d * d; }
+		if (point.y < min.y) { d = min.y - point.y; distance += d * d; }
+		else if (point.y > max.y) { d = point.y - max.y; distance += d * d; }
+		if (point.z < min.z) { d = min.z - point.z; distance += d * d; }
+		else if (point.z > max.z) { d = point.z - max.z; distance += d * d; }
+		return distance;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see rajawali.scenegraph.IGraphNode#displayGraph(boolean)
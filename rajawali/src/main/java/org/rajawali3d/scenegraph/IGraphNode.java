@@ -15,6 +15,7 @@ package org.rajawali3d.scenegraph;
 import java.util.Collection;
 
 import org.rajawali3d.cameras.Camera;
+import org.rajawali3d.cameras.Frustum;
 import org.rajawali3d.bounds.IBoundingVolume;
 import org.rajawali3d.math.Matrix4;
 import org.rajawali3d.math.vector.Vector3;
@@ -120,6 +121,33 @@ public interface IGraphNode {
 	 */
 	public void cullFromBoundingVolume(IBoundingVolume volume);
 
+	/**
+	 * Collects the objects whose bounding volumes intersect the frustum. Implementations
+	 * should skip whole branches of the graph which are outside of it.
+	 *
+	 * @param frustum {@link Frustum} to test visibility against.
+	 * @param visible {@link Collection} the visible objects are added to.
+	 */
+	public void cullFromFrustum(Frustum frustum, Collection<IGraphNodeMember> visible);
+
+	/**
+	 * Collects the objects whose bounding volumes are within a distance of a point.
+	 *
+	 * @param center {@link Vector3} The point to measure from.
+	 * @param radius double The maximum distance.
+	 * @param result {@link Collection} the objects in range are added to.
+	 */
+	public void getObjectsInRange(Vector3 center, double radius, Collection<IGraphNodeMember> result);
+
+	/**
+	 * Finds the object whose bounding volume is nearest to a point.
+	 *
+	 * @param point {@link Vector3} The point to measure from.
+	 * @param maxDistance double Objects farther away than this are ignored.
+	 * @return {@link IGraphNodeMember} The nearest object or null if none is in range.
+	 */
+	public IGraphNodeMember getNearestObject(Vector3 point, double maxDistance);
+
 	/**
 	 * Call this in the renderer to cause the scene graph to be
 	 * displayed. It is up to the implementation to determine
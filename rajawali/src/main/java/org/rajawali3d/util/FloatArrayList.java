@@ -0,0 +1,59 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.util;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of primitive floats. Unlike {@code ArrayList<Float>} it doesn't box its values.
+ */
+public class FloatArrayList {
+
+	private float[] mValues;
+	private int mSize;
+
+	public FloatArrayList() {
+		this(64);
+	}
+
+	public FloatArrayList(int capacity) {
+		mValues = new float[Math.max(capacity, 1)];
+	}
+
+	public void add(float value) {
+		if (mSize == mValues.length) {
+			mValues = Arrays.copyOf(mValues, mSize << 1);
+		}
+		mValues[mSize++] = value;
+	}
+
+	public float get(int index) {
+		if (index >= mSize) throw new IndexOutOfBoundsException("Index " + index + ", size " + mSize);
+		return mValues[index];
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public void clear() {
+		mSize = 0;
+	}
+
+	/**
+	 * @return {@code float[]} A copy of the values.
+	 */
+	public float[] toArray() {
+		return Arrays.copyOf(mValues, mSize);
+	}
+}
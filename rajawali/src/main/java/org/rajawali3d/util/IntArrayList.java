@@ -0,0 +1,59 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.util;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of primitive ints. Unlike {@code ArrayList<Integer>} it doesn't box its values.
+ */
+public class IntArrayList {
+
+	private int[] mValues;
+	private int mSize;
+
+	public IntArrayList() {
+		this(64);
+	}
+
+	public IntArrayList(int capacity) {
+		mValues = new int[Math.max(capacity, 1)];
+	}
+
+	public void add(int value) {
+		if (mSize == mValues.length) {
+			mValues = Arrays.copyOf(mValues, mSize << 1);
+		}
+		mValues[mSize++] = value;
+	}
+
+	public int get(int index) {
+		if (index >= mSize) throw new IndexOutOfBoundsException("Index " + index + ", size " + mSize);
+		return mValues[index];
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public void clear() {
+		mSize = 0;
+	}
+
+	/**
+	 * @return {@code int[]} A copy of the values.
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(mValues, mSize);
+	}
+}
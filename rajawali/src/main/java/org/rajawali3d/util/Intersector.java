@@ -159,4 +159,58 @@ public final class Intersector {
 			return true;
 		}
 	}
+
+	/**
+	 * Intersects the line p + t * d, 0 <= t <= tMax with an axis aligned box grown by radius on every side.
+	 * With a non zero radius this is a (slightly conservative) swept sphere test.
+	 * @param px Start point of the line
+	 * @param py Start point of the line
+	 * @param pz Start point of the line
+	 * @param dx Direction of the line. Doesn't have to be normalized.
+	 * @param dy Direction of the line. Doesn't have to be normalized.
+	 * @param dz Direction of the line. Doesn't have to be normalized.
+	 * @param minX Minimum corner of the box
+	 * @param minY Minimum corner of the box
+	 * @param minZ Minimum corner of the box
+	 * @param maxX Maximum corner of the box
+	 * @param maxY Maximum corner of the box
+	 * @param maxZ Maximum corner of the box
+	 * @param radius Amount the box is grown by
+	 * @param tMax End of the line. 1 for a segment from p to p + d, Double.MAX_VALUE for a ray.
+	 * @return The t of the first intersection, 0 when p starts inside, or -1 if there is no intersection.
+	 */
+	public static double intersectLineAABB(double px, double py, double pz, double dx, double dy, double dz,
+			double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+			double radius, double tMax) {
+		double tMin = 0;
+		double p, d, min, max, inv, t1, t2, tmp;
+
+		for (int axis = 0; axis < 3; ++axis) {
+			if (axis == 0) {
+				p = px; d = dx; min = minX; max = maxX;
+			} else if (axis == 1) {
+				p = py; d = dy; min = minY; max = maxY;
+			} else {
+				p = pz; d = dz; min = minZ; max = maxZ;
+			}
+			min -= radius;
+			max += radius;
+
+			if (d == 0) {
+				// -- parallel to the slab. Must start inside it.
+				if (p < min || p > max) return -1;
+				continue;
+			}
+			inv = 1.0 / d;
+			t1 = (min - p) * inv;
+			t2 = (max - p) * inv;
+			if (t1 > t2) {
+				tmp = t1; t1 = t2; t2 = tmp;
+			}
+			if (t1 > tMin) tMin = t1;
+			if (t2 < tMax) tMax = t2;
+			if (tMin > tMax) return -1;
+		}
+		return tMin;
+	}
 }
@@ -118,8 +118,10 @@ public class LittleEndianDataInputStream extends InputStream implements DataInpu
 	}
 
 	public final int read(byte b[], int off, int len) throws IOException {
-		mPosition += len;
-		return in.read(b, off, len);
+		final int read = in.read(b, off, len);
+		if (read > 0)
+			mPosition += read;
+		return read;
 	}
 
 	public final void readFully(byte b[]) throws IOException {
@@ -133,13 +135,26 @@ public class LittleEndianDataInputStream extends InputStream implements DataInpu
 	}
 
 	public final long skip(int n) throws IOException {
-		mPosition += n;
-		return d.skip(n);
+		return skip((long) n);
 	}
 
+	/**
+	 * Skips n bytes unless the end of the stream is reached first. Unlike InputStream.skip() this
+	 * doesn't stop early on streams which skip in chunks, such as decompressing streams.
+	 */
 	public final long skip(long n) throws IOException {
-		mPosition += n;
-		return d.skip(n);
+		long skipped = 0;
+		while (skipped < n) {
+			long count = d.skip(n - skipped);
+			if (count <= 0) {
+				if (d.read() < 0)
+					break;
+				count = 1;
+			}
+			skipped += count;
+		}
+		mPosition += skipped;
+		return skipped;
 	}
 
 	public final int skipBytes(int n) throws IOException {
@@ -0,0 +1,395 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes LZMA data in the "LZMA alone" format which starts with a 13 byte header: the lc/lp/pb
+ * properties byte, the dictionary size and the uncompressed size, or -1 when the data ends with an
+ * end marker. This is the format of Flash's ByteArray.compress(CompressionAlgorithm.LZMA), which
+ * AWD exporters use.
+ * <p/>
+ * The data is decoded while it is read, only the dictionary is kept in memory. Follows the
+ * reference decoder of the LZMA specification in the public domain LZMA SDK.
+ */
+public class LzmaInputStream extends InputStream {
+
+	private static final int NUM_STATES = 12;
+	private static final int NUM_POS_BITS_MAX = 4;
+	private static final int NUM_LEN_TO_POS_STATES = 4;
+	private static final int NUM_ALIGN_BITS = 4;
+	private static final int START_POS_MODEL_INDEX = 4;
+	private static final int END_POS_MODEL_INDEX = 14;
+	private static final int NUM_FULL_DISTANCES = 1 << (END_POS_MODEL_INDEX >> 1);
+	private static final int MATCH_MIN_LEN = 2;
+
+	private static final int NUM_BIT_MODEL_TOTAL_BITS = 11;
+	private static final int BIT_MODEL_TOTAL = 1 << NUM_BIT_MODEL_TOTAL_BITS;
+	private static final int NUM_MOVE_BITS = 5;
+	private static final int TOP_VALUE = 1 << 24;
+
+	private final InputStream mIn;
+
+	private final int mLc;
+	private final int mLp;
+	private final int mPb;
+	private final int mDictionarySize;
+	/**
+	 * Bytes left to decode, -1 when the size isn't known.
+	 */
+	private long mRemaining;
+
+	// Range decoder
+	private int mRange;
+	private int mCode;
+
+	// Dictionary
+	private final byte[] mWindow;
+	private int mWindowPos;
+	private boolean mWindowFull;
+	private long mTotalPos;
+
+	// Probability models
+	private final short[] mLiteralProbs;
+	private final short[] mPosSlot = new short[NUM_LEN_TO_POS_STATES << 6];
+	private final short[] mPosDecoders = new short[1 + NUM_FULL_DISTANCES - END_POS_MODEL_INDEX];
+	private final short[] mAlign = new short[1 << NUM_ALIGN_BITS];
+	private final short[] mIsMatch = new short[NUM_STATES << NUM_POS_BITS_MAX];
+	private final short[] mIsRep = new short[NUM_STATES];
+	private final short[] mIsRepG0 = new short[NUM_STATES];
+	private final short[] mIsRepG1 = new short[NUM_STATES];
+	private final short[] mIsRepG2 = new short[NUM_STATES];
+	private final short[] mIsRep0Long = new short[NUM_STATES << NUM_POS_BITS_MAX];
+	private final LenDecoder mLenDecoder = new LenDecoder();
+	private final LenDecoder mRepLenDecoder = new LenDecoder();
+
+	private int mState;
+	private int mRep0, mRep1, mRep2, mRep3;
+	/**
+	 * Bytes of the current match which haven't been copied yet.
+	 */
+	private int mMatchLength;
+	/**
+	 * Bytes at the end of the window which haven't been read yet.
+	 */
+	private int mUnread;
+	private boolean mFinished;
+
+	public LzmaInputStream(InputStream in) throws IOException {
+		mIn = in;
+
+		int properties = readByte();
+		if (properties >= 9 * 5 * 5)
+			throw new IOException("Invalid LZMA properties: " + properties);
+		mLc = properties % 9;
+		properties /= 9;
+		mLp = properties % 5;
+		mPb = properties / 5;
+
+		int dictionarySize = 0;
+		for (int i = 0; i < 4; ++i) {
+			dictionarySize |= readByte() << (8 * i);
+		}
+		long size = 0;
+		for (int i = 0; i < 8; ++i) {
+			size |= (long) readByte() << (8 * i);
+		}
+		mRemaining = size;
+		mDictionarySize = dictionarySize < 0 || dictionarySize > 1 << 30 ? 1 << 30
+				: Math.max(dictionarySize, 1 << 12);
+		// Nothing is referenced beyond the start of the data
+		mWindow = new byte[size >= 0 && size < mDictionarySize ? Math.max((int) size, 1) : mDictionarySize];
+
+		mLiteralProbs = new short[0x300 << (mLc + mLp)];
+		initProbs(mLiteralProbs);
+		initProbs(mPosSlot);
+		initProbs(mPosDecoders);
+		initProbs(mAlign);
+		initProbs(mIsMatch);
+		initProbs(mIsRep);
+		initProbs(mIsRepG0);
+		initProbs(mIsRepG1);
+		initProbs(mIsRepG2);
+		initProbs(mIsRep0Long);
+
+		if (readByte() != 0)
+			throw new IOException("Corrupted LZMA data");
+		for (int i = 0; i < 4; ++i) {
+			mCode = (mCode << 8) | readByte();
+		}
+		mRange = 0xFFFFFFFF;
+		if (mCode == mRange)
+			throw new IOException("Corrupted LZMA data");
+	}
+
+	@Override
+	public int read() throws IOException {
+		final byte[] b = new byte[1];
+		return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		int read = 0;
+		while (read < len) {
+			if (mUnread > 0) {
+				int pos = mWindowPos - mUnread;
+				if (pos < 0) pos += mWindow.length;
+				b[off + read++] = mWindow[pos];
+				--mUnread;
+			} else if (mMatchLength > 0) {
+				final int count = Math.min(mMatchLength, len - read);
+				for (int i = 0; i < count; ++i) {
+					final byte value = getByte(mRep0 + 1);
+					putByte(value);
+					b[off + read++] = value;
+				}
+				mUnread = 0;
+				mMatchLength -= count;
+			} else if (mFinished || !decode()) {
+				break;
+			}
+		}
+		return read == 0 ? -1 : read;
+	}
+
+	@Override
+	public void close() throws IOException {
+		mIn.close();
+	}
+
+	/**
+	 * Decodes the next literal or match.
+	 *
+	 * @return {@code boolean} False at the end of the data.
+	 */
+	private boolean decode() throws IOException {
+		if (mRemaining == 0) {
+			mFinished = true;
+			return false;
+		}
+		final int posState = (int) mTotalPos & ((1 << mPb) - 1);
+
+		if (decodeBit(mIsMatch, (mState << NUM_POS_BITS_MAX) + posState) == 0) {
+			decodeLiteral();
+			mState = mState < 4 ? 0 : (mState < 10 ? mState - 3 : mState - 6);
+			return true;
+		}
+
+		int length;
+		if (decodeBit(mIsRep, mState) != 0) {
+			if (mTotalPos == 0)
+				throw new IOException("Corrupted LZMA data");
+			if (decodeBit(mIsRepG0, mState) == 0) {
+				if (decodeBit(mIsRep0Long, (mState << NUM_POS_BITS_MAX) + posState) == 0) {
+					mState = mState < 7 ? 9 : 11;
+					putByte(getByte(mRep0 + 1));
+					mUnread = 1;
+					return true;
+				}
+			} else {
+				final int distance;
+				if (decodeBit(mIsRepG1, mState) == 0) {
+					distance = mRep1;
+				} else {
+					if (decodeBit(mIsRepG2, mState) == 0) {
+						distance = mRep2;
+					} else {
+						distance = mRep3;
+						mRep3 = mRep2;
+					}
+					mRep2 = mRep1;
+				}
+				mRep1 = mRep0;
+				mRep0 = distance;
+			}
+			length = mRepLenDecoder.decode(posState);
+			mState = mState < 7 ? 8 : 11;
+		} else {
+			mRep3 = mRep2;
+			mRep2 = mRep1;
+			mRep1 = mRep0;
+			length = mLenDecoder.decode(posState);
+			mState = mState < 7 ? 7 : 10;
+			mRep0 = decodeDistance(length);
+			if (mRep0 == 0xFFFFFFFF) {
+				// End marker
+				mFinished = true;
+				return false;
+			}
+			if (mRep0 < 0 || mRep0 >= mDictionarySize || (!mWindowFull && mRep0 >= mWindowPos))
+				throw new IOException("Corrupted LZMA data");
+		}
+
+		length += MATCH_MIN_LEN;
+		if (mRemaining >= 0 && length > mRemaining)
+			length = (int) mRemaining;
+		mMatchLength = length;
+		return true;
+	}
+
+	private void decodeLiteral() throws IOException {
+		final int prevByte = mTotalPos == 0 ? 0 : getByte(1) & 0xFF;
+		final int litState = (((int) mTotalPos & ((1 << mLp) - 1)) << mLc) + (prevByte >>> (8 - mLc));
+		final int offset = 0x300 * litState;
+		int symbol = 1;
+		if (mState >= 7) {
+			int matchByte = getByte(mRep0 + 1) & 0xFF;
+			do {
+				final int matchBit = (matchByte >>> 7) & 1;
+				matchByte <<= 1;
+				final int bit = decodeBit(mLiteralProbs, offset + ((1 + matchBit) << 8) + symbol);
+				symbol = (symbol << 1) | bit;
+				if (matchBit != bit)
+					break;
+			} while (symbol < 0x100);
+		}
+		while (symbol < 0x100) {
+			symbol = (symbol << 1) | decodeBit(mLiteralProbs, offset + symbol);
+		}
+		putByte((byte) symbol);
+		mUnread = 1;
+	}
+
+	private int decodeDistance(int length) throws IOException {
+		final int lenState = Math.min(length, NUM_LEN_TO_POS_STATES - 1);
+		final int posSlot = bitTreeDecode(mPosSlot, lenState << 6, 6);
+		if (posSlot < START_POS_MODEL_INDEX)
+			return posSlot;
+		final int numDirectBits = (posSlot >>> 1) - 1;
+		int distance = (2 | (posSlot & 1)) << numDirectBits;
+		if (posSlot < END_POS_MODEL_INDEX) {
+			distance += bitTreeReverseDecode(mPosDecoders, distance - posSlot, numDirectBits);
+		} else {
+			distance += decodeDirectBits(numDirectBits - NUM_ALIGN_BITS) << NUM_ALIGN_BITS;
+			distance += bitTreeReverseDecode(mAlign, 0, NUM_ALIGN_BITS);
+		}
+		return distance;
+	}
+
+	private byte getByte(int distance) {
+		int pos = mWindowPos - distance;
+		if (pos < 0) pos += mWindow.length;
+		return mWindow[pos];
+	}
+
+	private void putByte(byte value) {
+		mWindow[mWindowPos++] = value;
+		if (mWindowPos == mWindow.length) {
+			mWindowPos = 0;
+			mWindowFull = true;
+		}
+		++mTotalPos;
+		if (mRemaining > 0)
+			--mRemaining;
+	}
+
+	private int readByte() throws IOException {
+		final int value = mIn.read();
+		if (value < 0)
+			throw new EOFException("Unexpected end of LZMA data");
+		return value;
+	}
+
+	private void normalize() throws IOException {
+		if ((mRange & 0xFFFFFFFFL) < TOP_VALUE) {
+			mRange <<= 8;
+			mCode = (mCode << 8) | readByte();
+		}
+	}
+
+	private int decodeBit(short[] probs, int index) throws IOException {
+		final int prob = probs[index];
+		final int bound = (mRange >>> NUM_BIT_MODEL_TOTAL_BITS) * prob;
+		final int bit;
+		if ((mCode ^ 0x80000000) < (bound ^ 0x80000000)) {
+			probs[index] = (short) (prob + ((BIT_MODEL_TOTAL - prob) >>> NUM_MOVE_BITS));
+			mRange = bound;
+			bit = 0;
+		} else {
+			probs[index] = (short) (prob - (prob >>> NUM_MOVE_BITS));
+			mCode -= bound;
+			mRange -= bound;
+			bit = 1;
+		}
+		normalize();
+		return bit;
+	}
+
+	private int decodeDirectBits(int numBits) throws IOException {
+		int result = 0;
+		for (int i = 0; i < numBits; ++i) {
+			mRange >>>= 1;
+			mCode -= mRange;
+			final int t = 0 - (mCode >>> 31);
+			mCode += mRange & t;
+			if (mCode == mRange)
+				throw new IOException("Corrupted LZMA data");
+			normalize();
+			result = (result << 1) + t + 1;
+		}
+		return result;
+	}
+
+	private int bitTreeDecode(short[] probs, int offset, int numBits) throws IOException {
+		int m = 1;
+		for (int i = 0; i < numBits; ++i) {
+			m = (m << 1) + decodeBit(probs, offset + m);
+		}
+		return m - (1 << numBits);
+	}
+
+	private int bitTreeReverseDecode(short[] probs, int offset, int numBits) throws IOException {
+		int m = 1;
+		int symbol = 0;
+		for (int i = 0; i < numBits; ++i) {
+			final int bit = decodeBit(probs, offset + m);
+			m = (m << 1) + bit;
+			symbol |= bit << i;
+		}
+		return symbol;
+	}
+
+	private static void initProbs(short[] probs) {
+		for (int i = 0; i < probs.length; ++i) {
+			probs[i] = BIT_MODEL_TOTAL >>> 1;
+		}
+	}
+
+	private final class LenDecoder {
+		private final short[] mChoice = new short[2];
+		private final short[] mLow = new short[1 << (NUM_POS_BITS_MAX + 3)];
+		private final short[] mMid = new short[1 << (NUM_POS_BITS_MAX + 3)];
+		private final short[] mHigh = new short[1 << 8];
+
+		LenDecoder() {
+			initProbs(mChoice);
+			initProbs(mLow);
+			initProbs(mMid);
+			initProbs(mHigh);
+		}
+
+		int decode(int posState) throws IOException {
+			if (decodeBit(mChoice, 0) == 0)
+				return bitTreeDecode(mLow, posState << 3, 3);
+			if (decodeBit(mChoice, 1) == 0)
+				return 8 + bitTreeDecode(mMid, posState << 3, 3);
+			return 16 + bitTreeDecode(mHigh, 0, 8);
+		}
+	}
+}
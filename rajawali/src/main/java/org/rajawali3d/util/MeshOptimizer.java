@@ -0,0 +1,357 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.util;
+
+import org.rajawali3d.Geometry3D;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Reorders indexed triangle lists for the GPU's post-transform vertex cache.
+ * <ol>
+ * <li>Triangles are reordered with Tom Forsyth's "Linear-Speed Vertex Cache Optimisation", so
+ * triangles which share vertices are drawn close together.</li>
+ * <li>Vertices are then reordered in the order the triangles first use them, so vertex fetches
+ * read memory sequentially.</li>
+ * </ol>
+ * Run {@link #optimize(Geometry3D)} after a loader has set the data and before the VBOs are
+ * created. The result is measured with {@link #getACMR(int[], int)}, the average number of
+ * vertices transformed per triangle: 3 for a vertex per corner, about 0.5 to 0.7 for a well
+ * ordered regular mesh.
+ */
+public final class MeshOptimizer {
+
+	/**
+	 * Size of the vertex cache which triangle scoring assumes. Larger than most hardware caches
+	 * so the order works for all of them.
+	 */
+	public static final int CACHE_SIZE = 32;
+
+	/**
+	 * FIFO cache size which {@link #getACMR(int[])} simulates, typical for mobile GPUs.
+	 */
+	public static final int DEFAULT_ACMR_CACHE_SIZE = 16;
+
+	private static final float CACHE_DECAY_POWER = 1.5f;
+	private static final float LAST_TRIANGLE_SCORE = 0.75f;
+	private static final float VALENCE_BOOST_SCALE = 2.0f;
+	private static final float VALENCE_BOOST_POWER = 0.5f;
+	private static final int MAX_VALENCE_SCORE = 64;
+
+	private static final float[] CACHE_SCORES = new float[CACHE_SIZE];
+	private static final float[] VALENCE_SCORES = new float[MAX_VALENCE_SCORE];
+
+	static {
+		for (int i = 0; i < CACHE_SIZE; ++i) {
+			// The last triangle's vertices score less, so the next triangle doesn't just reuse them
+			CACHE_SCORES[i] = i < 3 ? LAST_TRIANGLE_SCORE
+					: (float) Math.pow(1f - (i - 3) / (float) (CACHE_SIZE - 3), CACHE_DECAY_POWER);
+		}
+		for (int i = 1; i < MAX_VALENCE_SCORE; ++i) {
+			VALENCE_SCORES[i] = valenceScore(i);
+		}
+	}
+
+	private MeshOptimizer() {
+	}
+
+	/**
+	 * Reorders the triangles and vertices of a geometry in place. All attribute buffers are
+	 * reordered with the vertices, so anything else which refers to vertex indices (bone weights,
+	 * animation frames) must be reordered by the caller or the geometry left alone.
+	 *
+	 * @param geometry {@link Geometry3D} Triangle list geometry whose VBOs haven't been created.
+	 * @return {@code boolean} False if the geometry can't be changed, because it has no indices or
+	 *         its buffers are read only.
+	 */
+	public static boolean optimize(Geometry3D geometry) {
+		final Buffer indexBuffer = geometry.getIndices();
+		final int numVertices = geometry.getNumVertices();
+		if (indexBuffer == null || indexBuffer.capacity() < 3 || numVertices == 0)
+			return false;
+		final FloatBuffer[] attributes = {
+				geometry.getVertices(), geometry.getNormals(), geometry.getTextureCoords(), geometry.getColors()
+		};
+		if (indexBuffer.isReadOnly())
+			return false;
+		for (FloatBuffer attribute : attributes) {
+			if (attribute != null && attribute.isReadOnly())
+				return false;
+		}
+
+		int[] indices = getIndices(indexBuffer);
+		indices = optimizeTriangleOrder(indices, numVertices);
+		final int[] remap = optimizeVertexFetch(indices, numVertices);
+
+		for (FloatBuffer attribute : attributes) {
+			if (attribute != null)
+				remapAttribute(attribute, attribute.capacity() / numVertices, remap, numVertices);
+		}
+		if (indexBuffer instanceof ShortBuffer) {
+			final ShortBuffer shorts = (ShortBuffer) indexBuffer;
+			for (int i = 0; i < indices.length; ++i) {
+				shorts.put(i, (short) indices[i]);
+			}
+		} else {
+			final IntBuffer ints = (IntBuffer) indexBuffer;
+			ints.position(0);
+			ints.put(indices).position(0);
+		}
+		return true;
+	}
+
+	/**
+	 * Reorders triangles so vertices are reused while they are in the vertex cache.
+	 *
+	 * @param indices {@code int[]} Triangle list indices.
+	 * @param numVertices {@code int} Number of vertices the indices refer to.
+	 * @return {@code int[]} The same triangles in cache friendly order.
+	 */
+	public static int[] optimizeTriangleOrder(int[] indices, int numVertices) {
+		final int numTriangles = indices.length / 3;
+		final int[] output = new int[numTriangles * 3];
+
+		// Triangles of each vertex which haven't been drawn, in a slice of the adjacency array
+		final int[] valence = new int[numVertices];
+		for (int i = 0; i < numTriangles * 3; ++i) {
+			++valence[indices[i]];
+		}
+		final int[] adjacencyOffset = new int[numVertices];
+		for (int v = 1; v < numVertices; ++v) {
+			adjacencyOffset[v] = adjacencyOffset[v - 1] + valence[v - 1];
+		}
+		final int[] adjacency = new int[numTriangles * 3];
+		final int[] filled = new int[numVertices];
+		for (int i = 0; i < numTriangles * 3; ++i) {
+			final int v = indices[i];
+			adjacency[adjacencyOffset[v] + filled[v]++] = i / 3;
+		}
+
+		final int[] cachePosition = new int[numVertices];
+		final float[] vertexScore = new float[numVertices];
+		Arrays.fill(cachePosition, -1);
+		for (int v = 0; v < numVertices; ++v) {
+			vertexScore[v] = vertexScore(-1, valence[v]);
+		}
+
+		final boolean[] emitted = new boolean[numTriangles];
+		int bestTriangle = -1;
+		float bestScore = -1f;
+		for (int t = 0; t < numTriangles; ++t) {
+			final float score = vertexScore[indices[t * 3]] + vertexScore[indices[t * 3 + 1]]
+					+ vertexScore[indices[t * 3 + 2]];
+			if (score > bestScore) {
+				bestScore = score;
+				bestTriangle = t;
+			}
+		}
+
+		int[] cache = new int[CACHE_SIZE + 3];
+		int[] newCache = new int[CACHE_SIZE + 3];
+		int cacheCount = 0;
+		int nextUnemitted = 0;
+
+		for (int drawn = 0; drawn < numTriangles; ++drawn) {
+			if (bestTriangle < 0) {
+				// No triangle uses a cached vertex, continue with the next one in input order
+				while (emitted[nextUnemitted]) ++nextUnemitted;
+				bestTriangle = nextUnemitted;
+			}
+			final int triangle = bestTriangle;
+			emitted[triangle] = true;
+
+			int newCacheCount = 0;
+			for (int corner = 0; corner < 3; ++corner) {
+				final int v = indices[triangle * 3 + corner];
+				output[drawn * 3 + corner] = v;
+
+				// Remove the triangle from the vertex's undrawn triangles
+				final int start = adjacencyOffset[v];
+				final int last = start + valence[v] - 1;
+				for (int i = start; i <= last; ++i) {
+					if (adjacency[i] == triangle) {
+						adjacency[i] = adjacency[last];
+						--valence[v];
+						break;
+					}
+				}
+
+				if (!contains(newCache, newCacheCount, v))
+					newCache[newCacheCount++] = v;
+			}
+			// Older cache entries move back behind the triangle's vertices
+			for (int i = 0; i < cacheCount; ++i) {
+				final int v = cache[i];
+				if (!contains(newCache, newCacheCount, v))
+					newCache[newCacheCount++] = v;
+			}
+
+			for (int i = 0; i < newCacheCount; ++i) {
+				final int v = newCache[i];
+				cachePosition[v] = i < CACHE_SIZE ? i : -1;
+				vertexScore[v] = vertexScore(cachePosition[v], valence[v]);
+			}
+
+			// Only triangles of vertices whose score changed can score higher than before
+			bestTriangle = -1;
+			bestScore = -1f;
+			for (int i = 0; i < newCacheCount; ++i) {
+				final int v = newCache[i];
+				final int end = adjacencyOffset[v] + valence[v];
+				for (int j = adjacencyOffset[v]; j < end; ++j) {
+					final int t = adjacency[j];
+					final float score = vertexScore[indices[t * 3]] + vertexScore[indices[t * 3 + 1]]
+							+ vertexScore[indices[t * 3 + 2]];
+					if (score > bestScore) {
+						bestScore = score;
+						bestTriangle = t;
+					}
+				}
+			}
+
+			final int[] swap = cache;
+			cache = newCache;
+			newCache = swap;
+			cacheCount = Math.min(newCacheCount, CACHE_SIZE);
+		}
+		return output;
+	}
+
+	/**
+	 * Renumbers the vertices in the order the indices first use them. Vertices which no triangle
+	 * uses go last.
+	 *
+	 * @param indices {@code int[]} Triangle list indices, which are rewritten.
+	 * @param numVertices {@code int} Number of vertices the indices refer to.
+	 * @return {@code int[]} New index of each old vertex.
+	 */
+	public static int[] optimizeVertexFetch(int[] indices, int numVertices) {
+		final int[] remap = new int[numVertices];
+		Arrays.fill(remap, -1);
+		int next = 0;
+		for (int i = 0; i < indices.length; ++i) {
+			final int v = indices[i];
+			if (remap[v] < 0)
+				remap[v] = next++;
+			indices[i] = remap[v];
+		}
+		for (int v = 0; v < numVertices; ++v) {
+			if (remap[v] < 0)
+				remap[v] = next++;
+		}
+		return remap;
+	}
+
+	/**
+	 * @see #getACMR(int[], int)
+	 */
+	public static float getACMR(int[] indices) {
+		return getACMR(indices, DEFAULT_ACMR_CACHE_SIZE);
+	}
+
+	/**
+	 * Average cache miss ratio: the number of vertices a FIFO vertex cache transforms per triangle.
+	 * 3 is the worst, 0.5 the best a large regular mesh can get.
+	 *
+	 * @param indices {@code int[]} Triangle list indices.
+	 * @param cacheSize {@code int} Number of vertices in the simulated FIFO cache.
+	 * @return {@code float} Transformed vertices per triangle, 0 for no triangles.
+	 */
+	public static float getACMR(int[] indices, int cacheSize) {
+		final int numTriangles = indices.length / 3;
+		if (numTriangles == 0)
+			return 0;
+		int maxIndex = 0;
+		for (int i = 0; i < numTriangles * 3; ++i) {
+			maxIndex = Math.max(maxIndex, indices[i]);
+		}
+		// A vertex is cached if fewer than cacheSize misses happened since its own miss
+		final int[] missTime = new int[maxIndex + 1];
+		Arrays.fill(missTime, Integer.MIN_VALUE);
+		int misses = 0;
+		for (int i = 0; i < numTriangles * 3; ++i) {
+			final int v = indices[i];
+			if (missTime[v] == Integer.MIN_VALUE || misses - missTime[v] >= cacheSize) {
+				missTime[v] = misses++;
+			}
+		}
+		return misses / (float) numTriangles;
+	}
+
+	/**
+	 * @see #getACMR(int[], int)
+	 */
+	public static float getACMR(Geometry3D geometry) {
+		final Buffer indices = geometry.getIndices();
+		return indices == null ? 0 : getACMR(getIndices(indices), DEFAULT_ACMR_CACHE_SIZE);
+	}
+
+	/**
+	 * @param indices {@link ShortBuffer} or {@link IntBuffer} of indices.
+	 * @return {@code int[]} A copy of the indices, short indices are read as unsigned.
+	 */
+	public static int[] getIndices(Buffer indices) {
+		final int[] values = new int[indices.capacity()];
+		if (indices instanceof ShortBuffer) {
+			final ShortBuffer shorts = (ShortBuffer) indices;
+			for (int i = 0; i < values.length; ++i) {
+				values[i] = shorts.get(i) & 0xFFFF;
+			}
+		} else {
+			final IntBuffer ints = (IntBuffer) indices;
+			for (int i = 0; i < values.length; ++i) {
+				values[i] = ints.get(i);
+			}
+		}
+		return values;
+	}
+
+	private static void remapAttribute(FloatBuffer buffer, int size, int[] remap, int numVertices) {
+		if (size == 0)
+			return;
+		final float[] values = new float[numVertices * size];
+		buffer.position(0);
+		buffer.get(values);
+		for (int v = 0; v < numVertices; ++v) {
+			final int target = remap[v] * size;
+			for (int i = 0; i < size; ++i) {
+				buffer.put(target + i, values[v * size + i]);
+			}
+		}
+		buffer.position(0);
+	}
+
+	private static float vertexScore(int cachePosition, int valence) {
+		if (valence == 0)
+			return -1f;
+		final float score = cachePosition < 0 ? 0f : CACHE_SCORES[cachePosition];
+		return score + (valence < MAX_VALENCE_SCORE ? VALENCE_SCORES[valence] : valenceScore(valence));
+	}
+
+	private static float valenceScore(int valence) {
+		// Vertices with few triangles left are finished first, so they don't linger
+		return VALENCE_BOOST_SCALE * (float) Math.pow(valence, -VALENCE_BOOST_POWER);
+	}
+
+	private static boolean contains(int[] values, int count, int value) {
+		for (int i = 0; i < count; ++i) {
+			if (values[i] == value)
+				return true;
+		}
+		return false;
+	}
+}
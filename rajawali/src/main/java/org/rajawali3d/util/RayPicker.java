@@ -12,14 +12,74 @@
  */
 package org.rajawali3d.util;
 
+import org.rajawali3d.Object3D;
+import org.rajawali3d.bounds.BVH;
+import org.rajawali3d.bounds.BoundingBox;
+import org.rajawali3d.bounds.TriangleBVH;
 import org.rajawali3d.math.vector.Vector3;
 import org.rajawali3d.renderer.Renderer;
-import org.rajawali3d.visitors.RayPickingVisitor;
+import org.rajawali3d.scene.ASceneFrameCallback;
+import org.rajawali3d.scene.Scene;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks the nearest object hit by a ray. The boxes of the visible objects of the current scene
+ * are kept in a {@link BVH}, so a pick doesn't test every object. Objects whose box is hit are
+ * tested against their triangles once the {@link TriangleBVH} of their geometry has been built,
+ * and against the box until then.
+ * <p>
+ * From the first pick on, the picker registers a pre-frame callback with the current scene which
+ * updates the tree once per frame: it is refit while the scene keeps the same objects and rebuilt
+ * when they change. Picks only traverse the tree, against the object positions of the last
+ * rendered frame.
+ */
 public class RayPicker implements IObjectPicker {
 	private Renderer               mRenderer;
 	private OnObjectPickedListener mObjectPickedListener;
 
+	private final BVH              mTree = new BVH();
+	private final List<Object3D>   mObjects = new ArrayList<>();
+	private final List<Object3D>   mCollected = new ArrayList<>();
+	private final Vector3          mHitPoint = new Vector3();
+	private Scene                  mTreeScene;
+	private Scene                  mCallbackScene;
+	private final ASceneFrameCallback mUpdateTreeCallback = new ASceneFrameCallback() {
+		@Override
+		public void onPreFrame(long sceneTime, double deltaTime) {
+			updateTree(mCallbackScene);
+		}
+
+		@Override
+		public void onPreDraw(long sceneTime, double deltaTime) {
+		}
+
+		@Override
+		public void onPostFrame(long sceneTime, double deltaTime) {
+		}
+
+		@Override
+		public boolean callPreFrame() {
+			return true;
+		}
+	};
+	private final BVH.RayIntersector mMeshIntersector = new BVH.RayIntersector() {
+		@Override
+		public double intersect(int item, double px, double py, double pz, double dx, double dy, double dz,
+				double tMax) {
+			Object3D object = mObjects.get(item);
+			BoundingBox box = object.getGeometry().getBoundingBox();
+			Vector3 min = box.getTransformedMin(), max = box.getTransformedMax();
+			double t = Intersector.intersectLineAABB(px, py, pz, dx, dy, dz, min.x, min.y, min.z,
+					max.x, max.y, max.z, 0, tMax);
+			if (t < 0) return -1;
+			TriangleBVH triangles = object.getGeometry().getTriangleBVH();
+			if (triangles == null) return t;
+			return triangles.intersectRay(object.getModelMatrix(), px, py, pz, dx, dy, dz, tMax);
+		}
+	};
+
 	public RayPicker(Renderer renderer) {
 		mRenderer = renderer;
 	}
@@ -32,11 +92,73 @@ public class RayPicker implements IObjectPicker {
 		Vector3 pointNear = mRenderer.unProject(x, y, 0);
 		Vector3 pointFar = mRenderer.unProject(x, y, 1);
 
-		RayPickingVisitor visitor = new RayPickingVisitor(pointNear, pointFar);
-		//mRenderer.accept(visitor);
+		Object3D object = pickObject(pointNear, pointFar);
+		if (mObjectPickedListener == null) return;
+		if (object != null) {
+			mObjectPickedListener.onObjectPicked(object);
+		} else {
+			mObjectPickedListener.onNoObjectPicked();
+		}
+	}
+
+	/**
+	 * Finds the nearest visible object of the current scene hit by the segment from rayStart to
+	 * rayEnd. Must be called on the GL thread.
+	 *
+	 * @return The object or null. Where it was hit is returned by {@link #getHitPoint()}.
+	 */
+	public Object3D pickObject(Vector3 rayStart, Vector3 rayEnd) {
+		Scene scene = mRenderer.getCurrentScene();
+		if (scene != mCallbackScene) {
+			if (mCallbackScene != null) mCallbackScene.unregisterFrameCallback(mUpdateTreeCallback);
+			mCallbackScene = scene;
+			if (scene != null) scene.registerFrameCallback(mUpdateTreeCallback);
+		}
+		// The callback starts with the next frame
+		if (scene != mTreeScene) updateTree(scene);
+		double dx = rayEnd.x - rayStart.x, dy = rayEnd.y - rayStart.y, dz = rayEnd.z - rayStart.z;
+		int item = mTree.intersectRay(rayStart.x, rayStart.y, rayStart.z, dx, dy, dz, 1, mMeshIntersector);
+		if (item < 0) return null;
+		double t = mTree.getHitDistance();
+		mHitPoint.setAll(rayStart.x + dx * t, rayStart.y + dy * t, rayStart.z + dz * t);
+		return mObjects.get(item);
+	}
 
-		// TODO: ray-triangle intersection test
+	/**
+	 * @return The point where the object returned by the last {@link #pickObject} call was hit.
+	 */
+	public Vector3 getHitPoint() {
+		return mHitPoint;
+	}
+
+	private void updateTree(Scene scene) {
+		mTreeScene = scene;
+		mCollected.clear();
+		if (scene != null) {
+			for (int i = 0, j = scene.getNumChildren(); i < j; i++) {
+				collect(scene.getChildAt(i));
+			}
+		}
+		for (int i = 0; i < mCollected.size(); i++) {
+			Object3D object = mCollected.get(i);
+			BoundingBox box = object.getGeometry().getBoundingBox();
+			box.transform(object.getModelMatrix());
+			mTree.setItemBounds(i, box.getTransformedMin(), box.getTransformedMax());
+		}
+		if (mCollected.equals(mObjects)) {
+			mTree.refit();
+		} else {
+			mObjects.clear();
+			mObjects.addAll(mCollected);
+			mTree.build(mObjects.size());
+		}
+	}
 
-		mObjectPickedListener.onObjectPicked(visitor.getPickedObject());
+	private void collect(Object3D object) {
+		if (!object.isVisible()) return;
+		if (!object.isContainer() && object.getGeometry().getNumVertices() > 0) mCollected.add(object);
+		for (int i = 0, j = object.getNumChildren(); i < j; i++) {
+			collect(object.getChildAt(i));
+		}
 	}
 }
@@ -0,0 +1,216 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.rajawali3d.util.exporter;
+
+import org.rajawali3d.Geometry3D;
+import org.rajawali3d.Object3D;
+import org.rajawali3d.bounds.BoundingBox;
+import org.rajawali3d.loader.LoaderBinaryMesh;
+import org.rajawali3d.materials.Material;
+import org.rajawali3d.materials.textures.ATexture;
+import org.rajawali3d.math.Quaternion;
+import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.util.LittleEndianOutputStream;
+import org.rajawali3d.util.RajLog;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes an object hierarchy in the binary mesh format read by {@link LoaderBinaryMesh}. Use it to
+ * bake the result of any mesh loader once, so later launches can map the file instead of parsing
+ * the original model:
+ * <pre>
+ * LoaderOBJ loader = new LoaderOBJ(getContext().getResources(), getTextureManager(), R.raw.ship_obj);
+ * loader.parse();
+ * MeshExporter exporter = new MeshExporter(loader.getParsedObject());
+ * exporter.setExportDirectory(getContext().getCacheDir());
+ * exporter.export("ship", BinaryMeshExporter.class);
+ * </pre>
+ * Indices are written as shorts when the vertex count allows it. The material is reduced to its
+ * color, lighting flag and the name of the first diffuse texture.
+ */
+// MeshExporter only takes AExporter subclasses, there is no replacement to extend yet
+@SuppressWarnings("deprecation")
+public class BinaryMeshExporter extends AExporter {
+
+	@Override
+	public void export() throws Exception {
+		RajLog.d("Exporting " + mObject.getName() + " as binary mesh");
+		final OutputStream stream = new FileOutputStream(exportFile);
+		try {
+			write(mObject, stream);
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Override
+	public String getExtension() {
+		return "rmesh";
+	}
+
+	/**
+	 * Writes an object and its children.
+	 *
+	 * @param object {@link Object3D} The root of the hierarchy.
+	 * @param stream {@link OutputStream} The stream to write to. It is flushed but not closed.
+	 * @throws IOException
+	 */
+	public static void write(Object3D object, OutputStream stream) throws IOException {
+		final List<Object3D> objects = new ArrayList<Object3D>();
+		final List<Integer> parents = new ArrayList<Integer>();
+		collect(object, -1, objects, parents);
+
+		final LittleEndianOutputStream out = new LittleEndianOutputStream(new BufferedOutputStream(stream, 65536));
+		out.writeInt(LoaderBinaryMesh.MAGIC);
+		out.writeInt(LoaderBinaryMesh.VERSION);
+		out.writeInt(objects.size());
+		for (int i = 0; i < objects.size(); ++i) {
+			out.writeInt(parents.get(i));
+			writeObject(objects.get(i), out);
+		}
+		out.flush();
+	}
+
+	private static void collect(Object3D object, int parent, List<Object3D> objects, List<Integer> parents) {
+		final int index = objects.size();
+		objects.add(object);
+		parents.add(parent);
+		for (int i = 0; i < object.getNumChildren(); ++i) {
+			collect(object.getChildAt(i), index, objects, parents);
+		}
+	}
+
+	private static void writeObject(Object3D object, LittleEndianOutputStream out) throws IOException {
+		final Geometry3D geometry = object.getGeometry();
+		final FloatBuffer vertices = object.isContainer() ? null : geometry.getVertices();
+		final int numVertices = vertices == null ? 0 : vertices.capacity() / 3;
+		final FloatBuffer normals = sized(geometry.getNormals(), numVertices * 3);
+		final FloatBuffer textureCoords = sized(geometry.getTextureCoords(), numVertices * 2);
+		final FloatBuffer colors = sized(geometry.getColors(), numVertices * 4);
+		final Buffer indices = vertices == null ? null : geometry.getIndices();
+		final int numIndices = indices == null ? 0 : geometry.getNumIndices();
+		final boolean intIndices = numVertices > 65536;
+		final Material material = object.getMaterial();
+
+		int flags = 0;
+		if (vertices == null) flags |= LoaderBinaryMesh.FLAG_CONTAINER;
+		if (normals != null) flags |= LoaderBinaryMesh.FLAG_NORMALS;
+		if (textureCoords != null) flags |= LoaderBinaryMesh.FLAG_TEXTURE_COORDS;
+		if (colors != null) flags |= LoaderBinaryMesh.FLAG_COLORS;
+		if (intIndices) flags |= LoaderBinaryMesh.FLAG_INT_INDICES;
+		if (material != null) flags |= LoaderBinaryMesh.FLAG_MATERIAL;
+		if (material != null && material.lightingEnabled()) flags |= LoaderBinaryMesh.FLAG_LIGHTING;
+		if (object.isTransparent()) flags |= LoaderBinaryMesh.FLAG_TRANSPARENT;
+		if (object.isDoubleSided()) flags |= LoaderBinaryMesh.FLAG_DOUBLE_SIDED;
+
+		writeString(object.getName(), out);
+		out.writeInt(flags);
+
+		final Vector3 position = object.getPosition();
+		final Quaternion orientation = object.getOrientation();
+		final Vector3 scale = object.getScale();
+		writeVector(position, out);
+		out.writeFloat((float) orientation.w);
+		out.writeFloat((float) orientation.x);
+		out.writeFloat((float) orientation.y);
+		out.writeFloat((float) orientation.z);
+		writeVector(scale, out);
+
+		out.writeInt(numVertices);
+		out.writeInt(numIndices);
+		if (vertices != null) {
+			final BoundingBox boundingBox = geometry.getBoundingBox();
+			writeVector(boundingBox.getMin(), out);
+			writeVector(boundingBox.getMax(), out);
+		} else {
+			writeVector(new Vector3(), out);
+			writeVector(new Vector3(), out);
+		}
+		out.writeInt(material == null ? 0 : material.getColor());
+		writeString(getDiffuseTextureName(material), out);
+
+		if (vertices == null)
+			return;
+
+		writeFloats(vertices, out);
+		if (normals != null) writeFloats(normals, out);
+		if (textureCoords != null) writeFloats(textureCoords, out);
+		if (colors != null) writeFloats(colors, out);
+		if (indices instanceof IntBuffer) {
+			final IntBuffer ints = (IntBuffer) indices;
+			for (int i = 0; i < numIndices; ++i) {
+				if (intIndices) out.writeInt(ints.get(i));
+				else out.writeShort(ints.get(i));
+			}
+		} else {
+			final ShortBuffer shorts = (ShortBuffer) indices;
+			for (int i = 0; i < numIndices; ++i) {
+				if (intIndices) out.writeInt(shorts.get(i) & 0xffff);
+				else out.writeShort(shorts.get(i));
+			}
+		}
+		if (!intIndices) writePadding(numIndices * 2, out);
+	}
+
+	/**
+	 * @return The buffer if it holds exactly one element per vertex, otherwise null.
+	 */
+	private static FloatBuffer sized(FloatBuffer buffer, int size) {
+		return buffer != null && size > 0 && buffer.capacity() == size ? buffer : null;
+	}
+
+	private static String getDiffuseTextureName(Material material) {
+		if (material == null) return "";
+		for (ATexture texture : material.getTextureList()) {
+			if (texture.getTextureType() == ATexture.TextureType.DIFFUSE && texture.getTextureName() != null)
+				return texture.getTextureName();
+		}
+		return "";
+	}
+
+	private static void writeFloats(FloatBuffer buffer, LittleEndianOutputStream out) throws IOException {
+		final int count = buffer.capacity();
+		for (int i = 0; i < count; ++i) {
+			out.writeFloat(buffer.get(i));
+		}
+	}
+
+	private static void writeVector(Vector3 vector, LittleEndianOutputStream out) throws IOException {
+		out.writeFloat((float) vector.x);
+		out.writeFloat((float) vector.y);
+		out.writeFloat((float) vector.z);
+	}
+
+	private static void writeString(String string, LittleEndianOutputStream out) throws IOException {
+		final byte[] bytes = string == null ? new byte[0] : string.getBytes(LoaderBinaryMesh.UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes, 0, bytes.length);
+		writePadding(bytes.length, out);
+	}
+
+	private static void writePadding(int size, LittleEndianOutputStream out) throws IOException {
+		for (int i = (4 - (size & 3)) & 3; i > 0; --i) {
+			out.write(0);
+		}
+	}
+}
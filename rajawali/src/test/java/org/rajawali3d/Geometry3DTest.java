@@ -0,0 +1,76 @@
+package org.rajawali3d;
+
+import org.junit.Test;
+import org.rajawali3d.materials.shaders.VertexShader;
+import org.rajawali3d.renderer.RecordingGLES;
+
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.*;
+
+public class Geometry3DTest {
+
+	@Test
+	public void interleaved_packsAttributesIntoOneBuffer() throws Exception {
+		Geometry3D geometry = createQuad();
+		geometry.setInterleaved(true);
+		geometry.createBuffers();
+
+		assertEquals(3 + 3 + 2, geometry.getInterleavedStride());
+		FloatBuffer data = geometry.createInterleavedData();
+		assertEquals(4 * 8, data.capacity());
+		// Second vertex: position, normal, texture coordinate
+		float[] vertex = new float[8];
+		data.position(8);
+		data.get(vertex);
+		assertArrayEquals(new float[] { 1, 0, 0, 0, 0, 1, 1, 0 }, vertex, 0);
+
+		int stride = 8 * Geometry3D.FLOAT_SIZE_BYTES;
+		assertEquals(stride, geometry.getVertexBufferInfo().stride);
+		assertEquals(0, geometry.getVertexBufferInfo().offset);
+		assertEquals(stride, geometry.getNormalBufferInfo().stride);
+		assertEquals(3 * Geometry3D.FLOAT_SIZE_BYTES, geometry.getNormalBufferInfo().offset);
+		assertEquals(6 * Geometry3D.FLOAT_SIZE_BYTES, geometry.getTexCoordBufferInfo().offset);
+		assertNull(geometry.getVertexBufferInfo().buffer);
+	}
+
+	@Test
+	public void interleaved_bindsOneArrayBufferPerDraw() throws Exception {
+		Geometry3D separate = createQuad();
+		separate.getVertexBufferInfo().bufferHandle = 1;
+		separate.getNormalBufferInfo().bufferHandle = 2;
+		separate.getTexCoordBufferInfo().bufferHandle = 3;
+		Geometry3D interleaved = createQuad();
+		interleaved.setInterleaved(true);
+		interleaved.createBuffers();
+
+		RecordingGLES gl = new RecordingGLES();
+		VertexShader shader = new VertexShader();
+		shader.setVertexAttributes(gl, separate.getVertexBufferInfo(), separate.getNormalBufferInfo(),
+				separate.getTexCoordBufferInfo(), null);
+		int separateBinds = gl.getCalls("glBindBuffer").size();
+		gl.clear();
+		shader.setVertexAttributes(gl, interleaved.getVertexBufferInfo(), interleaved.getNormalBufferInfo(),
+				interleaved.getTexCoordBufferInfo(), null);
+		int interleavedBinds = gl.getCalls("glBindBuffer").size();
+
+		// The same bytes are uploaded either way, 4 vertices of 8 floats, in one VBO instead of three
+		assertEquals(4 * 8 * Geometry3D.FLOAT_SIZE_BYTES,
+				interleaved.createInterleavedData().capacity() * Geometry3D.FLOAT_SIZE_BYTES);
+		int handle = interleaved.getVertexBufferInfo().bufferHandle;
+		assertEquals(handle, interleaved.getNormalBufferInfo().bufferHandle);
+		assertEquals(handle, interleaved.getTexCoordBufferInfo().bufferHandle);
+		assertEquals(3, separateBinds);
+		assertEquals(1, interleavedBinds);
+		assertEquals(3, gl.getCalls("glVertexAttribPointer").size());
+	}
+
+	private static Geometry3D createQuad() {
+		float[] vertices = { 0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0 };
+		float[] normals = { 0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1 };
+		float[] texCoords = { 0, 0, 1, 0, 1, 1, 0, 1 };
+		Geometry3D geometry = new Geometry3D();
+		geometry.setData(vertices, normals, texCoords, null, new int[] { 0, 1, 2, 0, 2, 3 }, false);
+		return geometry;
+	}
+}
@@ -0,0 +1,106 @@
+package org.rajawali3d;
+
+import android.opengl.GLES20;
+
+import org.junit.Test;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.renderer.RecordingGLES;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InstancedObject3DTest {
+	private static final int MVP = 1, MODEL = 2, MODEL_VIEW = 3, NORMAL = 4, COLOR = 5;
+
+	@Test
+	public void packInstances_matchesObject3DMatrices() throws Exception {
+		Object3D prototype = new Object3D();
+		prototype.setScale(2);
+		InstancedObject3D instances = new InstancedObject3D(prototype, 4);
+		instances.setInstanceCount(2);
+		instances.setInstancePosition(0, 1, 2, 3);
+		instances.setInstancePosition(1, -4, 0, 7);
+		instances.setInstanceLookAt(1, 0, 5, 0);
+
+		Matrix4 view = new Matrix4().setToLookAt(new Vector3(0, 0, 10), new Vector3(), Vector3.Y);
+		Matrix4 vp = new Matrix4().setToPerspective(0.1, 100, 60, 1).multiply(view);
+		assertEquals(2, instances.packInstances(vp, view, null));
+
+		// Reference: a regular Object3D with the same transform
+		Object3D reference = new Object3D();
+		reference.setScale(2);
+		reference.setPosition(-4, 0, 7);
+		reference.setLookAt(0, 5, 0);
+		reference.onRecalculateModelMatrix(null);
+		Matrix4 model = reference.getModelMatrix();
+
+		float[] data = instances.getInstanceData();
+		int base = InstancedObject3D.STRIDE;
+		assertMatrix(model, data, base + InstancedObject3D.OFFSET_MODEL_MATRIX);
+		assertMatrix(vp.clone().multiply(model), data, base + InstancedObject3D.OFFSET_MVP_MATRIX);
+		assertMatrix(view.clone().multiply(model), data, base + InstancedObject3D.OFFSET_MODEL_VIEW_MATRIX);
+		// First instance has identity orientation
+		assertEquals(2, data[InstancedObject3D.OFFSET_MODEL_MATRIX], 1e-6);
+		assertEquals(3, data[InstancedObject3D.OFFSET_MODEL_MATRIX + 14], 1e-6);
+	}
+
+	@Test
+	public void drawInstances_uploadsPerInstanceUniforms() throws Exception {
+		RecordingGLES gl = new RecordingGLES();
+		InstancedObject3D instances = new InstancedObject3D(new Object3D(), 8);
+		instances.setGL(gl);
+		instances.setInstanceCount(3);
+		for (int i = 0; i < 3; i++) {
+			instances.setInstancePosition(i, i, 0, 0);
+			instances.setInstanceColor(i, 0xff000000 | (0x10 * (i + 1)));
+		}
+		instances.packInstances(new Matrix4(), new Matrix4(), null);
+		instances.drawInstances(MVP, MODEL, MODEL_VIEW, NORMAL, COLOR);
+
+		List<RecordingGLES.Call> draws = gl.getCalls("glDrawElements");
+		assertEquals(3, draws.size());
+		List<RecordingGLES.Call> models = modelCalls(gl);
+		assertEquals(3, models.size());
+		List<RecordingGLES.Call> colors = gl.getCalls("glUniform4fv");
+		for (int i = 0; i < 3; i++) {
+			assertEquals(i, models.get(i).values[12], 1e-6);
+			assertEquals(0x10 * (i + 1) / 255f, colors.get(i).values[2], 1e-6);
+			assertEquals(1, colors.get(i).values[3], 1e-6);
+		}
+		assertEquals(3, gl.getCalls("glUniformMatrix3fv").size());
+		// One index buffer bind for the whole batch
+		assertEquals(1, gl.getCalls("glBindBuffer").size());
+	}
+
+	@Test
+	public void drawInstances_skipsColorWithoutHandle() throws Exception {
+		RecordingGLES gl = new RecordingGLES();
+		InstancedObject3D instances = new InstancedObject3D(new Object3D(), 2);
+		instances.setGL(gl);
+		instances.setInstanceCount(5);
+		assertEquals(2, instances.getInstanceCount());
+		instances.packInstances(new Matrix4(), new Matrix4(), null);
+		instances.drawInstances(MVP, MODEL, MODEL_VIEW, NORMAL, -1);
+
+		assertEquals(2, gl.getCalls("glDrawElements").size());
+		assertEquals(0, gl.getCalls("glUniform4fv").size());
+		assertEquals(GLES20.GL_UNSIGNED_INT, gl.getCalls("glDrawElements").get(0).args[2]);
+	}
+
+	private static List<RecordingGLES.Call> modelCalls(RecordingGLES gl) {
+		List<RecordingGLES.Call> calls = gl.getCalls("glUniformMatrix4fv");
+		for (int i = calls.size() - 1; i > -1; i--) {
+			if (calls.get(i).args[0] != MODEL) calls.remove(i);
+		}
+		return calls;
+	}
+
+	private static void assertMatrix(Matrix4 expected, float[] data, int offset) {
+		double[] m = expected.getDoubleValues();
+		for (int i = 0; i < 16; i++) {
+			assertEquals("element " + i, m[i], data[offset + i], 1e-4);
+		}
+	}
+}
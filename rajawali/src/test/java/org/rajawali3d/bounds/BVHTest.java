@@ -0,0 +1,126 @@
+package org.rajawali3d.bounds;
+
+import org.junit.Test;
+import org.rajawali3d.util.Intersector;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BVHTest {
+
+	private static final int COUNT = 500;
+
+	@Test
+	public void intersectRay_findsTheNearestItem() throws Exception {
+		Random random = new Random(5);
+		double[] boxes = createBoxes(random);
+		BVH tree = new BVH();
+		setBounds(tree, boxes);
+		tree.build(COUNT);
+		assertTrue(tree.getDepth() < 20);
+
+		assertRaysMatch(tree, boxes, random);
+	}
+
+	@Test
+	public void refit_followsMovingItems() throws Exception {
+		Random random = new Random(6);
+		double[] boxes = createBoxes(random);
+		BVH tree = new BVH();
+		setBounds(tree, boxes);
+		tree.build(COUNT);
+		int nodes = tree.getNodeCount();
+
+		for (int frame = 0; frame < 10; frame++) {
+			for (int i = 0; i < COUNT; i += 3) {
+				for (int a = 0; a < 3; a++) {
+					double move = random.nextGaussian() * 5;
+					boxes[i * 6 + a] += move;
+					boxes[i * 6 + a + 3] += move;
+				}
+			}
+			setBounds(tree, boxes);
+			tree.refit();
+			assertEquals(nodes, tree.getNodeCount());
+			assertRaysMatch(tree, boxes, random);
+		}
+	}
+
+	@Test
+	public void intersectRay_usesTheIntersector() throws Exception {
+		BVH tree = new BVH();
+		assertEquals(-1, tree.intersectRay(0, 0, 0, 0, 0, 1, 100, null));
+		for (int i = 0; i < 3; i++) {
+			tree.setItemBounds(i, -1, -1, i * 10 - 1, 1, 1, i * 10 + 1);
+		}
+		tree.build(3);
+		assertEquals(0, tree.intersectRay(0, 0, -5, 0, 0, 1, 100, null));
+		assertEquals(4, tree.getHitDistance(), 1e-9);
+
+		// Skip the first item, as if its shape were smaller than its box
+		int item = tree.intersectRay(0, 0, -5, 0, 0, 1, 100, new BVH.RayIntersector() {
+			@Override
+			public double intersect(int item, double px, double py, double pz, double dx, double dy, double dz,
+					double tMax) {
+				return item == 0 ? -1 : item * 10 - 1 - pz;
+			}
+		});
+		assertEquals(1, item);
+		assertEquals(14, tree.getHitDistance(), 1e-9);
+		assertEquals(-1, tree.intersectRay(0, 0, -5, 0, 0, 1, 3, null));
+		assertEquals(-1, tree.getHitDistance(), 0);
+	}
+
+	private static void assertRaysMatch(BVH tree, double[] boxes, Random random) {
+		int hits = 0;
+		for (int r = 0; r < 200; r++) {
+			double px = (random.nextDouble() - 0.5) * 200, py = (random.nextDouble() - 0.5) * 200, pz = 150;
+			double dx = random.nextGaussian() * 0.3, dy = random.nextGaussian() * 0.3, dz = -1;
+			int expected = -1;
+			double expectedT = 300;
+			for (int i = 0; i < COUNT; i++) {
+				int b = i * 6;
+				double t = Intersector.intersectLineAABB(px, py, pz, dx, dy, dz, boxes[b], boxes[b + 1], boxes[b + 2],
+						boxes[b + 3], boxes[b + 4], boxes[b + 5], 0, 300);
+				if (t >= 0 && t < expectedT) {
+					expectedT = t;
+					expected = i;
+				}
+			}
+			int item = tree.intersectRay(px, py, pz, dx, dy, dz, 300, null);
+			if (expected < 0) {
+				assertEquals(-1, item);
+			} else {
+				// Touching boxes may tie, the distance is what must match
+				assertTrue(item >= 0);
+				assertEquals(expectedT, tree.getHitDistance(), 1e-9);
+				hits++;
+			}
+		}
+		assertTrue(hits > 20);
+	}
+
+	private static double[] createBoxes(Random random) {
+		double[] boxes = new double[COUNT * 6];
+		for (int i = 0; i < COUNT; i++) {
+			double x = (random.nextDouble() - 0.5) * 200, y = (random.nextDouble() - 0.5) * 200,
+					z = (random.nextDouble() - 0.5) * 200;
+			double size = 0.5 + random.nextDouble() * 4;
+			boxes[i * 6] = x - size;
+			boxes[i * 6 + 1] = y - size;
+			boxes[i * 6 + 2] = z - size;
+			boxes[i * 6 + 3] = x + size;
+			boxes[i * 6 + 4] = y + size;
+			boxes[i * 6 + 5] = z + size;
+		}
+		return boxes;
+	}
+
+	private static void setBounds(BVH tree, double[] boxes) {
+		for (int i = 0; i < COUNT; i++) {
+			int b = i * 6;
+			tree.setItemBounds(i, boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3], boxes[b + 4], boxes[b + 5]);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package org.rajawali3d.bounds;
+
+import org.junit.Test;
+import org.rajawali3d.Geometry3D;
+import org.rajawali3d.Object3D;
+import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.primitives.Sphere;
+import org.rajawali3d.util.Intersector;
+import org.rajawali3d.util.MeshOptimizer;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TriangleBVHTest {
+
+	@Test
+	public void intersectRay_matchesTestingEveryTriangle() throws Exception {
+		Object3D sphere = new Sphere(2, 32, 24);
+		sphere.setPosition(10, -3, 5);
+		sphere.setScale(1.5, 0.5, 3);
+		sphere.setRotation(Vector3.Axis.Y, 30);
+		sphere.onRecalculateModelMatrix(null);
+		Geometry3D geometry = sphere.getGeometry();
+		TriangleBVH triangles = new TriangleBVH(geometry.getVertices(), geometry.getNumVertices(),
+				geometry.getIndices(), geometry.getNumIndices());
+		triangles.build();
+		assertEquals(geometry.getNumIndices() / 3, triangles.getTriangleCount());
+
+		Vector3[] corners = getWorldTriangles(sphere);
+		Random random = new Random(8);
+		Vector3 start = new Vector3(), end = new Vector3(), hitPoint = new Vector3(), expectedPoint = new Vector3();
+		int hits = 0;
+		for (int r = 0; r < 300; r++) {
+			start.setAll(10 + random.nextGaussian() * 4, -3 + random.nextGaussian() * 4, 20);
+			end.setAll(10 + random.nextGaussian() * 4, -3 + random.nextGaussian() * 4, -10);
+			boolean expected = false;
+			double nearest = Double.MAX_VALUE;
+			for (int t = 0; t < corners.length; t += 3) {
+				if (Intersector.intersectRayTriangle(start, end, corners[t], corners[t + 1], corners[t + 2],
+						hitPoint)) {
+					double distance = hitPoint.distanceTo(start);
+					if (distance < nearest) {
+						nearest = distance;
+						expectedPoint.setAll(hitPoint);
+						expected = true;
+					}
+				}
+			}
+			assertEquals(expected, triangles.intersectRay(sphere.getModelMatrix(), start, end, hitPoint));
+			if (expected) {
+				assertEquals(0, hitPoint.distanceTo(expectedPoint), 1e-4);
+				hits++;
+			}
+		}
+		assertTrue(hits > 50 && hits < 300);
+	}
+
+	@Test
+	public void getTriangleBVH_isBuiltInTheBackgroundAndShared() throws Exception {
+		Object3D sphere = new Sphere(1, 16, 12);
+		Object3D clone = sphere.clone(false);
+		// Starts the build of the original
+		clone.getGeometry().getTriangleBVH();
+		long end = System.currentTimeMillis() + 5000;
+		while (sphere.getGeometry().getTriangleBVH() == null && System.currentTimeMillis() < end) {
+			Thread.sleep(5);
+		}
+		assertNotNull(sphere.getGeometry().getTriangleBVH());
+		assertSame(sphere.getGeometry().getTriangleBVH(), clone.getGeometry().getTriangleBVH());
+	}
+
+	private static Vector3[] getWorldTriangles(Object3D object) {
+		Geometry3D geometry = object.getGeometry();
+		int[] indices = MeshOptimizer.getIndices(geometry.getIndices());
+		Vector3[] corners = new Vector3[geometry.getNumIndices()];
+		for (int i = 0; i < corners.length; i++) {
+			int v = indices[i] * 3;
+			corners[i] = new Vector3(geometry.getVertices().get(v), geometry.getVertices().get(v + 1),
+					geometry.getVertices().get(v + 2)).multiply(object.getModelMatrix());
+		}
+		return corners;
+	}
+}
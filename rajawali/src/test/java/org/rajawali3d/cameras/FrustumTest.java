@@ -0,0 +1,121 @@
+package org.rajawali3d.cameras;
+
+import org.junit.Test;
+import org.rajawali3d.Object3D;
+import org.rajawali3d.bounds.BoundingBox;
+import org.rajawali3d.bounds.BoundingSphere;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.primitives.Cube;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FrustumTest {
+
+	private static final int RIGHT = 0;
+	private static final int LEFT = 1;
+	private static final int FAR = 4;
+
+	@Test
+	public void boundsInFrustum_usesWorldSpaceBounds() throws Exception {
+		// Away from the origin, where the local and world space bounds differ
+		Frustum frustum = createFrustum(new Vector3(100, 20, 0), new Vector3(100, 20, -1), 120);
+		Object3D cube = new Cube(2);
+
+		assertEquals(Frustum.INSIDE, test(frustum, cube, 100, 20, -10));
+		assertTrue(frustum.boundsInFrustum(cube.getGeometry().getBoundingBox()));
+		assertNotEquals(Frustum.INSIDE, test(frustum, cube, 100, 20, 10));
+		assertEquals(RIGHT, test(frustum, cube, 150, 20, -10));
+		assertEquals(LEFT, test(frustum, cube, 50, 20, -10));
+		assertEquals(FAR, test(frustum, cube, 100, 20, -200));
+		// The local space box is at the origin, which is outside
+		assertNotEquals(Frustum.INSIDE, test(frustum, cube, 0, 0, 0));
+		assertFalse(frustum.boundsInFrustum(cube.getGeometry().getBoundingBox()));
+	}
+
+	@Test
+	public void boundsInFrustum_countsTestedAndCulledObjects() throws Exception {
+		Frustum frustum = createFrustum(new Vector3(0, 0, 0), new Vector3(0, 0, -1), 120);
+		Object3D cube = new Cube(2);
+
+		int plane = test(frustum, cube, 0, -500, -10);
+		assertNotEquals(Frustum.INSIDE, plane);
+		// Starting at the plane which culled it last time finds it again
+		assertEquals(plane, frustum.boundsInFrustum(cube.getGeometry().getBoundingSphere(),
+				cube.getGeometry().getBoundingBox(), plane));
+		assertEquals(Frustum.INSIDE, test(frustum, cube, 0, 0, -10));
+		assertEquals(3, frustum.getTestedCount());
+		assertEquals(2, frustum.getCulledCount());
+
+		frustum.update(createViewProjection(new Vector3(0, 0, 0), new Vector3(0, 0, -1), 120));
+		assertEquals(0, frustum.getTestedCount());
+		assertEquals(0, frustum.getCulledCount());
+	}
+
+	/**
+	 * The sphere contains the box, so it never keeps an object the box test culls. It is tighter
+	 * than the box of a rotated object, so it culls some which the box test keeps.
+	 */
+	@Test
+	public void boundsInFrustum_cullsWhatTheBoxTestCulls() throws Exception {
+		Frustum frustum = createFrustum(new Vector3(10, 5, 30), new Vector3(0, 0, 0), 80);
+		Random random = new Random(4);
+		Object3D cube = new Cube(1);
+		int culled = 0;
+		Vector3 corner = new Vector3();
+		for (int i = 0; i < 2000; i++) {
+			cube.setScale(0.5 + random.nextDouble() * 10);
+			cube.setRotation(new Vector3(random.nextDouble(), random.nextDouble(), random.nextDouble()),
+					random.nextDouble() * 360);
+			int plane = test(frustum, cube, (random.nextDouble() - 0.5) * 200, (random.nextDouble() - 0.5) * 200,
+					(random.nextDouble() - 0.5) * 200);
+			if (!frustum.boundsInFrustum(cube.getGeometry().getBoundingBox())) {
+				assertNotEquals(Frustum.INSIDE, plane);
+			}
+			if (plane != Frustum.INSIDE) {
+				culled++;
+				for (int c = 0; c < 8; c++) {
+					corner.setAll((c & 1) - 0.5, ((c >> 1) & 1) - 0.5, ((c >> 2) & 1) - 0.5);
+					corner.multiply(cube.getModelMatrix());
+					assertFalse(frustum.pointInFrustum(corner));
+				}
+			}
+			// The first plane only changes which plane is returned
+			int again = frustum.boundsInFrustum(cube.getGeometry().getBoundingSphere(),
+					cube.getGeometry().getBoundingBox(), random.nextInt(7) - 1);
+			assertEquals(plane == Frustum.INSIDE, again == Frustum.INSIDE);
+		}
+		assertTrue(culled > 0 && culled < 2000);
+	}
+
+	/**
+	 * Moves the object and tests its transformed bounding volumes.
+	 */
+	private static int test(Frustum frustum, Object3D object, double x, double y, double z) {
+		object.setPosition(x, y, z);
+		object.onRecalculateModelMatrix(null);
+		BoundingBox box = object.getGeometry().getBoundingBox();
+		BoundingSphere sphere = object.getGeometry().getBoundingSphere();
+		box.transform(object.getModelMatrix());
+		sphere.transform(object.getModelMatrix());
+		return frustum.boundsInFrustum(sphere, box, Frustum.INSIDE);
+	}
+
+	private static Frustum createFrustum(Vector3 position, Vector3 lookAt, double farPlane) {
+		Frustum frustum = new Frustum();
+		frustum.update(createViewProjection(position, lookAt, farPlane));
+		return frustum;
+	}
+
+	private static Matrix4 createViewProjection(Vector3 position, Vector3 lookAt, double farPlane) {
+		Camera camera = new Camera();
+		camera.setFarPlane(farPlane);
+		camera.setPosition(position);
+		camera.setLookAt(lookAt);
+		camera.setProjectionMatrix(800, 600);
+		camera.onRecalculateModelMatrix(null);
+		return camera.getProjectionMatrix().clone().multiply(camera.getViewMatrix());
+	}
+}
@@ -0,0 +1,116 @@
+package org.rajawali3d.curves;
+
+import org.junit.Test;
+import org.rajawali3d.math.vector.Vector3;
+
+import static org.junit.Assert.*;
+
+public class ArcLengthCurve3DTest {
+
+	private static final int STEPS = 1000;
+
+	@Test
+	public void calculatePoint_movesAtConstantSpeed() throws Exception {
+		CatmullRomCurve3D curve = createUnevenPath();
+		double[] raw = getStepLengths(curve);
+		ArcLengthCurve3D arcLength = new ArcLengthCurve3D(curve);
+		double[] uniform = getStepLengths(arcLength);
+
+		assertTrue(arcLength.isClosedCurve());
+		double rawSpread = getMax(raw) / getMin(raw);
+		double uniformSpread = getMax(uniform) / getMin(uniform);
+		assertTrue(rawSpread > 2);
+		assertEquals(1, uniformSpread, 0.02);
+		// Steps add up to the length of the curve
+		double sum = 0;
+		for (double step : uniform) sum += step;
+		assertEquals(arcLength.getLength(), sum, arcLength.getLength() * 1e-3);
+	}
+
+	@Test
+	public void getCurrentTangent_followsTheCurve() throws Exception {
+		ArcLengthCurve3D curve = new ArcLengthCurve3D(createUnevenPath());
+		curve.setCalculateTangents(true);
+		Vector3 point = new Vector3(), next = new Vector3(), tangent = new Vector3();
+		for (int i = 0; i < STEPS; i++) {
+			double t = (double) i / STEPS;
+			curve.calculatePoint(next, t + 1e-4);
+			curve.calculatePoint(point, t);
+			tangent.setAll(curve.getCurrentTangent());
+			// Like the other curves, the tangent points backward
+			next.subtract(point);
+			next.normalize();
+			assertTrue(tangent.angle(next) > 177);
+		}
+
+		// A closed curve wraps around
+		curve.calculatePoint(point, 0.25);
+		curve.calculatePoint(next, 1.25);
+		assertEquals(0, point.distanceTo(next), 1e-9);
+		curve.calculatePoint(next, -0.75);
+		assertEquals(0, point.distanceTo(next), 1e-9);
+	}
+
+	@Test
+	public void calculatePoint_clampsAnOpenCurve() throws Exception {
+		CatmullRomCurve3D open = new CatmullRomCurve3D();
+		open.addPoint(new Vector3(-10, 0, 0));
+		open.addPoint(new Vector3(0, 0, 0));
+		open.addPoint(new Vector3(10, 0, 0));
+		open.addPoint(new Vector3(20, 0, 0));
+		open.addPoint(new Vector3(30, 0, 0));
+		ArcLengthCurve3D curve = new ArcLengthCurve3D(open);
+		assertFalse(curve.isClosedCurve());
+
+		Vector3 start = new Vector3(), end = new Vector3(), point = new Vector3();
+		open.calculatePoint(start, 0);
+		open.calculatePoint(end, 1);
+		// All points are on the x axis, so the distance along the curve is the distance along x
+		curve.calculatePoint(point, 0.5);
+		assertEquals(curve.getLength() / 2, point.x - start.x, 1e-3);
+		curve.calculatePointAtDistance(point, 5);
+		assertEquals(5, point.x - start.x, 1e-3);
+		curve.calculatePoint(point, 2);
+		assertEquals(0, point.distanceTo(end), 1e-9);
+		curve.calculatePoint(point, -1);
+		assertEquals(0, point.distanceTo(start), 1e-9);
+	}
+
+	/**
+	 * Closed path with control points close together on one side and far apart on the other.
+	 */
+	private static CatmullRomCurve3D createUnevenPath() {
+		CatmullRomCurve3D curve = new CatmullRomCurve3D();
+		curve.addPoint(new Vector3(0, 15, 100));
+		curve.addPoint(new Vector3(-20, 15, 80));
+		curve.addPoint(new Vector3(-100, 15, 0));
+		curve.addPoint(new Vector3(0, 30, -100));
+		curve.addPoint(new Vector3(100, 15, 0));
+		curve.isClosedCurve(true);
+		return curve;
+	}
+
+	private static double[] getStepLengths(ICurve3D curve) {
+		double[] steps = new double[STEPS];
+		Vector3 previous = new Vector3(), point = new Vector3();
+		curve.calculatePoint(previous, 0);
+		for (int i = 1; i <= STEPS; i++) {
+			curve.calculatePoint(point, (double) i / STEPS);
+			steps[i - 1] = point.distanceTo(previous);
+			previous.setAll(point);
+		}
+		return steps;
+	}
+
+	private static double getMax(double[] values) {
+		double max = -Double.MAX_VALUE;
+		for (double value : values) max = Math.max(max, value);
+		return max;
+	}
+
+	private static double getMin(double[] values) {
+		double min = Double.MAX_VALUE;
+		for (double value : values) min = Math.min(min, value);
+		return min;
+	}
+}
@@ -0,0 +1,134 @@
+package org.rajawali3d.loader;
+
+import android.util.SparseArray;
+
+import org.junit.Test;
+import org.rajawali3d.Geometry3D;
+import org.rajawali3d.Object3D;
+import org.rajawali3d.loader.LoaderAWD.AWDLittleEndianDataInputStream;
+import org.rajawali3d.loader.LoaderAWD.IBlockParser;
+import org.rajawali3d.loader.awd.ABlockParser;
+import org.rajawali3d.loader.awd.BlockTriangleGeometry;
+import org.rajawali3d.util.LittleEndianOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.Assert.*;
+
+public class LoaderAWDTest {
+
+	@Test
+	public void decompress_readsZlibBodyUntilItsEnd() throws Exception {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		LittleEndianOutputStream out = new LittleEndianOutputStream(new DeflaterOutputStream(body));
+		out.writeInt(7);
+		out.write(new byte[100000]);
+		out.writeInt(-3);
+		out.close();
+		ByteArrayOutputStream file = new ByteArrayOutputStream();
+		file.write("AWD".getBytes());
+		file.write(body.toByteArray());
+
+		AWDLittleEndianDataInputStream dis = new AWDLittleEndianDataInputStream(new ByteArrayInputStream(file.toByteArray()));
+		dis.readFully(new byte[3]);
+		AWDLittleEndianDataInputStream decompressed = dis.decompress(LoaderAWD.Compression.ZLIB);
+
+		assertTrue(decompressed.hasRemaining());
+		assertEquals(7, decompressed.readInt());
+		// Inflating streams skip in small chunks
+		assertEquals(100000, decompressed.skip(100000L));
+		assertEquals(100004, decompressed.getPosition());
+		assertEquals(-3, decompressed.readInt());
+		assertFalse(decompressed.hasRemaining());
+		decompressed.end();
+	}
+
+	/**
+	 * dark_fighter.awd is the model in the app's res/raw. dark_fighter_lzma.awd is the same file
+	 * with its body compressed by Python's lzma module (FORMAT_ALONE) and the header changed to match.
+	 */
+	@Test
+	public void parse_readsCompressedFiles() throws Exception {
+		byte[] file = readResource("/awd/dark_fighter.awd");
+		List<Object3D> expected = parseGeometries(file);
+		assertFalse(expected.isEmpty());
+
+		// Header: "AWD", version, revision, flags (2), compression (1), body length (4)
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		DeflaterOutputStream deflater = new DeflaterOutputStream(body);
+		deflater.write(file, 12, file.length - 12);
+		deflater.close();
+		ByteArrayOutputStream zlib = new ByteArrayOutputStream();
+		LittleEndianOutputStream out = new LittleEndianOutputStream(zlib);
+		out.write(file, 0, 7);
+		out.writeByte(LoaderAWD.Compression.ZLIB.ordinal());
+		out.writeInt(body.size());
+		body.writeTo(out);
+		out.close();
+
+		assertSameGeometries(expected, parseGeometries(zlib.toByteArray()));
+		assertSameGeometries(expected, parseGeometries(readResource("/awd/dark_fighter_lzma.awd")));
+	}
+
+	/**
+	 * Parses all blocks of a file except the mesh instances and materials, which need a GL context,
+	 * and returns the objects of the geometry blocks.
+	 */
+	private static List<Object3D> parseGeometries(byte[] awd) throws Exception {
+		File file = File.createTempFile("model", ".awd");
+		try {
+			FileOutputStream stream = new FileOutputStream(file);
+			stream.write(awd);
+			stream.close();
+			final List<Object3D> geometries = new ArrayList<Object3D>();
+			new LoaderAWD(file) {
+				@Override
+				protected void onRegisterBlockClasses(SparseArray<Class<? extends ABlockParser>> blockParserClassesMap) {
+					blockParserClassesMap.remove(getClassID(NS_AWD, 23));
+					blockParserClassesMap.remove(getClassID(NS_AWD, 81));
+					blockParserClassesMap.remove(getClassID(NS_AWD, 82));
+					blockParserClassesMap.remove(getClassID(NS_AWD, 83));
+				}
+
+				@Override
+				public void onBlockParsingFinished(List<IBlockParser> blockParsers) {
+					for (IBlockParser parser : blockParsers)
+						if (parser instanceof BlockTriangleGeometry)
+							geometries.add(((BlockTriangleGeometry) parser).getBaseObject3D());
+				}
+			}.parse();
+			return geometries;
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static void assertSameGeometries(List<Object3D> expected, List<Object3D> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Geometry3D a = expected.get(i).getGeometry(), b = actual.get(i).getGeometry();
+			assertEquals(expected.get(i).getName(), actual.get(i).getName());
+			assertEquals(a.getNumVertices(), b.getNumVertices());
+			assertEquals(a.getNumIndices(), b.getNumIndices());
+			for (int j = 0; j < a.getVertices().limit(); j++)
+				assertEquals(a.getVertices().get(j), b.getVertices().get(j), 0);
+		}
+	}
+
+	private byte[] readResource(String name) throws Exception {
+		InputStream in = getClass().getResourceAsStream(name);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) > 0) out.write(buffer, 0, read);
+		in.close();
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,94 @@
+package org.rajawali3d.loader;
+
+import org.junit.Test;
+import org.rajawali3d.Geometry3D;
+import org.rajawali3d.Object3D;
+import org.rajawali3d.util.exporter.BinaryMeshExporter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import static org.junit.Assert.*;
+
+public class LoaderBinaryMeshTest {
+
+	private static final float[] VERTICES = { 0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, -2 };
+	private static final float[] NORMALS = { 0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1 };
+	private static final float[] TEXTURE_COORDS = { 0, 0, 1, 0, 1, 1, 0, 1 };
+	private static final int[] INDICES = { 0, 1, 2, 0, 2, 3 };
+
+	@Test
+	public void parse_readsWhatExporterWrote() throws Exception {
+		Object3D root = new Object3D("root");
+		Object3D quad = new Object3D("quad");
+		quad.setData(VERTICES, NORMALS, TEXTURE_COORDS, null, INDICES, false);
+		quad.setDoubleSided(true);
+		Object3D clone = quad.clone(false);
+		quad.setPosition(1, 2, 3);
+		quad.setScale(2, 2, 2);
+		clone.setPosition(1, 2, 3);
+		clone.setScale(2, 2, 2);
+		root.addChild(quad);
+		root.addChild(clone);
+
+		File file = File.createTempFile("mesh", ".rmesh");
+		try {
+			FileOutputStream stream = new FileOutputStream(file);
+			BinaryMeshExporter.write(root, stream);
+			stream.close();
+
+			Object3D parsed = new LoaderBinaryMesh(file).parse().getParsedObject();
+			assertEquals("root", parsed.getName());
+			assertTrue(parsed.isContainer());
+			assertEquals(2, parsed.getNumChildren());
+
+			for (int i = 0; i < 2; i++) {
+				Object3D child = parsed.getChildAt(i);
+				assertFalse(child.isContainer());
+				assertEquals(1, child.getPosition().x, 1e-6);
+				assertEquals(3, child.getPosition().z, 1e-6);
+				assertEquals(2, child.getScale().y, 1e-6);
+
+				Geometry3D geometry = child.getGeometry();
+				assertEquals(4, geometry.getNumVertices());
+				assertEquals(6, geometry.getNumIndices());
+				assertArrayEquals(VERTICES, toArray(geometry.getVertices()), 0);
+				assertArrayEquals(NORMALS, toArray(geometry.getNormals()), 0);
+				assertArrayEquals(TEXTURE_COORDS, toArray(geometry.getTextureCoords()), 0);
+				assertTrue(geometry.areOnlyShortBuffersSupported());
+				ShortBuffer indices = (ShortBuffer) geometry.getIndices();
+				for (int j = 0; j < INDICES.length; j++) {
+					assertEquals(INDICES[j], indices.get(j));
+				}
+				assertEquals(-2, geometry.getBoundingBox().getMin().z, 1e-6);
+				assertEquals(1, geometry.getBoundingBox().getMax().y, 1e-6);
+			}
+			assertTrue(parsed.getChildAt(0).isDoubleSided());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test(expected = ParsingException.class)
+	public void parse_rejectsOtherFiles() throws Exception {
+		File file = File.createTempFile("mesh", ".rmesh");
+		try {
+			FileOutputStream stream = new FileOutputStream(file);
+			stream.write("v 0 0 0\n".getBytes());
+			stream.close();
+			new LoaderBinaryMesh(file).parse();
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static float[] toArray(FloatBuffer buffer) {
+		float[] values = new float[buffer.capacity()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = buffer.get(i);
+		}
+		return values;
+	}
+}
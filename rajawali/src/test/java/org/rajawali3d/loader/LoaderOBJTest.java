@@ -0,0 +1,234 @@
+package org.rajawali3d.loader;
+
+import org.junit.Test;
+import org.rajawali3d.Geometry3D;
+import org.rajawali3d.Object3D;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LoaderOBJTest {
+
+	/**
+	 * golden_obj.txt was written by the BufferedReader/StringTokenizer parser which LoaderOBJ used
+	 * before the streaming tokenizer. Both must produce the same objects.
+	 */
+	@Test
+	public void parse_matchesGoldenOutput() throws Exception {
+		File file = new File(getClass().getResource("/obj/golden_obj").toURI());
+		Object3D parsed = new LoaderOBJ(file).parse().getParsedObject();
+
+		assertEquals(readGolden(), dump(parsed));
+	}
+
+	@Test
+	public void parse_weldedVerticesDrawTheSameFaces() throws Exception {
+		File file = new File(getClass().getResource("/obj/golden_obj").toURI());
+		Object3D expanded = new LoaderOBJ(file).parse().getParsedObject();
+		Object3D welded = new LoaderOBJ(file).setWeldVertices(true).parse().getParsedObject();
+
+		assertSameFaces(expanded, welded);
+		assertTrue(countVertices(welded) < countVertices(expanded));
+	}
+
+	@Test
+	public void tokenizer_parsesNumbersLikeJava() throws Exception {
+		Random random = new Random(3);
+		StringBuilder sb = new StringBuilder("v");
+		String[] values = new String[2000];
+		for (int i = 0; i < values.length; i++) {
+			float value = (random.nextFloat() - 0.5f) * (float) Math.pow(10, random.nextInt(12) - 6);
+			switch (i % 4) {
+				case 0: values[i] = String.format(Locale.US, "%f", value); break;
+				case 1: values[i] = String.format(Locale.US, "%.9e", value); break;
+				case 2: values[i] = Float.toString(value); break;
+				default: values[i] = Double.toString(random.nextDouble() * 1e6); break;
+			}
+			sb.append(' ').append(values[i]);
+		}
+		sb.append("\r\n# comment\n\nf 1/2/3 -4//5 6/7 8 NaN 1e40");
+
+		ObjTokenizer tokenizer = new ObjTokenizer(new ByteArrayInputStream(sb.toString().getBytes("UTF-8")), 64);
+		assertTrue(tokenizer.nextLine());
+		assertEquals(values.length + 1, tokenizer.getTokenCount());
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(values[i], Float.parseFloat(values[i]), tokenizer.getFloat(i + 1), 0);
+		}
+
+		assertTrue(tokenizer.nextLine());
+		assertTrue(tokenizer.isToken(0, "f"));
+		int[] indices = new int[3];
+		assertEquals(3, tokenizer.getFaceIndices(1, indices));
+		assertArrayEquals(new int[] { 1, 2, 3 }, indices);
+		assertEquals(3, tokenizer.getFaceIndices(2, indices));
+		assertArrayEquals(new int[] { -4, 0, 5 }, indices);
+		assertEquals(2, tokenizer.getFaceIndices(3, indices));
+		assertArrayEquals(new int[] { 6, 7, 0 }, indices);
+		assertEquals(1, tokenizer.getFaceIndices(4, indices));
+		assertArrayEquals(new int[] { 8, 0, 0 }, indices);
+		assertTrue(Float.isNaN(tokenizer.getFloat(5)));
+		assertEquals(Float.POSITIVE_INFINITY, tokenizer.getFloat(6), 0);
+		assertFalse(tokenizer.nextLine());
+	}
+
+	/**
+	 * Random decimal numbers of 1 to 17 significant digits and exponents around the fast path's
+	 * limits, all of which must give the same float as {@link Float#parseFloat(String)}.
+	 */
+	@Test
+	public void tokenizer_getFloatMatchesParseFloat() throws Exception {
+		Random random = new Random(11);
+		String[] values = new String[300000];
+		values[0] = "3.79531991481781";
+		values[1] = "16777215";
+		values[2] = "16777216";
+		values[3] = "16777217";
+		values[4] = "0.16777217";
+		values[5] = "-1677721.5e-10";
+		for (int i = 6; i < values.length; i++) {
+			int digits = 1 + random.nextInt(17);
+			StringBuilder sb = new StringBuilder();
+			if (random.nextBoolean()) sb.append('-');
+			int point = random.nextInt(digits + 1);
+			for (int d = 0; d < digits; d++) {
+				if (d == point) sb.append('.');
+				sb.append((char) ('0' + random.nextInt(10)));
+			}
+			if (random.nextInt(4) == 0) sb.append('e').append(random.nextInt(25) - 12);
+			values[i] = sb.toString();
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < values.length; i++) {
+			sb.append(i % 100 == 0 ? "\nv" : "").append(' ').append(values[i]);
+		}
+		ObjTokenizer tokenizer = new ObjTokenizer(new ByteArrayInputStream(sb.toString().getBytes("UTF-8")));
+		int i = 0;
+		while (tokenizer.nextLine()) {
+			for (int t = 1; t < tokenizer.getTokenCount(); t++, i++) {
+				assertEquals(values[i], Float.floatToIntBits(Float.parseFloat(values[i])),
+						Float.floatToIntBits(tokenizer.getFloat(t)));
+			}
+		}
+		assertEquals(values.length, i);
+
+		// Rounding to a double first and then to a float gave 3.79532
+		tokenizer = new ObjTokenizer(new ByteArrayInputStream("v 3.79531991481781".getBytes("UTF-8")));
+		assertTrue(tokenizer.nextLine());
+		assertEquals(3.7953198f, tokenizer.getFloat(1), 0);
+	}
+
+	private String readGolden() throws Exception {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				getClass().getResourceAsStream("/obj/golden_obj.txt"), "UTF-8"));
+		StringBuilder sb = new StringBuilder();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			sb.append(line).append('\n');
+		}
+		reader.close();
+		return sb.toString();
+	}
+
+	static String dump(Object3D object) {
+		StringBuilder sb = new StringBuilder();
+		dump(object, "", sb);
+		return sb.toString();
+	}
+
+	private static void dump(Object3D object, String indent, StringBuilder sb) {
+		// Unnamed objects get a random "Object" + number name
+		String name = object.getName().matches("Object\\d+") ? "Object#" : object.getName();
+		sb.append(indent).append(name).append(object.isContainer() ? " (container)" : "").append('\n');
+		if (!object.isContainer()) {
+			Geometry3D geometry = object.getGeometry();
+			dump(indent + "  v ", geometry.getVertices(), sb);
+			dump(indent + "  n ", geometry.getNormals(), sb);
+			dump(indent + "  t ", geometry.getTextureCoords(), sb);
+			dump(indent + "  c ", geometry.getColors(), sb);
+			dump(indent + "  i ", geometry.getIndices(), sb);
+		}
+		for (int i = 0; i < object.getNumChildren(); i++) {
+			dump(object.getChildAt(i), indent + "  ", sb);
+		}
+	}
+
+	/**
+	 * Checks that every index of the welded object points at the attributes of the corresponding
+	 * vertex of the object loaded without welding, which has a vertex per index.
+	 */
+	private static void assertSameFaces(Object3D expanded, Object3D welded) {
+		assertEquals(expanded.getNumChildren(), welded.getNumChildren());
+		if (!expanded.isContainer()) {
+			Geometry3D geometry = welded.getGeometry();
+			int[] indices = toIntArray(geometry.getIndices());
+			assertEquals(expanded.getGeometry().getNumIndices(), indices.length);
+			assertArrayEquals(toArray(expanded.getGeometry().getVertices()), expand(geometry.getVertices(), 3, indices), 0);
+			if (expanded.getGeometry().getNormals().capacity() > 0) {
+				assertArrayEquals(toArray(expanded.getGeometry().getNormals()), expand(geometry.getNormals(), 3, indices), 0);
+			} else {
+				assertNull(geometry.getNormals());
+			}
+			// Without welding a group which mixes quads and triangles without texture coordinates
+			// gets fewer texture coordinates than vertices
+			if (expanded.getGeometry().getTextureCoords().capacity() == indices.length * 2) {
+				assertArrayEquals(toArray(expanded.getGeometry().getTextureCoords()),
+						expand(geometry.getTextureCoords(), 2, indices), 0);
+			}
+		}
+		for (int i = 0; i < expanded.getNumChildren(); i++) {
+			assertSameFaces(expanded.getChildAt(i), welded.getChildAt(i));
+		}
+	}
+
+	private static float[] toArray(FloatBuffer buffer) {
+		float[] values = new float[buffer.capacity()];
+		for (int i = 0; i < values.length; i++) values[i] = buffer.get(i);
+		return values;
+	}
+
+	private static float[] expand(FloatBuffer buffer, int size, int[] indices) {
+		float[] values = new float[indices.length * size];
+		for (int i = 0; i < indices.length; i++) {
+			for (int j = 0; j < size; j++) values[i * size + j] = buffer.get(indices[i] * size + j);
+		}
+		return values;
+	}
+
+	private static int[] toIntArray(Buffer buffer) {
+		int[] values = new int[buffer.capacity()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = buffer instanceof ShortBuffer ? ((ShortBuffer) buffer).get(i) & 0xFFFF
+					: ((IntBuffer) buffer).get(i);
+		}
+		return values;
+	}
+
+	private static int countVertices(Object3D object) {
+		int count = object.isContainer() ? 0 : object.getGeometry().getNumVertices();
+		for (int i = 0; i < object.getNumChildren(); i++) count += countVertices(object.getChildAt(i));
+		return count;
+	}
+
+	private static void dump(String prefix, Buffer buffer, StringBuilder sb) {
+		sb.append(prefix);
+		if (buffer != null) {
+			for (int i = 0; i < buffer.capacity(); i++) {
+				if (i > 0) sb.append(' ');
+				if (buffer instanceof FloatBuffer) sb.append(((FloatBuffer) buffer).get(i));
+				else sb.append(((IntBuffer) buffer).get(i));
+			}
+		}
+		sb.append('\n');
+	}
+}
@@ -0,0 +1,43 @@
+package org.rajawali3d.materials.shaders;
+
+import org.junit.Test;
+import org.rajawali3d.renderer.RecordingGLES;
+
+import static org.junit.Assert.*;
+
+public class AShaderTest {
+
+	@Test
+	public void setUniform_queriesEachLocationOncePerProgram() throws Exception {
+		RecordingGLES gl = new RecordingGLES();
+		AShader shader = new AShader(AShader.ShaderType.FRAGMENT, "") {};
+		shader.initialize();
+		shader.addUniform("uRadius", AShaderBase.DataType.FLOAT);
+		shader.setGL(gl);
+
+		// Declared uniforms are looked up when the program is linked
+		shader.setLocations(3);
+		assertEquals(1, gl.getCalls("glGetUniformLocation").size());
+
+		// Others the first time they are set, after that it's only the uniform calls
+		AShader.resetLocationQueryCount();
+		for (int frame = 0; frame < 3; frame++) {
+			shader.setUniform1f("uRadius", 2);
+			shader.setUniform2fv("uDirection", new float[] { 1, 0 });
+			if (frame == 0) {
+				assertEquals(1, AShader.getLocationQueryCount());
+			}
+			AShader.resetLocationQueryCount();
+		}
+		assertEquals(2, gl.getCalls("glGetUniformLocation").size());
+		assertEquals(3, gl.getCalls("glUniform1f").size());
+		assertEquals(shader.getUniformLocation("uRadius"), gl.getCalls("glUniform1f").get(0).args[0]);
+		assertEquals(shader.getUniformLocation("uDirection"), gl.getCalls("glUniform2fv").get(2).args[0]);
+
+		// A program linked again may have other locations, even with the same handle
+		gl.clear();
+		shader.setLocations(3);
+		shader.setUniform2fv("uDirection", new float[] { 0, 1 });
+		assertEquals(2, gl.getCalls("glGetUniformLocation").size());
+	}
+}
@@ -0,0 +1,116 @@
+package org.rajawali3d.renderer;
+
+import android.opengl.GLES20;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GLStateTrackerTest {
+
+	@Test
+	public void drawState_isOnlyIssuedWhenItChanges() throws Exception {
+		RecordingGLES gl = new RecordingGLES();
+		GLStateTracker tracker = new GLStateTracker(gl);
+
+		// The state Object3D.render() sets and restores, for three opaque objects
+		for (int i = 0; i < 3; i++) {
+			tracker.glEnable(GLES20.GL_CULL_FACE);
+			tracker.glCullFace(GLES20.GL_BACK);
+			tracker.glFrontFace(GLES20.GL_CCW);
+			tracker.glEnable(GLES20.GL_DEPTH_TEST);
+			tracker.glDepthFunc(GLES20.GL_LESS);
+			tracker.glDepthMask(true);
+			tracker.glUseProgram(7);
+		}
+		assertEquals(7, gl.calls.size());
+		assertEquals(7, tracker.getIssuedCount());
+		assertEquals(14, tracker.getElidedCount());
+
+		gl.clear();
+		tracker.glDisable(GLES20.GL_DEPTH_TEST);
+		tracker.glEnable(GLES20.GL_DEPTH_TEST);
+		tracker.glDepthMask(false);
+		tracker.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+		tracker.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+		tracker.glBlendFunc(GLES20.GL_ONE, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+		assertEquals(5, gl.calls.size());
+
+		// Capabilities that aren't shadowed are always passed on
+		gl.clear();
+		tracker.glEnable(0x1234);
+		tracker.glEnable(0x1234);
+		assertEquals(2, gl.getCalls("glEnable").size());
+
+		tracker.resetCounts();
+		assertEquals(0, tracker.getIssuedCount());
+		assertEquals(0, tracker.getElidedCount());
+	}
+
+	@Test
+	public void bindings_areShadowedPerTargetAndTextureUnit() throws Exception {
+		RecordingGLES gl = new RecordingGLES();
+		GLStateTracker tracker = new GLStateTracker(gl);
+
+		tracker.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 3);
+		tracker.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 3);
+		tracker.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 3);
+		assertEquals(2, gl.getCalls("glBindBuffer").size());
+
+		tracker.glActiveTexture(GLES20.GL_TEXTURE0);
+		tracker.glBindTexture(GLES20.GL_TEXTURE_2D, 5);
+		tracker.glBindTexture(GLES20.GL_TEXTURE_CUBE_MAP, 6);
+		tracker.glActiveTexture(GLES20.GL_TEXTURE1);
+		tracker.glBindTexture(GLES20.GL_TEXTURE_2D, 5);
+		tracker.glActiveTexture(GLES20.GL_TEXTURE0);
+		tracker.glBindTexture(GLES20.GL_TEXTURE_2D, 5);
+		tracker.glBindTexture(GLES20.GL_TEXTURE_CUBE_MAP, 6);
+		assertEquals(3, gl.getCalls("glBindTexture").size());
+		assertEquals(3, gl.getCalls("glActiveTexture").size());
+	}
+
+	@Test
+	public void deletingABoundObject_unbindsIt() throws Exception {
+		RecordingGLES gl = new RecordingGLES();
+		GLStateTracker tracker = new GLStateTracker(gl);
+
+		tracker.glActiveTexture(GLES20.GL_TEXTURE2);
+		tracker.glBindTexture(GLES20.GL_TEXTURE_2D, 5);
+		tracker.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 4);
+		tracker.glUseProgram(3);
+		tracker.glDeleteTextures(1, new int[] { 5 }, 0);
+		tracker.glDeleteBuffers(1, new int[] { 4 }, 0);
+		tracker.glDeleteProgram(3);
+
+		// A new object may get the same name, it has to be bound again
+		gl.clear();
+		tracker.glBindTexture(GLES20.GL_TEXTURE_2D, 5);
+		tracker.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 4);
+		tracker.glUseProgram(3);
+		assertEquals(3, gl.calls.size());
+
+		// Binding 0 after the delete is what GL already did
+		gl.clear();
+		tracker.glDeleteBuffers(1, new int[] { 4 }, 0);
+		tracker.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+		assertEquals(0, gl.getCalls("glBindBuffer").size());
+	}
+
+	@Test
+	public void invalidate_issuesTheNextCalls() throws Exception {
+		RecordingGLES gl = new RecordingGLES();
+		GLStateTracker tracker = new GLStateTracker(gl);
+
+		tracker.glEnable(GLES20.GL_BLEND);
+		tracker.glUseProgram(2);
+		tracker.glActiveTexture(GLES20.GL_TEXTURE0);
+		tracker.glBindTexture(GLES20.GL_TEXTURE_2D, 1);
+		tracker.invalidate();
+		gl.clear();
+		tracker.glEnable(GLES20.GL_BLEND);
+		tracker.glUseProgram(2);
+		tracker.glActiveTexture(GLES20.GL_TEXTURE0);
+		tracker.glBindTexture(GLES20.GL_TEXTURE_2D, 1);
+		assertEquals(4, gl.calls.size());
+	}
+}
@@ -0,0 +1,199 @@
+package org.rajawali3d.renderer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link IGLES} that records every call instead of talking to a GL context.
+ */
+public class RecordingGLES implements IGLES {
+
+	public static class Call {
+		public final String name;
+		public final int[] args;
+		public final float[] values;
+
+		Call(String name, int[] args, float[] values) {
+			this.name = name;
+			this.args = args;
+			this.values = values;
+		}
+
+		@Override
+		public String toString() {
+			return name + Arrays.toString(args) + (values == null ? "" : Arrays.toString(values));
+		}
+	}
+
+	public final List<Call> calls = new ArrayList<>();
+
+	/**
+	 * Locations returned by the location queries, numbered in the order names are first seen
+	 */
+	private final Map<String, Integer> mLocations = new HashMap<>();
+
+	public List<Call> getCalls(String name) {
+		List<Call> result = new ArrayList<>();
+		for (Call call : calls) {
+			if (call.name.equals(name)) result.add(call);
+		}
+		return result;
+	}
+
+	public void clear() {
+		calls.clear();
+	}
+
+	private void record(String name, int... args) {
+		calls.add(new Call(name, args, null));
+	}
+
+	private void record(String name, int location, int count, float[] v, int offset, int size) {
+		calls.add(new Call(name, new int[] { location, count },
+				Arrays.copyOfRange(v, offset, offset + size * count)));
+	}
+
+	@Override
+	public void glEnable(int cap) {
+		record("glEnable", cap);
+	}
+
+	@Override
+	public void glDisable(int cap) {
+		record("glDisable", cap);
+	}
+
+	@Override
+	public void glCullFace(int mode) {
+		record("glCullFace", mode);
+	}
+
+	@Override
+	public void glFrontFace(int mode) {
+		record("glFrontFace", mode);
+	}
+
+	@Override
+	public void glBlendFunc(int sfactor, int dfactor) {
+		record("glBlendFunc", sfactor, dfactor);
+	}
+
+	@Override
+	public void glDepthFunc(int func) {
+		record("glDepthFunc", func);
+	}
+
+	@Override
+	public void glDepthMask(boolean flag) {
+		record("glDepthMask", flag ? 1 : 0);
+	}
+
+	@Override
+	public void glUseProgram(int program) {
+		record("glUseProgram", program);
+	}
+
+	@Override
+	public void glBindBuffer(int target, int buffer) {
+		record("glBindBuffer", target, buffer);
+	}
+
+	@Override
+	public void glActiveTexture(int texture) {
+		record("glActiveTexture", texture);
+	}
+
+	@Override
+	public void glBindTexture(int target, int texture) {
+		record("glBindTexture", target, texture);
+	}
+
+	@Override
+	public void glDeleteBuffers(int n, int[] buffers, int offset) {
+		record("glDeleteBuffers", Arrays.copyOfRange(buffers, offset, offset + n));
+	}
+
+	@Override
+	public void glDeleteTextures(int n, int[] textures, int offset) {
+		record("glDeleteTextures", Arrays.copyOfRange(textures, offset, offset + n));
+	}
+
+	@Override
+	public void glDeleteProgram(int program) {
+		record("glDeleteProgram", program);
+	}
+
+	@Override
+	public void glEnableVertexAttribArray(int index) {
+		record("glEnableVertexAttribArray", index);
+	}
+
+	@Override
+	public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset) {
+		record("glVertexAttribPointer", index, size, type, normalized ? 1 : 0, stride, offset);
+	}
+
+	@Override
+	public int glGetUniformLocation(int program, String name) {
+		record("glGetUniformLocation", program);
+		return getLocation(name);
+	}
+
+	@Override
+	public int glGetAttribLocation(int program, String name) {
+		record("glGetAttribLocation", program);
+		return getLocation(name);
+	}
+
+	private int getLocation(String name) {
+		Integer location = mLocations.get(name);
+		if (location == null) {
+			location = mLocations.size();
+			mLocations.put(name, location);
+		}
+		return location;
+	}
+
+	@Override
+	public void glUniform1i(int location, int x) {
+		record("glUniform1i", location, x);
+	}
+
+	@Override
+	public void glUniform1f(int location, float x) {
+		record("glUniform1f", location, 1, new float[] { x }, 0, 1);
+	}
+
+	@Override
+	public void glUniform2fv(int location, int count, float[] v, int offset) {
+		record("glUniform2fv", location, count, v, offset, 2);
+	}
+
+	@Override
+	public void glUniform3fv(int location, int count, float[] v, int offset) {
+		record("glUniform3fv", location, count, v, offset, 3);
+	}
+
+	@Override
+	public void glUniform4fv(int location, int count, float[] v, int offset) {
+		record("glUniform4fv", location, count, v, offset, 4);
+	}
+
+	@Override
+	public void glUniformMatrix3fv(int location, int count, boolean transpose, float[] value, int offset) {
+		record("glUniformMatrix3fv", location, count, value, offset, 9);
+	}
+
+	@Override
+	public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+		record("glUniformMatrix4fv", location, count, value, offset, 16);
+	}
+
+	@Override
+	public void glDrawElements(int mode, int count, int type, int offset) {
+		record("glDrawElements", mode, count, type, offset);
+	}
+}
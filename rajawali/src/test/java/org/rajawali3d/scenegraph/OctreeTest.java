@@ -0,0 +1,136 @@
+package org.rajawali3d.scenegraph;
+
+import org.junit.Test;
+import org.rajawali3d.Object3D;
+import org.rajawali3d.bounds.BoundingBox;
+import org.rajawali3d.cameras.Camera;
+import org.rajawali3d.cameras.Frustum;
+import org.rajawali3d.math.Matrix4;
+import org.rajawali3d.math.vector.Vector3;
+import org.rajawali3d.primitives.Cube;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class OctreeTest {
+
+	@Test
+	public void cullFromFrustum_matchesTestingEveryObject() throws Exception {
+		Octree octree = new Octree();
+		List<Object3D> objects = createObjects(octree, 300, new Random(1));
+		Frustum frustum = createFrustum(new Vector3(0, 0, 30), new Vector3(0, 0, 0));
+
+		Set<IGraphNodeMember> visible = new HashSet<IGraphNodeMember>();
+		octree.cullFromFrustum(frustum, visible);
+
+		Set<IGraphNodeMember> expected = new HashSet<IGraphNodeMember>();
+		for (Object3D object : objects) {
+			if (A_nAABBTree.isInFrustum(frustum, object)) expected.add(object);
+		}
+		assertEquals(expected, visible);
+		assertTrue(visible.size() > 0);
+		assertTrue(visible.size() < objects.size());
+	}
+
+	@Test
+	public void updateObject_movesObjectsToTheirNewNodes() throws Exception {
+		Octree octree = new Octree();
+		Random random = new Random(2);
+		List<Object3D> objects = createObjects(octree, 200, random);
+		assertTrue(octree.mSplit);
+
+		for (int frame = 0; frame < 20; frame++) {
+			for (int i = 0; i < objects.size(); i += 3) {
+				Object3D object = objects.get(i);
+				Vector3 position = object.getPosition();
+				object.setPosition(position.x + random.nextGaussian() * 5, position.y + random.nextGaussian() * 5,
+						position.z + random.nextGaussian() * 5);
+				object.onRecalculateModelMatrix(null);
+			}
+		}
+
+		assertEquals(objects.size(), octree.getObjectCount());
+		for (Object3D object : objects) {
+			A_nAABBTree node = (A_nAABBTree) object.getGraphNode();
+			if (object.isInGraph()) {
+				assertTrue(node.mMembers.contains(object));
+				assertTrue(node.contains(object.getTransformedBoundingVolume()));
+			} else {
+				assertSame(octree, node);
+				assertTrue(octree.mOutside.contains(object));
+			}
+		}
+
+		Vector3 center = new Vector3(3, -2, 1);
+		Set<IGraphNodeMember> inRange = new HashSet<IGraphNodeMember>();
+		octree.getObjectsInRange(center, 12, inRange);
+		Set<IGraphNodeMember> expected = new HashSet<IGraphNodeMember>();
+		Object3D nearest = null;
+		double nearestDistance = Double.MAX_VALUE;
+		for (Object3D object : objects) {
+			double distance = Math.sqrt(A_nAABBTree.getDistanceSquared(center, object));
+			if (distance <= 12) expected.add(object);
+			if (distance < nearestDistance) {
+				nearestDistance = distance;
+				nearest = object;
+			}
+		}
+		assertEquals(expected, inRange);
+		assertSame(nearest, octree.getNearestObject(center, 100));
+		assertNull(octree.getNearestObject(new Vector3(1000, 0, 0), 10));
+	}
+
+	@Test
+	public void removeObject_removesInsideAndOutsideObjects() throws Exception {
+		Octree octree = new Octree();
+		List<Object3D> objects = createObjects(octree, 50, new Random(3));
+		Object3D far = new Cube(1);
+		far.setPosition(500, 0, 0);
+		octree.addObject(far);
+		assertFalse(far.isInGraph());
+
+		octree.removeObject(far);
+		for (Object3D object : objects) {
+			octree.removeObject(object);
+		}
+		assertEquals(0, octree.getObjectCount());
+		assertNull(far.getGraphNode());
+		assertNull(objects.get(0).getGraphNode());
+	}
+
+	private static List<Object3D> createObjects(Octree octree, int count, Random random) {
+		List<Object3D> objects = new ArrayList<Object3D>();
+		// The first object sets the bounds of the tree, grow them to hold the others
+		Object3D first = new Cube(1);
+		first.setScale(60);
+		octree.addObject(first);
+		objects.add(first);
+		for (int i = 1; i < count; i++) {
+			Object3D object = new Cube(1);
+			object.setPosition((random.nextDouble() - 0.5) * 100, (random.nextDouble() - 0.5) * 100,
+					(random.nextDouble() - 0.5) * 100);
+			octree.addObject(object);
+			objects.add(object);
+		}
+		first.setScale(1);
+		first.onRecalculateModelMatrix(null);
+		return objects;
+	}
+
+	private static Frustum createFrustum(Vector3 position, Vector3 lookAt) {
+		Camera camera = new Camera();
+		camera.setPosition(position);
+		camera.setLookAt(lookAt);
+		camera.setProjectionMatrix(800, 600);
+		camera.onRecalculateModelMatrix(null);
+		Matrix4 vpMatrix = camera.getProjectionMatrix().clone().multiply(camera.getViewMatrix());
+		Frustum frustum = new Frustum();
+		frustum.update(vpMatrix);
+		return frustum;
+	}
+}
@@ -0,0 +1,52 @@
+package org.rajawali3d.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+public class LzmaInputStreamTest {
+
+	/**
+	 * pattern.lzma was written by Python's lzma module (FORMAT_ALONE, 4 KiB dictionary, lc=3 lp=1 pb=2)
+	 * from {@link #pattern(int)}, with an end marker instead of the uncompressed size.
+	 */
+	@Test
+	public void read_decodesEndMarkedData() throws Exception {
+		assertArrayEquals(pattern(100000), readAll(new LzmaInputStream(getClass().getResourceAsStream("/lzma/pattern.lzma")), 1000));
+	}
+
+	@Test
+	public void read_stopsAtKnownSize() throws Exception {
+		byte[] data = readAll(getClass().getResourceAsStream("/lzma/pattern.lzma"), 4096);
+		long size = 100000;
+		for (int i = 0; i < 8; i++) data[5 + i] = (byte) (size >>> (8 * i));
+
+		assertArrayEquals(pattern(100000), readAll(new LzmaInputStream(new ByteArrayInputStream(data)), 7));
+	}
+
+	private static byte[] pattern(int length) {
+		byte[] text = "AWD block ".getBytes();
+		byte[] data = new byte[length];
+		long x = 12345;
+		for (int i = 0; i < length; i++) {
+			x = (x * 1103515245 + 12345) & 0x7fffffff;
+			data[i] = (x >> 16) % 16 != 0 ? text[i % 10] : (byte) (x >> 8);
+		}
+		return data;
+	}
+
+	private static byte[] readAll(InputStream in, int chunk) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[chunk];
+		int read;
+		while ((read = in.read(buffer, 0, buffer.length)) >= 0) {
+			out.write(buffer, 0, read);
+		}
+		in.close();
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,112 @@
+package org.rajawali3d.util;
+
+import org.junit.Test;
+import org.rajawali3d.Geometry3D;
+import org.rajawali3d.Object3D;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MeshOptimizerTest {
+
+	private static final int GRID = 64;
+
+	@Test
+	public void optimize_keepsTrianglesAndLowersACMR() throws Exception {
+		Object3D grid = createShuffledGrid();
+		Geometry3D geometry = grid.getGeometry();
+		List<String> before = triangles(geometry);
+		float acmrBefore = MeshOptimizer.getACMR(geometry);
+
+		assertTrue(MeshOptimizer.optimize(geometry));
+
+		float acmrAfter = MeshOptimizer.getACMR(geometry);
+		assertEquals(before, triangles(geometry));
+		assertTrue(acmrBefore > 1.5f);
+		// The shuffled grid misses on nearly every vertex, the optimized one reuses most of them
+		assertTrue("ACMR " + acmrBefore + " -> " + acmrAfter, acmrAfter < acmrBefore / 2);
+		assertTrue(acmrAfter < 0.8f);
+
+		// Vertices are in the order of first use
+		int[] indices = MeshOptimizer.getIndices(geometry.getIndices());
+		int next = 0;
+		for (int index : indices) {
+			assertTrue(index <= next);
+			if (index == next) next++;
+		}
+	}
+
+	@Test
+	public void getACMR_countsFifoMisses() throws Exception {
+		// Two triangles sharing an edge transform 4 vertices
+		assertEquals(2f, MeshOptimizer.getACMR(new int[] { 0, 1, 2, 2, 1, 3 }), 0);
+		// With a cache of 3 the first vertex is gone when the last triangle uses it again
+		int[] fan = { 0, 1, 2, 2, 1, 3, 3, 4, 0 };
+		assertEquals(5 / 3f, MeshOptimizer.getACMR(fan), 1e-6);
+		assertEquals(2f, MeshOptimizer.getACMR(fan, 3), 1e-6);
+		assertEquals(0, MeshOptimizer.getACMR(new int[0]), 0);
+	}
+
+	private static Object3D createShuffledGrid() {
+		float[] vertices = new float[(GRID + 1) * (GRID + 1) * 3];
+		float[] normals = new float[vertices.length];
+		float[] texCoords = new float[(GRID + 1) * (GRID + 1) * 2];
+		for (int y = 0; y <= GRID; y++) {
+			for (int x = 0; x <= GRID; x++) {
+				int v = y * (GRID + 1) + x;
+				vertices[v * 3] = x;
+				vertices[v * 3 + 1] = y;
+				normals[v * 3 + 2] = 1;
+				texCoords[v * 2] = x / (float) GRID;
+				texCoords[v * 2 + 1] = y / (float) GRID;
+			}
+		}
+		List<int[]> quads = new ArrayList<int[]>();
+		for (int y = 0; y < GRID; y++) {
+			for (int x = 0; x < GRID; x++) {
+				int v = y * (GRID + 1) + x;
+				quads.add(new int[] { v, v + 1, v + GRID + 2 });
+				quads.add(new int[] { v, v + GRID + 2, v + GRID + 1 });
+			}
+		}
+		Collections.shuffle(quads, new Random(7));
+		int[] indices = new int[quads.size() * 3];
+		for (int i = 0; i < quads.size(); i++) {
+			System.arraycopy(quads.get(i), 0, indices, i * 3, 3);
+		}
+		Object3D grid = new Object3D();
+		grid.setData(vertices, normals, texCoords, null, indices, false);
+		return grid;
+	}
+
+	/**
+	 * Sorted list of triangles written as the positions and texture coordinates of their corners,
+	 * starting at the smallest corner so the winding is kept.
+	 */
+	private static List<String> triangles(Geometry3D geometry) {
+		FloatBuffer vertices = geometry.getVertices();
+		FloatBuffer texCoords = geometry.getTextureCoords();
+		int[] indices = MeshOptimizer.getIndices(geometry.getIndices());
+		List<String> triangles = new ArrayList<String>();
+		for (int t = 0; t < indices.length / 3; t++) {
+			String[] corners = new String[3];
+			for (int c = 0; c < 3; c++) {
+				int v = indices[t * 3 + c];
+				corners[c] = vertices.get(v * 3) + "," + vertices.get(v * 3 + 1) + "," + vertices.get(v * 3 + 2)
+						+ "/" + texCoords.get(v * 2) + "," + texCoords.get(v * 2 + 1);
+			}
+			int first = 0;
+			for (int c = 1; c < 3; c++) {
+				if (corners[c].compareTo(corners[first]) < 0) first = c;
+			}
+			triangles.add(corners[first] + " " + corners[(first + 1) % 3] + " " + corners[(first + 2) % 3]);
+		}
+		Collections.sort(triangles);
+		return triangles;
+	}
+}
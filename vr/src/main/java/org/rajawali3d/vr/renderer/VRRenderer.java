@@ -23,6 +23,7 @@ import org.rajawali3d.math.Matrix4;
 import org.rajawali3d.math.Quaternion;
 import org.rajawali3d.math.vector.Vector3;
 import org.rajawali3d.renderer.Renderer;
+import org.rajawali3d.util.RayPicker;
 
 import javax.microedition.khronos.egl.EGLConfig;
 
@@ -39,6 +40,8 @@ public abstract class VRRenderer extends Renderer implements CardboardView.Stere
     protected Vector3 mCameraPosition;
     private Vector3 mForwardVec;
     private Vector3 mHeadTranslation;
+    private Vector3 mGazeEnd;
+    private RayPicker mGazePicker;
 
 
     private Matrix4 mLookingAtMatrix;
@@ -55,12 +58,15 @@ public abstract class VRRenderer extends Renderer implements CardboardView.Stere
         mCameraPosition = new Vector3();
         mForwardVec = new Vector3();
         mHeadTranslation = new Vector3();
+        mGazeEnd = new Vector3();
 	}
 
     @Override
     public void onNewFrame(HeadTransform headTransform) {
         headTransform.getHeadView(mHeadView, 0);
         mHeadViewMatrix.setAll(mHeadView);
+        // Animations advance once per head pose, the eyes only render
+        updateFrame();
     }
 
     @Override
@@ -75,7 +81,7 @@ public abstract class VRRenderer extends Renderer implements CardboardView.Stere
         getCurrentCamera().setOrientation(mCurrentEyeOrientation);
         getCurrentCamera().setPosition(mCameraPosition);
         getCurrentCamera().getPosition().add(mCurrentEyeMatrix.getTranslation().inverse());
-        super.onRenderFrame(null);
+        renderFrame();
     }
 
     @Override
@@ -98,6 +104,17 @@ public abstract class VRRenderer extends Renderer implements CardboardView.Stere
         super.onRenderSurfaceDestroyed(null);
     }
 
+    /**
+     * Sets the position of the head. Eye offsets are added to this position in {@link #onDrawEye(Eye)}.
+     *
+     * @param x {@code double} The x coordinate.
+     * @param y {@code double} The y coordinate.
+     * @param z {@code double} The z coordinate.
+     */
+    public void setCameraPosition(double x, double y, double z) {
+        mCameraPosition.setAll(x, y, z);
+    }
+
     public boolean isLookingAtObject(Object3D target) {
         return this.isLookingAtObject(target, MAX_LOOKAT_ANGLE);
     }
@@ -114,4 +131,27 @@ public abstract class VRRenderer extends Renderer implements CardboardView.Stere
 
         return mHeadTranslation.angle(mForwardVec) < maxAngle;
     }
+
+    /**
+     * Finds the nearest object in the line of sight. Unlike {@link #isLookingAtObject(Object3D)},
+     * which tests one object, this tests all visible objects of the current scene with a
+     * {@link RayPicker}. Call it on the GL thread.
+     *
+     * @param maxDistance {@code double} Objects farther than this from the head are ignored.
+     * @return {@link Object3D} The object or null.
+     */
+    public Object3D getLookingAtObject(double maxDistance) {
+        if (mGazePicker == null) {
+            mGazePicker = new RayPicker(this);
+        }
+        mHeadViewQuaternion.fromMatrix(mHeadViewMatrix);
+        mHeadViewQuaternion.inverse();
+        mForwardVec.setAll(0, 0, 1);
+        mForwardVec.transform(mHeadViewQuaternion);
+
+        // The head looks down its negative z axis
+        mGazeEnd.scaleAndSet(mForwardVec, -maxDistance);
+        mGazeEnd.add(mCameraPosition);
+        return mGazePicker.pickObject(mCameraPosition, mGazeEnd);
+    }
 }